@@ -37,3 +37,12 @@ from pet p
 inner join client c
 on p.id_client = c.id_client
 where p.name like '%lia%';
+
+-- Pooled id generators
+
+-- In mysql the sequences are emulated with the tables 'client_seq', 'pet_seq' and 'address_seq'.
+-- When they are created over a db that already has records, they must start after the biggest id.
+-- The application does it when it starts (SequenceAligner), these are the same statements
+update client_seq set next_val = (select coalesce(max(id_client), 0) + 50 from client) where next_val < (select coalesce(max(id_client), 0) + 50 from client);
+update pet_seq set next_val = (select coalesce(max(id_pet), 0) + 50 from pet) where next_val < (select coalesce(max(id_pet), 0) + 50 from pet);
+update address_seq set next_val = (select coalesce(max(id_address), 0) + 50 from address) where next_val < (select coalesce(max(id_address), 0) + 50 from address);
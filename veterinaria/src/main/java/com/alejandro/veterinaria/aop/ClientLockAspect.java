@@ -0,0 +1,118 @@
+package com.alejandro.veterinaria.aop;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.alejandro.veterinaria.concurrency.StripedLock;
+import com.alejandro.veterinaria.exceptions.ClientLockTimeoutException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// To run the changes of the pets and the address of the same client one by one.
+// The methods that change them receive the id of the client as their first argument, and they wait for
+// the lock of that client (the changes of different clients don't wait for each other).
+// This aspect runs before the transaction starts and after it ends, so the next change of the client
+// reads the data that the previous one committed
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class ClientLockAspect {
+
+    private final StripedLock locks;
+
+    // The most time that a change waits for the lock of its client
+    private final long timeoutMillis;
+
+    private final MeterRegistry registry;
+
+    // The meters of each method, they are created the first time that the method is called
+    private final Map<String, LockMeters> meters = new ConcurrentHashMap<>();
+
+    public ClientLockAspect(@Value("${veterinaria.client-lock.stripes:256}") int stripes,
+            @Value("${veterinaria.client-lock.timeout:5000}") long timeoutMillis, MeterRegistry registry) {
+        this.locks = new StripedLock(stripes);
+        this.timeoutMillis = timeoutMillis;
+        this.registry = registry;
+
+        Gauge.builder("veterinaria.client.lock.waiting", locks, StripedLock::queueLength)
+                .description("Number of changes that are waiting for the lock of their client")
+                .register(registry);
+    }
+
+    // To create advice that intercepts the methods that change the pets and the address of a client
+    @Around("(execution(* com.alejandro.veterinaria.services.PetServiceImp.*ByClient(..))"
+            + " || execution(* com.alejandro.veterinaria.services.AddressServiceImp.*ByClient(..)))"
+            + " && !execution(* com.alejandro.veterinaria.services.*.find*(..))")
+    public Object lockClient(ProceedingJoinPoint joinPoint) throws Throwable {
+        Long clientId = (Long) joinPoint.getArgs()[0];
+        LockMeters lockMeters = meters.computeIfAbsent(joinPoint.getSignature().getName(), LockMeters::new);
+        ReentrantLock lock = locks.get(clientId);
+
+        // If the lock is free then it's taken without waiting, else the change is counted as contended
+        long start = System.nanoTime();
+        if (!lock.tryLock()) {
+            lockMeters.contended.increment();
+
+            boolean locked;
+            try {
+                locked = lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                locked = false;
+            }
+
+            if (!locked) {
+                lockMeters.timeouts.increment();
+                throw new ClientLockTimeoutException("Error! El cliente esta siendo modificado por otra peticion, intente de nuevo.");
+            }
+        }
+
+        lockMeters.wait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        try {
+            return joinPoint.proceed();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The meters of the lock of a method
+    private class LockMeters {
+
+        private final Counter contended;
+
+        private final Counter timeouts;
+
+        private final Timer wait;
+
+        LockMeters(String method) {
+            this.contended = Counter.builder("veterinaria.client.lock.contended")
+                    .description("Number of changes that found the lock of their client taken")
+                    .tag("method", method)
+                    .register(registry);
+            this.timeouts = Counter.builder("veterinaria.client.lock.timeouts")
+                    .description("Number of changes that couldn't take the lock of their client in time")
+                    .tag("method", method)
+                    .register(registry);
+            this.wait = Timer.builder("veterinaria.client.lock.wait")
+                    .description("Time that the changes wait for the lock of their client")
+                    .tag("method", method)
+                    .register(registry);
+        }
+
+    }
+
+}
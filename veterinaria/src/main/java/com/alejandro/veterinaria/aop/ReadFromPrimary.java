@@ -0,0 +1,17 @@
+package com.alejandro.veterinaria.aop;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// To mark a read only method of a service that reads from the primary even with the profile 'replicas',
+// see 'ReadFromPrimaryAspect'. It's used by the reads whose result is saved in 'ClientResponseCache',
+// because a replica that is behind could give the data before a change and it would be cached with
+// the version after the change
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ReadFromPrimary {
+}
@@ -0,0 +1,31 @@
+package com.alejandro.veterinaria.aop;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.alejandro.veterinaria.config.ReplicaDataSource;
+
+// To read from the primary in the methods marked with 'ReadFromPrimary'.
+// This aspect runs before the transaction starts, so the connection of the transaction (that is taken
+// with the first statement) is one of the primary. Without the profile 'replicas' it doesn't change anything
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 3)
+public class ReadFromPrimaryAspect {
+
+    // To create advice that intercepts the methods marked to read from the primary
+    @Around("@annotation(com.alejandro.veterinaria.aop.ReadFromPrimary)")
+    public Object readFromPrimary(ProceedingJoinPoint joinPoint) throws Throwable {
+        boolean previous = ReplicaDataSource.readFromPrimary(true);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReplicaDataSource.readFromPrimary(previous);
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.alejandro.veterinaria.aop;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import com.alejandro.veterinaria.sql.QueryCaller;
+
+// To know which method of a repository sends each statement, so it's written in the slow query log.
+// The name of the repository is searched once per proxy (the method 'findById' is declared by 'CrudRepository',
+// so the name is taken from the interfaces of the proxy)
+@Aspect
+@Component
+public class RepositoryCallerAspect {
+
+    private static final String REPOSITORIES = "com.alejandro.veterinaria.repositories.";
+
+    private final Map<Class<?>, String> names = new ConcurrentHashMap<>();
+
+    // To create advice that intercepts all of the methods of the repositories
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object caller(ProceedingJoinPoint joinPoint) throws Throwable {
+        String repository = names.computeIfAbsent(joinPoint.getThis().getClass(), RepositoryCallerAspect::name);
+        String previous = QueryCaller.set(repository + "." + joinPoint.getSignature().getName());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            QueryCaller.restore(previous);
+        }
+    }
+
+    private static String name(Class<?> proxyClass) {
+        for (Class<?> type : proxyClass.getInterfaces()) {
+            if (type.getName().startsWith(REPOSITORIES)) {
+                return type.getSimpleName();
+            }
+        }
+        return proxyClass.getSimpleName();
+    }
+
+}
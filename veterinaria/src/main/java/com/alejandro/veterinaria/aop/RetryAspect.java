@@ -0,0 +1,112 @@
+package com.alejandro.veterinaria.aop;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.alejandro.veterinaria.exceptions.DbFailure;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// To send again the methods marked with 'RetryOnTransientFailure' when the db fails with a transient failure.
+// This aspect runs after the lock of the client is taken and before the transaction starts, so each attempt
+// has its own transaction (the failed one was rolled back). Between the attempts it waits a random time
+// up to an exponential limit, so the transactions that failed together don't collide again.
+// The duplicates and the rest of the failures are never sent again
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class RetryAspect {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetryAspect.class);
+
+    // The number of calls to the method, including the first one
+    private final int maxAttempts;
+
+    private final long initialDelayMillis;
+
+    private final long maxDelayMillis;
+
+    private final MeterRegistry registry;
+
+    public RetryAspect(@Value("${veterinaria.retry.max-attempts:3}") int maxAttempts,
+            @Value("${veterinaria.retry.initial-delay:50}") long initialDelayMillis,
+            @Value("${veterinaria.retry.max-delay:1000}") long maxDelayMillis, MeterRegistry registry) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialDelayMillis = Math.max(0, initialDelayMillis);
+        this.maxDelayMillis = Math.max(this.initialDelayMillis, maxDelayMillis);
+        this.registry = registry;
+    }
+
+    // To create advice that intercepts the methods marked to be sent again
+    @Around("@annotation(com.alejandro.veterinaria.aop.RetryOnTransientFailure)")
+    public Object retry(ProceedingJoinPoint joinPoint) throws Throwable {
+
+        // If the method joins a transaction that was started before then it can't be sent again alone,
+        // the transaction that failed is the one of the caller
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        String method = joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName();
+
+        for (int attempt = 1;; attempt++) {
+            try {
+                Object result = joinPoint.proceed();
+                if (attempt > 1) {
+                    this.counter("veterinaria.db.retry.recovered", "Number of methods that succeeded after being sent again",
+                            method, null).increment();
+                }
+                return result;
+            } catch (RuntimeException e) {
+                DbFailure failure = DbFailure.classify(e);
+                if (!failure.isTransient()) {
+                    throw e;
+                }
+
+                if (attempt >= maxAttempts) {
+                    this.counter("veterinaria.db.retry.exhausted", "Number of methods that failed in all of their attempts",
+                            method, failure).increment();
+                    throw e;
+                }
+
+                this.counter("veterinaria.db.retry.attempts", "Number of times that a method was sent again",
+                        method, failure).increment();
+                logger.warn("Transient failure ({}) in {}, attempt {} of {}", failure, method, attempt, maxAttempts);
+
+                try {
+                    Thread.sleep(this.backoff(attempt));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // To get the time to wait after a certain attempt, a random time between 0 and
+    // the initial delay multiplied by 2 for each attempt (without passing the max delay)
+    long backoff(int attempt) {
+        long limit = initialDelayMillis << Math.min(attempt - 1, 20);
+        return ThreadLocalRandom.current().nextLong(Math.min(limit, maxDelayMillis) + 1);
+    }
+
+    private Counter counter(String name, String description, String method, DbFailure failure) {
+        Counter.Builder builder = Counter.builder(name).description(description).tag("method", method);
+        if (failure != null) {
+            builder.tag("reason", failure.name().toLowerCase());
+        }
+        return builder.register(registry);
+    }
+
+}
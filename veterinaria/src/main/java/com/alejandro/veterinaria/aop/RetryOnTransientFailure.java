@@ -0,0 +1,16 @@
+package com.alejandro.veterinaria.aop;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// To mark a transactional method of a service that is sent again when the db fails with a transient failure
+// (a deadlock, a lock wait timeout or an optimistic lock failure), see 'RetryAspect'.
+// It must be used only on idempotent methods, the method is called again with the same arguments
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface RetryOnTransientFailure {
+}
@@ -0,0 +1,134 @@
+package com.alejandro.veterinaria.aop;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.alejandro.veterinaria.sql.QueryCaller;
+import com.alejandro.veterinaria.sql.QueryCounter;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// To measure the time, the calls and the errors of the methods of the services.
+// Each call is recorded in the timer 'veterinaria.service.calls' with the class, the method,
+// the outcome (SUCCESS or ERROR) and the exception, so the count of the timer is the number of calls
+// and the count with the outcome ERROR is the number of errors. The SQL statements of each call are
+// recorded in 'veterinaria.service.queries', so the methods with a N+1 problem can be found.
+// The method is also the caller of the statements that are not sent by a repository (see 'QueryCaller').
+// The meters are searched once per method (and exception), so a call only reads the clock twice and
+// records the time. This aspect runs before the rest, so the time includes the wait for the lock
+// of the client, the retries and the transaction
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ServiceMetricsAspect {
+
+    private final MeterRegistry registry;
+
+    // The percentiles calculated by the application (p50, p95 and p99), only without the histogram
+    // because Prometheus doesn't publish them with it. With the histogram they're calculated
+    // from the buckets (histogram_quantile(0.99, rate(veterinaria_service_calls_seconds_bucket[5m])))
+    private final double[] percentiles;
+
+    // To publish the buckets of the histogram (between 1 ms and 30 s), so the percentiles can be
+    // calculated by Prometheus for all of the instances
+    private final boolean histogram;
+
+    private final Map<Method, MethodMeters> meters = new ConcurrentHashMap<>();
+
+    public ServiceMetricsAspect(MeterRegistry registry,
+            @Value("${veterinaria.metrics.service.percentiles:0.5,0.95,0.99}") double[] percentiles,
+            @Value("${veterinaria.metrics.service.histogram:true}") boolean histogram) {
+        this.registry = registry;
+        this.percentiles = percentiles;
+        this.histogram = histogram;
+    }
+
+    // To create advice that intercepts all of the methods of the services
+    @Around("execution(public * com.alejandro.veterinaria.services..*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        MethodMeters methodMeters = meters.computeIfAbsent(method,
+                key -> new MethodMeters(joinPoint.getTarget().getClass().getSimpleName(), key.getName()));
+
+        String previousService = QueryCaller.setService(methodMeters.caller);
+        long statements = QueryCounter.current();
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            methodMeters.success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            methodMeters.error(e.getClass()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        } finally {
+            methodMeters.queries.record(QueryCounter.current() - statements);
+            QueryCaller.restoreService(previousService);
+        }
+    }
+
+    // The meters of a method, the timer of the errors is created the first time that each exception is fired
+    private class MethodMeters {
+
+        private final String className;
+
+        private final String methodName;
+
+        // The caller of the statements of the method, as 'ClientServiceImp.update'
+        private final String caller;
+
+        private final Timer success;
+
+        private final DistributionSummary queries;
+
+        private final Map<Class<?>, Timer> errors = new ConcurrentHashMap<>();
+
+        MethodMeters(String className, String methodName) {
+            this.className = className;
+            this.methodName = methodName;
+            this.caller = className + "." + methodName;
+            this.success = timer("SUCCESS", "none");
+            this.queries = DistributionSummary.builder("veterinaria.service.queries")
+                    .description("Number of SQL statements of each call to the methods of the services")
+                    .tag("class", className)
+                    .tag("method", methodName)
+                    .register(registry);
+        }
+
+        Timer error(Class<?> exception) {
+            return errors.computeIfAbsent(exception, key -> timer("ERROR", key.getSimpleName()));
+        }
+
+        private Timer timer(String outcome, String exception) {
+            Timer.Builder builder = Timer.builder("veterinaria.service.calls")
+                    .description("Time, calls and errors of the methods of the services")
+                    .tag("class", className)
+                    .tag("method", methodName)
+                    .tag("outcome", outcome)
+                    .tag("exception", exception)
+                    .publishPercentileHistogram(histogram)
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(30));
+
+            if (!histogram) {
+                builder.publishPercentiles(percentiles);
+            }
+            return builder.register(registry);
+        }
+
+    }
+
+}
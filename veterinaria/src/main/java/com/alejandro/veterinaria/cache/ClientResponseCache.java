@@ -0,0 +1,223 @@
+package com.alejandro.veterinaria.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import com.alejandro.veterinaria.utils.AfterCommit;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// A cache of the json responses of a client, its pets and its address, already serialized.
+// When a response is in the cache its bytes are sent as they are, so the db is not read and
+// jackson doesn't serialize the entities again. A compressed copy (gzip) is kept to send it
+// to the clients that accept it.
+// Each client has a version that is increased by the services when the client, its pets or its address
+// change, and a response is only used if it was created with the current version of its client.
+// The responses also expire after some time, so a response is never used for too long even if
+// it was read from a replica that didn't have the last changes yet.
+@Component
+public class ClientResponseCache {
+
+    // The responses of a client that are cached
+    public enum Resource {
+        CLIENT, PETS, ADDRESS
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // The number of responses in the cache, the least recently used ones are removed
+    @Value("${veterinaria.response-cache.max-entries:10000}")
+    private int maxEntries = 10000;
+
+    // The time that a response is used since it was saved
+    @Value("${veterinaria.response-cache.ttl:5m}")
+    private Duration ttl = Duration.ofMinutes(5);
+
+    private Clock clock = Clock.systemUTC();
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    // The versions are taken from a counter shared by all of the clients, and only the versions of the
+    // clients that changed recently are kept. When the version of a client is removed, the clients without
+    // a version get the highest version removed, so the responses saved before its change are never used
+    // and the other clients only lose their responses (they are read from the db again)
+    private long lastVersion;
+
+    private long defaultVersion;
+
+    private final Map<Long, Long> versions = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            if (size() <= maxEntries) {
+                return false;
+            }
+            defaultVersion = Math.max(defaultVersion, eldest.getValue());
+            return true;
+        }
+    };
+
+    // -----------------------------
+    // Methods to use the cache
+    // -----------------------------
+
+    // To get the version of a client.
+    // It must be read before the client is read from the db, so if the client changes in the meantime
+    // the response is saved with the old version and it's never used
+    public long version(Long clientId) {
+        synchronized (versions) {
+            return versions.getOrDefault(clientId, defaultVersion);
+        }
+    }
+
+    // To get the cached response of a client, or null if it isn't cached (or it's from an old version)
+    public ResponseEntity<byte[]> get(Resource resource, Long clientId, String acceptEncoding) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(new Key(resource, clientId));
+        }
+
+        if (entry == null || entry.version != this.version(clientId) || clock.millis() >= entry.expiresAt) {
+            return null;
+        }
+
+        return this.response(entry, acceptEncoding);
+    }
+
+    // To serialize a response, save it in the cache and get it
+    public ResponseEntity<byte[]> put(Resource resource, Long clientId, long version, Object body, String eTag,
+            String acceptEncoding) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Entry entry = new Entry(version, clock.millis() + ttl.toMillis(), eTag, json, gzip(json));
+        synchronized (entries) {
+            entries.put(new Key(resource, clientId), entry);
+        }
+
+        return this.response(entry, acceptEncoding);
+    }
+
+    // To invalidate the responses of a client when the current transaction is committed
+    public void invalidate(Long clientId) {
+        AfterCommit.run(() -> {
+            synchronized (versions) {
+                versions.put(clientId, ++lastVersion);
+            }
+            synchronized (entries) {
+                for (Resource resource : Resource.values()) {
+                    entries.remove(new Key(resource, clientId));
+                }
+            }
+        });
+    }
+
+    // To remove all of the responses
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private ResponseEntity<byte[]> response(Entry entry, String acceptEncoding) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        // With the ETag a request with the header 'If-None-Match' gets a 304 (not modified) response
+        if (entry.eTag != null) {
+            builder.eTag(entry.eTag);
+        }
+
+        if (entry.gzip != null && acceptsGzip(acceptEncoding)) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(entry.gzip);
+        }
+
+        return builder.body(entry.json);
+    }
+
+    // To know if the header 'Accept-Encoding' accepts gzip, the codings with the weight 0 (';q=0') are not accepted.
+    // The coding '*' accepts gzip when gzip is not in the header
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        Boolean wildcard = null;
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!coding.equals("gzip") && !coding.equals("*")) {
+                continue;
+            }
+
+            boolean accepted = weight(parts) > 0;
+            if (coding.equals("gzip")) {
+                return accepted;
+            }
+            wildcard = accepted;
+        }
+
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    // To get the weight of a coding of the header 'Accept-Encoding', it's 1 without the parameter 'q'
+    // and 0 if the parameter is not valid
+    private static double weight(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.length() > 1 && Character.toLowerCase(parameter.charAt(0)) == 'q' && parameter.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    // To compress a response. If the compressed response is not smaller (for example
+    // a client without many data) then it's not kept
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(json.length);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        byte[] compressed = output.toByteArray();
+        return compressed.length < json.length ? compressed : null;
+    }
+
+    private record Key(Resource resource, Long clientId) {
+    }
+
+    private record Entry(long version, long expiresAt, String eTag, byte[] json, byte[] gzip) {
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.alejandro.veterinaria.concurrency;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// A fixed number of locks shared by all of the keys, each key always uses the same lock.
+// Two keys can share a lock, but with enough stripes the keys that are used at the same time
+// (the clients that are changed at the same moment) almost never wait for each other
+public class StripedLock {
+
+    private final ReentrantLock[] locks;
+
+    public StripedLock(int stripes) {
+        this.locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.locks[i] = new ReentrantLock();
+        }
+    }
+
+    // To get the lock of a key, the bits of the hash are mixed so the consecutive ids use different locks
+    public ReentrantLock get(long key) {
+        int hash = Long.hashCode(key);
+        hash ^= (hash >>> 16);
+        return locks[Math.floorMod(hash * 0x9E3779B9, locks.length)];
+    }
+
+    // To get the number of threads that are waiting for a lock (it's an estimate)
+    public int queueLength() {
+        int waiting = 0;
+        for (ReentrantLock lock : locks) {
+            waiting += lock.getQueueLength();
+        }
+        return waiting;
+    }
+
+    public int stripes() {
+        return locks.length;
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.alejandro.veterinaria.config;
+
+import java.net.URISyntaxException;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+
+// Configuration of the second level cache of hibernate, it's only used with the profile 'cache'
+@Configuration
+@Profile("cache")
+public class CacheConfig {
+
+    // To create the cache manager with the regions of the file 'ehcache.xml'
+    @Bean(destroyMethod = "close")
+    public CacheManager jcacheManager() throws URISyntaxException {
+        return Caching.getCachingProvider(EhcacheCachingProvider.class.getName())
+                .getCacheManager(getClass().getResource("/ehcache.xml").toURI(), getClass().getClassLoader());
+    }
+
+    // To make hibernate use the same cache manager, so its regions are the ones that are measured
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager jcacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, jcacheManager);
+    }
+
+    // To publish the hits, misses, puts and evictions of each region in the metrics of the actuator
+    @Bean
+    public MeterBinder cacheRegionsMetrics(CacheManager jcacheManager) {
+        return registry -> jcacheManager.getCacheNames()
+                .forEach(name -> JCacheMetrics.monitor(registry, jcacheManager.getCache(name)));
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.alejandro.veterinaria.config;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.alejandro.veterinaria.idempotency.IdempotencyFilter;
+import com.alejandro.veterinaria.idempotency.IdempotencyStore;
+import com.alejandro.veterinaria.idempotency.InMemoryIdempotencyStore;
+import com.alejandro.veterinaria.idempotency.JdbcIdempotencyStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Configuration of the header 'Idempotency-Key' of the requests that create records.
+// The responses are kept in memory, or in the table 'idempotency_response' with the profile 'idempotency-jdbc'
+@Configuration
+public class IdempotencyConfig {
+
+    // The time that a response is kept, a key can be used again after it
+    @Value("${veterinaria.idempotency.ttl:24h}")
+    private Duration ttl;
+
+    // The number of responses in memory, the oldest ones are removed
+    @Value("${veterinaria.idempotency.max-entries:10000}")
+    private int maxEntries;
+
+    // The number of reservations between two deletions of the expired keys of the table
+    @Value("${veterinaria.idempotency.purge-interval:1000}")
+    private int purgeInterval;
+
+    @Bean
+    @Profile("!idempotency-jdbc")
+    public IdempotencyStore idempotencyStore() {
+        return new InMemoryIdempotencyStore(maxEntries, ttl, Clock.systemUTC());
+    }
+
+    @Bean
+    @Profile("idempotency-jdbc")
+    public IdempotencyStore jdbcIdempotencyStore(JdbcTemplate jdbcTemplate) {
+        JdbcIdempotencyStore store = new JdbcIdempotencyStore(jdbcTemplate, ttl, Clock.systemUTC(), purgeInterval);
+        store.createTable();
+        return store;
+    }
+
+    // The filter is only registered for the paths of the clients, it checks the rest of the path by itself
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(IdempotencyStore idempotencyStore, ObjectMapper objectMapper) {
+        FilterRegistrationBean<IdempotencyFilter> registration =
+                new FilterRegistrationBean<>(new IdempotencyFilter(idempotencyStore, objectMapper));
+        registration.addUrlPatterns("/api/clients", "/api/clients/*");
+        return registration;
+    }
+
+}
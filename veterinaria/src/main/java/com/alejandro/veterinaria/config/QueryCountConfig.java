@@ -0,0 +1,40 @@
+package com.alejandro.veterinaria.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.alejandro.veterinaria.sql.QueryCountFilter;
+import com.alejandro.veterinaria.sql.QueryCountInspector;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Configuration of the count of the SQL statements of each request and of each method of the services
+@Configuration
+public class QueryCountConfig {
+
+    // The number of statements of a request that is logged as a possible N+1 problem
+    @Value("${veterinaria.queries.threshold:10}")
+    private int threshold;
+
+    // To make hibernate count the statements that it prepares
+    @Bean
+    public HibernatePropertiesCustomizer queryCountCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCountInspector());
+    }
+
+    // The filter is the first one, so the statements of the rest of the filters are counted too
+    @Bean
+    public FilterRegistrationBean<QueryCountFilter> queryCountFilter(MeterRegistry registry) {
+        FilterRegistrationBean<QueryCountFilter> registration =
+                new FilterRegistrationBean<>(new QueryCountFilter(registry, threshold));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.alejandro.veterinaria.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+// Configuration of the replicas of the db, it's only used with the profile 'replicas'.
+// The transactions with 'readOnly = true' use a connection of a replica and the others use the primary.
+// The connection is taken when the first statement is executed (not when the transaction starts),
+// because the transaction is marked as read only after it starts.
+@Configuration
+@Profile("replicas")
+public class ReplicaConfig {
+
+    @Value("${veterinaria.replicas.urls}")
+    private List<String> urls;
+
+    @Value("${veterinaria.replicas.username:${spring.datasource.username:}}")
+    private String username;
+
+    @Value("${veterinaria.replicas.password:${spring.datasource.password:}}")
+    private String password;
+
+    @Value("${veterinaria.replicas.strategy:round_robin}")
+    private String strategy;
+
+    @Value("${veterinaria.replicas.maximum-pool-size:10}")
+    private int maximumPoolSize;
+
+    @Value("${veterinaria.replicas.connection-timeout:1000}")
+    private long connectionTimeout;
+
+    @Value("${veterinaria.replicas.health-check-interval:5000}")
+    private long healthCheckInterval;
+
+    @Value("${veterinaria.replicas.health-check-timeout:1}")
+    private int healthCheckTimeout;
+
+    // To create the pool of the primary with the properties 'spring.datasource.*' (as spring boot does)
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    // To create a pool for each replica, the pools start even if the replica doesn't answer
+    // (the replica is ejected by the health check)
+    @Bean(destroyMethod = "close")
+    public ReplicaDataSource replicaDataSource(DataSourceProperties properties, HikariDataSource primaryDataSource) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("replica-" + (replicas.size() + 1));
+            config.setJdbcUrl(url.trim());
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setDriverClassName(properties.determineDriverClassName());
+            config.setReadOnly(true);
+            config.setMaximumPoolSize(maximumPoolSize);
+            config.setConnectionTimeout(connectionTimeout);
+            config.setInitializationFailTimeout(-1);
+            replicas.add(new HikariDataSource(config));
+        }
+
+        ReplicaDataSource replicaDataSource = new ReplicaDataSource(primaryDataSource, replicas,
+                ReplicaDataSource.Strategy.valueOf(strategy.toUpperCase()), ReplicaConfig::activeConnections);
+        replicaDataSource.startHealthCheck(healthCheckInterval, healthCheckTimeout);
+        return replicaDataSource;
+    }
+
+    // The data source that is used by hibernate and the repositories
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+
+    // To publish the number of replicas that are used in the metrics of the actuator
+    @Bean
+    public MeterBinder replicasMetrics(ReplicaDataSource replicaDataSource) {
+        return registry -> Gauge.builder("veterinaria.replicas.healthy", replicaDataSource, ReplicaDataSource::healthyReplicas)
+                .description("Number of replicas that are used for the read only transactions")
+                .register(registry);
+    }
+
+    private static int activeConnections(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikari) {
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            return pool != null ? pool.getActiveConnections() : 0;
+        }
+        return 0;
+    }
+
+}
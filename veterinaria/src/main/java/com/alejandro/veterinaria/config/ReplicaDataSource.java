@@ -0,0 +1,229 @@
+package com.alejandro.veterinaria.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+// The data source of the read only connections, it gives a connection of one of the replicas.
+// The replica is chosen by the strategy (round robin or the one with less active connections),
+// a replica that can't be reached is ejected until the health check can use it again,
+// and if there isn't any healthy replica the connection is given by the primary data source.
+// The reads that must see the last changes use the primary (see 'ReadFromPrimary').
+public class ReplicaDataSource extends AbstractDataSource implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaDataSource.class);
+
+    // The threads that must read from the primary, even in a read only transaction
+    private static final ThreadLocal<Boolean> PRIMARY_READS = ThreadLocal.withInitial(() -> false);
+
+    public enum Strategy { ROUND_ROBIN, LEAST_CONNECTIONS }
+
+    private final List<Replica> replicas = new ArrayList<>();
+
+    private final DataSource primary;
+
+    private final Strategy strategy;
+
+    // To count the active connections of a replica (only used by the strategy 'LEAST_CONNECTIONS')
+    private final ToIntFunction<DataSource> activeConnections;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private ScheduledExecutorService healthCheck;
+
+    public ReplicaDataSource(DataSource primary, List<? extends DataSource> replicas, Strategy strategy,
+            ToIntFunction<DataSource> activeConnections) {
+        this.primary = primary;
+        this.strategy = strategy;
+        this.activeConnections = activeConnections;
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.add(new Replica("replica-" + (i + 1), replicas.get(i)));
+        }
+    }
+
+    // -----------------------------
+    // Methods to get a connection
+    // -----------------------------
+
+    // To get a connection of a healthy replica, the replicas that fail are ejected and the next one is used
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (PRIMARY_READS.get()) {
+            return primary.getConnection();
+        }
+
+        for (Replica replica : candidates()) {
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                failed(replica, e);
+            }
+        }
+
+        // If there isn't any healthy replica then the primary is used
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (PRIMARY_READS.get()) {
+            return primary.getConnection(username, password);
+        }
+
+        for (Replica replica : candidates()) {
+            try {
+                return replica.dataSource.getConnection(username, password);
+            } catch (SQLException e) {
+                failed(replica, e);
+            }
+        }
+        return primary.getConnection(username, password);
+    }
+
+    // To use the primary for the read only transactions of the current thread (or to stop using it).
+    // It returns the previous value, so it can be restored
+    public static boolean readFromPrimary(boolean primaryReads) {
+        boolean previous = PRIMARY_READS.get();
+        PRIMARY_READS.set(primaryReads);
+        return previous;
+    }
+
+    // To order the healthy replicas, the first one is the one chosen by the strategy
+    // and the others are used only if it fails
+    private List<Replica> candidates() {
+        List<Replica> healthy = replicas.stream().filter(replica -> replica.healthy).toList();
+        if (healthy.isEmpty()) {
+            return healthy;
+        }
+
+        if (strategy == Strategy.LEAST_CONNECTIONS) {
+            return healthy.stream()
+                    .sorted(Comparator.comparingInt(replica -> activeConnections.applyAsInt(replica.dataSource)))
+                    .toList();
+        }
+
+        int first = Math.floorMod(next.getAndIncrement(), healthy.size());
+        List<Replica> ordered = new ArrayList<>(healthy.size());
+        for (int i = 0; i < healthy.size(); i++) {
+            ordered.add(healthy.get((first + i) % healthy.size()));
+        }
+        return ordered;
+    }
+
+    // -----------------------------
+    // Methods for the health of the replicas
+    // -----------------------------
+
+    // To check the replicas each interval, so the ejected replicas are used again when they answer
+    public void startHealthCheck(long intervalMillis, int timeoutSeconds) {
+        healthCheck = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthCheck.scheduleWithFixedDelay(() -> checkHealth(timeoutSeconds), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // To eject the replicas that don't answer and to add again the ones that answer
+    public void checkHealth(int timeoutSeconds) {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (!connection.isValid(timeoutSeconds)) {
+                    throw new SQLNonTransientConnectionException("The connection is not valid", "08003");
+                }
+                if (!replica.healthy) {
+                    replica.healthy = true;
+                    logger.info("The {} is healthy again and it's used for the read only transactions", replica.name);
+                }
+            } catch (SQLException e) {
+                failed(replica, e);
+            }
+        }
+    }
+
+    // A replica is ejected only if it can't be reached. If its pool doesn't have a free connection
+    // (hikari fails with a timeout without a cause) the replica works, so only the next one is used
+    private void failed(Replica replica, SQLException e) {
+        if (isConnectionFailure(e)) {
+            eject(replica, e);
+        } else {
+            logger.debug("The {} didn't give a connection: {}", replica.name, e.getMessage());
+        }
+    }
+
+    // To know if an error is a failure to connect or to talk with the db: the SQL state of the
+    // connection errors starts with '08' (hikari keeps the SQL state of the error of the driver)
+    // or the cause is an error of the network
+    static boolean isConnectionFailure(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLNonTransientConnectionException || cause instanceof IOException) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null
+                    && sqlException.getSQLState().startsWith("08")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void eject(Replica replica, SQLException e) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            logger.warn("The {} is ejected: {}", replica.name, e.getMessage());
+        }
+    }
+
+    // To get the number of replicas that are used (the others are ejected)
+    public int healthyReplicas() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    // To stop the health check and to close the pools of the replicas
+    @Override
+    public void close() {
+        if (healthCheck != null) {
+            healthCheck.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    logger.warn("The {} couldn't be closed: {}", replica.name, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static class Replica {
+
+        private final String name;
+
+        private final DataSource dataSource;
+
+        private volatile boolean healthy = true;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.alejandro.veterinaria.config;
+
+import java.lang.reflect.Field;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.alejandro.veterinaria.entities.Address;
+import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.Pet;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.Column;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+// To move the sequences of the ids after the biggest id of their tables when the application starts.
+// In mysql the sequences are emulated with tables ('client_seq', 'pet_seq' and 'address_seq') that hibernate
+// creates starting at 1, so over a db that already has records the first inserts would use ids that exist.
+// It runs after hibernate updated the schema and before the server accepts requests.
+// The dbs with real sequences (h2 in the tests) are not changed
+@Component
+@DependsOn("entityManagerFactory")
+public class SequenceAligner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SequenceAligner.class);
+
+    // The entities with ids generated by a sequence
+    private static final List<Class<?>> ENTITIES = List.of(Client.class, Pet.class, Address.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SequenceAligner(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void align() {
+        ENTITIES.forEach(this::align);
+    }
+
+    // The table, the column and the sequence are read from the mapping of the entity,
+    // so they can't be different from the ones used by hibernate
+    private void align(Class<?> entity) {
+        Field id = Arrays.stream(entity.getDeclaredFields())
+                .filter(field -> field.isAnnotationPresent(Id.class))
+                .findFirst()
+                .orElseThrow();
+        SequenceGenerator generator = id.getAnnotation(SequenceGenerator.class);
+        align(entity.getAnnotation(Table.class).name(), id.getAnnotation(Column.class).name(),
+                generator.sequenceName(), generator.allocationSize());
+    }
+
+    // With the pooled generator of hibernate, the value read from the sequence is the last id of
+    // the block it gives (the block is from 'next_val - allocationSize + 1' to 'next_val'),
+    // so 'next_val' must be at least the biggest id plus the size of the block.
+    // The sequence is only moved forward, so it can run while another instance is inserting
+    public void align(String table, String column, String sequence, int allocationSize) {
+        if (!isTable(sequence)) {
+            return;
+        }
+
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(" + column + "), 0) from " + table, Long.class);
+        long nextVal = maxId + allocationSize;
+        int updated = jdbcTemplate.update("update " + sequence + " set next_val = ? where next_val < ?", nextVal, nextVal);
+        if (updated > 0) {
+            logger.warn("The sequence '{}' was behind the biggest id of '{}' ({}), it was moved to {}",
+                    sequence, table, maxId, nextVal);
+        }
+    }
+
+    // To know if the sequence is emulated with a table
+    private boolean isTable(String name) {
+        return jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String tableName = metaData.storesUpperCaseIdentifiers() ? name.toUpperCase() : name;
+            try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, tableName, new String[] { "TABLE" })) {
+                return tables.next();
+            }
+        });
+    }
+
+}
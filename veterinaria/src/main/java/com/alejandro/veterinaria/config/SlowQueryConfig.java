@@ -0,0 +1,68 @@
+package com.alejandro.veterinaria.config;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.alejandro.veterinaria.sql.ParameterMasker;
+import com.alejandro.veterinaria.sql.SlowQueryDataSource;
+import com.alejandro.veterinaria.sql.SlowQueryLog;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+// Configuration of the slow query log, the data source used by hibernate and the repositories
+// (the one named 'dataSource', with or without the replicas) is wrapped to measure its statements.
+// It's used instead of 'spring.jpa.show-sql', that writes every statement without its parameters
+@Configuration
+@ConditionalOnProperty(name = "veterinaria.slow-query.enabled", havingValue = "true", matchIfMissing = true)
+public class SlowQueryConfig {
+
+    @Bean(destroyMethod = "close")
+    public SlowQueryLog slowQueryLog(@Value("${veterinaria.slow-query.buffer-size:1024}") int bufferSize,
+            @Value("${veterinaria.slow-query.masked-columns:email,phone_number}") List<String> maskedColumns) {
+        return new SlowQueryLog(bufferSize, new ParameterMasker(new HashSet<>(maskedColumns)));
+    }
+
+    // The data source is wrapped after it's created, the log is searched when it's needed
+    // (so it doesn't stop the post processors from being applied to it)
+    @Bean
+    public static BeanPostProcessor slowQueryDataSourcePostProcessor(ObjectProvider<SlowQueryLog> slowQueryLog,
+            @Value("${veterinaria.slow-query.threshold:200ms}") Duration threshold,
+            @Value("${veterinaria.slow-query.sample-rate:0}") double sampleRate) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (beanName.equals("dataSource") && bean instanceof DataSource dataSource
+                        && !(bean instanceof SlowQueryDataSource)) {
+                    return new SlowQueryDataSource(dataSource, slowQueryLog.getObject(), threshold.toNanos(), sampleRate);
+                }
+                return bean;
+            }
+        };
+    }
+
+    // To publish the statements that are waiting to be written and the ones that were dropped
+    @Bean
+    public MeterBinder slowQueryLogMetrics(SlowQueryLog slowQueryLog) {
+        return registry -> {
+            Gauge.builder("veterinaria.sql.slow.pending", slowQueryLog, SlowQueryLog::pending)
+                    .description("Number of statements that are waiting to be written in the slow query log")
+                    .register(registry);
+            FunctionCounter.builder("veterinaria.sql.slow.dropped", slowQueryLog, SlowQueryLog::dropped)
+                    .description("Number of statements that weren't written because the buffer of the slow query log was full")
+                    .register(registry);
+        };
+    }
+
+}
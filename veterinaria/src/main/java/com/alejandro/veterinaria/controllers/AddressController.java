@@ -1,26 +1,37 @@
 package com.alejandro.veterinaria.controllers;
 
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.alejandro.veterinaria.cache.ClientResponseCache;
+import com.alejandro.veterinaria.cache.ClientResponseCache.Resource;
 import com.alejandro.veterinaria.entities.Address;
 import com.alejandro.veterinaria.entities.Client;
 import com.alejandro.veterinaria.services.AddressService;
-import com.alejandro.veterinaria.services.ClientService;
+import com.alejandro.veterinaria.utils.UtilETag;
+import com.alejandro.veterinaria.utils.UtilPatch;
 import com.alejandro.veterinaria.utils.UtilValidation;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
 import jakarta.validation.Valid;
 
 @RestController // To create a api rest.
@@ -31,26 +42,51 @@ public class AddressController {
     @Autowired
     private AddressService service;
 
-    // To Inject the service dependency
     @Autowired
-    private ClientService clientService;
+    private UtilValidation utilValidation;
 
     @Autowired
-    private UtilValidation utilValidation;
+    private UtilETag utilETag;
+
+    // To send the responses that were already serialized
+    @Autowired
+    private ClientResponseCache responseCache;
     
     // -----------------------------
     // Methods for address entity
     // -----------------------------
 
     // To create an endpoint that allows invoking the 'getAddressByClient' method.
+    // The response is served from the cache while the address of the client doesn't change.
+    // If the header 'If-None-Match' has the current ETag then the response is a 304 (not modified)
     @GetMapping("/{id_client}/addresses")
-    public ResponseEntity<?> getAddressByClient(@PathVariable Long id_client) {
+    public ResponseEntity<?> getAddressByClient(@PathVariable Long id_client,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        ResponseEntity<byte[]> cached = responseCache.get(Resource.ADDRESS, id_client, acceptEncoding);
+        if (cached != null) {
+            return cached;
+        }
+
         // Search for a specific client
-        Optional<Client> optionalClient = clientService.findById(id_client);
+        long version = responseCache.version(id_client);
+        Optional<Client> optionalClient = service.findAddressByClient(id_client);
 
-        // if the client is present then return the pet array.
+        // if the client is present then return the address.
+        // A client without address has an empty response, which is not cached
         if (optionalClient.isPresent()) {
-            return ResponseEntity.ok(optionalClient.get().getAddress());
+            Address address = optionalClient.get().getAddress();
+            if (address == null) {
+                return ResponseEntity.ok(null);
+            }
+
+            // The address is not serialized if the response is a 304
+            String eTag = utilETag.tag(address);
+            if (request.checkNotModified(eTag)) {
+                return null;
+            }
+
+            return responseCache.put(Resource.ADDRESS, id_client, version, address, eTag, acceptEncoding);
         }
 
         // Else, return an empty optional
@@ -79,19 +115,47 @@ public class AddressController {
     
     // To create an endpoint that allows updating information of the address of a
     // certain client
+    // If the header 'If-Match' is sent then the address is updated only if its ETag is the same,
+    // else the response is a 412 (precondition failed)
     @PutMapping("/{clientId}/addresses")
-    public ResponseEntity<?> editAddressByClientId(@Valid @RequestBody Address editAddress, BindingResult result, @PathVariable Long clientId) {
+    public ResponseEntity<?> editAddressByClientId(@Valid @RequestBody Address editAddress, BindingResult result, @PathVariable Long clientId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         // To handle of obligations of object attributes
         if (result.hasFieldErrors()) {
             return utilValidation.validation(result);
         }
 
         // Call the 'editPetByClient' method
-        Optional<Client> optionalUpdateClient = service.editAddressByClient(clientId, editAddress);
+        Optional<Client> optionalUpdateClient = service.editAddressByClient(clientId, editAddress, ifMatch);
 
-        // if the client is present then it means that the object could be updated
+        // if the client is present then it means that the object could be updated.
+        // The response has the ETag of the new version of the address, like the response of the patch
         if ( optionalUpdateClient.isPresent() ) {
-            return ResponseEntity.status(HttpStatus.CREATED).body(optionalUpdateClient.get());
+            return ResponseEntity.status(HttpStatus.CREATED).eTag(utilETag.tag(optionalUpdateClient.get().getAddress()))
+                    .body(optionalUpdateClient.get());
+        }
+
+        // Else, return a 404 status code.
+        return ResponseEntity.notFound().build();
+    }
+
+    // To create an endpoint that allows changing some attributes of the address of a
+    // certain client with a JSON merge patch. Only the attributes sent are changed,
+    // and if the patch doesn't change anything then the address is not written.
+    // If the header 'If-Match' is sent then the address is changed only if its ETag is the same
+    @PatchMapping(value = "/{clientId}/addresses", consumes = { UtilPatch.MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE })
+    public ResponseEntity<?> patchAddressByClientId(@RequestBody JsonNode patch, @PathVariable Long clientId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Optional<Address> optionalAddress;
+        try {
+            optionalAddress = service.patchAddressByClient(clientId, patch, ifMatch);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("patch", e.getMessage()));
+        }
+
+        // if the address is present then the client has an address
+        if (optionalAddress.isPresent()) {
+            return ResponseEntity.ok().eTag(utilETag.tag(optionalAddress.get())).body(optionalAddress.get());
         }
 
         // Else, return a 404 status code.
@@ -1,25 +1,46 @@
 package com.alejandro.veterinaria.controllers;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.alejandro.veterinaria.cache.ClientResponseCache;
+import com.alejandro.veterinaria.cache.ClientResponseCache.Resource;
 import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.ClientBatch;
+import com.alejandro.veterinaria.entities.ClientDetail;
+import com.alejandro.veterinaria.entities.ClientPage;
+import com.alejandro.veterinaria.entities.ClientSummary;
 import com.alejandro.veterinaria.services.ClientService;
+import com.alejandro.veterinaria.utils.UtilCursor;
+import com.alejandro.veterinaria.utils.UtilETag;
+import com.alejandro.veterinaria.utils.UtilExpand;
+import com.alejandro.veterinaria.utils.UtilExpand.Expand;
+import com.alejandro.veterinaria.utils.UtilPatch;
 import com.alejandro.veterinaria.utils.UtilValidation;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
 import jakarta.validation.Valid;
 
 @RestController // To create a api rest.
@@ -33,24 +54,142 @@ public class ClientController {
     @Autowired
     private UtilValidation utilValidation;
 
+    @Autowired
+    private UtilCursor utilCursor;
+
+    @Autowired
+    private UtilETag utilETag;
+
+    @Autowired
+    private UtilExpand utilExpand;
+
+    // To send the responses that were already serialized
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    // Size of the page when the client doesn't send one
+    @Value("${veterinaria.clients.page-size:20}")
+    private int defaultPageSize;
+
+    // The biggest page that can be requested
+    @Value("${veterinaria.clients.max-page-size:100}")
+    private int maxPageSize;
+
+    // The most ids that can be requested in a batch lookup
+    @Value("${veterinaria.clients.max-batch-size:500}")
+    private int maxBatchSize;
+
     // -----------------------------
     // Methods for client entity
     // -----------------------------
 
     // To create an endpoint that allows invoking the method findAll.
+    // If the params 'cursor', 'size' or 'count' are sent then a page of clients is returned
+    // instead of the whole table. The header 'X-Total-Count' is added only when 'count' is true.
+    // With the param 'expand' ("pets", "address" or "pets,address") each client is sent with its pets and/or its address.
+    // The responses have an ETag, so a request with the same 'If-None-Match' gets a 304 (not modified)
     @GetMapping()
-    public List<Client> clients() {
-        return service.findAll();
+    public ResponseEntity<?> clients(@RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size, @RequestParam(required = false) Boolean count,
+            @RequestParam(required = false) String expand) {
+
+        // To handle the obligations of the params
+        Expand expansion = utilExpand.parse(expand);
+
+        if (cursor == null && size == null && count == null) {
+            return this.clients(service.findAll(), expansion);
+        }
+
+        Long afterId = null;
+        if (cursor != null) {
+            try {
+                afterId = utilCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("cursor", "El campo cursor no es valido"));
+            }
+        }
+
+        if (size != null && (size < 1 || size > maxPageSize)) {
+            return ResponseEntity.badRequest().body(Map.of("size", "El campo size debe estar entre 1 y " + maxPageSize));
+        }
+
+        ClientPage<ClientSummary> summaries = service.findPage(afterId, size != null ? size : defaultPageSize);
+        ClientPage<?> page = expansion.isEmpty() ? summaries
+                : new ClientPage<>(service.expand(summaries.getContent(), expansion.pets(), expansion.address()),
+                        summaries.getNextCursor());
+
+        // The total is calculated with a separate query only if it was requested
+        if (Boolean.TRUE.equals(count)) {
+            return ResponseEntity.ok().eTag(utilETag.tag(page))
+                    .header("X-Total-Count", String.valueOf(service.count())).body(page);
+        }
+
+        return ResponseEntity.ok().eTag(utilETag.tag(page)).body(page);
+    }
+
+    // To create an endpoint that allows getting many clients by their ids with one request ("?ids=1,2,3").
+    // The clients are sent in the same order as the ids, and the ids that don't exist are in 'missing'.
+    // With the param 'expand' ("pets", "address" or "pets,address") each client is sent with its pets and/or its address
+    @GetMapping("/batch")
+    public ResponseEntity<?> clientsBatch(@RequestParam(required = false) List<Long> ids,
+            @RequestParam(required = false) String expand) {
+        // To handle the obligations of the params
+        Expand expansion = utilExpand.parse(expand);
+
+        if (ids == null || ids.isEmpty() || ids.size() > maxBatchSize || ids.contains(null)) {
+            return ResponseEntity.badRequest().body(Map.of("ids", "El campo ids debe tener entre 1 y " + maxBatchSize + " ids"));
+        }
+
+        ClientBatch<ClientSummary> summaries = service.findBatch(ids);
+        ClientBatch<?> batch = expansion.isEmpty() ? summaries
+                : new ClientBatch<>(service.expand(summaries.getContent(), expansion.pets(), expansion.address()),
+                        summaries.getMissing());
+
+        return ResponseEntity.ok().eTag(utilETag.tag(batch)).body(batch);
     }
 
     // To create an endpoint that allows invoking the method fingById.
+    // The response is served from the cache while the client doesn't change.
+    // With the param 'expand' ("pets", "address" or "pets,address") the client is sent with its pets and/or its address,
+    // they are read with the client in one query (these responses are not cached)
+    // If the header 'If-None-Match' has the current ETag then the response is a 304 (not modified)
     @GetMapping("/{id}")
-    public ResponseEntity<?> client(@PathVariable Long id) {
+    public ResponseEntity<?> client(@PathVariable Long id, @RequestParam(required = false) String expand,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        // To handle the obligations of the params
+        Expand expansion = utilExpand.parse(expand);
+
+        if (!expansion.isEmpty()) {
+            Optional<ClientDetail> optionalClient = service.findDetailById(id, expansion.pets(), expansion.address());
+            if (optionalClient.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+
+            String eTag = utilETag.tag(List.of(optionalClient.orElseThrow()));
+            if (request.checkNotModified(eTag)) {
+                return null;
+            }
+            return ResponseEntity.ok().eTag(eTag).body(optionalClient.orElseThrow());
+        }
+
+        ResponseEntity<byte[]> cached = responseCache.get(Resource.CLIENT, id, acceptEncoding);
+        if (cached != null) {
+            return cached;
+        }
+
         // Search for a specific client and if it's present then return it.
+        long version = responseCache.version(id);
         Optional<Client> optionalClient = service.findById(id);
 
         if (optionalClient.isPresent()) {
-            return ResponseEntity.ok(optionalClient.orElseThrow());
+            // The client is not serialized if the response is a 304
+            String eTag = utilETag.tag(optionalClient.orElseThrow());
+            if (request.checkNotModified(eTag)) {
+                return null;
+            }
+
+            return responseCache.put(Resource.CLIENT, id, version, optionalClient.orElseThrow(), eTag, acceptEncoding);
         }
         
         // Else returns code response 404
@@ -73,19 +212,44 @@ public class ClientController {
 
     // To create an endpoint that allows update all of atributte values a specific
     // client based its id.
+    // If the header 'If-Match' is sent then the client is updated only if its ETag is the same,
+    // else the response is a 412 (precondition failed)
     @PutMapping("/{id}")
     public ResponseEntity<?> updateClient(@Valid @RequestBody Client client, BindingResult result,
-            @PathVariable Long id) {
+            @PathVariable Long id, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         // To handle of obligations of object attributes
         if (result.hasFieldErrors()) {
             return utilValidation.validation(result);
         }
 
         // Find specific client and if it's present then return specific client
-        Optional<Client> optionalClient = service.update(id, client);
+        Optional<Client> optionalClient = service.update(id, client, ifMatch);
+
+        if (optionalClient.isPresent()) {
+            return ResponseEntity.status(HttpStatus.CREATED).eTag(utilETag.tag(optionalClient.orElseThrow()))
+                    .body(optionalClient.orElseThrow());
+        }
+
+        // Else return code response 404
+        return ResponseEntity.notFound().build();
+    }
+
+    // To create an endpoint that allows changing some attributes of a specific client with a JSON merge patch.
+    // Only the attributes sent are changed (an attribute with null is removed),
+    // and if the patch doesn't change anything then the client is not written.
+    // If the header 'If-Match' is sent then the client is changed only if its ETag is the same
+    @PatchMapping(value = "/{id}", consumes = { UtilPatch.MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE })
+    public ResponseEntity<?> patchClient(@RequestBody JsonNode patch, @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Optional<Client> optionalClient;
+        try {
+            optionalClient = service.patch(id, patch, ifMatch);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("patch", e.getMessage()));
+        }
 
         if (optionalClient.isPresent()) {
-            return ResponseEntity.status(HttpStatus.CREATED).body(optionalClient.orElseThrow());
+            return ResponseEntity.ok().eTag(utilETag.tag(optionalClient.orElseThrow())).body(optionalClient.orElseThrow());
         }
 
         // Else return code response 404
@@ -112,26 +276,41 @@ public class ClientController {
 
     // To create an endpoint that allows invoking the method findByName.
     @GetMapping("/name/{name}")
-    public ResponseEntity<?> getClientByName(@PathVariable String name) {
+    public ResponseEntity<?> getClientByName(@PathVariable String name, @RequestParam(required = false) String expand) {
+        // To handle the obligations of the params
+        Expand expansion = utilExpand.parse(expand);
+
         // Search for a specific client and if it's present then return it.
-        List<Client> clients = service.findByNameContaining(name);
-        return ResponseEntity.ok(clients);
+        return this.clients(service.findByNameContaining(name), expansion);
     }
 
     // To create an endpoint that allows invoking the method findByLastname.
     @GetMapping("/lastname/{lastname}")
-    public ResponseEntity<?> getClientByLastname(@PathVariable String lastname) {
+    public ResponseEntity<?> getClientByLastname(@PathVariable String lastname, @RequestParam(required = false) String expand) {
+        // To handle the obligations of the params
+        Expand expansion = utilExpand.parse(expand);
+
         // Search for a specific client and if it's present then return it.
-        List<Client> clients = service.findByLastnameContaining(lastname);
-        return ResponseEntity.ok(clients);
+        return this.clients(service.findByLastnameContaining(lastname), expansion);
     }
 
     // To create an endpoint that allows invoking the method findByLastname.
     @GetMapping("/pets/{petName}")
-    public ResponseEntity<?> getClientsByPetNameLike(@PathVariable String petName) {
+    public ResponseEntity<?> getClientsByPetNameLike(@PathVariable String petName, @RequestParam(required = false) String expand) {
+        // To handle the obligations of the params
+        Expand expansion = utilExpand.parse(expand);
+
         // Search for a specific client and if it's present then return it.
-        List<Client> clients = service.findClientsByPetNameLike(petName);
-        return ResponseEntity.ok(clients);
+        return this.clients(service.findClientsByPetNameLike(petName), expansion);
     }
 
+    // To send a list of clients, with the associations that were requested in the param 'expand'
+    private ResponseEntity<?> clients(List<ClientSummary> clients, Expand expansion) {
+        if (expansion.isEmpty()) {
+            return ResponseEntity.ok().eTag(utilETag.tag(clients)).body(clients);
+        }
+
+        List<ClientDetail> details = service.expand(clients, expansion.pets(), expansion.address());
+        return ResponseEntity.ok().eTag(utilETag.tag(details)).body(details);
+    }
 }
@@ -0,0 +1,61 @@
+package com.alejandro.veterinaria.controllers;
+
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.alejandro.veterinaria.services.ClientExportService;
+
+@RestController // To create a api rest.
+@RequestMapping("/api/clients") // To create a base path.
+public class ClientExportController {
+
+    // To Inject the service dependency
+    @Autowired
+    private ClientExportService service;
+
+    // -----------------------------
+    // Methods for the bulk export of clients
+    // -----------------------------
+
+    // To create an endpoint that allows exporting all of the clients with their pets and address,
+    // a json object in each line (format 'ndjson', the default one).
+    // The response is written while the clients are read from the db, so it's never loaded in memory
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportNdjson() {
+        StreamingResponseBody body = output -> service.exportNdjson(output);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+    // To create an endpoint that allows exporting all of the clients in a csv file compressed with gzip,
+    // with a row for each pet (format 'csv')
+    @GetMapping(value = "/export", params = "format=csv")
+    public ResponseEntity<StreamingResponseBody> exportCsv() {
+        StreamingResponseBody body = output -> {
+            GZIPOutputStream gzip = new GZIPOutputStream(output);
+            service.exportCsv(gzip);
+            gzip.finish();
+        };
+
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/gzip"))
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("clients.csv.gz").build().toString())
+            .body(body);
+    }
+
+    // To handle the obligations of the param 'format' when it's not one of the formats above
+    @GetMapping(value = "/export", params = { "format", "format!=ndjson", "format!=csv" })
+    public ResponseEntity<?> exportBadFormat() {
+        return ResponseEntity.badRequest().body(Map.of("format", "El campo format debe ser ndjson o csv"));
+    }
+
+}
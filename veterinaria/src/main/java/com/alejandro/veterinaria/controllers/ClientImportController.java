@@ -0,0 +1,45 @@
+package com.alejandro.veterinaria.controllers;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.alejandro.veterinaria.entities.ImportReport;
+import com.alejandro.veterinaria.services.ClientImportService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+@RestController // To create a api rest.
+@RequestMapping("/api/clients") // To create a base path.
+public class ClientImportController {
+
+    // To Inject the service dependency
+    @Autowired
+    private ClientImportService service;
+
+    // -----------------------------
+    // Methods for the bulk import of clients
+    // -----------------------------
+
+    // To create an endpoint that allows importing many clients with their pets and address.
+    // Each line of the body is a json object. The body is read as a stream, so it's never loaded
+    // in memory, and the response is a report with the errors of each record.
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public ResponseEntity<?> importNdjson(HttpServletRequest request) throws IOException {
+        ImportReport report = service.importNdjson(request.getInputStream());
+        return ResponseEntity.ok(report);
+    }
+
+    // To create an endpoint that allows importing many clients with their pets and address
+    // from a csv file, with a row for each pet.
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<?> importCsv(HttpServletRequest request) throws IOException {
+        ImportReport report = service.importCsv(request.getInputStream());
+        return ResponseEntity.ok(report);
+    }
+
+}
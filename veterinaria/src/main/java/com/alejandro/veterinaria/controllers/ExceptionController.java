@@ -1,14 +1,25 @@
 package com.alejandro.veterinaria.controllers;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
 
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import com.alejandro.veterinaria.entities.ErrorMessage;
+import com.alejandro.veterinaria.exceptions.ClientLockTimeoutException;
+import com.alejandro.veterinaria.exceptions.DbFailure;
+import com.alejandro.veterinaria.exceptions.InvalidExpandException;
+import com.alejandro.veterinaria.exceptions.PreconditionFailedException;
+
+import jakarta.validation.ConstraintViolationException;
 
 // This class is used to handle when an exception is fired 
 @RestControllerAdvice
@@ -17,10 +28,19 @@ public class ExceptionController {
     @ExceptionHandler({ DataIntegrityViolationException.class })
     public ResponseEntity<ErrorMessage> duplicate(Exception e) {
 
+        // Only a duplicate key is a duplicate, the rest of the violations are not reported as one
+        // (and a transient failure is reported as it)
+        DbFailure failure = DbFailure.classify(e);
+        if (failure.isTransient()) {
+            return this.transientFailure(e);
+        }
+
         // To know which entity fires the 'DataIntegrityViolationException'
         // The first part of this condition is for Mysql and the other one is for H2
         String errorMessage;
-        if (e.getMessage().contains("client.UK_client") || e.getMessage().contains("PUBLIC.CLIENT")) {
+        if (failure != DbFailure.DUPLICATE) {
+            errorMessage = "Error! Los datos no cumplen con las restricciones de la base de datos.";
+        } else if (e.getMessage().contains("client.UK_client") || e.getMessage().contains("PUBLIC.CLIENT")) {
             // To know if this exception is fired by an update or create action.
             if (e.getMessage().contains("insert")) {
                 errorMessage = "Error! El cliente que se desea registrar ya se encuentra en la base de datos.";
@@ -29,7 +49,7 @@ public class ExceptionController {
             }
         } else {
             // To know if this exception is fired by an update or create action.
-            if (e.getMessage().contains("[update pet set id_client=? where id_pet=?];")) { // insert
+            if (e.getMessage().contains("insert into pet")) { // insert
                 errorMessage = "Error! Esta mascota ya se registro previamente para este cliente.";
             } else { // update
                 errorMessage = "Error! Este nombre de mascota al cual se desea actualizar ya lo posee otra mascota de este mismo cliente.";
@@ -44,4 +64,70 @@ public class ExceptionController {
 
         return ResponseEntity.internalServerError().body(error);
     }
+
+    // The db failed with a deadlock or a lock wait timeout even after the change was sent again,
+    // it can be sent again later
+    @ExceptionHandler({ ConcurrencyFailureException.class })
+    public ResponseEntity<ErrorMessage> transientFailure(Exception e) {
+
+        ErrorMessage error = new ErrorMessage();
+        error.setDateTime(LocalDateTime.now());
+        error.setError("Error! La base de datos esta ocupada con otras peticiones, intente de nuevo.");
+        error.setMessage(e.getMessage());
+        error.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(error);
+    }
+
+    // The request waited too long for the changes of the same client that other requests are doing,
+    // it can be sent again
+    @ExceptionHandler({ ClientLockTimeoutException.class })
+    public ResponseEntity<ErrorMessage> clientLockTimeout(ClientLockTimeoutException e) {
+
+        ErrorMessage error = new ErrorMessage();
+        error.setDateTime(LocalDateTime.now());
+        error.setError(e.getMessage());
+        error.setMessage(e.getMessage());
+        error.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(error);
+    }
+
+    // The record doesn't meet the obligations of its attributes after a patch was applied,
+    // the errors are sent as the errors of the body of the other endpoints
+    @ExceptionHandler({ ConstraintViolationException.class })
+    public ResponseEntity<Map<String, String>> constraintViolation(ConstraintViolationException e) {
+        Map<String, String> errors = new HashMap<>();
+
+        e.getConstraintViolations().forEach(violation -> {
+            String field = violation.getPropertyPath().toString();
+            errors.put(field, "El campo " + field + " " + violation.getMessage());
+        });
+
+        return ResponseEntity.badRequest().body(errors);
+    }
+
+    // The param 'expand' of a request has a value that can't be expanded
+    @ExceptionHandler({ InvalidExpandException.class })
+    public ResponseEntity<Map<String, String>> invalidExpand(InvalidExpandException e) {
+        return ResponseEntity.badRequest().body(Map.of("expand", e.getMessage()));
+    }
+
+    // The header 'If-Match' of an update has an old version of the record,
+    // or another transaction updated the record between the read and the update
+    @ExceptionHandler({ PreconditionFailedException.class, ObjectOptimisticLockingFailureException.class })
+    public ResponseEntity<ErrorMessage> preconditionFailed(Exception e) {
+
+        String errorMessage = e instanceof PreconditionFailedException
+                ? e.getMessage()
+                : "Error! El registro fue modificado por otra peticion, se debe consultar de nuevo.";
+
+        ErrorMessage error = new ErrorMessage();
+        error.setDateTime(LocalDateTime.now());
+        error.setError(errorMessage);
+        error.setMessage(e.getMessage());
+        error.setStatus(HttpStatus.PRECONDITION_FAILED.value());
+
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(error);
+    }
 }
@@ -1,36 +1,47 @@
 package com.alejandro.veterinaria.controllers;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.alejandro.veterinaria.cache.ClientResponseCache;
+import com.alejandro.veterinaria.cache.ClientResponseCache.Resource;
 import com.alejandro.veterinaria.entities.Client;
 import com.alejandro.veterinaria.entities.Pet;
-import com.alejandro.veterinaria.services.ClientService;
+import com.alejandro.veterinaria.entities.PetBatchReport;
+import com.alejandro.veterinaria.entities.PetUpdate;
 import com.alejandro.veterinaria.services.PetService;
+import com.alejandro.veterinaria.utils.UtilETag;
+import com.alejandro.veterinaria.utils.UtilPatch;
 import com.alejandro.veterinaria.utils.UtilValidation;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
 import jakarta.validation.Valid;
 
 @RestController // To create a api rest.
 @RequestMapping("/api/clients") // To create a base path.
 public class PetController {
     
-    // To Inject the service dependency
-    @Autowired
-    private ClientService clientService;
-
     // To Inject the service dependency
     @Autowired
     private PetService service;
@@ -38,25 +49,76 @@ public class PetController {
     @Autowired
     private UtilValidation utilValidation;
 
+    @Autowired
+    private UtilETag utilETag;
+
+    // To send the responses that were already serialized
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    // The most pets that can be saved in a batch
+    @Value("${veterinaria.pets.max-batch-size:100}")
+    private int maxBatchSize;
+
     // -----------------------------
     // Methods for pet entity
     // -----------------------------
 
     // To create an endpoint that allows getting all of the pets of a specif client
+    // The response is served from the cache while the pets of the client don't change.
+    // If the header 'If-None-Match' has the current ETag then the response is a 304 (not modified)
     @GetMapping("/{id_client}/pets")
-    public ResponseEntity<?> getPetsByClient(@PathVariable Long id_client) {
-        // Search for a specific client
-        Optional<Client> optionalClient = clientService.findById(id_client);
+    public ResponseEntity<?> getPetsByClient(@PathVariable Long id_client,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        ResponseEntity<byte[]> cached = responseCache.get(Resource.PETS, id_client, acceptEncoding);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Search for the pets of a specific client
+        long version = responseCache.version(id_client);
+        Optional<List<Pet>> optionalPets = service.findPetsByClient(id_client);
 
         // if the client is present then return the pet array.
-        if (optionalClient.isPresent()) {
-            return ResponseEntity.ok(optionalClient.get().getPets());
+        if (optionalPets.isPresent()) {
+            // The pets are not serialized if the response is a 304
+            List<Pet> pets = optionalPets.get();
+            String eTag = utilETag.tag(pets);
+            if (request.checkNotModified(eTag)) {
+                return null;
+            }
+
+            return responseCache.put(Resource.PETS, id_client, version, pets, eTag, acceptEncoding);
         }
 
         // Else, return an empty optional
         return ResponseEntity.notFound().build();
     }
 
+    // To create an endpoint that allows getting a certain pet of a certain client.
+    // The response has the ETag of the pet ("id-version"), which can be sent in the header 'If-Match'
+    // to update the pet, and if the header 'If-None-Match' has it then the response is a 304 (not modified)
+    @GetMapping("/{clientId}/pets/{petId}")
+    public ResponseEntity<?> getPetByClient(@PathVariable Long clientId, @PathVariable Long petId, WebRequest request) {
+
+        // Search for the pet of the client
+        Optional<Pet> optionalPet = service.findPetByClient(clientId, petId);
+
+        // if the pet is present then it belongs to the client
+        if (optionalPet.isPresent()) {
+            String eTag = utilETag.tag(optionalPet.get());
+            if (request.checkNotModified(eTag)) {
+                return null;
+            }
+
+            return ResponseEntity.ok().eTag(eTag).body(optionalPet.get());
+        }
+
+        // Else, return a 404 status code.
+        return ResponseEntity.notFound().build();
+    }
+
     // To create an endpoint that allows saving a new pet of an certain client
     @PostMapping("/{clientId}/pets")
     public ResponseEntity<?> saveNewPetByClientId(@Valid @RequestBody Pet newPet, BindingResult result,
@@ -78,22 +140,72 @@ public class PetController {
         return ResponseEntity.notFound().build();
     }
 
+    // To create an endpoint that allows saving many new pets of a certain client in one transaction.
+    // Each pet has its own result (201 created, 400 invalid or 409 duplicated name),
+    // so the pets that fail don't abort the others
+    @PostMapping("/{clientId}/pets/batch")
+    public ResponseEntity<?> saveNewPetsByClientId(@RequestBody List<Pet> newPets, @PathVariable Long clientId) {
+        // To handle the obligations of the body
+        if (newPets.isEmpty() || newPets.size() > maxBatchSize) {
+            return ResponseEntity.badRequest().body(Map.of("pets", "El campo pets debe tener entre 1 y " + maxBatchSize + " mascotas"));
+        }
+
+        // Call the 'savePetsByClient' method
+        Optional<PetBatchReport> optionalReport = service.savePetsByClient(clientId, newPets);
+
+        // if the report is present then it means that the client exists
+        if (optionalReport.isPresent()) {
+            return ResponseEntity.ok(optionalReport.get());
+        }
+
+        // Else, return a 404 status code.
+        return ResponseEntity.notFound().build();
+    }
+
     // To create an endpoint that allows updating information of a certain pet of a
     // certain client
+    // If the header 'If-Match' is sent then the pet is updated only if its ETag is the same
+    // (it's in the response of the pet or of its patch), else the response is a 412 (precondition failed)
     @PutMapping("/{clientId}/pets/{petId}")
     public ResponseEntity<?> editPetByClient(@Valid @RequestBody Pet editPet, BindingResult result,
-            @PathVariable Long clientId, @PathVariable Long petId) {
+            @PathVariable Long clientId, @PathVariable Long petId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         // To handle of obligations of object attributes
         if (result.hasFieldErrors()) {
             return utilValidation.validation(result);
         }
 
         // Call the 'editPetByClient' method
-        Optional<Client> optionalUpdateClient = service.editPetByClient(clientId, petId, editPet);
+        Optional<PetUpdate> optionalUpdate = service.editPetByClient(clientId, petId, editPet, ifMatch);
 
-        // if the client is present then it means that the object could be updated
-        if ( optionalUpdateClient.isPresent() ) {
-            return ResponseEntity.status(HttpStatus.CREATED).body(optionalUpdateClient.get());
+        // if the update is present then it means that the object could be updated.
+        // The response has the client and the ETag of the new version of the pet, like the response of the patch
+        if ( optionalUpdate.isPresent() ) {
+            return ResponseEntity.status(HttpStatus.CREATED).eTag(utilETag.tag(optionalUpdate.get().pet()))
+                    .body(optionalUpdate.get().client());
+        }
+
+        // Else, return a 404 status code.
+        return ResponseEntity.notFound().build();
+    }
+
+    // To create an endpoint that allows changing some attributes of a certain pet of a
+    // certain client with a JSON merge patch. Only the attributes sent are changed (an attribute with null is removed),
+    // and if the patch doesn't change anything then the pet is not written.
+    // If the header 'If-Match' is sent then the pet is changed only if its ETag is the same
+    @PatchMapping(value = "/{clientId}/pets/{petId}", consumes = { UtilPatch.MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE })
+    public ResponseEntity<?> patchPetByClient(@RequestBody JsonNode patch, @PathVariable Long clientId,
+            @PathVariable Long petId, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Optional<Pet> optionalPet;
+        try {
+            optionalPet = service.patchPetByClient(clientId, petId, patch, ifMatch);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("patch", e.getMessage()));
+        }
+
+        // if the pet is present then it belongs to the client
+        if (optionalPet.isPresent()) {
+            return ResponseEntity.ok().eTag(utilETag.tag(optionalPet.get())).body(optionalPet.get());
         }
 
         // Else, return a 404 status code.
@@ -1,11 +1,20 @@
 package com.alejandro.veterinaria.entities;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 
@@ -13,12 +22,17 @@ import jakarta.validation.constraints.NotNull;
 // In mysql the name of this table is 'address' but in this project 
 // the name of this class is 'Address'
 @Entity
+@DynamicUpdate // The updates only have the columns that changed
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "address") // Only used with the profile 'cache'
 @Table(name = "address") 
-public class Address {
+public class Address implements Versioned {
     // Mapping of class attributes with table fields in mysql
 
+    // The ids are generated by a pooled sequence so that the inserts can be sent in batches.
+    // In mysql the sequence is emulated with the table 'address_seq'
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "address_seq")
+    @SequenceGenerator(name = "address_seq", sequenceName = "address_seq", allocationSize = 50)
     @Column(name = "id_address")
     private Long id;
 
@@ -34,6 +48,13 @@ public class Address {
     @NotNull // To obligate to this attribute not to empty
     private Long cp;
 
+    // The version is increased by hibernate each time the record is updated, and the update
+    // fails if another transaction changed the record first (optimistic locking).
+    // The records that existed before this column have the version 0
+    @Version
+    @ColumnDefault("0")
+    private Long version;
+
     public Address() {
     }
 
@@ -84,4 +105,13 @@ public class Address {
     public void setCp(Long cp) {
         this.cp = cp;
     }
+
+    @JsonIgnore
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
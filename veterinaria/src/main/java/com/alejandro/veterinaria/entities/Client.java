@@ -3,19 +3,28 @@ package com.alejandro.veterinaria.entities;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
@@ -26,13 +35,18 @@ import jakarta.validation.constraints.NotNull;
 // In mysql the name of this table is 'client' but in this project 
 // the name of this class is 'Client'
 @Entity
+@DynamicUpdate // The updates only have the columns that changed
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "client") // Only used with the profile 'cache'
 @Table(name = "client", uniqueConstraints = @UniqueConstraint(name = "UK_client", columnNames = { "name", "lastname" }))
-public class Client {
+public class Client implements Versioned {
 
     // Mapping of class attributes with table fields in mysql
 
+    // The ids are generated by a pooled sequence so that the inserts can be sent in batches.
+    // In mysql the sequence is emulated with the table 'client_seq'
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "client_seq")
+    @SequenceGenerator(name = "client_seq", sequenceName = "client_seq", allocationSize = 50)
     @Column(name = "id_client")
     private Long id;
 
@@ -55,13 +69,26 @@ public class Client {
     @Column(name = "phone_number")
     private Long phonenumber;
 
+    // The version is increased by hibernate each time the record is updated, and the update
+    // fails if another transaction changed the record first (optimistic locking).
+    // The records that existed before this column have the version 0
+    @Version
+    @ColumnDefault("0")
+    private Long version;
+
     // To set a relationship one to many
+    // The column 'id_client' is written by the attribute 'clientId' of the pet,
+    // so this side doesn't run an extra update after inserting a pet.
+    // When the pets of many clients are read, they are loaded with one query for each 100 clients
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
-    @JoinColumn(name = "id_client")
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "client.pets")
+    @JoinColumn(name = "id_client", insertable = false, updatable = false)
     private List<Pet> pets;
     
     // To set a relationship one to one
-    @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
+    // The address is only loaded by the services that need it (see 'ClientRepository.findWithAddressById')
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn(name = "id_address")
     private Address address;
 
@@ -139,4 +166,13 @@ public class Client {
     public void setAddress(Address address) {
         this.address = address;
     }
+
+    @JsonIgnore
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,37 @@
+package com.alejandro.veterinaria.entities;
+
+import java.util.List;
+
+// This class is used to send the clients of a batch lookup by id.
+// The clients are in the same order as the ids of the request (each id only once)
+// and the 'missing' attribute has the ids that don't exist
+public class ClientBatch<T extends Versioned> {
+
+    private List<T> content;
+
+    private List<Long> missing;
+
+    public ClientBatch() {
+    }
+
+    public ClientBatch(List<T> content, List<Long> missing) {
+        this.content = content;
+        this.missing = missing;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    public List<Long> getMissing() {
+        return missing;
+    }
+
+    public void setMissing(List<Long> missing) {
+        this.missing = missing;
+    }
+}
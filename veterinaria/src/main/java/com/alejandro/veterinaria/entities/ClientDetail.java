@@ -0,0 +1,45 @@
+package com.alejandro.veterinaria.entities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.Hibernate;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// This record is used to send a client together with the associations that were requested
+// with the param 'expand' (its pets and/or its address), so they are not requested one by one.
+// The associations that were not requested are not in the json
+// The version is only used to build the ETag of the response, it's not sent
+@JsonIgnoreProperties("version")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ClientDetail(Long id, String name, String lastname, String email, Long phonenumber, Long version,
+        List<Pet> pets, Address address) implements Versioned {
+
+    // To create the detail of a client of the db, it must be called inside of the transaction
+    // that loaded the associations
+    public static ClientDetail from(Client client, boolean pets, boolean address) {
+        return new ClientDetail(client.getId(), client.getName(), client.getLastname(), client.getEmail(),
+                client.getPhonenumber(), client.getVersion(),
+                pets ? new ArrayList<>(client.getPets()) : null,
+                address ? (Address) Hibernate.unproxy(client.getAddress()) : null);
+    }
+
+    // To create the detail of a client of a list, with the associations that were read for all of the list
+    public static ClientDetail from(ClientSummary client, List<Pet> pets, Address address) {
+        return new ClientDetail(client.id(), client.name(), client.lastname(), client.email(),
+                client.phonenumber(), client.version(), pets, address);
+    }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public Long getVersion() {
+        return version;
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.alejandro.veterinaria.entities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+// This class is used to receive (or send) a client together with its pets and its address
+// in the bulk endpoints. The obligations of the attributes are the same as the entities.
+public class ClientGraph {
+
+    // Columns of the csv files, there is one row for each pet of the client
+    public static final List<String> CSV_COLUMNS = List.of("name", "lastname", "email", "phonenumber",
+            "street", "state", "city", "cp",
+            "pet_name", "pet_specie", "pet_breed", "pet_age", "pet_reason_for_visit");
+
+    private Long id;
+
+    @NotBlank // To obligate to this attribute not to empty or blank values.
+    private String name;
+
+    @NotBlank // To obligate to this attribute not to empty or blank values.
+    private String lastname;
+
+    @NotBlank // To obligate to this attribute not to empty or blank values.
+    @Email
+    private String email;
+
+    @Min(value = 1000000000, message = "{Min.client.phonenumber}")
+    @Max(value = 9999999999L, message = "{Max.client.phonenumber}")
+    @NotNull // To obligate to this attribute not to empty
+    private Long phonenumber;
+
+    // To validate each pet of the list
+    private List<@Valid Pet> pets;
+
+    @Valid // To validate the address if it's present
+    private Address address;
+
+    public ClientGraph() {
+        this.pets = new ArrayList<>();
+    }
+
+    public ClientGraph(Long id, String name, String lastname, String email, Long phonenumber, List<Pet> pets,
+            Address address) {
+        this.id = id;
+        this.name = name;
+        this.lastname = lastname;
+        this.email = email;
+        this.phonenumber = phonenumber;
+        this.pets = pets;
+        this.address = address;
+    }
+
+    // To create the object of a client of the db with its pets and its address
+    public static ClientGraph from(Client client) {
+        return new ClientGraph(client.getId(), client.getName(), client.getLastname(), client.getEmail(),
+                client.getPhonenumber(), client.getPets(), client.getAddress());
+    }
+
+    // To create a new client (without its pets) with the information of this object.
+    // The blanks at the beginning and at the end are removed as it's done by the aspects
+    public Client toClient() {
+        Address newAddress = null;
+        if (address != null) {
+            newAddress = new Address(null, address.getStreet().trim(), address.getState().trim(),
+                    address.getCity().trim(), address.getCp());
+        }
+
+        return new Client(null, name.trim(), lastname.trim(), email, phonenumber, new ArrayList<>(), newAddress);
+    }
+
+    // To create the new pets of the client with the information of this object
+    public List<Pet> toPets(Long clientId) {
+        List<Pet> newPets = new ArrayList<>();
+
+        if (pets != null) {
+            pets.forEach(pet -> {
+                Pet newPet = new Pet(null, pet.getName().trim(), pet.getSpecie().trim(),
+                        pet.getBreed() != null ? pet.getBreed().trim() : null, pet.getAge(),
+                        pet.getReasonForVisit().trim());
+                newPet.setClientId(clientId);
+                newPets.add(newPet);
+            });
+        }
+
+        return newPets;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getLastname() {
+        return lastname;
+    }
+
+    public void setLastname(String lastname) {
+        this.lastname = lastname;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public Long getPhonenumber() {
+        return phonenumber;
+    }
+
+    public void setPhonenumber(Long phonenumber) {
+        this.phonenumber = phonenumber;
+    }
+
+    public List<Pet> getPets() {
+        return pets;
+    }
+
+    public void setPets(List<Pet> pets) {
+        this.pets = pets;
+    }
+
+    public Address getAddress() {
+        return address;
+    }
+
+    public void setAddress(Address address) {
+        this.address = address;
+    }
+}
@@ -0,0 +1,38 @@
+package com.alejandro.veterinaria.entities;
+
+import java.util.List;
+
+// This class is used to send a page of clients (only the columns that are sent in the json,
+// or the clients with their pets and their address when they are requested with the param 'expand')
+// The 'nextCursor' attribute is the token to request the next page,
+// it's null when there are no more clients
+public class ClientPage<T extends Versioned> {
+
+    private List<T> content;
+
+    private String nextCursor;
+
+    public ClientPage() {
+    }
+
+    public ClientPage(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
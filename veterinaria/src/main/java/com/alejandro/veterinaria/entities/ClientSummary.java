@@ -0,0 +1,30 @@
+package com.alejandro.veterinaria.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+// This record is used to send the clients in the lists and in the searches.
+// It has only the columns that are sent in the json and it's created by the queries
+// of 'ClientRepository', so hibernate doesn't keep it in the persistence context
+// (and doesn't keep a copy of it to check for changes)
+// The version is only used to build the ETag of the list, it's not sent
+@JsonIgnoreProperties("version")
+public record ClientSummary(Long id, String name, String lastname, String email, Long phonenumber, Long version)
+        implements Versioned {
+
+    // To create the summary of a client
+    public static ClientSummary from(Client client) {
+        return new ClientSummary(client.getId(), client.getName(), client.getLastname(), client.getEmail(),
+                client.getPhonenumber(), client.getVersion());
+    }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public Long getVersion() {
+        return version;
+    }
+
+}
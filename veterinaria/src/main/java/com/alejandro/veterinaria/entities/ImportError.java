@@ -0,0 +1,37 @@
+package com.alejandro.veterinaria.entities;
+
+import java.util.Map;
+
+// This class is used to report why a record of a bulk import was not saved
+public class ImportError {
+
+    // Number of the line where the record begins
+    private long record;
+
+    // The messages of the error by attribute, with the same format as the validations
+    private Map<String, String> errors;
+
+    public ImportError() {
+    }
+
+    public ImportError(long record, Map<String, String> errors) {
+        this.record = record;
+        this.errors = errors;
+    }
+
+    public long getRecord() {
+        return record;
+    }
+
+    public void setRecord(long record) {
+        this.record = record;
+    }
+
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(Map<String, String> errors) {
+        this.errors = errors;
+    }
+}
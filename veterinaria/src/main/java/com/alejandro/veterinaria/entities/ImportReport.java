@@ -0,0 +1,50 @@
+package com.alejandro.veterinaria.entities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// This class is used to send the result of a bulk import.
+// Only the first errors are kept (see 'veterinaria.import.max-reported-errors'),
+// so the report doesn't grow with the size of the file
+public class ImportReport {
+
+    private long records;
+
+    private long imported;
+
+    private long failed;
+
+    private List<ImportError> errors = new ArrayList<>();
+
+    public long getRecords() {
+        return records;
+    }
+
+    public void setRecords(long records) {
+        this.records = records;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public List<ImportError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<ImportError> errors) {
+        this.errors = errors;
+    }
+}
@@ -1,12 +1,21 @@
 package com.alejandro.veterinaria.entities;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -15,13 +24,18 @@ import jakarta.validation.constraints.NotNull;
 // In mysql the name of this table is 'pet' but in this project 
 // the name of this class is 'Pet'
 @Entity
+@DynamicUpdate // The updates only have the columns that changed
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "pet") // Only used with the profile 'cache'
 @Table(name = "pet", uniqueConstraints = @UniqueConstraint(name = "UK_client_pet", columnNames = {"id_client", "name"})) 
-public class Pet {
+public class Pet implements Versioned {
 
     // Mapping of class attributes with table fields in mysql
 
+    // The ids are generated by a pooled sequence so that the inserts can be sent in batches.
+    // In mysql the sequence is emulated with the table 'pet_seq'
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pet_seq")
+    @SequenceGenerator(name = "pet_seq", sequenceName = "pet_seq", allocationSize = 50)
     @Column(name = "id_pet")
     private Long id;
 
@@ -41,6 +55,18 @@ public class Pet {
     @NotBlank // To obligate to this attribute not to empty or blank values.
     private String reasonForVisit;
 
+    // Id of the owner of the pet.
+    // It's mapped here so that a new pet can be inserted with its owner in one statement
+    @Column(name = "id_client")
+    private Long clientId;
+
+    // The version is increased by hibernate each time the record is updated, and the update
+    // fails if another transaction changed the record first (optimistic locking).
+    // The records that existed before this column have the version 0
+    @Version
+    @ColumnDefault("0")
+    private Long version;
+
     public Pet() {
     }
 
@@ -101,6 +127,24 @@ public class Pet {
     public void setReasonForVisit(String reasonForVisit) {
         this.reasonForVisit = reasonForVisit;
     }
+
+    @JsonIgnore
+    public Long getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(Long clientId) {
+        this.clientId = clientId;
+    }
+
+    @JsonIgnore
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
     
     @Override
     public int hashCode() {
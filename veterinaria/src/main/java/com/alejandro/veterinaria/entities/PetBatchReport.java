@@ -0,0 +1,39 @@
+package com.alejandro.veterinaria.entities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// This class is used to send the result of a batch creation of pets,
+// there is one result for each pet of the request in the same order
+public class PetBatchReport {
+
+    private int created;
+
+    private int failed;
+
+    private List<PetBatchResult> results = new ArrayList<>();
+
+    public int getCreated() {
+        return created;
+    }
+
+    public void setCreated(int created) {
+        this.created = created;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public List<PetBatchResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<PetBatchResult> results) {
+        this.results = results;
+    }
+}
@@ -0,0 +1,13 @@
+package com.alejandro.veterinaria.entities;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// This record is used to send the result of each pet of a batch creation.
+// 'index' is the position of the pet in the request and 'status' is the http status of that pet
+// (201 created, 400 invalid, 409 duplicated name or 500 rejected by the db for another reason).
+// The saved pet is only sent when it's created and the errors only when it's not
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PetBatchResult(int index, int status, Pet pet, Map<String, String> errors) {
+}
@@ -0,0 +1,6 @@
+package com.alejandro.veterinaria.entities;
+
+// This record is used to send the result of the update of a pet: the client is the body of the response
+// and the updated pet is only used to build the ETag of the response, so the pets of the client are not loaded
+public record PetUpdate(Client client, Pet pet) {
+}
@@ -0,0 +1,11 @@
+package com.alejandro.veterinaria.entities;
+
+// This interface is implemented by the entities with a version column,
+// the version is used to build the ETag headers and to check the header 'If-Match'
+public interface Versioned {
+
+    public Long getId();
+
+    public Long getVersion();
+
+}
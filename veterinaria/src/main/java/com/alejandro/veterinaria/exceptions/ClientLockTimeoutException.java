@@ -0,0 +1,11 @@
+package com.alejandro.veterinaria.exceptions;
+
+// This exception is fired when a request waits too long for the changes of the same client
+// that other requests are doing
+public class ClientLockTimeoutException extends RuntimeException {
+
+    public ClientLockTimeoutException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.alejandro.veterinaria.exceptions;
+
+import java.sql.SQLException;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+
+// The kinds of failures of the db that are handled in a different way.
+// The exception is classified with the SQL state and the vendor code of the 'SQLException' that caused it
+// (Mysql in production and H2 in the tests), the messages of the exceptions are not used.
+// Only the transient failures can be sent again, a duplicate is never transient
+public enum DbFailure {
+
+    DUPLICATE(false),
+    DEADLOCK(true),
+    LOCK_TIMEOUT(true),
+    SERIALIZATION(true),
+    OPTIMISTIC_LOCK(true),
+    OTHER(false);
+
+    // To stop in a chain of causes with a cycle
+    private static final int MAX_CAUSES = 32;
+
+    private final boolean transientFailure;
+
+    DbFailure(boolean transientFailure) {
+        this.transientFailure = transientFailure;
+    }
+
+    // If the same operation can succeed when it's done again in a new transaction
+    public boolean isTransient() {
+        return transientFailure;
+    }
+
+    // To classify an exception with all of its causes.
+    // A duplicate anywhere in the chain wins, else the deepest cause that is known is used
+    // (it's the most specific one, as the 'SQLException' under the exceptions of Spring and Hibernate)
+    public static DbFailure classify(Throwable exception) {
+        DbFailure failure = OTHER;
+        Throwable cause = exception;
+
+        for (int depth = 0; cause != null && depth < MAX_CAUSES; depth++) {
+            DbFailure current = of(cause);
+            if (current == DUPLICATE) {
+                return DUPLICATE;
+            }
+            if (current != OTHER) {
+                failure = current;
+            }
+            cause = cause.getCause() != cause ? cause.getCause() : null;
+        }
+
+        return failure;
+    }
+
+    private static DbFailure of(Throwable exception) {
+        if (exception instanceof SQLException sql) {
+            return of(sql.getSQLState(), sql.getErrorCode());
+        }
+        if (exception instanceof DuplicateKeyException) {
+            return DUPLICATE;
+        }
+        if (exception instanceof OptimisticLockingFailureException
+                || exception instanceof jakarta.persistence.OptimisticLockException
+                || exception instanceof org.hibernate.StaleStateException) {
+            return OPTIMISTIC_LOCK;
+        }
+        if (exception instanceof PessimisticLockingFailureException
+                || exception instanceof jakarta.persistence.LockTimeoutException) {
+            return LOCK_TIMEOUT;
+        }
+        return OTHER;
+    }
+
+    private static DbFailure of(String sqlState, int vendorCode) {
+        // 1062 and 1586: duplicate entry in Mysql, 23505: unique violation in H2 (and the standard)
+        if (vendorCode == 1062 || vendorCode == 1586 || "23505".equals(sqlState)) {
+            return DUPLICATE;
+        }
+        // 1213: deadlock in Mysql, 40001 is the code of a deadlock in H2
+        if (vendorCode == 1213 || vendorCode == 40001) {
+            return DEADLOCK;
+        }
+        // 1205: lock wait timeout in Mysql, 50200: lock timeout in H2
+        if (vendorCode == 1205 || vendorCode == 50200) {
+            return LOCK_TIMEOUT;
+        }
+        // The class 40 of the SQL states is a transaction rollback (as a serialization failure)
+        if (sqlState != null && sqlState.startsWith("40")) {
+            return SERIALIZATION;
+        }
+        return OTHER;
+    }
+
+}
@@ -0,0 +1,11 @@
+package com.alejandro.veterinaria.exceptions;
+
+// This exception is fired when the param 'expand' of a request has a value
+// that is not an association of the client (only "pets" and "address" can be expanded)
+public class InvalidExpandException extends RuntimeException {
+
+    public InvalidExpandException(String message) {
+        super(message);
+    }
+
+}
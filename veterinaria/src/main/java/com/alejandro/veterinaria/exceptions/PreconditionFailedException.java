@@ -0,0 +1,11 @@
+package com.alejandro.veterinaria.exceptions;
+
+// This exception is fired when the header 'If-Match' of an update doesn't have
+// the current version of the record (another request changed it first)
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+
+}
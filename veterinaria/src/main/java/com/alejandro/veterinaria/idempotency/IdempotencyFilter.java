@@ -0,0 +1,211 @@
+package com.alejandro.veterinaria.idempotency;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import com.alejandro.veterinaria.entities.ErrorMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+// To handle the header 'Idempotency-Key' of the requests that create clients, pets and addresses.
+// The first request with a key is processed and its response is saved in the store, the next requests
+// with the same key get the saved response without calling the controllers (so the db is not used).
+// A key can't be used with another request (other path or body), and while the first request is processed
+// the others with the same key get a 409 (conflict). The server errors are not saved, so the request can be sent again
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    // The header of the responses that were sent again
+    public static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
+    // The paths of the requests that create records
+    private static final Pattern PATHS = Pattern.compile("/api/clients(/\\d+/(pets|pets/batch|addresses))?/?");
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore store;
+
+    private final ObjectMapper objectMapper;
+
+    public IdempotencyFilter(IdempotencyStore store, ObjectMapper objectMapper) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod()) || request.getHeader(IDEMPOTENCY_KEY) == null
+                || !PATHS.matcher(request.getRequestURI().substring(request.getContextPath().length())).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String key = request.getHeader(IDEMPOTENCY_KEY).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            this.error(response, HttpStatus.BAD_REQUEST,
+                    "Error! El encabezado " + IDEMPOTENCY_KEY + " debe tener entre 1 y " + MAX_KEY_LENGTH + " caracteres.");
+            return;
+        }
+
+        // The body is read here to get the fingerprint, and then it's read again by the controller
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        String fingerprint = fingerprint(request, cachedRequest.body);
+
+        Optional<StoredResponse> stored = store.reserve(key, fingerprint);
+        if (stored.isPresent()) {
+            this.replay(response, stored.get(), fingerprint);
+            return;
+        }
+
+        ContentCachingResponseWrapper cachedResponse = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(cachedRequest, cachedResponse);
+        } catch (IOException | ServletException | RuntimeException e) {
+            store.release(key);
+            throw e;
+        }
+
+        if (cachedResponse.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+            store.complete(key, new StoredResponse(fingerprint, cachedResponse.getStatus(), cachedResponse.getContentType(),
+                    cachedResponse.getHeader(HttpHeaders.ETAG), cachedResponse.getHeader(HttpHeaders.LOCATION),
+                    cachedResponse.getContentAsByteArray()));
+        } else {
+            store.release(key);
+        }
+
+        cachedResponse.copyBodyToResponse();
+    }
+
+    // To send the saved response of a key, if it belongs to the same request
+    private void replay(HttpServletResponse response, StoredResponse stored, String fingerprint) throws IOException {
+        if (!fingerprint.equals(stored.fingerprint())) {
+            this.error(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Error! El encabezado " + IDEMPOTENCY_KEY + " ya se uso con otra peticion.");
+            return;
+        }
+
+        if (!stored.isCompleted()) {
+            this.error(response, HttpStatus.CONFLICT,
+                    "Error! La peticion con este encabezado " + IDEMPOTENCY_KEY + " aun se esta procesando.");
+            return;
+        }
+
+        response.setStatus(stored.status());
+        response.setHeader(IDEMPOTENT_REPLAYED, "true");
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        if (stored.eTag() != null) {
+            response.setHeader(HttpHeaders.ETAG, stored.eTag());
+        }
+        if (stored.location() != null) {
+            response.setHeader(HttpHeaders.LOCATION, stored.location());
+        }
+        if (stored.body() != null) {
+            response.setContentLength(stored.body().length);
+            response.getOutputStream().write(stored.body());
+        }
+    }
+
+    private void error(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        ErrorMessage error = new ErrorMessage();
+        error.setDateTime(LocalDateTime.now());
+        error.setError(message);
+        error.setMessage(message);
+        error.setStatus(status.value());
+
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+
+    // To identify a request with its method, its path and its body
+    private static String fingerprint(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod() + " " + request.getRequestURI() + "?" + request.getQueryString() + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // A request whose body was already read, so it can be read again
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = StreamUtils.copyToByteArray(request.getInputStream());
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = this.getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(this.getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.alejandro.veterinaria.idempotency;
+
+import java.util.Optional;
+
+// The store of the responses of the requests with the header 'Idempotency-Key'.
+// The responses are removed when their time to live ends
+public interface IdempotencyStore {
+
+    // To reserve a key for a request. If the key is free then it's reserved and the result is empty,
+    // else the result is the response that already has the key (it can be still in progress)
+    public Optional<StoredResponse> reserve(String key, String fingerprint);
+
+    // To save the response of a request that reserved a key
+    public void complete(String key, StoredResponse response);
+
+    // To free a key whose request failed, so the request can be sent again
+    public void release(String key);
+
+}
@@ -0,0 +1,80 @@
+package com.alejandro.veterinaria.idempotency;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// A store of the responses in memory, it's used when the profile 'idempotency-jdbc' is not active.
+// The keys are kept in the order they were reserved, so the expired ones are always the first ones
+// and the oldest ones are removed when there are more keys than the maximum
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final int maxEntries;
+
+    private final Duration ttl;
+
+    private final Clock clock;
+
+    private final Map<String, Entry> entries;
+
+    public InMemoryIdempotencyStore(int maxEntries, Duration ttl, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > InMemoryIdempotencyStore.this.maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public synchronized Optional<StoredResponse> reserve(String key, String fingerprint) {
+        long now = clock.millis();
+        this.removeExpired(now);
+
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            return Optional.of(entry.response);
+        }
+
+        entries.put(key, new Entry(StoredResponse.inProgress(fingerprint), now + ttl.toMillis()));
+        return Optional.empty();
+    }
+
+    // The response keeps the expiration of the reservation, so the order of the keys doesn't change
+    @Override
+    public synchronized void complete(String key, StoredResponse response) {
+        entries.computeIfPresent(key, (k, entry) -> new Entry(response, entry.expiresAt));
+    }
+
+    @Override
+    public synchronized void release(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.response.isCompleted()) {
+            entries.remove(key);
+        }
+    }
+
+    // To get the number of keys in the store
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void removeExpired(long now) {
+        for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext();) {
+            if (iterator.next().expiresAt > now) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+    private record Entry(StoredResponse response, long expiresAt) {
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.alejandro.veterinaria.idempotency;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// A store of the responses in the table 'idempotency_response', it's used with the profile 'idempotency-jdbc'
+// so the keys are shared by all of the instances of the application and they survive a restart.
+// The primary key of the table reserves each key, so only one request can have it.
+// The expired keys are replaced when they are reserved again, and they are deleted each some reservations
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Duration ttl;
+
+    private final Clock clock;
+
+    // The number of reservations between two deletions of the expired keys
+    private final int purgeInterval;
+
+    private final AtomicInteger reservations = new AtomicInteger();
+
+    public JdbcIdempotencyStore(JdbcTemplate jdbcTemplate, Duration ttl, Clock clock, int purgeInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.purgeInterval = purgeInterval;
+    }
+
+    // To create the table if it doesn't exist
+    public void createTable() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS idempotency_response ("
+                + "idempotency_key VARCHAR(255) NOT NULL PRIMARY KEY, "
+                + "fingerprint VARCHAR(64) NOT NULL, "
+                + "status INT NOT NULL, "
+                + "content_type VARCHAR(255), "
+                + "etag VARCHAR(255), "
+                + "location VARCHAR(2048), "
+                + "body LONGBLOB, "
+                + "expires_at BIGINT NOT NULL)");
+    }
+
+    @Override
+    public Optional<StoredResponse> reserve(String key, String fingerprint) {
+        long now = clock.millis();
+        if (reservations.incrementAndGet() % purgeInterval == 0) {
+            this.purge(now);
+        }
+
+        // The key is tried twice, because an expired key is deleted before it's reserved again
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                jdbcTemplate.update("INSERT INTO idempotency_response (idempotency_key, fingerprint, status, expires_at) "
+                        + "VALUES (?, ?, 0, ?)", key, fingerprint, now + ttl.toMillis());
+                return Optional.empty();
+            } catch (DuplicateKeyException e) {
+                List<Row> rows = jdbcTemplate.query("SELECT fingerprint, status, content_type, etag, location, body, expires_at "
+                        + "FROM idempotency_response WHERE idempotency_key = ?",
+                        (rs, rowNum) -> new Row(new StoredResponse(rs.getString(1), rs.getInt(2), rs.getString(3),
+                                rs.getString(4), rs.getString(5), rs.getBytes(6)), rs.getLong(7)),
+                        key);
+
+                if (!rows.isEmpty() && rows.get(0).expiresAt > now) {
+                    return Optional.of(rows.get(0).response);
+                }
+
+                jdbcTemplate.update("DELETE FROM idempotency_response WHERE idempotency_key = ? AND expires_at <= ?", key, now);
+            }
+        }
+
+        // Another request reserved the key after it was deleted
+        return Optional.of(StoredResponse.inProgress(null));
+    }
+
+    @Override
+    public void complete(String key, StoredResponse response) {
+        jdbcTemplate.update("UPDATE idempotency_response SET status = ?, content_type = ?, etag = ?, location = ?, body = ? "
+                + "WHERE idempotency_key = ?",
+                response.status(), response.contentType(), response.eTag(), response.location(), response.body(), key);
+    }
+
+    @Override
+    public void release(String key) {
+        jdbcTemplate.update("DELETE FROM idempotency_response WHERE idempotency_key = ? AND status = 0", key);
+    }
+
+    // To delete the expired keys
+    public int purge(long now) {
+        return jdbcTemplate.update("DELETE FROM idempotency_response WHERE expires_at <= ?", now);
+    }
+
+    private record Row(StoredResponse response, long expiresAt) {
+    }
+
+}
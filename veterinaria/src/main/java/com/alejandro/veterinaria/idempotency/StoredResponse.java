@@ -0,0 +1,16 @@
+package com.alejandro.veterinaria.idempotency;
+
+// A response that was sent to a request with the header 'Idempotency-Key'.
+// The fingerprint identifies the request (method, path and body), so the key can't be used with another request.
+// While the first request is processed the response only has the fingerprint (its status is 0)
+public record StoredResponse(String fingerprint, int status, String contentType, String eTag, String location, byte[] body) {
+
+    public static StoredResponse inProgress(String fingerprint) {
+        return new StoredResponse(fingerprint, 0, null, null, null, null);
+    }
+
+    public boolean isCompleted() {
+        return status > 0;
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.alejandro.veterinaria.repositories;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import com.alejandro.veterinaria.entities.Address;
+
+public interface AddressRepository extends CrudRepository<Address, Long> {
+
+    // ---------------------
+    // Custom queries ------
+    // ---------------------
+
+    // To delete an address with one statement, without loading it first
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Address a WHERE a.id = :id")
+    int bulkDeleteById(@Param("id") Long id);
+
+}
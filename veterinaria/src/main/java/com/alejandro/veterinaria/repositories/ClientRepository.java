@@ -1,26 +1,98 @@
 package com.alejandro.veterinaria.repositories;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.ClientSummary;
+
+import jakarta.persistence.QueryHint;
 
 public interface ClientRepository extends CrudRepository<Client, Long> {
 
+    // The lists and the searches read only the columns that are sent in the json,
+    // the records are created by the db query and they are not managed by hibernate
+    String SUMMARY = "SELECT new com.alejandro.veterinaria.entities.ClientSummary(c.id, c.name, c.lastname, c.email, c.phonenumber, c.version) FROM Client c";
+
     // ---------------------
     // Custom queries ------
     // ---------------------
 
+    // To get a client together with its address in the same query
+    @EntityGraph(attributePaths = "address")
+    Optional<Client> findWithAddressById(Long id);
+
+    // To get a client together with its pets in the same query
+    @EntityGraph(attributePaths = "pets")
+    Optional<Client> findWithPetsById(Long id);
+
+    // To get a client together with its pets and its address in the same query
+    @EntityGraph(attributePaths = { "pets", "address" })
+    Optional<Client> findWithPetsAndAddressById(Long id);
+
+    // To get the addresses of a list of clients with one query, each row has the id of the client and its address
+    @Query("SELECT c.id, a FROM Client c JOIN c.address a WHERE c.id IN :ids")
+    List<Object[]> findAddressesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // To get all of the clients, in the order of the primary key
+    @Query(SUMMARY + " ORDER BY c.id")
+    List<ClientSummary> findAllSummaries();
+
+    // To get a page of clients whose id is greater than a certain id (keyset pagination)
+    // The rows are read in the order of the primary key so the db can seek on its index
+    @Query(SUMMARY + " WHERE c.id > :id ORDER BY c.id")
+    List<ClientSummary> findSummariesByIdGreaterThan(@Param("id") Long id, Limit limit);
+
     // To search for a client by his name
-    List<Client> findByNameContaining(String name);
+    // It reads the whole table, so it's only used while the search index is not ready
+    @Query(SUMMARY + " WHERE c.name LIKE %:name% ORDER BY c.id")
+    List<ClientSummary> findSummariesByNameContaining(@Param("name") String name);
 
     // To search for a client by his lastname
-    List<Client> findByLastnameContaining(String lastname);
+    // It reads the whole table, so it's only used while the search index is not ready
+    @Query(SUMMARY + " WHERE c.lastname LIKE %:lastname% ORDER BY c.id")
+    List<ClientSummary> findSummariesByLastnameContaining(@Param("lastname") String lastname);
+
+    // To get the clients of a list of ids, in the order of the primary key
+    @Query(SUMMARY + " WHERE c.id IN :ids ORDER BY c.id")
+    List<ClientSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // To get all of the clients whose pets have a certain name, each client only once
+    // It reads the whole table of pets, so it's only used while the search index is not ready
+    @Query("SELECT DISTINCT new com.alejandro.veterinaria.entities.ClientSummary(c.id, c.name, c.lastname, c.email, c.phonenumber, c.version) "
+            + "FROM Client c JOIN c.pets p WHERE p.name LIKE %:petName% ORDER BY c.id")
+    List<ClientSummary> findSummariesByPetNameLike(@Param("petName") String petName);
+
+    // To get a page of clients, with their address, whose id is greater than a certain id (keyset pagination).
+    // The entities are read only so hibernate doesn't keep a copy to check for changes
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT c FROM Client c LEFT JOIN FETCH c.address WHERE c.id > :id ORDER BY c.id")
+    List<Client> findWithAddressByIdGreaterThan(@Param("id") Long id, Limit limit);
+
+    // To read the id, the name and the lastname of all of the clients (to build the search index).
+    // The driver of mysql reads the whole result at once (the fetch size is only used with 'useCursorFetch=true'),
+    // it's not a problem because it's only the columns of the index, that keeps all of them in memory anyway.
+    // The rows are converted one by one, so hibernate doesn't build a list of them too
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT c.id, c.name, c.lastname FROM Client c")
+    Stream<Object[]> streamNames();
 
-    // To get all of the clients whose pets have a certain name
-    @Query("SELECT c FROM Client c JOIN c.pets p WHERE p.name LIKE %?1%")
-    List<Client> findClientsByPetNameLike(String petName);
+    // To delete a client with one statement, without loading it and its pets first.
+    // The pets and the address must be deleted by their own repositories
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Client c WHERE c.id = :id")
+    int bulkDeleteById(@Param("id") Long id);
 
 }
@@ -1,9 +1,67 @@
 package com.alejandro.veterinaria.repositories;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 import com.alejandro.veterinaria.entities.Pet;
 
+import jakarta.persistence.QueryHint;
+
 public interface PetRepository extends CrudRepository<Pet, Long> {
     
+    // ---------------------
+    // Custom queries ------
+    // ---------------------
+
+    // To read the id, the name and the owner of all of the pets (to build the search index).
+    // The driver of mysql reads the whole result at once (the fetch size is only used with 'useCursorFetch=true'),
+    // it's not a problem because it's only the columns of the index, that keeps all of them in memory anyway.
+    // The rows are converted one by one, so hibernate doesn't build a list of them too
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT p.id, p.name, p.clientId FROM Pet p")
+    Stream<Object[]> streamNames();
+
+    // To update a pet only if it belongs to a certain client (and if it has a certain version, when it's not null).
+    // The ownership check, the version check and the update are done by the same statement,
+    // it returns 0 if the pet doesn't exist, if it belongs to another client or if it has another version
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Pet p SET p.name = :#{#pet.name}, p.specie = :#{#pet.specie}, p.breed = :#{#pet.breed}, "
+            + "p.age = :#{#pet.age}, p.reasonForVisit = :#{#pet.reasonForVisit}, p.version = p.version + 1 "
+            + "WHERE p.id = :petId AND p.clientId = :clientId AND (:version IS NULL OR p.version = :version)")
+    int updateByIdAndClientId(@Param("petId") Long petId, @Param("clientId") Long clientId,
+            @Param("version") Long version, @Param("pet") Pet pet);
+
+    // To get the pets of a list of clients with one query
+    List<Pet> findByClientIdInOrderById(Collection<Long> clientIds);
+
+    // To get which names of a list are already used by the pets of a certain client
+    @Query("SELECT p.name FROM Pet p WHERE p.clientId = :clientId AND p.name IN :names")
+    List<String> findNamesByClientIdAndNameIn(@Param("clientId") Long clientId, @Param("names") Collection<String> names);
+
+    // To get a pet only if it belongs to a certain client
+    Optional<Pet> findByIdAndClientId(Long petId, Long clientId);
+
+    // To know if a pet belongs to a certain client
+    boolean existsByIdAndClientId(Long petId, Long clientId);
+
+    // To delete a pet only if it belongs to a certain client.
+    // It returns 0 if the pet doesn't exist or if it belongs to another client
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Pet p WHERE p.id = :petId AND p.clientId = :clientId")
+    int deleteByIdAndClientId(@Param("petId") Long petId, @Param("clientId") Long clientId);
+
+    // To delete all of the pets of a certain client with one statement
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Pet p WHERE p.clientId = :clientId")
+    int bulkDeleteByClientId(@Param("clientId") Long clientId);
+
 }
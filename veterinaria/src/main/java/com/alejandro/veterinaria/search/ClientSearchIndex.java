@@ -0,0 +1,136 @@
+package com.alejandro.veterinaria.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.alejandro.veterinaria.repositories.ClientRepository;
+import com.alejandro.veterinaria.utils.AfterCommit;
+
+// The index of the names and lastnames of the clients, to search for them by a substring
+// without a 'like %x%' query (that reads the whole table).
+// It's kept in memory, so it's built when the application starts and it's updated
+// by the service each time a client is saved, updated or deleted.
+@Component
+public class ClientSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientSearchIndex.class);
+
+    // The names and the lastnames of the clients. They are replaced together when the index is rebuilt
+    private volatile Indexes indexes = new Indexes(new TrigramIndex(), new TrigramIndex());
+
+    // The changes made while the index is rebuilt, they are applied to the new index before it's used.
+    // It's null when the index is not being rebuilt
+    private List<Consumer<Indexes>> changes;
+
+    // The index can't be used until all of the clients are loaded
+    private volatile boolean ready;
+
+    // Only one rebuild is run at a time
+    private final Object rebuildLock = new Object();
+
+    // To inject the repository dependency.
+    @Autowired
+    private ClientRepository repository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // -----------------------------
+    // Methods to build the index
+    // -----------------------------
+
+    // To load the names of all of the clients in the db when the application starts.
+    // The clients are loaded into a new index while the current one is still used and updated,
+    // and the changes committed meanwhile are recorded and applied to the new one before it replaces the current one,
+    // so a change isn't lost if the rows were read before it
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            Indexes rebuilt = new Indexes(new TrigramIndex(), new TrigramIndex());
+            synchronized (this) {
+                changes = new ArrayList<>();
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    try (Stream<Object[]> rows = repository.streamNames()) {
+                        rows.forEach(row -> rebuilt.index((Long) row[0], (String) row[1], (String) row[2]));
+                    }
+                });
+
+                synchronized (this) {
+                    changes.forEach(change -> change.accept(rebuilt));
+                    indexes = rebuilt;
+                    ready = true;
+                }
+            } finally {
+                synchronized (this) {
+                    changes = null;
+                }
+            }
+
+            logger.info("Search index of clients built with {} clients", rebuilt.names().size());
+        }
+    }
+
+    // To add (or replace) a client in the index when the current transaction is committed
+    public void put(Long id, String name, String lastname) {
+        AfterCommit.run(() -> this.apply(current -> current.index(id, name, lastname)));
+    }
+
+    // To remove a client from the index when the current transaction is committed
+    public void remove(Long id) {
+        AfterCommit.run(() -> this.apply(current -> current.unindex(id)));
+    }
+
+    // -----------------------------
+    // Methods to search in the index
+    // -----------------------------
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // To get the ids of the clients whose name contains a substring
+    public List<Long> findIdsByName(String name) {
+        return indexes.names().search(name);
+    }
+
+    // To get the ids of the clients whose lastname contains a substring
+    public List<Long> findIdsByLastname(String lastname) {
+        return indexes.lastnames().search(lastname);
+    }
+
+    // To apply a change to the current index, and to record it if the index is being rebuilt
+    private synchronized void apply(Consumer<Indexes> change) {
+        change.accept(indexes);
+        if (changes != null) {
+            changes.add(change);
+        }
+    }
+
+    private record Indexes(TrigramIndex names, TrigramIndex lastnames) {
+
+        private void index(Long id, String name, String lastname) {
+            names.put(id, name);
+            lastnames.put(id, lastname);
+        }
+
+        private void unindex(Long id) {
+            names.remove(id);
+            lastnames.remove(id);
+        }
+
+    }
+
+}
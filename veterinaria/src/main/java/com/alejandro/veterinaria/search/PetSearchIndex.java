@@ -0,0 +1,192 @@
+package com.alejandro.veterinaria.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.alejandro.veterinaria.repositories.PetRepository;
+import com.alejandro.veterinaria.utils.AfterCommit;
+
+// The index of the names of the pets, to search for the owners of the pets by a substring
+// of their names without a 'like %x%' query (that reads the whole table of pets).
+// It's kept in memory, so it's built when the application starts and it's updated
+// by the services each time a pet is saved, updated or deleted.
+@Component
+public class PetSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(PetSearchIndex.class);
+
+    // The names and the owners of the pets. They are replaced together when the index is rebuilt
+    private volatile Entries entries = new Entries();
+
+    // The changes made while the index is rebuilt, they are applied to the new index before it's used.
+    // It's null when the index is not being rebuilt
+    private List<Consumer<Entries>> changes;
+
+    // The index can't be used until all of the pets are loaded
+    private volatile boolean ready;
+
+    // Only one rebuild is run at a time
+    private final Object rebuildLock = new Object();
+
+    // To inject the repository dependency.
+    @Autowired
+    private PetRepository repository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // -----------------------------
+    // Methods to build the index
+    // -----------------------------
+
+    // To load the names of all of the pets in the db when the application starts.
+    // The pets are loaded into a new index while the current one is still used and updated,
+    // and the changes committed meanwhile are recorded and applied to the new one before it replaces the current one,
+    // so a change isn't lost if the rows were read before it
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            Entries rebuilt = new Entries();
+            synchronized (this) {
+                changes = new ArrayList<>();
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    try (Stream<Object[]> rows = repository.streamNames()) {
+                        rows.forEach(row -> rebuilt.index((Long) row[0], (String) row[1], (Long) row[2]));
+                    }
+                });
+
+                synchronized (this) {
+                    changes.forEach(change -> change.accept(rebuilt));
+                    entries = rebuilt;
+                    ready = true;
+                }
+            } finally {
+                synchronized (this) {
+                    changes = null;
+                }
+            }
+
+            logger.info("Search index of pets built with {} pets", rebuilt.names.size());
+        }
+    }
+
+    // To add (or replace) a pet in the index when the current transaction is committed
+    public void put(Long petId, String name, Long clientId) {
+        AfterCommit.run(() -> this.apply(current -> current.index(petId, name, clientId)));
+    }
+
+    // To remove a pet from the index when the current transaction is committed
+    public void remove(Long petId) {
+        AfterCommit.run(() -> this.apply(current -> current.unindex(petId)));
+    }
+
+    // To remove all of the pets of a client from the index when the current transaction is committed
+    public void removeByClient(Long clientId) {
+        AfterCommit.run(() -> this.apply(current -> current.unindexClient(clientId)));
+    }
+
+    // -----------------------------
+    // Methods to search in the index
+    // -----------------------------
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // To get the ids of the clients that have a pet whose name contains a substring.
+    // Each client is only once, no matter how many of its pets have the name, in ascending order
+    public List<Long> findClientIdsByPetName(String petName) {
+        Entries current = entries;
+        Set<Long> clientIds = new TreeSet<>();
+
+        for (Long petId : current.names.search(petName)) {
+            Long clientId = current.owners.get(petId);
+            // The pet could be removed after it was found
+            if (clientId != null) {
+                clientIds.add(clientId);
+            }
+        }
+
+        return new ArrayList<>(clientIds);
+    }
+
+    // To apply a change to the current index, and to record it if the index is being rebuilt
+    private synchronized void apply(Consumer<Entries> change) {
+        change.accept(entries);
+        if (changes != null) {
+            changes.add(change);
+        }
+    }
+
+    // The changes are applied one at a time (by 'apply', or by the rebuild before the entries are used)
+    private static class Entries {
+
+        private final TrigramIndex names = new TrigramIndex();
+
+        // The owner of each pet
+        private final Map<Long, Long> owners = new ConcurrentHashMap<>();
+
+        // The pets of each client, to remove them when the client is deleted
+        private final Map<Long, Set<Long>> petsByClient = new HashMap<>();
+
+        private void index(Long petId, String name, Long clientId) {
+            names.put(petId, name);
+
+            Long previous = owners.put(petId, clientId);
+            if (previous != null && !previous.equals(clientId)) {
+                this.removeFromClient(previous, petId);
+            }
+            petsByClient.computeIfAbsent(clientId, key -> new HashSet<>()).add(petId);
+        }
+
+        private void unindex(Long petId) {
+            names.remove(petId);
+
+            Long clientId = owners.remove(petId);
+            if (clientId != null) {
+                this.removeFromClient(clientId, petId);
+            }
+        }
+
+        private void unindexClient(Long clientId) {
+            Set<Long> petIds = petsByClient.remove(clientId);
+            if (petIds != null) {
+                petIds.forEach(petId -> {
+                    names.remove(petId);
+                    owners.remove(petId);
+                });
+            }
+        }
+
+        private void removeFromClient(Long clientId, Long petId) {
+            Set<Long> petIds = petsByClient.get(clientId);
+            if (petIds != null) {
+                petIds.remove(petId);
+                if (petIds.isEmpty()) {
+                    petsByClient.remove(clientId);
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,183 @@
+package com.alejandro.veterinaria.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// An in-memory index to search for the ids whose text contains a substring (like '%x%' in sql).
+// Each text is split into its trigrams (every 3 consecutive characters) and the index keeps
+// the ids that have each trigram. To search for a substring, only the ids that have all of its
+// trigrams are checked, instead of all of the texts.
+// The texts are compared in lowercase and without accents, so the search is case and accent
+// insensitive as it's in mysql ('jose' finds 'José' and 'nuñez' finds 'nunez').
+public class TrigramIndex {
+
+    private static final int GRAM = 3;
+
+    // The marks (accents, tildes, ...) that are separated from the letters by the normalization
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    // The ids of the texts that contain each trigram
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+
+    // The text of each id, to check the results and to remove its trigrams
+    private final Map<Long, String> texts = new HashMap<>();
+
+    // Many searches can be run at the same time, but the changes are run one at a time
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // -----------------------------
+    // Methods to change the index
+    // -----------------------------
+
+    // To add (or replace) the text of an id
+    public void put(Long id, String text) {
+        String normalized = normalize(text);
+
+        lock.writeLock().lock();
+        try {
+            this.removeUnlocked(id);
+            texts.put(id, normalized);
+            for (String gram : grams(normalized)) {
+                postings.computeIfAbsent(gram, key -> new HashSet<>()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // To remove the text of an id
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            this.removeUnlocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // To remove all of the texts
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            texts.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // -----------------------------
+    // Methods to search in the index
+    // -----------------------------
+
+    // To get the ids whose text contains a substring, in ascending order
+    public List<Long> search(String query) {
+        String normalized = normalize(query);
+        List<Long> ids = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            Set<String> grams = grams(normalized);
+
+            if (grams.isEmpty()) {
+                // A substring shorter than a trigram can't be searched in the postings,
+                // so all of the texts are checked (it's still done in memory)
+                texts.forEach((id, text) -> {
+                    if (text.contains(normalized)) {
+                        ids.add(id);
+                    }
+                });
+            } else {
+                // The postings of the trigrams are checked from the one with less ids,
+                // so the candidates are the ids of the smallest posting
+                List<Set<Long>> candidates = new ArrayList<>(grams.size());
+                for (String gram : grams) {
+                    Set<Long> posting = postings.get(gram);
+                    if (posting == null) {
+                        return ids;
+                    }
+                    candidates.add(posting);
+                }
+                candidates.sort(Comparator.comparingInt(Set::size));
+
+                for (Long id : candidates.get(0)) {
+                    // Having all of the trigrams doesn't mean that they are consecutive, so the text is checked
+                    if (this.inAll(id, candidates) && texts.get(id).contains(normalized)) {
+                        ids.add(id);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        ids.sort(null);
+        return ids;
+    }
+
+    // To get the number of texts in the index
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return texts.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // To know if an id is in all of the postings (the first one is skipped because it's the one iterated)
+    private boolean inAll(Long id, List<Set<Long>> candidates) {
+        for (int i = 1; i < candidates.size(); i++) {
+            if (!candidates.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void removeUnlocked(Long id) {
+        String previous = texts.remove(id);
+        if (previous == null) {
+            return;
+        }
+
+        for (String gram : grams(previous)) {
+            Set<Long> posting = postings.get(gram);
+            posting.remove(id);
+            // The trigrams without ids are removed to not keep them in memory
+            if (posting.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    // The accents are removed by splitting each letter from its marks and removing the marks.
+    // It's used for the texts and the queries, so both are compared in the same way
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    // To split a text into its trigrams, without repeating them
+    private static Set<String> grams(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+}
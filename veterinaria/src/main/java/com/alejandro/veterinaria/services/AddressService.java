@@ -4,6 +4,7 @@ import java.util.Optional;
 
 import com.alejandro.veterinaria.entities.Address;
 import com.alejandro.veterinaria.entities.Client;
+import com.fasterxml.jackson.databind.JsonNode;
 
 public interface AddressService {
     
@@ -13,9 +14,13 @@ public interface AddressService {
     // Methods for address entity
     // -----------------------------
 
+    public Optional<Client> findAddressByClient(Long clientId);
+
     public Optional<Client> saveAddressByClient(Long clientId, Address newAddress);
 
-    public Optional<Client> editAddressByClient(Long clientId, Address editAddress);
+    public Optional<Client> editAddressByClient(Long clientId, Address editAddress, String ifMatch);
+
+    public Optional<Address> patchAddressByClient(Long clientId, JsonNode patch, String ifMatch);
 
     public Optional<Client> deleteAddressByClient(Long clientId);
     
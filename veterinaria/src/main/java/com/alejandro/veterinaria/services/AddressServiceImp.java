@@ -1,14 +1,21 @@
 package com.alejandro.veterinaria.services;
 
+import java.util.Objects;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.alejandro.veterinaria.aop.ReadFromPrimary;
+import com.alejandro.veterinaria.aop.RetryOnTransientFailure;
+import com.alejandro.veterinaria.cache.ClientResponseCache;
 import com.alejandro.veterinaria.entities.Address;
 import com.alejandro.veterinaria.entities.Client;
 import com.alejandro.veterinaria.repositories.ClientRepository;
+import com.alejandro.veterinaria.utils.UtilETag;
+import com.alejandro.veterinaria.utils.UtilPatch;
+import com.fasterxml.jackson.databind.JsonNode;
 
 
 @Service
@@ -18,10 +25,29 @@ public class AddressServiceImp implements AddressService {
     @Autowired
     private ClientRepository clientRepository;
 
+    // To invalidate the cached responses of the clients whose address changes
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    @Autowired
+    private UtilETag utilETag;
+
+    @Autowired
+    private UtilPatch utilPatch;
+
     // -----------------------------
     // Methods for address entity
     // -----------------------------
 
+    // To get a certain client together with its address (in the same query)
+    // It's read from the primary because the response is saved in the cache
+    @Override
+    @Transactional(readOnly = true)
+    @ReadFromPrimary
+    public Optional<Client> findAddressByClient(Long clientId) {
+        return clientRepository.findWithAddressById(clientId);
+    }
+
     // To save a new address of a certain client in the db
     @Override
     @Transactional
@@ -35,6 +61,7 @@ public class AddressServiceImp implements AddressService {
             Client clientDb = optionalClient.get();
 
             clientDb.setAddress(newAddress);
+            responseCache.invalidate(clientId);
     
             return Optional.of(clientRepository.save(clientDb));
         }
@@ -44,9 +71,11 @@ public class AddressServiceImp implements AddressService {
     }
 
     // To update the information about the address
+    // If the header 'If-Match' was sent then the address is updated only if it has that version
     @Override
     @Transactional
-    public Optional<Client> editAddressByClient(Long clientId, Address editAddress) {
+    @RetryOnTransientFailure
+    public Optional<Client> editAddressByClient(Long clientId, Address editAddress, String ifMatch) {
 
         // Search for a specific client
         Optional<Client> optionalClient = clientRepository.findById(clientId);
@@ -61,12 +90,14 @@ public class AddressServiceImp implements AddressService {
                 
                 // Edit the address belongs to this client.
                 Address addressDb = clientDb.getAddress();
+                utilETag.checkVersion(ifMatch, addressDb);
         
                 // update all of object attributes
                 addressDb.setStreet(editAddress.getStreet());
                 addressDb.setState(editAddress.getState());
                 addressDb.setCity(editAddress.getCity());
                 addressDb.setCp(editAddress.getCp());
+                responseCache.invalidate(clientId);
         
                 // and save the information in the db
                 return Optional.of(clientRepository.save(clientDb));
@@ -80,9 +111,51 @@ public class AddressServiceImp implements AddressService {
         return Optional.empty();
     }
 
+    // To apply a JSON merge patch to the address of a certain client, only the attributes sent are changed.
+    // The patch is applied to a copy, so the address is not changed if the result is not valid.
+    // If nothing changed then nothing is written, else the update only has the columns that changed
+    @Override
+    @Transactional
+    @RetryOnTransientFailure
+    public Optional<Address> patchAddressByClient(Long clientId, JsonNode patch, String ifMatch) {
+
+        // Search for a specific client with its address
+        Optional<Address> optionalAddress = clientRepository.findWithAddressById(clientId).map(Client::getAddress);
+
+        // If the client has an address then ...
+        if (optionalAddress.isPresent()) {
+            Address addressDb = optionalAddress.get();
+            utilETag.checkVersion(ifMatch, addressDb);
+
+            Address address = utilPatch.apply(patch, new Address(null, addressDb.getStreet(), addressDb.getState(),
+                    addressDb.getCity(), addressDb.getCp()));
+            address.setStreet(utilPatch.trim(address.getStreet()));
+            address.setState(utilPatch.trim(address.getState()));
+            address.setCity(utilPatch.trim(address.getCity()));
+            utilPatch.validate(address);
+
+            if (Objects.equals(address.getStreet(), addressDb.getStreet())
+                    && Objects.equals(address.getState(), addressDb.getState())
+                    && Objects.equals(address.getCity(), addressDb.getCity())
+                    && Objects.equals(address.getCp(), addressDb.getCp())) {
+                return optionalAddress;
+            }
+
+            addressDb.setStreet(address.getStreet());
+            addressDb.setState(address.getState());
+            addressDb.setCity(address.getCity());
+            addressDb.setCp(address.getCp());
+            responseCache.invalidate(clientId);
+        }
+
+        // Else, return an empty optional
+        return optionalAddress;
+    }
+
     // To delete a certain address in the db
     @Override
     @Transactional
+    @RetryOnTransientFailure
     public Optional<Client> deleteAddressByClient(Long clientId) {
 
         // Search for a specific client
@@ -95,6 +168,7 @@ public class AddressServiceImp implements AddressService {
         
             // Delete the address
             clientDb.setAddress(null);
+            responseCache.invalidate(clientId);
     
             // and save the information in the db
             return Optional.of(clientRepository.save(clientDb));
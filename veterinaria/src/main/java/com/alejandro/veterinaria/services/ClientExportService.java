@@ -0,0 +1,18 @@
+package com.alejandro.veterinaria.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ClientExportService {
+
+    // Declaration of methods to use in 'serviceImp' file
+
+    // -----------------------------
+    // Methods for the bulk export of clients
+    // -----------------------------
+
+    public long exportNdjson(OutputStream output) throws IOException;
+
+    public long exportCsv(OutputStream output) throws IOException;
+
+}
@@ -0,0 +1,133 @@
+package com.alejandro.veterinaria.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.alejandro.veterinaria.entities.Address;
+import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.ClientGraph;
+import com.alejandro.veterinaria.entities.Pet;
+import com.alejandro.veterinaria.repositories.ClientRepository;
+import com.alejandro.veterinaria.utils.UtilCsv;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+@Service
+public class ClientExportServiceImp implements ClientExportService {
+
+    // To inject the repository dependency.
+    @Autowired
+    private ClientRepository repository;
+
+    // To detach the clients that were already written
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UtilCsv utilCsv;
+
+    // Number of clients of each page, the persistence context is cleared after each page
+    @Value("${veterinaria.export.clear-interval:1000}")
+    private int clearInterval = 1000;
+
+    // -----------------------------
+    // Methods for the bulk export of clients
+    // -----------------------------
+
+    // To write all of the clients with their pets and address, one json object in each line
+    @Override
+    @Transactional(readOnly = true)
+    public long exportNdjson(OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+
+        return this.export(writer, client -> {
+            writer.write(objectMapper.writeValueAsString(ClientGraph.from(client)));
+            writer.write('\n');
+        });
+    }
+
+    // To write all of the clients with their pets and address in a csv file (see 'ClientGraph.CSV_COLUMNS').
+    // There is a row for each pet, and a row with the pet columns empty for the clients without pets
+    @Override
+    @Transactional(readOnly = true)
+    public long exportCsv(OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.write(utilCsv.formatLine(ClientGraph.CSV_COLUMNS));
+        writer.write('\n');
+
+        return this.export(writer, client -> {
+            Address address = client.getAddress() != null ? client.getAddress() : new Address();
+            Object[] clientValues = { client.getName(), client.getLastname(), client.getEmail(), client.getPhonenumber(),
+                    address.getStreet(), address.getState(), address.getCity(), address.getCp() };
+
+            if (client.getPets().isEmpty()) {
+                writer.write(utilCsv.formatLine(Arrays.asList(Arrays.copyOf(clientValues, ClientGraph.CSV_COLUMNS.size()))));
+                writer.write('\n');
+            }
+
+            for (Pet pet : client.getPets()) {
+                Object[] values = Arrays.copyOf(clientValues, ClientGraph.CSV_COLUMNS.size());
+                values[8] = pet.getName();
+                values[9] = pet.getSpecie();
+                values[10] = pet.getBreed();
+                values[11] = pet.getAge();
+                values[12] = pet.getReasonForVisit();
+                writer.write(utilCsv.formatLine(Arrays.asList(values)));
+                writer.write('\n');
+            }
+        });
+    }
+
+    // To read the clients one page at a time (in the order of the primary key) and write them one by one.
+    // Each page has 'clearInterval' clients, after a page the output is flushed and the clients are removed
+    // from the persistence context, so the memory used doesn't depend on the number of clients.
+    // The pages are read with keyset pagination instead of a cursor, so the connections don't need
+    // the cursor fetch of Mysql (and the pets can be read while the clients are written)
+    private long export(Writer writer, ClientWriter clientWriter) throws IOException {
+        long count = 0;
+        Long lastId = 0L;
+        List<Client> clients;
+
+        do {
+            clients = repository.findWithAddressByIdGreaterThan(lastId, Limit.of(clearInterval));
+            for (Client client : clients) {
+                clientWriter.write(client);
+                count++;
+            }
+
+            if (!clients.isEmpty()) {
+                lastId = clients.get(clients.size() - 1).getId();
+                writer.flush();
+                entityManager.clear();
+            }
+        } while (clients.size() == clearInterval);
+
+        writer.flush();
+        return count;
+    }
+
+    // To write a client in the output
+    @FunctionalInterface
+    private interface ClientWriter {
+
+        void write(Client client) throws IOException;
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.alejandro.veterinaria.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.alejandro.veterinaria.entities.ImportReport;
+
+public interface ClientImportService {
+
+    // Declaration of methods to use in 'serviceImp' file
+
+    // -----------------------------
+    // Methods for the bulk import of clients
+    // -----------------------------
+
+    public ImportReport importNdjson(InputStream input) throws IOException;
+
+    public ImportReport importCsv(InputStream input) throws IOException;
+
+}
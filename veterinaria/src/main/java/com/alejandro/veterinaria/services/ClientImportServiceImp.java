@@ -0,0 +1,330 @@
+package com.alejandro.veterinaria.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.alejandro.veterinaria.entities.Address;
+import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.ClientGraph;
+import com.alejandro.veterinaria.entities.ImportError;
+import com.alejandro.veterinaria.entities.ImportReport;
+import com.alejandro.veterinaria.entities.Pet;
+import com.alejandro.veterinaria.repositories.ClientRepository;
+import com.alejandro.veterinaria.repositories.PetRepository;
+import com.alejandro.veterinaria.search.ClientSearchIndex;
+import com.alejandro.veterinaria.search.PetSearchIndex;
+import com.alejandro.veterinaria.utils.UtilCsv;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+@Service
+public class ClientImportServiceImp implements ClientImportService {
+
+    // To inject the repository dependency.
+    @Autowired
+    private ClientRepository clientRepository;
+
+    // To inject the repository dependency.
+    @Autowired
+    private PetRepository petRepository;
+
+    // To run each chunk of records in its own transaction
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // To validate the records with the obligations of the attributes
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UtilCsv utilCsv;
+
+    // To add the new clients to the search index
+    @Autowired
+    private ClientSearchIndex searchIndex;
+
+    // To add the new pets to the search index of pet names
+    @Autowired
+    private PetSearchIndex petSearchIndex;
+
+    // Number of records saved by each transaction
+    @Value("${veterinaria.import.chunk-size:500}")
+    private int chunkSize = 500;
+
+    // Number of errors that are sent in the report, the rest are only counted
+    @Value("${veterinaria.import.max-reported-errors:1000}")
+    private int maxReportedErrors = 1000;
+
+    // -----------------------------
+    // Methods for the bulk import of clients
+    // -----------------------------
+
+    // To import a file where each line is a json object of a client with its pets and address.
+    // The file is read line by line, so only one chunk of records is in memory
+    @Override
+    public ImportReport importNdjson(InputStream input) throws IOException {
+        ImportReport report = new ImportReport();
+        List<PendingRecord> chunk = new ArrayList<>(chunkSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String line;
+        long lineNumber = 0;
+
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+
+            // The empty lines are skipped
+            if (line.isBlank()) {
+                continue;
+            }
+
+            try {
+                ClientGraph graph = objectMapper.readValue(line, ClientGraph.class);
+                this.addRecord(new PendingRecord(lineNumber, graph), chunk, report);
+            } catch (JsonProcessingException e) {
+                report.setRecords(report.getRecords() + 1);
+                this.addError(report, lineNumber, Map.of("record", "El registro no es un json valido"));
+            }
+        }
+
+        this.saveChunk(chunk, report);
+
+        // The errors of the db are found when the chunk is saved, so they are sorted by line
+        report.getErrors().sort(Comparator.comparingLong(ImportError::getRecord));
+        return report;
+    }
+
+    // To import a csv file with a header (see 'ClientGraph.CSV_COLUMNS').
+    // There is a row for each pet and the consecutive rows with the same client are joined
+    @Override
+    public ImportReport importCsv(InputStream input) throws IOException {
+        ImportReport report = new ImportReport();
+        List<PendingRecord> chunk = new ArrayList<>(chunkSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+
+        if (header == null) {
+            return report;
+        }
+
+        // To know the position of each column (a byte order mark at the beginning is ignored)
+        Map<String, Integer> columns = new LinkedHashMap<>();
+        List<String> names = utilCsv.parseLine(header.startsWith("\uFEFF") ? header.substring(1) : header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim(), i);
+        }
+
+        PendingRecord current = null;
+        List<String> currentKey = null;
+        String line;
+        long lineNumber = 1;
+
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+
+            if (line.isBlank()) {
+                continue;
+            }
+
+            List<String> values = utilCsv.parseLine(line);
+            List<String> key = List.of(value(values, columns, "name"), value(values, columns, "lastname"),
+                    value(values, columns, "email"), value(values, columns, "phonenumber"));
+
+            // If the row belongs to another client then the previous one is complete
+            if (current == null || !key.equals(currentKey)) {
+                if (current != null) {
+                    this.addRecord(current, chunk, report);
+                }
+                current = this.csvRecord(lineNumber, values, columns);
+                currentKey = key;
+            }
+
+            this.addCsvPet(current, values, columns);
+        }
+
+        if (current != null) {
+            this.addRecord(current, chunk, report);
+        }
+
+        this.saveChunk(chunk, report);
+
+        // The errors of the db are found when the chunk is saved, so they are sorted by line
+        report.getErrors().sort(Comparator.comparingLong(ImportError::getRecord));
+        return report;
+    }
+
+    // To validate a record and add it to the chunk.
+    // When the chunk is full it's saved in the db
+    private void addRecord(PendingRecord record, List<PendingRecord> chunk, ImportReport report) {
+        report.setRecords(report.getRecords() + 1);
+
+        if (!record.errors.isEmpty()) {
+            this.addError(report, record.line, record.errors);
+            return;
+        }
+
+        Map<String, String> errors = new LinkedHashMap<>();
+        for (ConstraintViolation<ClientGraph> violation : validator.validate(record.graph)) {
+            String field = violation.getPropertyPath().toString();
+            errors.put(field, "El campo " + field + " " + violation.getMessage());
+        }
+
+        if (!errors.isEmpty()) {
+            this.addError(report, record.line, errors);
+            return;
+        }
+
+        chunk.add(record);
+        if (chunk.size() >= chunkSize) {
+            this.saveChunk(chunk, report);
+        }
+    }
+
+    // To save all of the records of a chunk in one transaction.
+    // If a record breaks a restriction of the db then the records of the chunk
+    // are saved one by one to know which one it is
+    private void saveChunk(List<PendingRecord> chunk, ImportReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> chunk.forEach(this::saveRecord));
+            report.setImported(report.getImported() + chunk.size());
+        } catch (DataAccessException e) {
+            chunk.forEach(record -> {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> this.saveRecord(record));
+                    report.setImported(report.getImported() + 1);
+                } catch (DataAccessException recordException) {
+                    this.addError(report, record.line, Map.of("record",
+                            "Error! No se pudo guardar el registro: " + recordException.getMostSpecificCause().getMessage()));
+                }
+            });
+        }
+
+        chunk.clear();
+    }
+
+    // To save a client, its address and its pets
+    private void saveRecord(PendingRecord record) {
+        Client clientDb = clientRepository.save(record.graph.toClient());
+        searchIndex.put(clientDb.getId(), clientDb.getName(), clientDb.getLastname());
+
+        for (Pet petDb : petRepository.saveAll(record.graph.toPets(clientDb.getId()))) {
+            petSearchIndex.put(petDb.getId(), petDb.getName(), clientDb.getId());
+        }
+    }
+
+    // To count an error and add it to the report if the limit was not reached
+    private void addError(ImportReport report, long line, Map<String, String> errors) {
+        report.setFailed(report.getFailed() + 1);
+
+        if (report.getErrors().size() < maxReportedErrors) {
+            report.getErrors().add(new ImportError(line, errors));
+        }
+    }
+
+    // To create the record of a client with the values of its first csv row
+    private PendingRecord csvRecord(long line, List<String> values, Map<String, Integer> columns) {
+        PendingRecord record = new PendingRecord(line, new ClientGraph());
+        ClientGraph graph = record.graph;
+
+        graph.setName(value(values, columns, "name"));
+        graph.setLastname(value(values, columns, "lastname"));
+        graph.setEmail(value(values, columns, "email"));
+        graph.setPhonenumber(number(values, columns, "phonenumber", record.errors));
+
+        // The address is optional, it's read only if one of its columns has a value
+        String street = value(values, columns, "street");
+        String state = value(values, columns, "state");
+        String city = value(values, columns, "city");
+        Long cp = number(values, columns, "cp", record.errors);
+        if (street != null || state != null || city != null || cp != null) {
+            graph.setAddress(new Address(null, street, state, city, cp));
+        }
+
+        return record;
+    }
+
+    // To add the pet of a csv row to the record of its client
+    private void addCsvPet(PendingRecord record, List<String> values, Map<String, Integer> columns) {
+        String name = value(values, columns, "pet_name");
+
+        // The clients without pets have a row with the pet columns empty
+        if (name == null) {
+            return;
+        }
+
+        int index = record.graph.getPets().size();
+        Long age = number(values, columns, "pet_age", record.errors, "pets[" + index + "].age");
+        record.graph.getPets().add(new Pet(null, name, value(values, columns, "pet_specie"),
+                value(values, columns, "pet_breed"), age, value(values, columns, "pet_reason_for_visit")));
+    }
+
+    // To get the value of a column, the empty values are null
+    private static String value(List<String> values, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= values.size() || values.get(index).isEmpty()) {
+            return null;
+        }
+        return values.get(index);
+    }
+
+    // To get the numeric value of a column
+    private static Long number(List<String> values, Map<String, Integer> columns, String column, Map<String, String> errors) {
+        return number(values, columns, column, errors, column);
+    }
+
+    private static Long number(List<String> values, Map<String, Integer> columns, String column, Map<String, String> errors, String field) {
+        String value = value(values, columns, column);
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            errors.put(field, "El campo " + field + " debe ser un numero");
+            return null;
+        }
+    }
+
+    // A client read from the file and the line where it begins
+    private static class PendingRecord {
+
+        private final long line;
+
+        private final ClientGraph graph;
+
+        // The errors found while the file was read (e.g. a value that is not a number)
+        private final Map<String, String> errors = new LinkedHashMap<>();
+
+        private PendingRecord(long line, ClientGraph graph) {
+            this.line = line;
+            this.graph = graph;
+        }
+    }
+
+}
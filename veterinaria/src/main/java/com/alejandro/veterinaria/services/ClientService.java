@@ -4,6 +4,11 @@ import java.util.List;
 import java.util.Optional;
 
 import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.ClientBatch;
+import com.alejandro.veterinaria.entities.ClientDetail;
+import com.alejandro.veterinaria.entities.ClientPage;
+import com.alejandro.veterinaria.entities.ClientSummary;
+import com.fasterxml.jackson.databind.JsonNode;
 
 public interface ClientService {
 
@@ -13,13 +18,25 @@ public interface ClientService {
     // Methods for client entity
     // -----------------------------
 
-    public List<Client> findAll();
+    public List<ClientSummary> findAll();
+
+    public ClientPage<ClientSummary> findPage(Long afterId, int size);
+
+    public long count();
 
     public Optional<Client> findById(Long id);
+
+    public ClientBatch<ClientSummary> findBatch(List<Long> ids);
+
+    public Optional<ClientDetail> findDetailById(Long id, boolean pets, boolean address);
+
+    public List<ClientDetail> expand(List<ClientSummary> clients, boolean pets, boolean address);
     
     public Client save(Client client);
     
-    public Optional<Client> update(Long id, Client client);
+    public Optional<Client> update(Long id, Client client, String ifMatch);
+
+    public Optional<Client> patch(Long id, JsonNode patch, String ifMatch);
     
     public Optional<Client> deleteById(Long id);
 
@@ -27,10 +44,10 @@ public interface ClientService {
     // Methods for custom queries of client entity
     // -----------------------------
 
-    public List<Client> findByNameContaining(String name);
+    public List<ClientSummary> findByNameContaining(String name);
 
-    public List<Client> findByLastnameContaining(String lastname);
+    public List<ClientSummary> findByLastnameContaining(String lastname);
 
-    public List<Client> findClientsByPetNameLike(String petName);
+    public List<ClientSummary> findClientsByPetNameLike(String petName);
 
 }
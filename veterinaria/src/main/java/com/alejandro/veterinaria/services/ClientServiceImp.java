@@ -1,22 +1,76 @@
 package com.alejandro.veterinaria.services;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.alejandro.veterinaria.aop.ReadFromPrimary;
+import com.alejandro.veterinaria.aop.RetryOnTransientFailure;
+import com.alejandro.veterinaria.cache.ClientResponseCache;
+import com.alejandro.veterinaria.entities.Address;
 import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.ClientBatch;
+import com.alejandro.veterinaria.entities.ClientDetail;
+import com.alejandro.veterinaria.entities.ClientPage;
+import com.alejandro.veterinaria.entities.ClientSummary;
+import com.alejandro.veterinaria.entities.Pet;
+import com.alejandro.veterinaria.repositories.AddressRepository;
 import com.alejandro.veterinaria.repositories.ClientRepository;
+import com.alejandro.veterinaria.repositories.PetRepository;
+import com.alejandro.veterinaria.search.ClientSearchIndex;
+import com.alejandro.veterinaria.search.PetSearchIndex;
+import com.alejandro.veterinaria.utils.UtilCursor;
+import com.alejandro.veterinaria.utils.UtilETag;
+import com.alejandro.veterinaria.utils.UtilPatch;
+import com.fasterxml.jackson.databind.JsonNode;
 
 @Service
 public class ClientServiceImp implements ClientService {
 
+    // The number of ids of each query 'IN' when a list of clients or their associations are read
+    private static final int IN_CHUNK_SIZE = 1000;
+
     // To inject the repository dependency.
     @Autowired
     private ClientRepository repository;
 
+    // To inject the repository dependency.
+    @Autowired
+    private PetRepository petRepository;
+
+    // To inject the repository dependency.
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private UtilCursor utilCursor;
+
+    @Autowired
+    private UtilETag utilETag;
+
+    @Autowired
+    private UtilPatch utilPatch;
+
+    // To keep the search index of names and lastnames updated
+    @Autowired
+    private ClientSearchIndex searchIndex;
+
+    // To remove the pets of the deleted clients from the search index of pet names
+    @Autowired
+    private PetSearchIndex petSearchIndex;
+
+    // To invalidate the cached responses of the clients that change
+    @Autowired
+    private ClientResponseCache responseCache;
+
     // -----------------------------
     // Methods for client entity
     // -----------------------------
@@ -24,29 +78,134 @@ public class ClientServiceImp implements ClientService {
     // To list all of clients (records) in the table 'clients'
     @Override
     @Transactional(readOnly = true)
-    public List<Client> findAll() {
-        return (List<Client>) repository.findAll(); // cast because the method findAll returns a iterable.
+    public List<ClientSummary> findAll() {
+        return repository.findAllSummaries();
+    }
+
+    // To list a page of clients whose id is greater than 'afterId'
+    // One more record than the requested is read to know if there is a next page
+    @Override
+    @Transactional(readOnly = true)
+    public ClientPage<ClientSummary> findPage(Long afterId, int size) {
+        List<ClientSummary> clients = repository.findSummariesByIdGreaterThan(afterId == null ? 0L : afterId, Limit.of(size + 1));
+
+        // If there are more records than the requested then there is a next page
+        if (clients.size() > size) {
+            List<ClientSummary> content = clients.subList(0, size);
+            return new ClientPage<>(content, utilCursor.encode(content.get(size - 1).id()));
+        }
+
+        return new ClientPage<>(clients, null);
+    }
+
+    // To count all of clients (records) in the table 'clients'
+    @Override
+    @Transactional(readOnly = true)
+    public long count() {
+        return repository.count();
     }
 
     // To get a specific client based on its id
+    // It's read from the primary because the response is saved in the cache
     @Override
     @Transactional(readOnly = true)
+    @ReadFromPrimary
     public Optional<Client> findById(Long id) {
         return repository.findById(id);
     }
 
+    // To get the clients of a list of ids, in the same order as the list (the repeated ids only once).
+    // The clients are read with one query for each 1000 ids, and the ids that were not found are returned apart
+    @Override
+    @Transactional(readOnly = true)
+    public ClientBatch<ClientSummary> findBatch(List<Long> ids) {
+        List<Long> distinctIds = ids.stream().distinct().toList();
+
+        Map<Long, ClientSummary> found = new HashMap<>();
+        for (int from = 0; from < distinctIds.size(); from += IN_CHUNK_SIZE) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + IN_CHUNK_SIZE, distinctIds.size()));
+            repository.findSummariesByIdIn(chunk).forEach(client -> found.put(client.id(), client));
+        }
+
+        List<ClientSummary> clients = new ArrayList<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : distinctIds) {
+            if (found.containsKey(id)) {
+                clients.add(found.get(id));
+            } else {
+                missing.add(id);
+            }
+        }
+
+        return new ClientBatch<>(clients, missing);
+    }
+
+    // To get a specific client with the associations that were requested (its pets and/or its address).
+    // The client and its associations are read with one query
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<ClientDetail> findDetailById(Long id, boolean pets, boolean address) {
+        Optional<Client> optionalClient;
+        if (pets && address) {
+            optionalClient = repository.findWithPetsAndAddressById(id);
+        } else if (pets) {
+            optionalClient = repository.findWithPetsById(id);
+        } else if (address) {
+            optionalClient = repository.findWithAddressById(id);
+        } else {
+            optionalClient = repository.findById(id);
+        }
+
+        return optionalClient.map(client -> ClientDetail.from(client, pets, address));
+    }
+
+    // To add the associations that were requested to a list of clients.
+    // The pets of all of the clients are read with one query and the addresses with another one
+    // (for each 1000 clients), instead of one query for each client
+    @Override
+    @Transactional(readOnly = true)
+    public List<ClientDetail> expand(List<ClientSummary> clients, boolean pets, boolean address) {
+        Map<Long, List<Pet>> petsByClient = new HashMap<>();
+        Map<Long, Address> addressByClient = new HashMap<>();
+
+        List<Long> ids = clients.stream().map(ClientSummary::id).toList();
+        for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + IN_CHUNK_SIZE, ids.size()));
+
+            if (pets) {
+                petRepository.findByClientIdInOrderById(chunk)
+                        .forEach(pet -> petsByClient.computeIfAbsent(pet.getClientId(), id -> new ArrayList<>()).add(pet));
+            }
+            if (address) {
+                repository.findAddressesByIdIn(chunk)
+                        .forEach(row -> addressByClient.put((Long) row[0], (Address) row[1]));
+            }
+        }
+
+        return clients.stream()
+                .map(client -> ClientDetail.from(client,
+                        pets ? petsByClient.getOrDefault(client.id(), new ArrayList<>()) : null,
+                        address ? addressByClient.get(client.id()) : null))
+                .toList();
+    }
+
     // To save a new client in the db
     // This method is a 'join point'
     @Override
     @Transactional
     public Client save(Client client) {
-        return repository.save(client);
+        Client clientDb = repository.save(client);
+        searchIndex.put(clientDb.getId(), clientDb.getName(), clientDb.getLastname());
+        return clientDb;
     }
 
     // To update a specific client based on its id
+    // If the header 'If-Match' was sent then the client is updated only if it has that version.
+    // Hibernate checks the version again in the update, so a concurrent change is not lost
     @Override
     @Transactional
-    public Optional<Client> update(Long id, Client client) {
+    @RetryOnTransientFailure
+    public Optional<Client> update(Long id, Client client, String ifMatch) {
         // Find a specific client
         Optional<Client> optionalClient = repository.findById(id);
 
@@ -54,28 +213,84 @@ public class ClientServiceImp implements ClientService {
         if (optionalClient.isPresent()) {
             // update that record and return an optional value
             Client clientDb = optionalClient.get();
+            utilETag.checkVersion(ifMatch, clientDb);
 
             clientDb.setName(client.getName());
             clientDb.setLastname(client.getLastname());
             clientDb.setEmail(client.getEmail());
             clientDb.setPhonenumber(client.getPhonenumber());
 
+            searchIndex.put(id, clientDb.getName(), clientDb.getLastname());
+            responseCache.invalidate(id);
             return Optional.ofNullable(repository.save(clientDb));
         }
 
         return optionalClient;
     }
 
+    // To apply a JSON merge patch to a specific client, only the attributes sent are changed.
+    // The patch is applied to a copy, so the client is not changed if the result is not valid.
+    // If nothing changed then nothing is written, else the update only has the columns that changed
+    @Override
+    @Transactional
+    @RetryOnTransientFailure
+    public Optional<Client> patch(Long id, JsonNode patch, String ifMatch) {
+        // Find a specific client
+        Optional<Client> optionalClient = repository.findById(id);
+
+        // If the client is present then...
+        if (optionalClient.isPresent()) {
+            Client clientDb = optionalClient.get();
+            utilETag.checkVersion(ifMatch, clientDb);
+
+            Client client = utilPatch.apply(patch, new Client(null, clientDb.getName(), clientDb.getLastname(),
+                    clientDb.getEmail(), clientDb.getPhonenumber(), null, null));
+            client.setName(utilPatch.trim(client.getName()));
+            client.setLastname(utilPatch.trim(client.getLastname()));
+            utilPatch.validate(client);
+
+            if (Objects.equals(client.getName(), clientDb.getName())
+                    && Objects.equals(client.getLastname(), clientDb.getLastname())
+                    && Objects.equals(client.getEmail(), clientDb.getEmail())
+                    && Objects.equals(client.getPhonenumber(), clientDb.getPhonenumber())) {
+                return optionalClient;
+            }
+
+            clientDb.setName(client.getName());
+            clientDb.setLastname(client.getLastname());
+            clientDb.setEmail(client.getEmail());
+            clientDb.setPhonenumber(client.getPhonenumber());
+
+            searchIndex.put(id, clientDb.getName(), clientDb.getLastname());
+            responseCache.invalidate(id);
+        }
+
+        return optionalClient;
+    }
+
     // To delete a specific client based on its id
+    // The pets, the client and the address are deleted with one statement each,
+    // no matter how many pets the client has
     @Override
     @Transactional
+    @RetryOnTransientFailure
     public Optional<Client> deleteById(Long id) {
         // Search for a specific client
         Optional<Client> optionalClient = repository.findById(id);
 
-        // If the client is present then delete that client
+        // If the client is present then delete its pets, the client and its address
+        // in this order because of the foreign keys
         optionalClient.ifPresent(clientDb -> {
-            repository.deleteById(id);
+            petRepository.bulkDeleteByClientId(id);
+            repository.bulkDeleteById(id);
+
+            if (clientDb.getAddress() != null) {
+                addressRepository.bulkDeleteById(clientDb.getAddress().getId());
+            }
+
+            searchIndex.remove(id);
+            petSearchIndex.removeByClient(id);
+            responseCache.invalidate(id);
         });
 
         return optionalClient;
@@ -86,24 +301,48 @@ public class ClientServiceImp implements ClientService {
     // -----------------------------
 
     // To get all of the clients with a certain name
+    // The ids are searched in the index and then the clients are read with one query for each 1000 ids
     @Override
     @Transactional(readOnly = true)
-    public List<Client> findByNameContaining(String name) {
-        return repository.findByNameContaining(name);
+    public List<ClientSummary> findByNameContaining(String name) {
+        if (!searchIndex.isReady()) {
+            return repository.findSummariesByNameContaining(name);
+        }
+        return this.findByIds(searchIndex.findIdsByName(name));
     }
 
     // To get all of the clients with a certain lastname
+    // The ids are searched in the index and then the clients are read with one query for each 1000 ids
     @Override
     @Transactional(readOnly = true)
-    public List<Client> findByLastnameContaining(String lastname) {
-        return repository.findByLastnameContaining(lastname);
+    public List<ClientSummary> findByLastnameContaining(String lastname) {
+        if (!searchIndex.isReady()) {
+            return repository.findSummariesByLastnameContaining(lastname);
+        }
+        return this.findByIds(searchIndex.findIdsByLastname(lastname));
     }
     
     // To get all of the clients whose pets have a certain name
+    // The ids of the owners are searched in the index and then the clients are read with one query for each 1000 ids
     @Override
     @Transactional(readOnly = true)
-    public List<Client> findClientsByPetNameLike(String petName) {
-        return repository.findClientsByPetNameLike(petName);
+    public List<ClientSummary> findClientsByPetNameLike(String petName) {
+        if (!petSearchIndex.isReady()) {
+            return repository.findSummariesByPetNameLike(petName);
+        }
+        return this.findByIds(petSearchIndex.findClientIdsByPetName(petName));
+    }
+
+    // To read the clients found in the search index
+    // The ids are sorted before being split so that the clients stay ordered by id across the chunks
+    private List<ClientSummary> findByIds(List<Long> ids) {
+        List<ClientSummary> clients = new ArrayList<>();
+        List<Long> sortedIds = ids.stream().distinct().sorted().toList();
+        for (int from = 0; from < sortedIds.size(); from += IN_CHUNK_SIZE) {
+            List<Long> chunk = sortedIds.subList(from, Math.min(from + IN_CHUNK_SIZE, sortedIds.size()));
+            clients.addAll(repository.findSummariesByIdIn(chunk));
+        }
+        return clients;
     }
 
 }
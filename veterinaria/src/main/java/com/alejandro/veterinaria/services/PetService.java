@@ -1,9 +1,13 @@
 package com.alejandro.veterinaria.services;
 
+import java.util.List;
 import java.util.Optional;
 
 import com.alejandro.veterinaria.entities.Client;
 import com.alejandro.veterinaria.entities.Pet;
+import com.alejandro.veterinaria.entities.PetBatchReport;
+import com.alejandro.veterinaria.entities.PetUpdate;
+import com.fasterxml.jackson.databind.JsonNode;
 
 
 public interface PetService {
@@ -15,10 +19,18 @@ public interface PetService {
     // -----------------------------
 
     public Optional<Pet> findById(Long id);
+
+    public Optional<List<Pet>> findPetsByClient(Long clientId);
+
+    public Optional<Pet> findPetByClient(Long clientId, Long petId);
     
     public Optional<Client> savePetByClient(Long clientId, Pet newPet);
     
-    public Optional<Client> editPetByClient(Long clientId, Long petId, Pet editPet);
+    public Optional<PetBatchReport> savePetsByClient(Long clientId, List<Pet> newPets);
+    
+    public Optional<Pet> patchPetByClient(Long clientId, Long petId, JsonNode patch, String ifMatch);
+
+    public Optional<PetUpdate> editPetByClient(Long clientId, Long petId, Pet editPet, String ifMatch);
     
     public Optional<Client> deletePetByClient(Long clientId, Long petId);
 
@@ -1,15 +1,42 @@
 package com.alejandro.veterinaria.services;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.alejandro.veterinaria.aop.ReadFromPrimary;
+import com.alejandro.veterinaria.aop.RetryOnTransientFailure;
+import com.alejandro.veterinaria.cache.ClientResponseCache;
 import com.alejandro.veterinaria.entities.Client;
 import com.alejandro.veterinaria.entities.Pet;
+import com.alejandro.veterinaria.entities.PetBatchReport;
+import com.alejandro.veterinaria.entities.PetBatchResult;
+import com.alejandro.veterinaria.entities.PetUpdate;
 import com.alejandro.veterinaria.repositories.ClientRepository;
 import com.alejandro.veterinaria.repositories.PetRepository;
+import com.alejandro.veterinaria.search.PetSearchIndex;
+import com.alejandro.veterinaria.exceptions.DbFailure;
+import com.alejandro.veterinaria.exceptions.PreconditionFailedException;
+import com.alejandro.veterinaria.utils.UtilCache;
+import com.alejandro.veterinaria.utils.UtilETag;
+import com.alejandro.veterinaria.utils.UtilPatch;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 
 
 @Service
@@ -23,6 +50,32 @@ public class PetServiceImp implements PetService {
     @Autowired
     private PetRepository repository;
 
+    // To keep the search index of pet names updated
+    @Autowired
+    private PetSearchIndex searchIndex;
+
+    // To remove the old pets of a client from the second level cache
+    @Autowired
+    private UtilCache utilCache;
+
+    // To invalidate the cached responses of the clients whose pets change
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    @Autowired
+    private UtilETag utilETag;
+
+    @Autowired
+    private UtilPatch utilPatch;
+
+    // To run the batch creation of pets in its own transaction (or each pet when one fails)
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // To validate each pet of a batch with the obligations of the attributes
+    @Autowired
+    private Validator validator;
+
     // -----------------------------
     // Methods for pet entity
     // -----------------------------
@@ -34,7 +87,27 @@ public class PetServiceImp implements PetService {
         return repository.findById(id);
     }
 
+    // To get the pets of a certain client.
+    // The pets are copied inside the transaction, so they are loaded before the connection is released
+    // (the pets of the client are read from the second level cache if it's used).
+    // They are read from the primary because the response is saved in the cache
+    @Override
+    @Transactional(readOnly = true)
+    @ReadFromPrimary
+    public Optional<List<Pet>> findPetsByClient(Long clientId) {
+        return clientRepository.findById(clientId).map(client -> new ArrayList<>(client.getPets()));
+    }
+
+    // To get a certain pet only if it belongs to a certain client
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Pet> findPetByClient(Long clientId, Long petId) {
+        return repository.findByIdAndClientId(petId, clientId);
+    }
+
     // To save a new pet of a certain client in the db
+    // The pet is inserted directly with the id of its owner, so the pets of the client are not loaded
+    // (and the pets of the client in the second level cache are removed)
     @Override
     @Transactional
     public Optional<Client> savePetByClient(Long clientId, Pet newPet) {
@@ -42,87 +115,244 @@ public class PetServiceImp implements PetService {
         // Search for a specific client
         Optional<Client> optionalClient = clientRepository.findById(clientId);
 
-        // if it exists then save the pet and return the new data (new client)
+        // if it exists then save the pet and return the client
         if ( optionalClient.isPresent() ) {
-            Client clientDb = optionalClient.get();
-
-            clientDb.getPets().add(newPet);
+            newPet.setClientId(clientId);
+            Pet petDb = repository.save(newPet);
+            searchIndex.put(petDb.getId(), petDb.getName(), clientId);
+            utilCache.evictPets(clientId);
+            responseCache.invalidate(clientId);
     
-            return Optional.of(clientRepository.save(clientDb));
+            return optionalClient;
         }
 
         // Else, return an empty optional
         return optionalClient;
     }
 
+    // To save many pets of a certain client, each pet has its own result.
+    // The invalid pets and the pets whose name is already used (by the client or by a previous pet
+    // of the request) are not saved, so they don't abort the others. The rest are inserted in one
+    // transaction (in jdbc batches with the profile 'batch'). If the db still rejects the names (another request saved the same name
+    // in the meantime) then the pets are saved one by one to know which ones are duplicated.
+    // The other failures of the db are not duplicates: the request fails if the transaction of the batch fails with one,
+    // and a pet saved alone that fails with one has its own error
+    @Override
+    public Optional<PetBatchReport> savePetsByClient(Long clientId, List<Pet> newPets) {
+
+        // If the client doesn't exist then return an empty optional
+        if (!clientRepository.existsById(clientId)) {
+            return Optional.empty();
+        }
+
+        PetBatchResult[] results = new PetBatchResult[newPets.size()];
+        Map<Integer, Pet> pending = new LinkedHashMap<>();
+        Set<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+        for (int index = 0; index < newPets.size(); index++) {
+            Pet newPet = newPets.get(index);
+
+            Map<String, String> errors = this.validate(newPet);
+            if (!errors.isEmpty()) {
+                results[index] = new PetBatchResult(index, HttpStatus.BAD_REQUEST.value(), null, errors);
+            } else if (!names.add(newPet.getName().trim())) {
+                results[index] = this.duplicated(index, "Error! Esta mascota se repite en la misma peticion.");
+            } else {
+                pending.put(index, newPet);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            try {
+                transactionTemplate.execute(status -> this.savePets(clientId, pending))
+                        .forEach((index, result) -> results[index] = result);
+            } catch (DataIntegrityViolationException e) {
+                if (DbFailure.classify(e) != DbFailure.DUPLICATE) {
+                    throw e;
+                }
+
+                pending.forEach((index, newPet) -> {
+                    try {
+                        transactionTemplate.execute(status -> this.savePets(clientId, Map.of(index, newPet)))
+                                .forEach((petIndex, result) -> results[petIndex] = result);
+                    } catch (DataIntegrityViolationException petException) {
+                        results[index] = this.rejected(index, petException);
+                    }
+                });
+            }
+        }
+
+        PetBatchReport report = new PetBatchReport();
+        for (PetBatchResult result : results) {
+            report.getResults().add(result);
+            if (result.status() == HttpStatus.CREATED.value()) {
+                report.setCreated(report.getCreated() + 1);
+            } else {
+                report.setFailed(report.getFailed() + 1);
+            }
+        }
+
+        return Optional.of(report);
+    }
+
+    // To insert the pets whose names are not used by the client, it must be called inside of a transaction.
+    // The pets are copied, so the same pets can be saved again if the transaction fails
+    private Map<Integer, PetBatchResult> savePets(Long clientId, Map<Integer, Pet> pets) {
+        Set<String> usedNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        usedNames.addAll(repository.findNamesByClientIdAndNameIn(clientId,
+                pets.values().stream().map(pet -> pet.getName().trim()).toList()));
+
+        Map<Integer, PetBatchResult> results = new HashMap<>();
+        Map<Integer, Pet> newPets = new LinkedHashMap<>();
+        pets.forEach((index, pet) -> {
+            if (usedNames.contains(pet.getName().trim())) {
+                results.put(index, this.duplicated(index, "Error! Esta mascota ya se registro previamente para este cliente."));
+            } else {
+                // The blanks at the beginning and at the end are removed as it's done by the aspects
+                Pet newPet = new Pet(null, pet.getName().trim(), pet.getSpecie().trim(),
+                        pet.getBreed() != null ? pet.getBreed().trim() : null, pet.getAge(), pet.getReasonForVisit().trim());
+                newPet.setClientId(clientId);
+                newPets.put(index, newPet);
+            }
+        });
+
+        if (!newPets.isEmpty()) {
+            repository.saveAll(newPets.values());
+            newPets.forEach((index, petDb) -> {
+                searchIndex.put(petDb.getId(), petDb.getName(), clientId);
+                results.put(index, new PetBatchResult(index, HttpStatus.CREATED.value(), petDb, null));
+            });
+            utilCache.evictPets(clientId);
+            responseCache.invalidate(clientId);
+        }
+
+        return results;
+    }
+
+    // To validate a pet with the obligations of its attributes
+    private Map<String, String> validate(Pet pet) {
+        Map<String, String> errors = new LinkedHashMap<>();
+        if (pet == null) {
+            errors.put("pet", "El registro no es una mascota valida");
+            return errors;
+        }
+
+        for (ConstraintViolation<Pet> violation : validator.validate(pet)) {
+            String field = violation.getPropertyPath().toString();
+            errors.put(field, "El campo " + field + " " + violation.getMessage());
+        }
+        return errors;
+    }
+
+    private PetBatchResult duplicated(int index, String message) {
+        return new PetBatchResult(index, HttpStatus.CONFLICT.value(), null, Map.of("name", message));
+    }
+
+    // To get the result of a pet that the db rejected, only a duplicate key is a duplicated name
+    private PetBatchResult rejected(int index, DataIntegrityViolationException e) {
+        if (DbFailure.classify(e) == DbFailure.DUPLICATE) {
+            return this.duplicated(index, "Error! Esta mascota ya se registro previamente para este cliente.");
+        }
+        return new PetBatchResult(index, HttpStatus.INTERNAL_SERVER_ERROR.value(), null,
+                Map.of("pet", "Error! Los datos no cumplen con las restricciones de la base de datos."));
+    }
+
     // To update the information about the pet
+    // The pet is updated only if it belongs to the client, without loading the pets of the client.
+    // If the header 'If-Match' was sent then the version is checked by the same statement
     @Override
     @Transactional
-    public Optional<Client> editPetByClient(Long clientId, Long petId, Pet editPet) {
+    @RetryOnTransientFailure
+    public Optional<PetUpdate> editPetByClient(Long clientId, Long petId, Pet editPet, String ifMatch) {
 
-        // Search for a specific client and specific pet
-        Optional<Client> optionalClient = clientRepository.findById(clientId);
-        Optional<Pet> optionalPet = repository.findById(petId);
-
-        // If the client and pet are present then ...
-        if ( optionalClient.isPresent() && optionalPet.isPresent() ) {
-        
-            // Check if the pet belongs to this client.
-            Client clientDb = optionalClient.get();
-            Optional<Pet> optionalBelongingPet = clientDb.getPets().stream().filter(many -> many.getId().equals(petId)).findFirst();
-
-            // If this pet is present it means the client is owner of pet
-            if (optionalBelongingPet.isPresent()) {
-                // Update all of object attributes 
-                Pet petDb = optionalBelongingPet.get();
-
-                petDb.setName(editPet.getName());
-                petDb.setSpecie(editPet.getSpecie());
-                petDb.setBreed(editPet.getBreed());
-                petDb.setAge(editPet.getAge());
-                petDb.setReasonForVisit(editPet.getReasonForVisit());
-
-                // and save the information in the db
-                return Optional.of(clientRepository.save(clientDb));
-            }
+        // Update all of object attributes if the client is the owner of the pet
+        Long version = utilETag.expectedVersion(ifMatch, petId);
+        int updated = repository.updateByIdAndClientId(petId, clientId, version, editPet);
 
-            // Else, return an empty optional
-            return Optional.empty();
+        // If the pet was updated then return the client together with the updated pet.
+        // Only the row of the pet is read again (the update cleared the persistence context),
+        // so the response has the ETag of the new version of the pet
+        if (updated > 0) {
+            searchIndex.put(petId, editPet.getName(), clientId);
+            responseCache.invalidate(clientId);
+            Optional<Pet> optionalPet = repository.findByIdAndClientId(petId, clientId);
+            return optionalPet.flatMap(pet -> clientRepository.findById(clientId)
+                    .map(client -> new PetUpdate(client, pet)));
         }
-        
+
+        // If the pet exists then it has another version
+        if (version != null && repository.existsByIdAndClientId(petId, clientId)) {
+            throw new PreconditionFailedException("Error! El registro fue modificado por otra peticion, se debe consultar de nuevo.");
+        }
+
         // Else, return an empty optional
         return Optional.empty();
     }
 
+    // To apply a JSON merge patch to a certain pet, only the attributes sent are changed.
+    // Only the pet is loaded (if it belongs to the client) and the patch is applied to a copy,
+    // so the pet is not changed if the result is not valid.
+    // If nothing changed then nothing is written, else the update only has the columns that changed
+    @Override
+    @Transactional
+    @RetryOnTransientFailure
+    public Optional<Pet> patchPetByClient(Long clientId, Long petId, JsonNode patch, String ifMatch) {
+
+        // Search for the pet of the client
+        Optional<Pet> optionalPet = repository.findByIdAndClientId(petId, clientId);
+
+        // If the pet is present then ...
+        if (optionalPet.isPresent()) {
+            Pet petDb = optionalPet.get();
+            utilETag.checkVersion(ifMatch, petDb);
+
+            Pet pet = utilPatch.apply(patch, new Pet(null, petDb.getName(), petDb.getSpecie(), petDb.getBreed(),
+                    petDb.getAge(), petDb.getReasonForVisit()));
+            pet.setName(utilPatch.trim(pet.getName()));
+            pet.setSpecie(utilPatch.trim(pet.getSpecie()));
+            pet.setBreed(utilPatch.trim(pet.getBreed()));
+            pet.setReasonForVisit(utilPatch.trim(pet.getReasonForVisit()));
+            utilPatch.validate(pet);
+
+            if (Objects.equals(pet.getName(), petDb.getName())
+                    && Objects.equals(pet.getSpecie(), petDb.getSpecie())
+                    && Objects.equals(pet.getBreed(), petDb.getBreed())
+                    && Objects.equals(pet.getAge(), petDb.getAge())
+                    && Objects.equals(pet.getReasonForVisit(), petDb.getReasonForVisit())) {
+                return optionalPet;
+            }
+
+            petDb.setName(pet.getName());
+            petDb.setSpecie(pet.getSpecie());
+            petDb.setBreed(pet.getBreed());
+            petDb.setAge(pet.getAge());
+            petDb.setReasonForVisit(pet.getReasonForVisit());
+
+            searchIndex.put(petId, petDb.getName(), clientId);
+            responseCache.invalidate(clientId);
+        }
+
+        // Else, return an empty optional
+        return optionalPet;
+    }
+
     // To delete a certain pet in the db
+    // The pet is deleted only if it belongs to the client, without loading the pets of the client
     @Override
     @Transactional
+    @RetryOnTransientFailure
     public Optional<Client> deletePetByClient(Long clientId, Long petId) {
 
-        // Search for a specific client and specific pet
-        Optional<Client> optionalClient = clientRepository.findById(clientId);
-        Optional<Pet> optionalPet = repository.findById(petId);
-
-        // If the client and pet are present then ...
-        if ( optionalClient.isPresent() && optionalPet.isPresent() ) {
-        
-            // Search for the pet that will be deleted
-            Client clientDb = optionalClient.get();
-            Optional<Pet> optionalBelongingPet = clientDb.getPets().stream().filter(many -> many.getId().equals(petId)).findFirst();
-
-            // If this pet is present it means the client is owner of pet
-            if (optionalBelongingPet.isPresent()) {
-                // Delete the pet
-                clientDb.getPets().remove(optionalBelongingPet.get());
-
-                // and save the information in the db
-                return Optional.of(clientRepository.save(clientDb));
-            }
+        // Delete the pet if the client is the owner of the pet
+        int deleted = repository.deleteByIdAndClientId(petId, clientId);
 
-            // Else, return an empty optional
-            return Optional.empty();
+        // If the pet was deleted then return the client
+        if (deleted > 0) {
+            searchIndex.remove(petId);
+            responseCache.invalidate(clientId);
+            return clientRepository.findById(clientId);
         }
-        
+
         // Else, return an empty optional
         return Optional.empty();
     }
@@ -0,0 +1,129 @@
+package com.alejandro.veterinaria.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// To format the parameters of a statement hiding the personal data.
+// The column of each parameter is taken from the statement (the column list of an insert, or the column
+// before the '?' in the rest of the statements), and the values of the masked columns only keep their last
+// 4 characters (or the first character and the domain of an email). Any value with an email is masked too,
+// even if its column is not known (as a 'like ?')
+public class ParameterMasker {
+
+    private static final Set<String> KEYWORDS = Set.of("in", "like", "not", "is", "between", "and");
+
+    // The columns of the statements are calculated once, the statements are the ones generated by hibernate
+    private static final int MAX_CACHED_STATEMENTS = 1000;
+
+    private final Set<String> maskedColumns;
+
+    private final Map<String, List<String>> columns = new ConcurrentHashMap<>();
+
+    public ParameterMasker(Set<String> maskedColumns) {
+        this.maskedColumns = maskedColumns.stream().map(column -> column.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    // To format the parameters as '[1:21, 2:h***@idoidraw.com]'
+    public String format(String sql, Object[] params) {
+        if (params == null || params.length == 0) {
+            return "[]";
+        }
+
+        List<String> statementColumns = this.columns(sql);
+        StringBuilder builder = new StringBuilder("[");
+        for (int index = 0; index < params.length; index++) {
+            if (index > 0) {
+                builder.append(", ");
+            }
+            String column = index < statementColumns.size() ? statementColumns.get(index) : null;
+            builder.append(index + 1).append(':').append(this.mask(column, params[index]));
+        }
+        return builder.append(']').toString();
+    }
+
+    String mask(String column, Object value) {
+        if (value == null) {
+            return "null";
+        }
+
+        String text = value.toString();
+        int at = text.indexOf('@');
+        if (at > 0) {
+            return text.charAt(0) + "***" + text.substring(at);
+        }
+        if (column != null && maskedColumns.contains(column)) {
+            return text.length() <= 4 ? "****" : "*".repeat(text.length() - 4) + text.substring(text.length() - 4);
+        }
+        return text;
+    }
+
+    // The column of each '?' of the statement, or null if it's not known
+    List<String> columns(String sql) {
+        List<String> cached = columns.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<String> result = parse(sql);
+        if (columns.size() < MAX_CACHED_STATEMENTS) {
+            columns.put(sql, result);
+        }
+        return result;
+    }
+
+    private static List<String> parse(String sql) {
+        String lower = sql.toLowerCase(Locale.ROOT);
+        List<String> result = new ArrayList<>();
+
+        // insert into client (email,lastname,name,phone_number,version,id_client) values (?,?,?,?,?,?)
+        int values = lower.indexOf(" values");
+        if (lower.stripLeading().startsWith("insert") && values > 0) {
+            int open = lower.indexOf('(');
+            int close = lower.indexOf(')', open);
+            if (open > 0 && open < values && close > open) {
+                for (String column : lower.substring(open + 1, close).split(",")) {
+                    result.add(column.trim());
+                }
+                return result;
+            }
+        }
+
+        // update client set email=?,version=? where id_client=? / select ... where c1_0.name like ? / id in (?,?)
+        for (int index = lower.indexOf('?'); index >= 0; index = lower.indexOf('?', index + 1)) {
+            result.add(columnBefore(lower, index));
+        }
+        return result;
+    }
+
+    private static String columnBefore(String sql, int index) {
+        int position = index - 1;
+        while (position >= 0) {
+            // To skip the operators, the parentheses and the other parameters of a list
+            while (position >= 0 && " \t\n,?()=<>!".indexOf(sql.charAt(position)) >= 0) {
+                position--;
+            }
+
+            int end = position + 1;
+            while (position >= 0 && (Character.isLetterOrDigit(sql.charAt(position)) || sql.charAt(position) == '_'
+                    || sql.charAt(position) == '.')) {
+                position--;
+            }
+            if (end == position + 1) {
+                return null;
+            }
+
+            String word = sql.substring(position + 1, end);
+            if (!KEYWORDS.contains(word)) {
+                return word.substring(word.lastIndexOf('.') + 1);
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.alejandro.veterinaria.sql;
+
+// The method of the repository that is running in the current thread (as 'ClientRepository.findById'),
+// it's set by 'RepositoryCallerAspect'. The statements that are not sent by a repository (as the inserts
+// and updates sent when the transaction is flushed or committed, or the lazy loading of the pets of a client)
+// get the method of the service that is running (as 'ClientServiceImp.update'), that is set by 'ServiceMetricsAspect'.
+// It's null out of the services and the repositories
+public final class QueryCaller {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private static final ThreadLocal<String> SERVICE = new ThreadLocal<>();
+
+    private QueryCaller() {
+    }
+
+    public static String current() {
+        String caller = CURRENT.get();
+        return caller != null ? caller : SERVICE.get();
+    }
+
+    // To set the caller and get the previous one, so it's restored when the call ends
+    public static String set(String caller) {
+        return set(CURRENT, caller);
+    }
+
+    public static void restore(String previous) {
+        restore(CURRENT, previous);
+    }
+
+    // To set the method of the service and get the previous one, so it's restored when the call ends
+    public static String setService(String service) {
+        return set(SERVICE, service);
+    }
+
+    public static void restoreService(String previous) {
+        restore(SERVICE, previous);
+    }
+
+    private static String set(ThreadLocal<String> caller, String value) {
+        String previous = caller.get();
+        caller.set(value);
+        return previous;
+    }
+
+    private static void restore(ThreadLocal<String> caller, String previous) {
+        if (previous == null) {
+            caller.remove();
+        } else {
+            caller.set(previous);
+        }
+    }
+
+}
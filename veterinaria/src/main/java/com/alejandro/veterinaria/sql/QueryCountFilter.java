@@ -0,0 +1,138 @@
+package com.alejandro.veterinaria.sql;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+// To count the SQL statements of each request.
+// The count is sent in the header 'X-Query-Count' (with the statements sent before the body starts,
+// because the headers can't be changed after it) and it's recorded in the metric 'veterinaria.http.queries'
+// with the method and the path of the endpoint. The requests with more statements than the threshold
+// are logged and counted in 'veterinaria.http.queries.exceeded', as they usually have a N+1 problem
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryCountFilter.class);
+
+    public static final String QUERY_COUNT = "X-Query-Count";
+
+    private final MeterRegistry registry;
+
+    private final int threshold;
+
+    public QueryCountFilter(MeterRegistry registry, int threshold) {
+        this.registry = registry;
+        this.threshold = threshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = QueryCounter.current();
+        QueryCountResponse countedResponse = new QueryCountResponse(response, start);
+
+        try {
+            filterChain.doFilter(request, countedResponse);
+        } finally {
+            long statements = QueryCounter.current() - start;
+            countedResponse.addCount();
+            this.record(request, statements);
+        }
+    }
+
+    private void record(HttpServletRequest request, long statements) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+
+        DistributionSummary.builder("veterinaria.http.queries")
+                .description("Number of SQL statements of each request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(registry)
+                .record(statements);
+
+        if (statements > threshold) {
+            Counter.builder("veterinaria.http.queries.exceeded")
+                    .description("Number of requests with more SQL statements than the threshold")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(registry)
+                    .increment();
+            logger.warn("{} {} sent {} SQL statements (threshold {}), check if it has a N+1 problem",
+                    request.getMethod(), request.getRequestURI(), statements, threshold);
+        }
+    }
+
+    // A response that adds the header with the count just before the body starts,
+    // or at the end of the request if it doesn't have a body
+    private static class QueryCountResponse extends HttpServletResponseWrapper {
+
+        private final long start;
+
+        private boolean counted;
+
+        private QueryCountResponse(HttpServletResponse response, long start) {
+            super(response);
+            this.start = start;
+        }
+
+        private void addCount() {
+            if (!counted && !isCommitted()) {
+                counted = true;
+                setHeader(QUERY_COUNT, String.valueOf(QueryCounter.current() - start));
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            this.addCount();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            this.addCount();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            this.addCount();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            this.addCount();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            this.addCount();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            this.addCount();
+            super.sendRedirect(location);
+        }
+
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.alejandro.veterinaria.sql;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// To count each statement that hibernate prepares (queries, inserts, updates and deletes),
+// the statement is not changed
+public class QueryCountInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        QueryCounter.increment();
+        return sql;
+    }
+
+}
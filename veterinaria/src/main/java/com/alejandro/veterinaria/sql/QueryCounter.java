@@ -0,0 +1,34 @@
+package com.alejandro.veterinaria.sql;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// To count the SQL statements that hibernate sends to the db.
+// Each thread has its own counter that only grows, so the statements of a request or of a method
+// are the difference between the counter at the end and at the beginning (the counter is never reset,
+// so the nested scopes don't interfere). The total of all of the threads is used by the tests
+public final class QueryCounter {
+
+    private static final ThreadLocal<long[]> CURRENT = ThreadLocal.withInitial(() -> new long[1]);
+
+    private static final LongAdder TOTAL = new LongAdder();
+
+    private QueryCounter() {
+    }
+
+    // To count a statement of the current thread
+    static void increment() {
+        CURRENT.get()[0]++;
+        TOTAL.increment();
+    }
+
+    // The statements sent by the current thread since it started
+    public static long current() {
+        return CURRENT.get()[0];
+    }
+
+    // The statements sent by all of the threads since the application started
+    public static long total() {
+        return TOTAL.sum();
+    }
+
+}
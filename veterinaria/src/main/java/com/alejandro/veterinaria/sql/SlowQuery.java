@@ -0,0 +1,11 @@
+package com.alejandro.veterinaria.sql;
+
+import java.time.Instant;
+
+// A statement that is written in the slow query log, the parameters are masked and formatted when it's written
+// (slow is false for the fast statements that were chosen by the sampling).
+// For a batch, 'batchSize' is the number of rows that were added to it and the parameters are the ones of the first row,
+// it's 0 for the statements that are not a batch
+public record SlowQuery(Instant time, boolean slow, long elapsedNanos, long rows, int batchSize, String caller, String sql,
+        Object[] params) {
+}
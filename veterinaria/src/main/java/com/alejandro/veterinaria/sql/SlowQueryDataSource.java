@@ -0,0 +1,338 @@
+package com.alejandro.veterinaria.sql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+// The data source that measures the statements sent to the db, the connections and the statements of the
+// data source are wrapped with proxies. The statements that take more than the threshold are written in the
+// slow query log with their parameters, their rows and the method of the repository that sent them,
+// and a part of the fast ones (the sample rate) is written too.
+// The parameters are only kept in an array and the rows are only counted for the statements that are written,
+// the rest of the work (format and mask the parameters) is done by the thread of the log
+public class SlowQueryDataSource extends DelegatingDataSource {
+
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final SlowQueryLog log;
+
+    private final long thresholdNanos;
+
+    private final double sampleRate;
+
+    public SlowQueryDataSource(DataSource target, SlowQueryLog log, long thresholdNanos, double sampleRate) {
+        super(target);
+        this.log = log;
+        this.thresholdNanos = thresholdNanos;
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return this.wrap(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return this.wrap(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+                new ConnectionHandler(connection));
+    }
+
+    // To know if a statement is written, the slow ones always are and the fast ones by the sample rate
+    private boolean isLogged(long elapsedNanos) {
+        return elapsedNanos >= thresholdNanos || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    // The proxies are only equal to themselves, as the connections of the pool
+    private static Object identity(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> null;
+        };
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        private ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object identity = identity(proxy, method, args);
+            if (identity != null) {
+                return identity;
+            }
+
+            Object result = SlowQueryDataSource.invoke(target, method, args);
+            Class<?> type = switch (method.getName()) {
+                case "createStatement" -> Statement.class;
+                case "prepareStatement" -> PreparedStatement.class;
+                case "prepareCall" -> CallableStatement.class;
+                default -> null;
+            };
+            if (type == null) {
+                return result;
+            }
+
+            String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type },
+                    new StatementHandler((Statement) result, (Connection) proxy, sql));
+        }
+
+    }
+
+    private class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+
+        private final Connection connection;
+
+        private final String preparedSql;
+
+        // The parameters of the next execution, by their index (starting in 1)
+        private Object[] params = new Object[8];
+
+        private int paramCount;
+
+        // The rows added to the batch of the next execution, the parameters are set again for each row
+        // so only the ones of the first row (and its sql, for the batches of a statement) are kept
+        private int batchSize;
+
+        private Object[] batchParams;
+
+        private String batchSql;
+
+        // The execution whose rows are being read, it's written when the rows are read or closed
+        private Execution pending;
+
+        private StatementHandler(Statement target, Connection connection, String preparedSql) {
+            this.target = target;
+            this.connection = connection;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object identity = identity(proxy, method, args);
+            if (identity != null) {
+                return identity;
+            }
+
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                this.param(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                this.clearParams();
+            } else if (name.equals("addBatch")) {
+                this.addBatch(args);
+            } else if (name.equals("clearBatch")) {
+                this.clearBatch();
+            } else if (name.equals("getConnection")) {
+                return connection;
+            } else if (name.equals("close")) {
+                this.finish();
+            } else if (EXECUTE_METHODS.contains(name)) {
+                return this.execute(proxy, method, args);
+            } else if (name.equals("getResultSet")) {
+                return this.wrap((ResultSet) SlowQueryDataSource.invoke(target, method, args));
+            }
+
+            return SlowQueryDataSource.invoke(target, method, args);
+        }
+
+        private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+            this.finish();
+            String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+            String caller = QueryCaller.current();
+
+            // The batch is cleared by the execution, so its rows are taken before
+            int size = 0;
+            Object[] firstParams = null;
+            if (method.getName().endsWith("Batch")) {
+                size = batchSize;
+                firstParams = batchParams;
+                sql = batchSql != null ? batchSql : sql;
+                this.clearBatch();
+            }
+
+            long start = System.nanoTime();
+            Object result = SlowQueryDataSource.invoke(target, method, args);
+            long elapsed = System.nanoTime() - start;
+
+            if (!isLogged(elapsed)) {
+                return result;
+            }
+
+            Execution execution = new Execution(elapsed >= thresholdNanos, elapsed, size, caller, sql,
+                    firstParams != null ? firstParams : Arrays.copyOf(params, paramCount));
+            if (result instanceof ResultSet resultSet) {
+                pending = execution;
+                return this.wrap(resultSet);
+            }
+
+            if (result instanceof Number updated) {
+                execution.rows = updated.longValue();
+            } else if (result instanceof int[] batch) {
+                execution.rows = Arrays.stream(batch).filter(rows -> rows > 0).asLongStream().sum();
+            } else if (result instanceof long[] batch) {
+                execution.rows = Arrays.stream(batch).filter(rows -> rows > 0).sum();
+            } else if (Boolean.TRUE.equals(result)) {
+                // The rows are read with 'getResultSet'
+                pending = execution;
+                return result;
+            } else {
+                execution.rows = target.getUpdateCount();
+            }
+            execution.write();
+            return result;
+        }
+
+        private ResultSet wrap(ResultSet resultSet) {
+            if (resultSet == null || pending == null) {
+                return resultSet;
+            }
+            Execution execution = pending;
+            return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ResultSet.class },
+                    new ResultSetHandler(resultSet, execution));
+        }
+
+        private void param(int index, Object value) {
+            if (index > params.length) {
+                params = Arrays.copyOf(params, Math.max(index, params.length * 2));
+            }
+            params[index - 1] = value;
+            paramCount = Math.max(paramCount, index);
+        }
+
+        private void clearParams() {
+            Arrays.fill(params, 0, paramCount, null);
+            paramCount = 0;
+        }
+
+        private void addBatch(Object[] args) {
+            if (batchSize == 0) {
+                batchParams = Arrays.copyOf(params, paramCount);
+                batchSql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+            }
+            batchSize++;
+        }
+
+        private void clearBatch() {
+            batchSize = 0;
+            batchParams = null;
+            batchSql = null;
+        }
+
+        private void finish() {
+            if (pending != null) {
+                pending.write();
+                pending = null;
+            }
+        }
+
+    }
+
+    // To count the rows of a statement that is written, it's written when all of the rows are read
+    private static class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet target;
+
+        private final Execution execution;
+
+        private ResultSetHandler(ResultSet target, Execution execution) {
+            this.target = target;
+            this.execution = execution;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object identity = identity(proxy, method, args);
+            if (identity != null) {
+                return identity;
+            }
+
+            Object result = SlowQueryDataSource.invoke(target, method, args);
+            if (method.getName().equals("next")) {
+                if (Boolean.TRUE.equals(result)) {
+                    execution.rows++;
+                } else {
+                    execution.write();
+                }
+            } else if (method.getName().equals("close")) {
+                execution.write();
+            }
+            return result;
+        }
+
+    }
+
+    // A statement that is written in the log, only once
+    private class Execution {
+
+        private final boolean slow;
+
+        private final long elapsedNanos;
+
+        private final int batchSize;
+
+        private final String caller;
+
+        private final String sql;
+
+        private final Object[] params;
+
+        private long rows;
+
+        private boolean written;
+
+        private Execution(boolean slow, long elapsedNanos, int batchSize, String caller, String sql, Object[] params) {
+            this.slow = slow;
+            this.elapsedNanos = elapsedNanos;
+            this.batchSize = batchSize;
+            this.caller = caller;
+            this.sql = sql;
+            this.params = params;
+        }
+
+        private void write() {
+            if (!written) {
+                written = true;
+                log.offer(new SlowQuery(Instant.now(), slow, elapsedNanos, rows, batchSize, caller, sql, params));
+            }
+        }
+
+    }
+
+}
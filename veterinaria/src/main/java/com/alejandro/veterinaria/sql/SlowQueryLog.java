@@ -0,0 +1,94 @@
+package com.alejandro.veterinaria.sql;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// To write the slow statements in the log without delaying the requests.
+// The statements are added to a buffer with a fixed size and a thread writes them, if the buffer is full
+// the oldest statement is removed (and counted as dropped), so the requests never wait for the log.
+// The slow statements are written as warnings and the statements of the sampling as info
+public class SlowQueryLog implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private final ArrayBlockingQueue<SlowQuery> buffer;
+
+    private final ParameterMasker masker;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final Thread writer;
+
+    private volatile boolean running = true;
+
+    public SlowQueryLog(int capacity, ParameterMasker masker) {
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.masker = masker;
+        this.writer = new Thread(this::write, "slow-query-log");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // To add a statement to the buffer, it never waits
+    public void offer(SlowQuery query) {
+        while (!buffer.offer(query)) {
+            if (buffer.poll() != null) {
+                dropped.increment();
+            }
+        }
+    }
+
+    // The number of statements that were removed because the buffer was full
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public int pending() {
+        return buffer.size();
+    }
+
+    private void write() {
+        while (running || !buffer.isEmpty()) {
+            try {
+                SlowQuery query = buffer.poll(1, TimeUnit.SECONDS);
+                if (query != null) {
+                    this.write(query);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (RuntimeException e) {
+                logger.error("The statement couldn't be written in the slow query log", e);
+            }
+        }
+    }
+
+    private void write(SlowQuery query) {
+        String params = masker.format(query.sql(), query.params());
+        long millis = TimeUnit.NANOSECONDS.toMillis(query.elapsedNanos());
+        String caller = query.caller() != null ? query.caller() : "-";
+        String batch = query.batchSize() > 0 ? ", batch=" + query.batchSize() + " rows (params of the first one)" : "";
+
+        if (query.slow()) {
+            logger.warn("slow statement: {} ms, rows={}{}, caller={}, sql=[{}], params={}", millis, query.rows(), batch, caller, query.sql(), params);
+        } else {
+            logger.info("sampled statement: {} ms, rows={}{}, caller={}, sql=[{}], params={}", millis, query.rows(), batch, caller, query.sql(), params);
+        }
+    }
+
+    // To write the statements that are still in the buffer and stop the thread
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
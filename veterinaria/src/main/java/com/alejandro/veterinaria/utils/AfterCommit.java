@@ -0,0 +1,42 @@
+package com.alejandro.veterinaria.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// The indexes and caches in memory are changed only if the changes are saved in the db,
+// so the changes are run when the current transaction is committed.
+// Without a transaction the change is run right away
+// The changes that must be run even if the transaction is rolled back (like removing something
+// from a cache) are run when the transaction finishes, with any result
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    public static void run(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    public static void runAfterCompletion(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+}
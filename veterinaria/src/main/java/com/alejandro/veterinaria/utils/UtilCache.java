@@ -0,0 +1,33 @@
+package com.alejandro.veterinaria.utils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.alejandro.veterinaria.entities.Client;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@Component
+public class UtilCache {
+
+    // The name of the collection of pets of the clients in hibernate
+    private static final String PETS_ROLE = Client.class.getName() + ".pets";
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    // -----------------------------
+    // Methods to handle the second level cache (profile 'cache')
+    // -----------------------------
+
+    // To remove the pets of a client from the second level cache.
+    // It's needed when a pet is saved without loading the pets of its client, because
+    // hibernate doesn't know that the collection changed. It's done when the transaction finishes,
+    // so another request can't put the old pets in the cache again before the commit.
+    // Without the second level cache it does nothing
+    public void evictPets(Long clientId) {
+        AfterCommit.runAfterCompletion(() -> entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class)
+                .evictCollectionData(PETS_ROLE, clientId));
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.alejandro.veterinaria.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+@Component
+public class UtilCsv {
+
+    // -----------------------------
+    // Methods to read and write csv lines
+    // -----------------------------
+
+    // To split a line of a csv file into its values.
+    // A value can be enclosed in double quotes to contain commas, and two double quotes
+    // inside of it are an escaped quote. Values with line breaks are not supported.
+    public List<String> parseLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+
+        values.add(value.toString());
+        return values;
+    }
+
+    // To join values into a line of a csv file.
+    // The null values are written as empty values
+    public String formatLine(List<?> values) {
+        StringBuilder line = new StringBuilder();
+
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+
+            Object value = values.get(i);
+            if (value != null) {
+                String text = value.toString();
+                // The value is quoted only when it's needed
+                if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+                    line.append('"').append(text.replace("\"", "\"\"")).append('"');
+                } else {
+                    line.append(text);
+                }
+            }
+        }
+
+        return line.toString();
+    }
+
+}
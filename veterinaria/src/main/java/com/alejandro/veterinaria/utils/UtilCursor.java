@@ -0,0 +1,31 @@
+package com.alejandro.veterinaria.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.springframework.stereotype.Component;
+
+@Component
+public class UtilCursor {
+
+    // -----------------------------
+    // Methods to handle the pagination cursors
+    // -----------------------------
+
+    // To convert the id of the last record of a page into an opaque token
+    public String encode(Long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // To get the id of the last record of a page from a token.
+    // If the token is malformed an 'IllegalArgumentException' is fired
+    public Long decode(String cursor) {
+        try {
+            String id = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            return Long.valueOf(id);
+        } catch (IllegalArgumentException e) { // NumberFormatException is an IllegalArgumentException
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+}
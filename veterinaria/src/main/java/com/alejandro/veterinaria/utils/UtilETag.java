@@ -0,0 +1,102 @@
+package com.alejandro.veterinaria.utils;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.alejandro.veterinaria.entities.ClientBatch;
+import com.alejandro.veterinaria.entities.ClientDetail;
+import com.alejandro.veterinaria.entities.ClientPage;
+import com.alejandro.veterinaria.entities.Versioned;
+import com.alejandro.veterinaria.exceptions.PreconditionFailedException;
+
+@Component
+public class UtilETag {
+
+    // -----------------------------
+    // Methods to handle the ETag headers
+    // -----------------------------
+
+    // To get the ETag of a record, it's made with its id and its version ("id-version").
+    // The id is in the ETag because the address of a client can be replaced by a new one with the same version
+    public String tag(Versioned entity) {
+        return "\"" + entity.getId() + "-" + entity.getVersion() + "\"";
+    }
+
+    // To get the ETag of a list of records.
+    // It's a hash of the id and the version of each record, so it changes when
+    // a record is added, removed or updated
+    public String tag(Collection<? extends Versioned> entities) {
+        return "\"" + Long.toHexString(hash(entities)) + "\"";
+    }
+
+    // To get the ETag of a page of clients, the cursor is part of it because
+    // the same clients can be the last page or not
+    public String tag(ClientPage<?> page) {
+        long hash = hash(page.getContent()) * 31 + (page.getNextCursor() == null ? 0 : page.getNextCursor().hashCode());
+        return "\"" + Long.toHexString(hash) + "\"";
+    }
+
+    // To get the ETag of a batch of clients, the ids that were not found are part of it
+    // because the response changes when one of them is created
+    public String tag(ClientBatch<?> batch) {
+        long hash = hash(batch.getContent()) * 31 + batch.getMissing().hashCode();
+        return "\"" + Long.toHexString(hash) + "\"";
+    }
+
+    // To get the version of a record that was sent in the header 'If-Match'.
+    // It's null if the header was not sent or if it's '*', then the record is updated without checking its version.
+    // If the header doesn't have an ETag of this record then a 'PreconditionFailedException' is fired
+    public Long expectedVersion(String ifMatch, Long id) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+
+            // The weak ETags can't be used to update a record
+            if (tag.startsWith("W/") || tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+                continue;
+            }
+
+            String value = tag.substring(1, tag.length() - 1);
+            int separator = value.lastIndexOf('-');
+            if (separator > 0 && value.substring(0, separator).equals(String.valueOf(id))) {
+                try {
+                    return Long.valueOf(value.substring(separator + 1));
+                } catch (NumberFormatException e) {
+                    // The tag is not one of this application, it's ignored
+                }
+            }
+        }
+
+        throw new PreconditionFailedException("Error! El encabezado If-Match no corresponde al registro que se desea actualizar.");
+    }
+
+    // To check that the version sent in the header 'If-Match' is the current version of a record
+    public void checkVersion(String ifMatch, Versioned entity) {
+        Long expectedVersion = this.expectedVersion(ifMatch, entity.getId());
+
+        if (expectedVersion != null && !expectedVersion.equals(entity.getVersion())) {
+            throw new PreconditionFailedException("Error! El registro fue modificado por otra peticion, se debe consultar de nuevo.");
+        }
+    }
+
+    private static long hash(Collection<? extends Versioned> entities) {
+        long hash = 1;
+        for (Versioned entity : entities) {
+            hash = hash * 31 + entity.getId();
+            hash = hash * 31 + (entity.getVersion() == null ? 0 : entity.getVersion());
+
+            // The pets and the address of a client are part of its response when they are expanded
+            if (entity instanceof ClientDetail client) {
+                hash = hash * 31 + (client.pets() == null ? 0 : hash(client.pets()));
+                hash = hash * 31 + (client.address() == null ? 0 : hash(List.of(client.address())));
+            }
+        }
+        return hash;
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.alejandro.veterinaria.utils;
+
+import org.springframework.stereotype.Component;
+
+import com.alejandro.veterinaria.exceptions.InvalidExpandException;
+
+@Component
+public class UtilExpand {
+
+    // The associations of a client that can be requested with the param 'expand'
+    public record Expand(boolean pets, boolean address) {
+
+        public boolean isEmpty() {
+            return !pets && !address;
+        }
+    }
+
+    // -----------------------------
+    // Methods to handle the param 'expand'
+    // -----------------------------
+
+    // To get the associations of the param 'expand' ("pets", "address" or "pets,address").
+    // If the param has another value an 'InvalidExpandException' is fired (the response is a 400, see 'ExceptionController')
+    public Expand parse(String expand) {
+        boolean pets = false;
+        boolean address = false;
+
+        if (expand != null) {
+            for (String value : expand.split(",")) {
+                switch (value.trim()) {
+                    case "pets" -> pets = true;
+                    case "address" -> address = true;
+                    case "" -> { }
+                    default -> throw new InvalidExpandException("El campo expand solo puede tener los valores pets y address");
+                }
+            }
+        }
+
+        return new Expand(pets, address);
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.alejandro.veterinaria.utils;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+
+@Component
+public class UtilPatch {
+
+    // The media type of the JSON merge patch (RFC 7396)
+    public static final String MERGE_PATCH_JSON = "application/merge-patch+json";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    // -----------------------------
+    // Methods to handle a JSON merge patch
+    // -----------------------------
+
+    // To apply a JSON merge patch to a copy of a record, only the attributes sent in the patch are changed
+    // and an attribute sent with null is removed.
+    // If the patch is not an object, or it has an attribute that can't be changed (as the id or the version),
+    // an 'IllegalArgumentException' is fired
+    public <T> T apply(JsonNode patch, T copy) {
+        if (patch == null || !patch.isObject()) {
+            throw new IllegalArgumentException("Error! El cuerpo de la peticion debe ser un objeto JSON.");
+        }
+
+        for (Iterator<String> fields = patch.fieldNames(); fields.hasNext();) {
+            String field = fields.next();
+            if (field.equals("id")) {
+                throw new IllegalArgumentException("Error! El campo " + field + " no se puede modificar.");
+            }
+        }
+
+        try {
+            return objectMapper.readerForUpdating(copy)
+                    .with(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, DeserializationFeature.FAIL_ON_IGNORED_PROPERTIES)
+                    .readValue(patch);
+        } catch (IOException e) {
+            String message = e instanceof JsonProcessingException json ? json.getOriginalMessage() : e.getMessage();
+            throw new IllegalArgumentException("Error! El cambio no es valido: " + message, e);
+        }
+    }
+
+    // To check the obligations of the attributes of a record after the patch is applied.
+    // If an obligation is not met a 'ConstraintViolationException' is fired
+    public <T> void validate(T record) {
+        Set<ConstraintViolation<T>> violations = validator.validate(record);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+    }
+
+    // To remove the blanks at the beginning and at the end of a value, as it's done by the aspects
+    public String trim(String value) {
+        return value != null ? value.trim() : null;
+    }
+
+}
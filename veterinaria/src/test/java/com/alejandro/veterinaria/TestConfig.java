@@ -3,6 +3,10 @@ package com.alejandro.veterinaria;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 
+import com.alejandro.veterinaria.cache.ClientResponseCache;
+import com.alejandro.veterinaria.utils.UtilCursor;
+import com.alejandro.veterinaria.utils.UtilETag;
+import com.alejandro.veterinaria.utils.UtilExpand;
 import com.alejandro.veterinaria.utils.UtilValidation;
 
 // We use this class to create components in the test context
@@ -14,5 +18,29 @@ public class TestConfig {
     public UtilValidation utilValidation() {
         return new UtilValidation();
     }
+
+    // Create the component that represents the real UtilCursor class
+    @Bean
+    public UtilCursor utilCursor() {
+        return new UtilCursor();
+    }
+
+    // Create the component that represents the real UtilETag class
+    @Bean
+    public UtilETag utilETag() {
+        return new UtilETag();
+    }
+
+    // Create the component that represents the real UtilExpand class
+    @Bean
+    public UtilExpand utilExpand() {
+        return new UtilExpand();
+    }
+
+    // Create the component that represents the real ClientResponseCache class
+    @Bean
+    public ClientResponseCache clientResponseCache() {
+        return new ClientResponseCache();
+    }
     
 }
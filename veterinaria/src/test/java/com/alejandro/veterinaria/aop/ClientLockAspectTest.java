@@ -0,0 +1,122 @@
+package com.alejandro.veterinaria.aop;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import com.alejandro.veterinaria.entities.Pet;
+import com.alejandro.veterinaria.exceptions.ClientLockTimeoutException;
+import com.alejandro.veterinaria.services.PetServiceImp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// The aspect is applied to a mock of the service, the first change of the client is blocked
+// until the test releases it
+class ClientLockAspectTest {
+
+    SimpleMeterRegistry registry;
+
+    PetServiceImp service;
+
+    PetServiceImp proxy;
+
+    CountDownLatch started;
+
+    CountDownLatch release;
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        started = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+
+        service = mock(PetServiceImp.class);
+        when(service.savePetByClient(anyLong(), any(Pet.class))).thenAnswer(invocation -> {
+            if (invocation.getArgument(0, Long.class) == 1L) {
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return Optional.empty();
+        });
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(service);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new ClientLockAspect(256, 200, registry));
+        proxy = factory.getProxy();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    // To test that a change of the same client waits for the lock and fails when it waits too long
+    @Test
+    void sameClientWaitsTest() throws Exception {
+
+        // Given
+        Future<?> first = executor.submit(() -> proxy.savePetByClient(1L, new Pet()));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // When
+        assertThrows(ClientLockTimeoutException.class, () -> proxy.savePetByClient(1L, new Pet()));
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        proxy.savePetByClient(1L, new Pet());
+
+        // Then
+        assertEquals(1.0, registry.get("veterinaria.client.lock.contended").tag("method", "savePetByClient").counter().count());
+        assertEquals(1.0, registry.get("veterinaria.client.lock.timeouts").tag("method", "savePetByClient").counter().count());
+        assertEquals(2, registry.get("veterinaria.client.lock.wait").tag("method", "savePetByClient").timer().count());
+        verify(service, times(2)).savePetByClient(eq(1L), any(Pet.class));
+    }
+
+    // To test that a change of another client doesn't wait
+    @Test
+    void otherClientDoesntWaitTest() throws Exception {
+
+        // Given
+        executor.submit(() -> proxy.savePetByClient(1L, new Pet()));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // When
+        proxy.savePetByClient(2L, new Pet());
+
+        // Then
+        assertEquals(0.0, registry.get("veterinaria.client.lock.contended").tag("method", "savePetByClient").counter().count());
+        verify(service).savePetByClient(eq(2L), any(Pet.class));
+    }
+
+    // To test that the reads are not locked
+    @Test
+    void readsAreNotLockedTest() throws Exception {
+
+        // Given
+        executor.submit(() -> proxy.savePetByClient(1L, new Pet()));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // When
+        proxy.findPetsByClient(1L);
+
+        // Then
+        assertTrue(registry.find("veterinaria.client.lock.wait").tag("method", "findPetsByClient").timers().isEmpty());
+        verify(service).findPetsByClient(1L);
+    }
+
+}
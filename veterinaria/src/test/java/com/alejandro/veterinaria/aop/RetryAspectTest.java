@@ -0,0 +1,151 @@
+package com.alejandro.veterinaria.aop;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import java.sql.SQLException;
+import java.util.Optional;
+
+import org.hibernate.exception.LockAcquisitionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.exceptions.DbFailure;
+import com.alejandro.veterinaria.services.ClientServiceImp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// The aspect is applied to a mock of the service that fails as the db would do
+class RetryAspectTest {
+
+    SimpleMeterRegistry registry;
+
+    ClientServiceImp service;
+
+    ClientServiceImp proxy;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        service = mock(ClientServiceImp.class);
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(service);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new RetryAspect(3, 1, 5, registry));
+        proxy = factory.getProxy();
+    }
+
+    private static CannotAcquireLockException deadlock() {
+        SQLException sql = new SQLException("Deadlock found when trying to get lock", "40001", 1213);
+        return new CannotAcquireLockException("update client", new LockAcquisitionException("could not execute statement", sql));
+    }
+
+    private static DataIntegrityViolationException duplicate() {
+        return new DataIntegrityViolationException("insert into pet",
+                new SQLException("Duplicate entry 'firulais-21' for key 'UK_pet'", "23000", 1062));
+    }
+
+    // To test that a deadlock is sent again until the method succeeds
+    @Test
+    void retryDeadlockTest() {
+
+        // Given
+        Client client = new Client(1L, "Hueto", "Navejas", "hekevim148@idoidraw.com", 1538971230L, null, null);
+        when(service.update(anyLong(), any(Client.class), isNull()))
+                .thenThrow(deadlock())
+                .thenThrow(deadlock())
+                .thenReturn(Optional.of(client));
+
+        // When
+        Optional<Client> result = proxy.update(1L, client, null);
+
+        // Then
+        assertTrue(result.isPresent());
+        verify(service, times(3)).update(anyLong(), any(Client.class), isNull());
+        assertEquals(2.0, registry.get("veterinaria.db.retry.attempts")
+                .tag("method", "ClientServiceImp.update").tag("reason", "deadlock").counter().count());
+        assertEquals(1.0, registry.get("veterinaria.db.retry.recovered").counter().count());
+    }
+
+    // To test that the method fails with the last exception when all of the attempts fail
+    @Test
+    void retryExhaustedTest() {
+
+        // Given
+        when(service.deleteById(anyLong()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Client.class, 1L));
+
+        // When
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> proxy.deleteById(1L));
+
+        // Then
+        verify(service, times(3)).deleteById(1L);
+        assertEquals(1.0, registry.get("veterinaria.db.retry.exhausted")
+                .tag("reason", "optimistic_lock").counter().count());
+    }
+
+    // To test that a duplicate is never sent again
+    @Test
+    void duplicateIsNotRetriedTest() {
+
+        // Given
+        when(service.update(anyLong(), any(Client.class), isNull())).thenThrow(duplicate());
+
+        // When
+        assertThrows(DataIntegrityViolationException.class, () -> proxy.update(1L, new Client(), null));
+
+        // Then
+        verify(service, times(1)).update(anyLong(), any(Client.class), isNull());
+        assertTrue(registry.getMeters().isEmpty());
+    }
+
+    // To test that the methods without the annotation are not sent again
+    @Test
+    void notAnnotatedIsNotRetriedTest() {
+
+        // Given
+        when(service.save(any(Client.class))).thenThrow(deadlock());
+
+        // When
+        assertThrows(CannotAcquireLockException.class, () -> proxy.save(new Client()));
+
+        // Then
+        verify(service, times(1)).save(any(Client.class));
+    }
+
+    // To test the classification of the failures of Mysql and H2
+    @Test
+    void classifyTest() {
+        assertEquals(DbFailure.DEADLOCK, DbFailure.classify(deadlock()));
+        assertEquals(DbFailure.DUPLICATE, DbFailure.classify(duplicate()));
+        assertEquals(DbFailure.DUPLICATE, DbFailure.classify(new DataIntegrityViolationException("insert",
+                new SQLException("Unique index or primary key violation", "23505", 23505))));
+        assertEquals(DbFailure.LOCK_TIMEOUT, DbFailure.classify(new RuntimeException(
+                new SQLException("Lock wait timeout exceeded", "HY000", 1205))));
+        assertEquals(DbFailure.LOCK_TIMEOUT, DbFailure.classify(new RuntimeException(
+                new SQLException("Timeout trying to lock table", "HYT00", 50200))));
+        assertEquals(DbFailure.OTHER, DbFailure.classify(new DataIntegrityViolationException("insert",
+                new SQLException("NULL not allowed for column", "23502", 23502))));
+        assertFalse(DbFailure.DUPLICATE.isTransient());
+        assertTrue(DbFailure.OPTIMISTIC_LOCK.isTransient());
+    }
+
+    // To test that the time to wait grows with the attempts without passing the max delay
+    @Test
+    void backoffTest() {
+        RetryAspect aspect = new RetryAspect(5, 10, 40, registry);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(aspect.backoff(1) <= 10);
+            assertTrue(aspect.backoff(2) <= 20);
+            assertTrue(aspect.backoff(10) <= 40);
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.alejandro.veterinaria.aop;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.exceptions.PreconditionFailedException;
+import com.alejandro.veterinaria.services.ClientServiceImp;
+import com.alejandro.veterinaria.sql.QueryCaller;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// The aspect is applied to a mock of the service
+class ServiceMetricsAspectTest {
+
+    SimpleMeterRegistry registry;
+
+    ClientServiceImp service;
+
+    ClientServiceImp proxy;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        service = mock(ClientServiceImp.class);
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(service);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new ServiceMetricsAspect(registry, new double[] { 0.5, 0.95, 0.99 }, false));
+        proxy = factory.getProxy();
+    }
+
+    // To test that each call is recorded in the timer of its method
+    @Test
+    void measureCallsTest() {
+
+        // Given
+        when(service.findById(1L)).thenReturn(Optional.of(new Client()));
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            proxy.findById(1L);
+        }
+        proxy.count();
+
+        // Then
+        Timer findById = registry.get("veterinaria.service.calls")
+                .tag("method", "findById").tag("outcome", "SUCCESS").tag("exception", "none").timer();
+        assertEquals(3, findById.count());
+        assertEquals(1, registry.get("veterinaria.service.calls").tag("method", "count").timer().count());
+        assertEquals(3, registry.get("veterinaria.service.queries").tag("method", "findById").summary().count());
+
+        double[] percentiles = Arrays.stream(findById.takeSnapshot().percentileValues())
+                .mapToDouble(ValueAtPercentile::percentile).toArray();
+        assertArrayEquals(new double[] { 0.5, 0.95, 0.99 }, percentiles);
+    }
+
+    // To test that the method of the service is the caller of the statements while it runs,
+    // and that a repository is still the caller of its own statements
+    @Test
+    void queryCallerTest() {
+
+        // Given
+        String[] callers = new String[2];
+        when(service.count()).thenAnswer(invocation -> {
+            callers[0] = QueryCaller.current();
+            String previous = QueryCaller.set("ClientRepository.count");
+            try {
+                callers[1] = QueryCaller.current();
+            } finally {
+                QueryCaller.restore(previous);
+            }
+            return 0L;
+        });
+
+        // When
+        proxy.count();
+
+        // Then
+        assertTrue(callers[0].startsWith("ClientServiceImp"));
+        assertTrue(callers[0].endsWith(".count"));
+        assertEquals("ClientRepository.count", callers[1]);
+        assertNull(QueryCaller.current());
+    }
+
+    // To test that the percentiles are not calculated when the histogram is published
+    @Test
+    void histogramWithoutPercentilesTest() {
+
+        // Given
+        AspectJProxyFactory factory = new AspectJProxyFactory(service);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new ServiceMetricsAspect(registry, new double[] { 0.5, 0.95, 0.99 }, true));
+        ClientServiceImp histogramProxy = factory.getProxy();
+
+        // When
+        histogramProxy.count();
+
+        // Then
+        Timer count = registry.get("veterinaria.service.calls").tag("method", "count").tag("outcome", "SUCCESS").timer();
+        assertEquals(1, count.count());
+        assertEquals(0, count.takeSnapshot().percentileValues().length);
+    }
+
+    // To test that the errors are recorded with the exception and fired again
+    // (the timer of the successful calls is created with the first call, so the rate of errors can be calculated)
+    @Test
+    void measureErrorsTest() {
+
+        // Given
+        when(service.deleteById(1L)).thenThrow(new PreconditionFailedException("Error!"));
+
+        // When
+        assertThrows(PreconditionFailedException.class, () -> proxy.deleteById(1L));
+        assertThrows(PreconditionFailedException.class, () -> proxy.deleteById(1L));
+
+        // Then
+        Timer errors = registry.get("veterinaria.service.calls").tag("method", "deleteById")
+                .tag("outcome", "ERROR").tag("exception", "PreconditionFailedException").timer();
+        assertEquals(2, errors.count());
+        assertEquals(0, registry.get("veterinaria.service.calls").tag("method", "deleteById").tag("outcome", "SUCCESS")
+                .timer().count());
+    }
+
+}
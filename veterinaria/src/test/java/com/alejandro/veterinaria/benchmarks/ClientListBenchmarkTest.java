@@ -0,0 +1,116 @@
+package com.alejandro.veterinaria.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.repositories.ClientRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Benchmark of the response of a list of 1k clients, reading the entities (as before)
+// and reading the summaries (records created by the query).
+// The time and the memory allocated by each response (query + json) are printed in the console.
+// To run it: mvn test -P benchmark
+@Tag("benchmark")
+@ActiveProfiles("test")
+@SpringBootTest(properties = { "spring.jpa.show-sql=false", "spring.datasource.url=jdbc:h2:mem:benchmark-list" })
+class ClientListBenchmarkTest {
+
+    private static final int TOTAL_CLIENTS = 1_000;
+
+    private static final int WARMUP = 300;
+
+    private static final int ITERATIONS = 1_000;
+
+    @Autowired
+    private ClientRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM pet");
+        jdbcTemplate.update("DELETE FROM client");
+        jdbcTemplate.batchUpdate("INSERT INTO client (id_client, name, lastname, email, phone_number) VALUES (?, ?, ?, ?, ?)",
+                IntStream.rangeClosed(1, TOTAL_CLIENTS)
+                        .mapToObj(i -> new Object[] { i, "Cliente " + i, "Apellido " + i, "cliente" + i + "@idoidraw.com", 5550000000L + i })
+                        .toList());
+    }
+
+    @Test
+    void listClientsBenchmark() {
+
+        // When
+        Result entities = measure(() -> {
+            List<Client> clients = (List<Client>) repository.findAll();
+            return json(clients);
+        });
+        Result summaries = measure(() -> json(repository.findAllSummaries()));
+
+        // Then
+        System.out.printf("[benchmark] entities: %.0f us and %.0f KB per response of %d clients%n",
+                entities.micros, entities.kilobytes, TOTAL_CLIENTS);
+        System.out.printf("[benchmark] summaries: %.0f us and %.0f KB per response of %d clients%n",
+                summaries.micros, summaries.kilobytes, TOTAL_CLIENTS);
+
+        assertEquals(entities.length, summaries.length);
+    }
+
+    // To run a response many times and get the average time and the average memory allocated by this thread
+    // Each response is read in a read only transaction, like the methods of the service
+    private Result measure(Supplier<byte[]> response) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+
+        for (int i = 0; i < WARMUP; i++) {
+            readOnly.execute(status -> response.get());
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long length = 0;
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            length = readOnly.execute(status -> response.get()).length;
+        }
+
+        double micros = (System.nanoTime() - start) / 1_000.0 / ITERATIONS;
+        double kilobytes = (threads.getThreadAllocatedBytes(thread) - allocatedBefore) / 1024.0 / ITERATIONS;
+        return new Result(micros, kilobytes, length);
+    }
+
+    private byte[] json(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Result(double micros, double kilobytes, long length) {
+    }
+
+}
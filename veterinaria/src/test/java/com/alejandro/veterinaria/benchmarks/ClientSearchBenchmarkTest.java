@@ -0,0 +1,54 @@
+package com.alejandro.veterinaria.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.alejandro.veterinaria.search.TrigramIndex;
+
+// Benchmark of the search of a substring in the index of names, with 1M clients.
+// The average time of each search is printed in the console.
+// To run it: mvn test -P benchmark
+@Tag("benchmark")
+class ClientSearchBenchmarkTest {
+
+    private static final int TOTAL_CLIENTS = 1_000_000;
+
+    private static final int SEARCHES = 10_000;
+
+    private static final List<String> NAMES = List.of("Alejandro", "Hueto", "Celia", "Esteban", "John",
+            "Javier", "Ana", "Paul", "Maria", "Guadalupe", "Fernando", "Lucia");
+
+    @Test
+    void searchNamesBenchmark() {
+
+        // Given: names like 'Alejandro 123456' so the results are few
+        TrigramIndex index = new TrigramIndex();
+        for (int i = 0; i < TOTAL_CLIENTS; i++) {
+            index.put((long) i, NAMES.get(i % NAMES.size()) + " " + i);
+        }
+
+        Random random = new Random(7);
+
+        // When
+        long start = System.nanoTime();
+        int results = 0;
+
+        for (int i = 0; i < SEARCHES; i++) {
+            results += index.search("o " + (100_000 + random.nextInt(TOTAL_CLIENTS - 100_000))).size();
+        }
+
+        double elapsedMicros = (System.nanoTime() - start) / 1_000.0;
+
+        // Then
+        System.out.printf("[benchmark] trigram index: %d searches in %d clients, %.1f us per search%n",
+                SEARCHES, TOTAL_CLIENTS, elapsedMicros / SEARCHES);
+
+        assertFalse(results == 0);
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.alejandro.veterinaria.benchmarks;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+// Inserts with the configuration of the profile 'batch' (jdbc batching and ordered inserts)
+@ActiveProfiles({ "test", "batch" })
+@SpringBootTest(properties = { "spring.jpa.show-sql=false", "spring.datasource.url=jdbc:h2:mem:benchmark-batch" })
+class PetInsertBatchBenchmarkTest extends PetInsertBenchmark {
+
+    @Override
+    protected String label() {
+        return "with batching";
+    }
+
+}
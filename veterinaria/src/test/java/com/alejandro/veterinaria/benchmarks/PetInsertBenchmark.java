@@ -0,0 +1,83 @@
+package com.alejandro.veterinaria.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.Pet;
+import com.alejandro.veterinaria.repositories.ClientRepository;
+import com.alejandro.veterinaria.repositories.PetRepository;
+
+import jakarta.persistence.EntityManager;
+
+// Base class of the benchmarks that insert 100k pets of one client.
+// Each subclass starts the context with a different configuration of hibernate (and its own db)
+// and the throughput is printed in the console.
+// To run them: mvn test -P benchmark
+@Tag("benchmark")
+abstract class PetInsertBenchmark {
+
+    private static final int TOTAL_PETS = 100_000;
+
+    // Number of pets saved by each transaction
+    private static final int CHUNK_SIZE = 1_000;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    // To identify the configuration in the results
+    protected abstract String label();
+
+    @Test
+    void insertPetsBenchmark() {
+
+        // Given
+        Client owner = transactionTemplate.execute(status -> clientRepository.save(
+                new Client(null, "Benchmark", label(), "benchmark@idoidraw.com", 5550000000L, null, null)));
+
+        // When
+        long start = System.nanoTime();
+
+        for (int from = 0; from < TOTAL_PETS; from += CHUNK_SIZE) {
+            int first = from;
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Pet> pets = new ArrayList<>(CHUNK_SIZE);
+                for (int i = first; i < first + CHUNK_SIZE; i++) {
+                    Pet pet = new Pet(null, "mascota " + i, "perro", null, 3L, "vacunacion");
+                    pet.setClientId(owner.getId());
+                    pets.add(pet);
+                }
+                petRepository.saveAll(pets);
+
+                // To free the memory of the persistence context between the chunks
+                entityManager.flush();
+                entityManager.clear();
+            });
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // Then
+        System.out.printf("[benchmark] %s: %d pets inserted in %d ms (%.0f pets/s)%n",
+                label(), TOTAL_PETS, elapsedMillis, TOTAL_PETS * 1000.0 / Math.max(elapsedMillis, 1));
+
+        assertEquals(TOTAL_PETS, petRepository.count());
+    }
+
+}
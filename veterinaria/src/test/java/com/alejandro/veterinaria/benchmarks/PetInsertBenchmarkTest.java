@@ -0,0 +1,17 @@
+package com.alejandro.veterinaria.benchmarks;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+// Inserts without jdbc batching: every pet is its own round trip.
+// The ids still come from the pooled sequence, so it's not a measure of the identity ids
+@ActiveProfiles("test")
+@SpringBootTest(properties = { "spring.jpa.show-sql=false", "spring.datasource.url=jdbc:h2:mem:benchmark-nobatch" })
+class PetInsertBenchmarkTest extends PetInsertBenchmark {
+
+    @Override
+    protected String label() {
+        return "without batching";
+    }
+
+}
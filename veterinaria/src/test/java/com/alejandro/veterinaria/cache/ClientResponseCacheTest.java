@@ -0,0 +1,191 @@
+package com.alejandro.veterinaria.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.alejandro.veterinaria.cache.ClientResponseCache.Resource;
+import com.alejandro.veterinaria.data.ClientData;
+import com.alejandro.veterinaria.entities.Client;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ClientResponseCacheTest {
+
+    ClientResponseCache cache;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    // Without a transaction the invalidations are applied right away
+    @BeforeEach
+    void setUp() {
+        cache = new ClientResponseCache();
+        ReflectionTestUtils.setField(cache, "objectMapper", objectMapper);
+    }
+
+    // To test that a response is served from the cache with the same json
+    @Test
+    void putAndGetTest() throws IOException {
+
+        // Given
+        Client client = ClientData.createClient002();
+        long version = cache.version(2L);
+
+        // When
+        ResponseEntity<byte[]> saved = cache.put(Resource.CLIENT, 2L, version, client, "\"2-0\"", null);
+        ResponseEntity<byte[]> cached = cache.get(Resource.CLIENT, 2L, null);
+
+        // Then
+        assertNotNull(cached);
+        assertArrayEquals(saved.getBody(), cached.getBody());
+        assertEquals(MediaType.APPLICATION_JSON, cached.getHeaders().getContentType());
+        assertEquals("\"2-0\"", cached.getHeaders().getETag());
+        assertNull(cached.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("Hueto", objectMapper.readValue(cached.getBody(), Client.class).getName());
+        assertNull(cache.get(Resource.PETS, 2L, null));
+        assertNull(cache.get(Resource.CLIENT, 3L, null));
+    }
+
+    // To test that the responses of a client are not used after it changes
+    @Test
+    void invalidateTest() {
+
+        // Given
+        cache.put(Resource.CLIENT, 2L, cache.version(2L), ClientData.createClient002(), null, null);
+        cache.put(Resource.CLIENT, 3L, cache.version(3L), ClientData.createClient003(), null, null);
+
+        // When
+        cache.invalidate(2L);
+
+        // Then
+        assertNull(cache.get(Resource.CLIENT, 2L, null));
+        assertNotNull(cache.get(Resource.CLIENT, 3L, null));
+        assertEquals(1L, cache.version(2L));
+    }
+
+    // To test that a response read before a change (with the old version) is never used
+    @Test
+    void oldVersionTest() {
+
+        // Given
+        long version = cache.version(2L);
+        cache.invalidate(2L);
+
+        // When
+        cache.put(Resource.CLIENT, 2L, version, ClientData.createClient002(), null, null);
+
+        // Then
+        assertNull(cache.get(Resource.CLIENT, 2L, null));
+    }
+
+    // To test that the least recently used responses are removed when the cache is full
+    @Test
+    void maxEntriesTest() {
+
+        // Given
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        cache.put(Resource.CLIENT, 1L, 0L, ClientData.createClient001(), null, null);
+        cache.put(Resource.CLIENT, 2L, 0L, ClientData.createClient002(), null, null);
+        cache.get(Resource.CLIENT, 1L, null);
+
+        // When
+        cache.put(Resource.CLIENT, 3L, 0L, ClientData.createClient003(), null, null);
+
+        // Then
+        assertNotNull(cache.get(Resource.CLIENT, 1L, null));
+        assertNull(cache.get(Resource.CLIENT, 2L, null));
+        assertNotNull(cache.get(Resource.CLIENT, 3L, null));
+    }
+
+    // To test that the compressed response is sent only to the clients that accept it
+    @Test
+    void gzipTest() throws IOException {
+
+        // Given
+        cache.put(Resource.PETS, 2L, 0L, ClientData.createClient002().getPets(), null, null);
+
+        // When
+        ResponseEntity<byte[]> plain = cache.get(Resource.PETS, 2L, null);
+        ResponseEntity<byte[]> compressed = cache.get(Resource.PETS, 2L, "gzip, deflate");
+
+        // Then
+        assertEquals("gzip", compressed.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, compressed.getHeaders().getFirst(HttpHeaders.VARY));
+        assertTrue(compressed.getBody().length < plain.getBody().length);
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(compressed.getBody()))) {
+            assertArrayEquals(plain.getBody(), input.readAllBytes());
+        }
+    }
+
+    // To test that the clients that changed long ago don't keep a version, and that the responses
+    // saved before their change are still never used
+    @Test
+    void maxVersionsTest() {
+
+        // Given
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        long oldVersion = cache.version(1L);
+        cache.invalidate(1L);
+        cache.invalidate(2L);
+
+        // When
+        cache.invalidate(3L);
+        cache.put(Resource.CLIENT, 1L, oldVersion, ClientData.createClient001(), null, null);
+
+        // Then
+        assertEquals(2, ((Map<?, ?>) ReflectionTestUtils.getField(cache, "versions")).size());
+        assertNull(cache.get(Resource.CLIENT, 1L, null));
+        assertEquals(1L, cache.version(1L));
+        assertEquals(1L, cache.version(4L));
+    }
+
+    // To test that a response is not used after its time in the cache
+    @Test
+    void ttlTest() {
+
+        // Given
+        Instant now = Instant.parse("2024-01-01T10:00:00Z");
+        ReflectionTestUtils.setField(cache, "clock", Clock.fixed(now, ZoneOffset.UTC));
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofMinutes(5));
+        cache.put(Resource.CLIENT, 2L, cache.version(2L), ClientData.createClient002(), null, null);
+
+        // When
+        ReflectionTestUtils.setField(cache, "clock", Clock.fixed(now.plusSeconds(299), ZoneOffset.UTC));
+        ResponseEntity<byte[]> beforeTtl = cache.get(Resource.CLIENT, 2L, null);
+        ReflectionTestUtils.setField(cache, "clock", Clock.fixed(now.plusSeconds(300), ZoneOffset.UTC));
+        ResponseEntity<byte[]> afterTtl = cache.get(Resource.CLIENT, 2L, null);
+
+        // Then
+        assertNotNull(beforeTtl);
+        assertNull(afterTtl);
+    }
+
+    // To test the values of the header 'Accept-Encoding' that accept gzip
+    @Test
+    void acceptsGzipTest() {
+        assertTrue(ClientResponseCache.acceptsGzip("gzip"));
+        assertTrue(ClientResponseCache.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(ClientResponseCache.acceptsGzip("br, *"));
+        assertFalse(ClientResponseCache.acceptsGzip(null));
+        assertFalse(ClientResponseCache.acceptsGzip("gzip;q=0"));
+        assertFalse(ClientResponseCache.acceptsGzip("gzip; q=0.000"));
+        assertFalse(ClientResponseCache.acceptsGzip("x-gzip"));
+        assertFalse(ClientResponseCache.acceptsGzip("*, gzip;q=0"));
+        assertFalse(ClientResponseCache.acceptsGzip("*;q=0"));
+        assertFalse(ClientResponseCache.acceptsGzip("identity"));
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.alejandro.veterinaria.concurrency;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.jupiter.api.Test;
+
+class StripedLockTest {
+
+    // To test that a key always uses the same lock
+    @Test
+    void sameKeySameLockTest() {
+
+        // Given
+        StripedLock locks = new StripedLock(16);
+
+        // Then
+        assertSame(locks.get(21L), locks.get(21L));
+        assertEquals(16, locks.stripes());
+    }
+
+    // To test that the consecutive ids are spread over the locks
+    @Test
+    void consecutiveKeysSpreadTest() {
+
+        // Given
+        StripedLock locks = new StripedLock(256);
+        Set<ReentrantLock> used = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        // When
+        for (long id = 1; id <= 256; id++) {
+            used.add(locks.get(id));
+        }
+
+        // Then
+        assertTrue(used.size() > 128, "Only " + used.size() + " locks were used");
+        assertNotSame(locks.get(1L), locks.get(2L));
+    }
+
+}
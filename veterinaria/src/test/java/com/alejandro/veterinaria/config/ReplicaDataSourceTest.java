@@ -0,0 +1,205 @@
+package com.alejandro.veterinaria.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.ConnectException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+// The replicas are h2 dbs in memory, the db of a connection is known by its url
+class ReplicaDataSourceTest {
+
+    private static JdbcDataSource h2(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+
+    // A replica that doesn't exist, so it can't give connections. It fails as the driver of a db
+    // that doesn't answer (SQL state '08S01'), and it answers when the db is created
+    private static DataSource down(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";IFEXISTS=TRUE");
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                try {
+                    return super.getConnection();
+                } catch (SQLException e) {
+                    throw new SQLNonTransientConnectionException("Communications link failure", "08S01", e);
+                }
+            }
+        };
+    }
+
+    // A replica that works but its pool doesn't have a free connection (as hikari fails after its timeout)
+    private static DataSource busy(String name) {
+        return new DelegatingDataSource(h2(name)) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                throw new SQLTransientConnectionException(name + " - Connection is not available, request timed out after 1000ms.");
+            }
+        };
+    }
+
+    private static String db(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            String url = connection.getMetaData().getURL();
+            return url.substring("jdbc:h2:mem:".length(), url.indexOf(';') > 0 ? url.indexOf(';') : url.length());
+        }
+    }
+
+    // To test that the strategy 'ROUND_ROBIN' uses each replica in turns
+    @Test
+    void roundRobinTest() throws SQLException {
+
+        // Given
+        ReplicaDataSource dataSource = new ReplicaDataSource(h2("rr-primary"), List.of(h2("rr-1"), h2("rr-2")),
+                ReplicaDataSource.Strategy.ROUND_ROBIN, replica -> 0);
+
+        // When
+        List<String> dbs = List.of(db(dataSource), db(dataSource), db(dataSource), db(dataSource));
+
+        // Then
+        assertEquals(List.of("rr-1", "rr-2", "rr-1", "rr-2"), dbs);
+    }
+
+    // To test that the strategy 'LEAST_CONNECTIONS' uses the replica with less active connections
+    @Test
+    void leastConnectionsTest() throws SQLException {
+
+        // Given
+        JdbcDataSource busy = h2("lc-1");
+        JdbcDataSource free = h2("lc-2");
+        Map<DataSource, Integer> active = Map.of(busy, 5, free, 1);
+        ReplicaDataSource dataSource = new ReplicaDataSource(h2("lc-primary"), List.of(busy, free),
+                ReplicaDataSource.Strategy.LEAST_CONNECTIONS, active::get);
+
+        // When
+        String first = db(dataSource);
+        String second = db(dataSource);
+
+        // Then
+        assertEquals("lc-2", first);
+        assertEquals("lc-2", second);
+    }
+
+    // To test that a replica that fails is ejected and the next one is used
+    @Test
+    void ejectTest() throws SQLException {
+
+        // Given
+        ReplicaDataSource dataSource = new ReplicaDataSource(h2("ej-primary"), List.of(down("ej-1"), h2("ej-2")),
+                ReplicaDataSource.Strategy.ROUND_ROBIN, replica -> 0);
+
+        // When
+        String first = db(dataSource);
+        String second = db(dataSource);
+
+        // Then
+        assertEquals("ej-2", first);
+        assertEquals("ej-2", second);
+        assertEquals(1, dataSource.healthyReplicas());
+    }
+
+    // To test that a replica without free connections is not ejected, only the next one is used
+    @Test
+    void busyReplicaTest() throws SQLException {
+
+        // Given
+        ReplicaDataSource dataSource = new ReplicaDataSource(h2("bu-primary"), List.of(busy("bu-1"), h2("bu-2")),
+                ReplicaDataSource.Strategy.ROUND_ROBIN, replica -> 0);
+
+        // When
+        String db = db(dataSource);
+
+        // Then
+        assertEquals("bu-2", db);
+        assertEquals(2, dataSource.healthyReplicas());
+    }
+
+    // To test which errors are failures to connect to a replica
+    @Test
+    void isConnectionFailureTest() {
+        assertTrue(ReplicaDataSource.isConnectionFailure(new SQLException("Communications link failure", "08S01")));
+        assertTrue(ReplicaDataSource.isConnectionFailure(new SQLTransientConnectionException(
+                "replica-1 - Connection is not available", "08S01", new SQLException("Communications link failure", "08S01"))));
+        assertTrue(ReplicaDataSource.isConnectionFailure(new SQLException("Connection refused", null,
+                new ConnectException("Connection refused"))));
+        assertFalse(ReplicaDataSource.isConnectionFailure(new SQLTransientConnectionException(
+                "replica-1 - Connection is not available, request timed out after 1000ms.")));
+        assertFalse(ReplicaDataSource.isConnectionFailure(new SQLException("Access denied for user", "28000")));
+    }
+
+    // To test that the primary is used by the threads that must read from it, without using the replicas
+    @Test
+    void readFromPrimaryTest() throws SQLException {
+
+        // Given
+        ReplicaDataSource dataSource = new ReplicaDataSource(h2("rp-primary"), List.of(h2("rp-1")),
+                ReplicaDataSource.Strategy.ROUND_ROBIN, replica -> 0);
+
+        // When
+        boolean previous = ReplicaDataSource.readFromPrimary(true);
+        String primary;
+        try {
+            primary = db(dataSource);
+        } finally {
+            ReplicaDataSource.readFromPrimary(previous);
+        }
+        String replica = db(dataSource);
+
+        // Then
+        assertFalse(previous);
+        assertEquals("rp-primary", primary);
+        assertEquals("rp-1", replica);
+    }
+
+    // To test that the primary is used if there isn't any healthy replica
+    @Test
+    void fallbackTest() throws SQLException {
+
+        // Given
+        ReplicaDataSource dataSource = new ReplicaDataSource(h2("fb-primary"), List.of(down("fb-1"), down("fb-2")),
+                ReplicaDataSource.Strategy.ROUND_ROBIN, replica -> 0);
+
+        // When
+        String db = db(dataSource);
+
+        // Then
+        assertEquals("fb-primary", db);
+        assertEquals(0, dataSource.healthyReplicas());
+    }
+
+    // To test that the health check uses again the replicas that answer
+    @Test
+    void healthCheckTest() throws SQLException {
+
+        // Given
+        ReplicaDataSource dataSource = new ReplicaDataSource(h2("hc-primary"), List.of(down("hc-1")),
+                ReplicaDataSource.Strategy.ROUND_ROBIN, replica -> 0);
+        dataSource.checkHealth(1);
+        assertEquals("hc-primary", db(dataSource));
+
+        // When: the replica is started
+        JdbcDataSource replica = h2("hc-1");
+        try (Connection connection = replica.getConnection()) {
+            dataSource.checkHealth(1);
+        }
+
+        // Then
+        assertEquals(1, dataSource.healthyReplicas());
+        assertEquals("hc-1", db(dataSource));
+    }
+
+}
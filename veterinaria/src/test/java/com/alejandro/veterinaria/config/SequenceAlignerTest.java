@@ -0,0 +1,77 @@
+package com.alejandro.veterinaria.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// The sequences emulated with tables (as in mysql) are created in a h2 db in memory
+class SequenceAlignerTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    private SequenceAligner aligner;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:sequence-aligner;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("drop all objects");
+        jdbcTemplate.execute("create table pet (id_pet bigint primary key)");
+        jdbcTemplate.execute("create table pet_seq (next_val bigint)");
+        jdbcTemplate.update("insert into pet (id_pet) values (1), (120), (37)");
+        aligner = new SequenceAligner(jdbcTemplate);
+    }
+
+    private long nextVal() {
+        return jdbcTemplate.queryForObject("select next_val from pet_seq", Long.class);
+    }
+
+    // To test that a sequence created over a table with records is moved after the biggest id
+    @Test
+    void alignSequenceBehindTest() {
+
+        // Given
+        jdbcTemplate.update("insert into pet_seq (next_val) values (1)");
+
+        // When
+        aligner.align("pet", "id_pet", "pet_seq", 50);
+
+        // Then
+        assertEquals(170L, nextVal());
+    }
+
+    // To test that a sequence that is already after the biggest id is not moved back
+    @Test
+    void alignSequenceAheadTest() {
+
+        // Given
+        jdbcTemplate.update("insert into pet_seq (next_val) values (501)");
+
+        // When
+        aligner.align("pet", "id_pet", "pet_seq", 50);
+
+        // Then
+        assertEquals(501L, nextVal());
+    }
+
+    // To test that a real sequence is not changed
+    @Test
+    void alignRealSequenceTest() {
+
+        // Given
+        jdbcTemplate.execute("create sequence address_seq start with 1 increment by 50");
+        jdbcTemplate.execute("create table address (id_address bigint primary key)");
+        jdbcTemplate.update("insert into address (id_address) values (300)");
+
+        // When
+        assertDoesNotThrow(() -> aligner.align("address", "id_address", "address_seq", 50));
+
+        // Then
+        assertEquals(1L, jdbcTemplate.queryForObject("select base_value from information_schema.sequences where sequence_name = 'ADDRESS_SEQ'", Long.class));
+    }
+
+}
@@ -10,6 +10,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import java.util.Optional;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -20,12 +21,12 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
 import com.alejandro.veterinaria.TestConfig;
+import com.alejandro.veterinaria.cache.ClientResponseCache;
 import com.alejandro.veterinaria.data.ClientData;
 import com.alejandro.veterinaria.data.CustomCondition;
 import com.alejandro.veterinaria.entities.Address;
 import com.alejandro.veterinaria.entities.Client;
 import com.alejandro.veterinaria.services.AddressService;
-import com.alejandro.veterinaria.services.ClientService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @WebMvcTest(AddressController.class)
@@ -35,15 +36,20 @@ class AddressControllerTest {
     // To inject the dependency that allows for mocking HTTP requests
     @Autowired
     private MockMvc mockMvc;
+
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    // The responses saved by other tests (with other mocks) are removed
+    @BeforeEach
+    void setUp() {
+        responseCache.clear();
+    }
  
     // To inject the dependency that represents the service to mock
     @MockitoBean
     private AddressService service; 
 
-    // To inject the dependency that represents the service to mock
-    @MockitoBean
-    private ClientService clientService;
-
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -53,7 +59,7 @@ class AddressControllerTest {
 
         // Given
         Long idClientToSearch = 2L;
-        when(clientService.findById(anyLong())).thenReturn(Optional.of(ClientData.createClient002()));
+        when(service.findAddressByClient(anyLong())).thenReturn(Optional.of(ClientData.createClient002()));
 
         // When
         MvcResult result = mockMvc.perform(get("/api/clients/" + idClientToSearch + "/addresses"))
@@ -80,7 +86,7 @@ class AddressControllerTest {
         assertEquals("cdmx", address.getCity());
         assertEquals(56512L, address.getCp());
 
-        verify(clientService).findById(argThat(new CustomCondition(ClientData.idsValid, true)));
+        verify(service).findAddressByClient(argThat(new CustomCondition(ClientData.idsValid, true)));
     }
 
     // To test the 'getAddressByClient' endpoint when the client does not have an address
@@ -89,7 +95,7 @@ class AddressControllerTest {
 
         // Given
         Long idClientToSearch = 5L;
-        when(clientService.findById(anyLong())).thenReturn(Optional.of(ClientData.createClient005()));
+        when(service.findAddressByClient(anyLong())).thenReturn(Optional.of(ClientData.createClient005()));
 
         // When
         mockMvc.perform(get("/api/clients/" + idClientToSearch + "/addresses"))
@@ -99,7 +105,7 @@ class AddressControllerTest {
             .andExpect(content().string(""))
         ;
 
-        verify(clientService).findById(argThat(new CustomCondition(ClientData.idsValid, true)));
+        verify(service).findAddressByClient(argThat(new CustomCondition(ClientData.idsValid, true)));
     }
     
     // To test the 'getAddressByClient' endpoint when the client does not exist
@@ -108,7 +114,7 @@ class AddressControllerTest {
         
         // Given
         Long idClientToSearch = 999999L;
-        when(clientService.findById(anyLong())).thenReturn(Optional.empty());
+        when(service.findAddressByClient(anyLong())).thenReturn(Optional.empty());
         
         // When
         mockMvc.perform(get("/api/clients/" + idClientToSearch + "/addresses"))
@@ -118,7 +124,7 @@ class AddressControllerTest {
             .andExpect(content().string(""))
         ;
 
-        verify(clientService).findById(argThat(new CustomCondition(ClientData.idsValid, false)));
+        verify(service).findAddressByClient(argThat(new CustomCondition(ClientData.idsValid, false)));
     }
 
     // To test the 'saveNewAddressByClientId' endpoint when the address can be saved
@@ -188,7 +194,7 @@ class AddressControllerTest {
 
         // Given
         Long idClientToSearch = 1L;
-        when(service.editAddressByClient(anyLong(), any(Address.class))).thenReturn(Optional.of(ClientData.createClient001()));
+        when(service.editAddressByClient(anyLong(), any(Address.class), isNull())).thenReturn(Optional.of(ClientData.createClient001()));
         Address addressToUpdate = new Address(null, "san pancho", "chalco", "estado de mexico", 301245L);
         
         // When
@@ -198,6 +204,7 @@ class AddressControllerTest {
         
         // Then
             .andExpect(status().isCreated())
+            .andExpect(header().exists("ETag"))
             .andExpect(jsonPath("$").isNotEmpty())
             .andExpect(jsonPath("$.id").value(1L))
             .andExpect(jsonPath("$.name").value("Alejandro"))
@@ -218,7 +225,7 @@ class AddressControllerTest {
         assertEquals("alejandro.magb@gmail.com", client.getEmail());
         assertEquals(1538977020L, client.getPhonenumber());
 
-        verify(service).editAddressByClient(argThat(new CustomCondition(ClientData.idsValid, true)), any(Address.class));
+        verify(service).editAddressByClient(argThat(new CustomCondition(ClientData.idsValid, true)), any(Address.class), isNull());
     }
 
     // To test the 'editAddressByClientId' endpoint when the address can not be updated
@@ -227,7 +234,7 @@ class AddressControllerTest {
 
         // Given
         Long idClientToSearch = 999999L;
-        when(service.editAddressByClient(anyLong(), any(Address.class))).thenReturn(Optional.empty());
+        when(service.editAddressByClient(anyLong(), any(Address.class), isNull())).thenReturn(Optional.empty());
         Address addressToUpdate = new Address(null, "san pancho", "chalco", "estado de mexico", 301245L);
         
         // When
@@ -240,7 +247,7 @@ class AddressControllerTest {
             .andExpect(content().string(""))
         ;
 
-        verify(service).editAddressByClient(argThat(new CustomCondition(ClientData.idsValid, false)), any(Address.class));
+        verify(service).editAddressByClient(argThat(new CustomCondition(ClientData.idsValid, false)), any(Address.class), isNull());
     }
 
     // To test the 'deleteAddressByClientId' endpoint when the address can be deleted
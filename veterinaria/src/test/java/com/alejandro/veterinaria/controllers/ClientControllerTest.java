@@ -2,6 +2,9 @@ package com.alejandro.veterinaria.controllers;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
@@ -9,26 +12,41 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.hamcrest.Matchers.*;
 
+import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.CannotAcquireLockException;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
 import com.alejandro.veterinaria.TestConfig;
+import com.alejandro.veterinaria.cache.ClientResponseCache;
 import com.alejandro.veterinaria.data.ClientData;
 import com.alejandro.veterinaria.data.CustomCondition;
 import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.ClientBatch;
+import com.alejandro.veterinaria.entities.ClientDetail;
+import com.alejandro.veterinaria.entities.ClientPage;
+import com.alejandro.veterinaria.entities.ClientSummary;
 import com.alejandro.veterinaria.services.ClientService;
+import com.alejandro.veterinaria.utils.UtilCursor;
+import com.alejandro.veterinaria.utils.UtilPatch;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validation;
+
 @WebMvcTest(ClientController.class)
 @Import(TestConfig.class)
 class ClientControllerTest {
@@ -36,6 +54,15 @@ class ClientControllerTest {
     // To inject the dependency that allows for mocking HTTP requests
     @Autowired
     private MockMvc mockMvc;
+
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    // The responses saved by other tests (with other mocks) are removed
+    @BeforeEach
+    void setUp() {
+        responseCache.clear();
+    }
  
     // To inject the dependency that represents the service to mock
     @MockitoBean
@@ -44,12 +71,15 @@ class ClientControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private UtilCursor utilCursor;
+
     // To test the endpoint getClients
     @Test
     void getClientsTest () throws Exception {
 
         // Given
-        when(service.findAll()).thenReturn(ClientData.createClients001());
+        when(service.findAll()).thenReturn(ClientData.createClientSummaries001());
 
         // When
         MvcResult result = mockMvc.perform(get("/api/clients"))
@@ -63,6 +93,7 @@ class ClientControllerTest {
             .andExpect(jsonPath("$[0].lastname").value("Granados"))
             .andExpect(jsonPath("$[0].email").value("alejandro.magb@gmail.com"))
             .andExpect(jsonPath("$[0].phonenumber").value(1538977020L))
+            .andExpect(jsonPath("$[0].version").doesNotExist())
             .andReturn()
             ;
 
@@ -81,6 +112,78 @@ class ClientControllerTest {
         verify(service).findAll();
     } 
 
+    // To test the endpoint getClients when a page is requested
+    @Test
+    void getClientsPageTest() throws Exception {
+
+        // Given
+        String cursor = utilCursor.encode(2L);
+        ClientPage<ClientSummary> page = new ClientPage<>(ClientData.createClientSummaries001().subList(2, 4), utilCursor.encode(4L));
+        when(service.findPage(anyLong(), anyInt())).thenReturn(page);
+        when(service.count()).thenReturn(5L);
+
+        // When
+        mockMvc.perform(get("/api/clients").param("cursor", cursor).param("size", "2").param("count", "true"))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "5"))
+            .andExpect(jsonPath("$.content", hasSize(2)))
+            .andExpect(jsonPath("$.content[0].id").value(3L))
+            .andExpect(jsonPath("$.content[0].name").value("Celia"))
+            .andExpect(jsonPath("$.content[1].id").value(4L))
+            .andExpect(jsonPath("$.nextCursor").value(utilCursor.encode(4L)))
+            ;
+
+        verify(service).findPage(2L, 2);
+        verify(service).count();
+        verify(service, never()).findAll();
+    }
+
+    // To test the endpoint getClients when a page is requested without the total
+    @Test
+    void getClientsPageWithoutCountTest() throws Exception {
+
+        // Given
+        when(service.findPage(any(), anyInt())).thenReturn(new ClientPage<>(ClientData.createClientSummaries001(), null));
+
+        // When
+        mockMvc.perform(get("/api/clients").param("size", "10"))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(jsonPath("$.content", hasSize(5)))
+            .andExpect(jsonPath("$.nextCursor").isEmpty())
+            ;
+
+        verify(service).findPage(null, 10);
+        verify(service, never()).count();
+    }
+
+    // To test the endpoint getClients when the params of the page are not valid
+    @Test
+    void getClientsPageInvalidParamsTest() throws Exception {
+
+        // When
+        mockMvc.perform(get("/api/clients").param("cursor", "not a cursor"))
+
+        // Then
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.cursor").value("El campo cursor no es valido"))
+            ;
+
+        // When
+        mockMvc.perform(get("/api/clients").param("size", "0"))
+
+        // Then
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.size").value("El campo size debe estar entre 1 y 100"))
+            ;
+
+        verify(service, never()).findPage(any(), anyInt());
+    }
+
     // To test the endpoint GetfindById with an existing id
     @Test
     void getfindByIdExistingIdTest() throws Exception {
@@ -136,6 +239,158 @@ class ClientControllerTest {
         verify(service).findById(argThat(new CustomCondition(ClientData.idsValid, false)));
     }
 
+    // To test the endpoint GetfindById with the param 'expand'
+    @Test
+    void getfindByIdExpandTest() throws Exception {
+
+        // Given
+        Long idToSearch = 2L;
+        when(service.findDetailById(anyLong(), anyBoolean(), anyBoolean()))
+                .thenReturn(Optional.of(ClientDetail.from(ClientData.createClient002(), true, true)));
+
+        // When
+        mockMvc.perform(get("/api/clients/" + idToSearch + "?expand=pets,address"))
+
+        // Then
+        .andExpect(status().isOk())
+        .andExpect(header().exists("ETag"))
+        .andExpect(jsonPath("$.id").value(2L))
+        .andExpect(jsonPath("$.name").value("Hueto"))
+        .andExpect(jsonPath("$.pets", hasSize(3)))
+        .andExpect(jsonPath("$.pets[0].name").value("goliath"))
+        .andExpect(jsonPath("$.address.street").value("av. siempre viva"))
+        .andExpect(jsonPath("$.version").doesNotExist())
+        ;
+
+        verify(service).findDetailById(2L, true, true);
+        verify(service, never()).findById(anyLong());
+    }
+
+    // To test the endpoint GetfindById when only the pets are expanded (the address is not in the json)
+    @Test
+    void getfindByIdExpandPetsTest() throws Exception {
+
+        // Given
+        when(service.findDetailById(anyLong(), anyBoolean(), anyBoolean()))
+                .thenReturn(Optional.of(ClientDetail.from(ClientData.createClient002(), true, false)));
+
+        // When
+        mockMvc.perform(get("/api/clients/2?expand=pets"))
+
+        // Then
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.pets", hasSize(3)))
+        .andExpect(jsonPath("$.address").doesNotExist())
+        ;
+
+        verify(service).findDetailById(2L, true, false);
+    }
+
+    // To test the endpoint GetfindById with the param 'expand' and an inexisting id
+    @Test
+    void getfindByIdExpandInexistingIdTest() throws Exception {
+
+        // Given
+        when(service.findDetailById(anyLong(), anyBoolean(), anyBoolean())).thenReturn(Optional.empty());
+
+        // When
+        mockMvc.perform(get("/api/clients/999999?expand=address"))
+
+        // Then
+        .andExpect(status().isNotFound())
+        ;
+    }
+
+    // To test the endpoints when the param 'expand' has an invalid value
+    @Test
+    void getExpandInvalidTest() throws Exception {
+
+        // When
+        mockMvc.perform(get("/api/clients/2?expand=owner"))
+
+        // Then
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.expand").value("El campo expand solo puede tener los valores pets y address"))
+        ;
+
+        mockMvc.perform(get("/api/clients?expand=pets,owner"))
+        .andExpect(status().isBadRequest());
+
+        verify(service, never()).findDetailById(anyLong(), anyBoolean(), anyBoolean());
+        verify(service, never()).findAll();
+    }
+
+    // To test the endpoint getClients with the param 'expand'
+    @Test
+    void getClientsExpandTest() throws Exception {
+
+        // Given
+        List<ClientSummary> summaries = ClientData.createClientSummaries001();
+        when(service.findAll()).thenReturn(summaries);
+        when(service.expand(anyList(), anyBoolean(), anyBoolean())).thenReturn(List.of(
+                ClientDetail.from(summaries.get(1), ClientData.createClient002().getPets(), null)));
+
+        // When
+        mockMvc.perform(get("/api/clients?expand=pets"))
+
+        // Then
+        .andExpect(status().isOk())
+        .andExpect(header().exists("ETag"))
+        .andExpect(jsonPath("$", hasSize(1)))
+        .andExpect(jsonPath("$[0].name").value("Hueto"))
+        .andExpect(jsonPath("$[0].pets", hasSize(3)))
+        .andExpect(jsonPath("$[0].address").doesNotExist())
+        ;
+
+        verify(service).expand(summaries, true, false);
+    }
+
+    // To test the endpoint of the batch lookup, the clients are in the order of the ids
+    @Test
+    void getClientsBatchTest() throws Exception {
+
+        // Given
+        List<ClientSummary> summaries = ClientData.createClientSummaries001();
+        when(service.findBatch(anyList())).thenReturn(new ClientBatch<>(List.of(summaries.get(2), summaries.get(0)), List.of(99L)));
+
+        // When
+        mockMvc.perform(get("/api/clients/batch?ids=3,99,1"))
+
+        // Then
+        .andExpect(status().isOk())
+        .andExpect(header().exists("ETag"))
+        .andExpect(jsonPath("$.content", hasSize(2)))
+        .andExpect(jsonPath("$.content[0].id").value(3L))
+        .andExpect(jsonPath("$.content[1].id").value(1L))
+        .andExpect(jsonPath("$.missing", hasSize(1)))
+        .andExpect(jsonPath("$.missing[0]").value(99L))
+        ;
+
+        verify(service).findBatch(List.of(3L, 99L, 1L));
+        verify(service, never()).findById(anyLong());
+    }
+
+    // To test the endpoint of the batch lookup without ids or with too many ids
+    @Test
+    void getClientsBatchInvalidTest() throws Exception {
+
+        // Given
+        String ids = String.join(",", LongStream.rangeClosed(1, 501).mapToObj(String::valueOf).toList());
+
+        // When
+        mockMvc.perform(get("/api/clients/batch"))
+
+        // Then
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.ids").value("El campo ids debe tener entre 1 y 500 ids"))
+        ;
+
+        mockMvc.perform(get("/api/clients/batch?ids=" + ids))
+        .andExpect(status().isBadRequest());
+
+        verify(service, never()).findBatch(anyList());
+    }
+
     // To test the endpoint save
     @Test
     void postSaveTest() throws Exception {
@@ -177,7 +432,7 @@ class ClientControllerTest {
         // Given
         Long idToUpdate = 2L;
         Client clientToUpdate = new Client(null, "wen", "tennison", "wen456@gmail.com", 4568977020L, null, null);
-        when(service.update(anyLong(), any(Client.class))).thenAnswer(invocation -> Optional.of(invocation.getArgument(1)));
+        when(service.update(anyLong(), any(Client.class), isNull())).thenAnswer(invocation -> Optional.of(invocation.getArgument(1)));
 
         // When
         MvcResult result = mockMvc.perform(put("/api/clients/" + idToUpdate)
@@ -202,7 +457,7 @@ class ClientControllerTest {
         assertEquals("wen456@gmail.com", newClient.getEmail());
         assertEquals(4568977020L, newClient.getPhonenumber());
 
-        verify(service).update(argThat(new CustomCondition(ClientData.idsValid, true)), any(Client.class));
+        verify(service).update(argThat(new CustomCondition(ClientData.idsValid, true)), any(Client.class), isNull());
     }
 
     // To test the endpoint update when we use an inexisting id 
@@ -212,7 +467,7 @@ class ClientControllerTest {
         // Given
         Long idToUpdate = 8L;
         Client clientToUpdate = new Client(null, "wen", "tennison", "wen456@gmail.com", 4568977020L, null, null);
-        when(service.update(anyLong(), any(Client.class))).thenReturn(Optional.empty());
+        when(service.update(anyLong(), any(Client.class), isNull())).thenReturn(Optional.empty());
 
         // When
         mockMvc.perform(put("/api/clients/" + idToUpdate)
@@ -224,7 +479,109 @@ class ClientControllerTest {
             .andExpect(content().string(""))
             ;
 
-        verify(service).update(argThat(new CustomCondition(ClientData.idsValid, false)), any(Client.class));
+        verify(service).update(argThat(new CustomCondition(ClientData.idsValid, false)), any(Client.class), isNull());
+    }
+
+    // To test the endpoint update when the db keeps failing with a deadlock after the retries
+    @Test
+    void putUpdateTransientFailureTest() throws Exception {
+
+        // Given
+        Client clientToUpdate = new Client(null, "wen", "tennison", "wen456@gmail.com", 4568977020L, null, null);
+        when(service.update(anyLong(), any(Client.class), isNull()))
+                .thenThrow(new CannotAcquireLockException("update client", new SQLException("Deadlock found", "40001", 1213)));
+
+        // When
+        mockMvc.perform(put("/api/clients/1")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(clientToUpdate)))
+
+        // then
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().string("Retry-After", "1"))
+            .andExpect(jsonPath("$.error").value("Error! La base de datos esta ocupada con otras peticiones, intente de nuevo."))
+            .andExpect(jsonPath("$.status").value(503))
+            ;
+    }
+
+    // To test the endpoint patch, the patch is sent to the service as it was received
+    @Test
+    void patchClientTest() throws Exception {
+
+        // Given
+        Client clientDb = ClientData.createClient002();
+        clientDb.setVersion(3L);
+        when(service.patch(anyLong(), any(JsonNode.class), isNull())).thenReturn(Optional.of(clientDb));
+
+        // When
+        mockMvc.perform(patch("/api/clients/2")
+            .contentType(UtilPatch.MERGE_PATCH_JSON)
+            .content("{\"email\": \"hueto@idoidraw.com\"}"))
+
+        // then
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"2-3\""))
+            .andExpect(jsonPath("$.id").value(2L))
+            ;
+
+        verify(service).patch(eq(2L), argThat(patch -> patch.size() == 1 && patch.get("email").asText().equals("hueto@idoidraw.com")), isNull());
+    }
+
+    // To test the endpoint patch when the patch has an attribute that can't be changed
+    @Test
+    void patchClientNotEditableAttributeTest() throws Exception {
+
+        // Given
+        when(service.patch(anyLong(), any(JsonNode.class), isNull()))
+            .thenThrow(new IllegalArgumentException("Error! El campo id no se puede modificar."));
+
+        // When
+        mockMvc.perform(patch("/api/clients/2")
+            .contentType(UtilPatch.MERGE_PATCH_JSON)
+            .content("{\"id\": 5}"))
+
+        // then
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.patch").value("Error! El campo id no se puede modificar."))
+            ;
+    }
+
+    // To test the endpoint patch when the result doesn't meet the obligations of the attributes
+    @Test
+    void patchClientInvalidTest() throws Exception {
+
+        // Given
+        Client invalidClient = new Client(2L, "", "Navejas", "hekevim148@idoidraw.com", 1538971230L, null, null);
+        when(service.patch(anyLong(), any(JsonNode.class), isNull())).thenThrow(
+            new ConstraintViolationException(Validation.buildDefaultValidatorFactory().getValidator().validate(invalidClient)));
+
+        // When
+        mockMvc.perform(patch("/api/clients/2")
+            .contentType(UtilPatch.MERGE_PATCH_JSON)
+            .content("{\"name\": \"\"}"))
+
+        // then
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.name").value(containsString("El campo name ")))
+            ;
+    }
+
+    // To test the endpoint patch when we use an inexisting id
+    @Test
+    void patchClientInexistingIdTest() throws Exception {
+
+        // Given
+        when(service.patch(anyLong(), any(JsonNode.class), isNull())).thenReturn(Optional.empty());
+
+        // When
+        mockMvc.perform(patch("/api/clients/8")
+            .contentType(UtilPatch.MERGE_PATCH_JSON)
+            .content("{\"name\": \"wen\"}"))
+
+        // then
+            .andExpect(status().isNotFound())
+            .andExpect(content().string(""))
+            ;
     }
 
     // To test the endpoint delete when we use an existing id 
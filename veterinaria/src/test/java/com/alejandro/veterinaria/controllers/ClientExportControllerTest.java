@@ -0,0 +1,109 @@
+package com.alejandro.veterinaria.controllers;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.alejandro.veterinaria.TestConfig;
+import com.alejandro.veterinaria.services.ClientExportService;
+
+@WebMvcTest(ClientExportController.class)
+@Import(TestConfig.class)
+class ClientExportControllerTest {
+
+    // To inject the dependency that allows for mocking HTTP requests
+    @Autowired
+    private MockMvc mockMvc;
+
+    // To inject the dependency that represents the service to mock
+    @MockitoBean
+    private ClientExportService service;
+
+    // To test the endpoint export with the format ndjson
+    @Test
+    void getExportNdjsonTest() throws Exception {
+
+        // Given
+        when(service.exportNdjson(any(OutputStream.class))).thenAnswer(invocation -> {
+            OutputStream output = invocation.getArgument(0);
+            output.write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        });
+
+        // When: the body is written after the request is started
+        MvcResult result = mockMvc.perform(get("/api/clients/export"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson"))
+            .andExpect(content().string("{\"id\":1}\n"))
+            ;
+    }
+
+    // To test the endpoint export with the format csv
+    @Test
+    void getExportCsvTest() throws Exception {
+
+        // Given
+        when(service.exportCsv(any(OutputStream.class))).thenAnswer(invocation -> {
+            OutputStream output = invocation.getArgument(0);
+            output.write("name,lastname\n".getBytes(StandardCharsets.UTF_8));
+            return 0L;
+        });
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/clients/export").param("format", "csv"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        // Then
+        MvcResult response = mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/gzip"))
+            .andExpect(header().string("Content-Disposition", "attachment; filename=\"clients.csv.gz\""))
+            .andReturn();
+
+        assertEquals("name,lastname\n", gunzip(response.getResponse().getContentAsByteArray()));
+    }
+
+    // To test the endpoint export with a format that doesn't exist
+    @Test
+    void getExportBadFormatTest() throws Exception {
+
+        // When
+        mockMvc.perform(get("/api/clients/export").param("format", "xml"))
+
+        // Then
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.format").value("El campo format debe ser ndjson o csv"))
+            ;
+
+        verifyNoInteractions(service);
+    }
+
+    private String gunzip(byte[] content) throws IOException {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.alejandro.veterinaria.controllers;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.io.InputStream;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.alejandro.veterinaria.TestConfig;
+import com.alejandro.veterinaria.entities.ImportError;
+import com.alejandro.veterinaria.entities.ImportReport;
+import com.alejandro.veterinaria.services.ClientImportService;
+
+@WebMvcTest(ClientImportController.class)
+@Import(TestConfig.class)
+class ClientImportControllerTest {
+
+    // To inject the dependency that allows for mocking HTTP requests
+    @Autowired
+    private MockMvc mockMvc;
+
+    // To inject the dependency that represents the service to mock
+    @MockitoBean
+    private ClientImportService service;
+
+    private ImportReport report() {
+        ImportReport report = new ImportReport();
+        report.setRecords(2);
+        report.setImported(1);
+        report.setFailed(1);
+        report.getErrors().add(new ImportError(2, Map.of("name", "El campo name must not be blank")));
+        return report;
+    }
+
+    // To test the endpoint importNdjson
+    @Test
+    void postImportNdjsonTest() throws Exception {
+
+        // Given
+        when(service.importNdjson(any(InputStream.class))).thenReturn(report());
+
+        // When
+        mockMvc.perform(post("/api/clients/import")
+            .contentType("application/x-ndjson")
+            .content("{}\n{}"))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.records").value(2))
+            .andExpect(jsonPath("$.imported").value(1))
+            .andExpect(jsonPath("$.failed").value(1))
+            .andExpect(jsonPath("$.errors[0].record").value(2))
+            .andExpect(jsonPath("$.errors[0].errors.name").value("El campo name must not be blank"))
+            ;
+
+        verify(service).importNdjson(any(InputStream.class));
+        verify(service, never()).importCsv(any(InputStream.class));
+    }
+
+    // To test the endpoint importCsv
+    @Test
+    void postImportCsvTest() throws Exception {
+
+        // Given
+        when(service.importCsv(any(InputStream.class))).thenReturn(report());
+
+        // When
+        mockMvc.perform(post("/api/clients/import")
+            .contentType("text/csv")
+            .content("name,lastname\n"))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.records").value(2))
+            ;
+
+        verify(service).importCsv(any(InputStream.class));
+    }
+
+    // To test the endpoint import with a format that is not supported
+    @Test
+    void postImportUnsupportedTest() throws Exception {
+
+        // When
+        mockMvc.perform(post("/api/clients/import")
+            .contentType("application/xml")
+            .content("<clients/>"))
+
+        // Then
+            .andExpect(status().isUnsupportedMediaType())
+            ;
+
+        verifyNoInteractions(service);
+    }
+
+}
@@ -10,8 +10,10 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -22,13 +24,16 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
 import com.alejandro.veterinaria.TestConfig;
+import com.alejandro.veterinaria.cache.ClientResponseCache;
 import com.alejandro.veterinaria.data.ClientData;
 import com.alejandro.veterinaria.data.CustomCondition;
 import com.alejandro.veterinaria.data.PetData;
 import com.alejandro.veterinaria.entities.Pet;
+import com.alejandro.veterinaria.entities.PetBatchReport;
+import com.alejandro.veterinaria.entities.PetBatchResult;
+import com.alejandro.veterinaria.entities.PetUpdate;
 import com.alejandro.veterinaria.entities.Client;
 import com.alejandro.veterinaria.services.PetService;
-import com.alejandro.veterinaria.services.ClientService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @WebMvcTest(PetController.class)
@@ -38,15 +43,20 @@ class PetControllerTest {
     // To inject the dependency that allows for mocking HTTP requests
     @Autowired
     private MockMvc mockMvc;
+
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    // The responses saved by other tests (with other mocks) are removed
+    @BeforeEach
+    void setUp() {
+        responseCache.clear();
+    }
  
     // To inject the dependency that represents the service to mock
     @MockitoBean
     private PetService service; 
 
-    // To inject the dependency that represents the service to mock
-    @MockitoBean
-    private ClientService clientService;
-
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -56,7 +66,7 @@ class PetControllerTest {
 
         // Given
         Long idClientToSearch = 2L;
-        when(clientService.findById(anyLong())).thenReturn(Optional.of(ClientData.createClient002()));
+        when(service.findPetsByClient(anyLong())).thenReturn(Optional.of(ClientData.createClient002().getPets()));
 
         // When
         MvcResult result = mockMvc.perform(get("/api/clients/" + idClientToSearch + "/pets"))
@@ -86,7 +96,7 @@ class PetControllerTest {
         assertEquals(4L, pets.get(0).getAge());
         assertEquals("vomita mucho", pets.get(0).getReasonForVisit());
 
-        verify(clientService).findById(argThat(new CustomCondition(ClientData.idsValid, true)));
+        verify(service).findPetsByClient(argThat(new CustomCondition(ClientData.idsValid, true)));
     }
 
     // To test the 'getPetsByClient' endpoint with an inexisting idClient
@@ -95,7 +105,7 @@ class PetControllerTest {
         
         // Given
         Long idClientToSearch = 999999L;
-        when(clientService.findById(anyLong())).thenReturn(Optional.empty());
+        when(service.findPetsByClient(anyLong())).thenReturn(Optional.empty());
         
         // When
         mockMvc.perform(get("/api/clients/" + idClientToSearch + "/pets"))
@@ -105,7 +115,45 @@ class PetControllerTest {
             .andExpect(content().string(""))
             ;
 
-        verify(clientService).findById(argThat(new CustomCondition(ClientData.idsValid, false)));
+        verify(service).findPetsByClient(argThat(new CustomCondition(ClientData.idsValid, false)));
+    }
+
+    // To test the 'getPetByClient' endpoint when the pet belongs to the client, the response has its ETag
+    @Test
+    void getPetByClientExistingIdTest() throws Exception {
+
+        // Given
+        Pet pet = PetData.createPet002();
+        pet.setVersion(3L);
+        when(service.findPetByClient(anyLong(), anyLong())).thenReturn(Optional.of(pet));
+
+        // When
+        mockMvc.perform(get("/api/clients/2/pets/20"))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"20-3\""))
+            .andExpect(jsonPath("$.id").value(20L))
+            .andExpect(jsonPath("$.name").value("goliath"))
+        ;
+
+        verify(service).findPetByClient(2L, 20L);
+    }
+
+    // To test the 'getPetByClient' endpoint when the pet doesn't belong to the client
+    @Test
+    void getPetByClientInexistingIdTest() throws Exception {
+
+        // Given
+        when(service.findPetByClient(anyLong(), anyLong())).thenReturn(Optional.empty());
+
+        // When
+        mockMvc.perform(get("/api/clients/999999/pets/20"))
+
+        // Then
+            .andExpect(status().isNotFound())
+            .andExpect(content().string(""))
+        ;
     }
 
     // To test the 'saveNewPetByClientId' endpoint when the idClient exists
@@ -169,6 +217,78 @@ class PetControllerTest {
         verify(service).savePetByClient(argThat(new CustomCondition(ClientData.idsValid, false)), any(Pet.class));
     }
 
+    // To test the 'saveNewPetsByClientId' endpoint, each pet has its own result
+    @Test
+    void postSaveNewPetsByClientIdTest() throws Exception {
+
+        // Given
+        PetBatchReport report = new PetBatchReport();
+        report.setCreated(1);
+        report.setFailed(1);
+        report.getResults().add(new PetBatchResult(0, 201, new Pet(100L, "rayas 2", "gato 2", null, 15L, "tiene mucho sueño x2"), null));
+        report.getResults().add(new PetBatchResult(1, 409, null,
+            Map.of("name", "Error! Esta mascota ya se registro previamente para este cliente.")));
+        when(service.savePetsByClient(anyLong(), any())).thenReturn(Optional.of(report));
+        List<Pet> petsToInsert = List.of(new Pet(null, "rayas 2", "gato 2", null, 15L, "tiene mucho sueño x2"),
+            new Pet(null, "goliath", "perro", null, 3L, "vacunas"));
+
+        // When
+        mockMvc.perform(post("/api/clients/5/pets/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(petsToInsert)))
+
+        // Then
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.created").value(1))
+            .andExpect(jsonPath("$.failed").value(1))
+            .andExpect(jsonPath("$.results[0].status").value(201))
+            .andExpect(jsonPath("$.results[0].pet.id").value(100L))
+            .andExpect(jsonPath("$.results[0].errors").doesNotExist())
+            .andExpect(jsonPath("$.results[1].index").value(1))
+            .andExpect(jsonPath("$.results[1].status").value(409))
+            .andExpect(jsonPath("$.results[1].pet").doesNotExist())
+            .andExpect(jsonPath("$.results[1].errors.name").value("Error! Esta mascota ya se registro previamente para este cliente."))
+        ;
+
+        verify(service).savePetsByClient(eq(5L), argThat(pets -> pets.size() == 2));
+    }
+
+    // To test the 'saveNewPetsByClientId' endpoint when the idClient doesnt exist
+    @Test
+    void postSaveNewPetsByClientIdInexistingIdTest() throws Exception {
+
+        // Given
+        when(service.savePetsByClient(anyLong(), any())).thenReturn(Optional.empty());
+        List<Pet> petsToInsert = List.of(new Pet(null, "rayas 2", "gato 2", null, 15L, "tiene mucho sueño x2"));
+
+        // When
+        mockMvc.perform(post("/api/clients/999999/pets/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(petsToInsert)))
+
+        // Then
+            .andExpect(status().isNotFound())
+            .andExpect(content().string(""))
+        ;
+    }
+
+    // To test the 'saveNewPetsByClientId' endpoint when the array of pets is empty
+    @Test
+    void postSaveNewPetsByClientIdEmptyTest() throws Exception {
+
+        // When
+        mockMvc.perform(post("/api/clients/5/pets/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[]"))
+
+        // Then
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.pets").value("El campo pets debe tener entre 1 y 100 mascotas"))
+        ;
+
+        verify(service, never()).savePetsByClient(anyLong(), any());
+    }
+
     // To test the 'editPetByClientId' endpoint when the pet can be updated
     @Test
     void putEditPetByClientIdSuccessUpdateTest() throws Exception {
@@ -176,7 +296,9 @@ class PetControllerTest {
         // Given
         Long idClientToSearch = 3L;
         Long idPetToSearch = 30L;
-        when(service.editPetByClient(anyLong(), anyLong(), any(Pet.class))).thenReturn(Optional.of(ClientData.createClient003()));
+        Pet updatedPet = PetData.createPet003();
+        updatedPet.setVersion(2L);
+        when(service.editPetByClient(anyLong(), anyLong(), any(Pet.class), isNull())).thenReturn(Optional.of(new PetUpdate(ClientData.createClient003(), updatedPet)));
         Pet petToUpdate = new Pet(null, "rayas 3", "gato 3", "rayado 3", 15L, "tiene mucho sueño x3");
 
         // When
@@ -186,6 +308,7 @@ class PetControllerTest {
         
         // Then
             .andExpect(status().isCreated())
+            .andExpect(header().string("ETag", "\"30-2\""))
             .andExpect(jsonPath("$").isNotEmpty())
             .andExpect(jsonPath("$.id").value(3L))
             .andExpect(jsonPath("$.name").value("Celia"))
@@ -206,7 +329,7 @@ class PetControllerTest {
         assertEquals("cazador19@idoidraw.com", client.getEmail());
         assertEquals(1234977026L, client.getPhonenumber());
 
-        verify(service).editPetByClient(argThat(new CustomCondition(ClientData.idsValid, true)), argThat(new CustomCondition(PetData.idsValid, true)), any(Pet.class));
+        verify(service).editPetByClient(argThat(new CustomCondition(ClientData.idsValid, true)), argThat(new CustomCondition(PetData.idsValid, true)), any(Pet.class), isNull());
     }
 
     // To test the 'editPetByClientId' endpoint when the pet can not be updated
@@ -216,7 +339,7 @@ class PetControllerTest {
         // Given
         Long idClientToSearch = 99999L;
         Long idPetToSearch = 999999L;
-        when(service.editPetByClient(anyLong(), anyLong(), any(Pet.class))).thenReturn(Optional.empty());
+        when(service.editPetByClient(anyLong(), anyLong(), any(Pet.class), isNull())).thenReturn(Optional.empty());
         Pet petToUpdate = new Pet(null, "rayas 3", "gato 3", "rayado 3", 15L, "tiene mucho sueño x3");
         
         // When
@@ -229,7 +352,7 @@ class PetControllerTest {
             .andExpect(content().string(""))
         ;
 
-        verify(service).editPetByClient(argThat(new CustomCondition(ClientData.idsValid, false)), argThat(new CustomCondition(PetData.idsValid, false)), any(Pet.class));
+        verify(service).editPetByClient(argThat(new CustomCondition(ClientData.idsValid, false)), argThat(new CustomCondition(PetData.idsValid, false)), any(Pet.class), isNull());
     }
 
     // To test the 'deletePetByClient' endpoint when the pet can be deleted
@@ -4,6 +4,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.ClientSummary;
 
 // The class that contains the data to be mocked in the service and controller methods
 public class ClientData {
@@ -34,7 +35,8 @@ public class ClientData {
         return Arrays.asList(createClient001(), createClient002(), createClient003(), createClient004(), createClient005());
     }
 
-}
-
-
+    public static List<ClientSummary> createClientSummaries001() {
+        return createClients001().stream().map(ClientSummary::from).toList();
+    }
 
+}
@@ -0,0 +1,136 @@
+package com.alejandro.veterinaria.idempotency;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// The stores are tested with a clock that is moved by the tests, the table of the jdbc store is in a h2 db in memory
+class IdempotencyStoreTest {
+
+    private static final StoredResponse CREATED = new StoredResponse("fingerprint", 201, "application/json", "\"5-0\"", null,
+            "{\"id\":5}".getBytes(StandardCharsets.UTF_8));
+
+    private static class MovableClock extends Clock {
+
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+
+    private static JdbcIdempotencyStore jdbc(String name, MovableClock clock) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcIdempotencyStore store = new JdbcIdempotencyStore(new JdbcTemplate(dataSource), Duration.ofHours(1), clock, 1000);
+        store.createTable();
+        return store;
+    }
+
+    // To test that the second reservation of a key gets the response of the first one
+    @Test
+    void inMemoryReserveTest() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(10, Duration.ofHours(1), new MovableClock());
+        assertReserve(store);
+    }
+
+    @Test
+    void jdbcReserveTest() {
+        assertReserve(jdbc("idempotency-reserve", new MovableClock()));
+    }
+
+    // To test that a key that is released or expired can be reserved again
+    @Test
+    void inMemoryReleaseAndExpireTest() {
+        MovableClock clock = new MovableClock();
+        assertReleaseAndExpire(new InMemoryIdempotencyStore(10, Duration.ofHours(1), clock), clock);
+    }
+
+    @Test
+    void jdbcReleaseAndExpireTest() {
+        MovableClock clock = new MovableClock();
+        JdbcIdempotencyStore store = jdbc("idempotency-expire", clock);
+        assertReleaseAndExpire(store, clock);
+
+        // The expired keys are deleted
+        clock.now = clock.now.plus(Duration.ofHours(2));
+        assertEquals(1, store.purge(clock.millis()));
+    }
+
+    // To test that the oldest keys are removed when there are more keys than the maximum
+    @Test
+    void inMemoryMaxEntriesTest() {
+
+        // Given
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(2, Duration.ofHours(1), new MovableClock());
+
+        // When
+        store.reserve("key-1", "fingerprint");
+        store.reserve("key-2", "fingerprint");
+        store.reserve("key-3", "fingerprint");
+
+        // Then
+        assertEquals(2, store.size());
+        assertTrue(store.reserve("key-1", "fingerprint").isEmpty());
+        assertTrue(store.reserve("key-3", "fingerprint").isPresent());
+    }
+
+    private static void assertReserve(IdempotencyStore store) {
+
+        // When
+        Optional<StoredResponse> first = store.reserve("key", "fingerprint");
+        Optional<StoredResponse> inProgress = store.reserve("key", "fingerprint");
+        store.complete("key", CREATED);
+        Optional<StoredResponse> completed = store.reserve("key", "fingerprint");
+
+        // Then
+        assertTrue(first.isEmpty());
+        assertFalse(inProgress.get().isCompleted());
+        assertEquals("fingerprint", inProgress.get().fingerprint());
+        assertEquals(201, completed.get().status());
+        assertEquals("application/json", completed.get().contentType());
+        assertEquals("\"5-0\"", completed.get().eTag());
+        assertNull(completed.get().location());
+        assertArrayEquals(CREATED.body(), completed.get().body());
+    }
+
+    private static void assertReleaseAndExpire(IdempotencyStore store, MovableClock clock) {
+
+        // The key is released while it's in progress
+        store.reserve("key", "fingerprint");
+        store.release("key");
+        assertTrue(store.reserve("key", "fingerprint").isEmpty());
+
+        // A completed key is not released
+        store.complete("key", CREATED);
+        store.release("key");
+        assertTrue(store.reserve("key", "fingerprint").isPresent());
+
+        // The key expires
+        clock.now = clock.now.plus(Duration.ofMinutes(61));
+        assertTrue(store.reserve("key", "other").isEmpty());
+        assertEquals("other", store.reserve("key", "fingerprint").get().fingerprint());
+    }
+
+}
@@ -2,6 +2,7 @@ package com.alejandro.veterinaria.integrations;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -12,6 +13,7 @@ import org.springframework.http.*;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 
+import com.alejandro.veterinaria.cache.ClientResponseCache;
 import com.alejandro.veterinaria.entities.Address;
 import com.alejandro.veterinaria.entities.Client;
 
@@ -28,6 +30,15 @@ class AddressIntegrationTest {
     @Autowired
     private TestRestTemplate client;
 
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    // The file 'insert.sql' doesn't use the services, so the cached responses are removed
+    @BeforeEach
+    void setUp() {
+        responseCache.clear();
+    }
+
     // To test the endpoint getAddressByClient with an existing idClient and the client has an address
     @Test
     void getAddressByClientExistingIdIntegrationTest() {
@@ -0,0 +1,260 @@
+package com.alejandro.veterinaria.integrations;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import com.alejandro.veterinaria.cache.ClientResponseCache;
+import com.alejandro.veterinaria.entities.Address;
+import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.Pet;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// To load/insert the data on the file 'insert.sql'  
+// To use the configurations on application-test.properties and application-cache.properties
+// To start the test context with a random port
+// Each test reads the data (so it's in the second level cache), changes it and reads it again
+@Sql(scripts = "/insert.sql") 
+@ActiveProfiles({ "test", "cache" })
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+class CacheIntegrationTest {
+
+    // To inject the component of testRestTemplate
+    @Autowired
+    private TestRestTemplate client;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    // The file 'insert.sql' doesn't use hibernate, so the caches are emptied
+    @BeforeEach
+    void setUp() {
+        responseCache.clear();
+        entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class).evictAllRegions();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    private List<Pet> pets(Long clientId) {
+        return Arrays.asList(client.getForEntity("/api/clients/" + clientId + "/pets", Pet[].class).getBody());
+    }
+
+    // To test that the second read of a client and its pets doesn't go to the db
+    @Test
+    void cacheHitIntegrationTest() {
+
+        // When
+        client.getForEntity("/api/clients/21", Client.class);
+        pets(21L);
+        long misses = statistics.getSecondLevelCacheMissCount();
+        long hits = statistics.getSecondLevelCacheHitCount();
+
+        // The serialized responses are removed so the entities are read again
+        responseCache.clear();
+        ResponseEntity<Client> response = client.getForEntity("/api/clients/21", Client.class);
+        List<Pet> pets = pets(21L);
+
+        // Then
+        assertEquals("Hueto", response.getBody().getName());
+        assertEquals(3, pets.size());
+        assertEquals(misses, statistics.getSecondLevelCacheMissCount());
+        assertTrue(statistics.getSecondLevelCacheHitCount() > hits);
+        assertTrue(statistics.getDomainDataRegionStatistics("client").getHitCount() > 0);
+        assertTrue(statistics.getDomainDataRegionStatistics("client.pets").getHitCount() > 0);
+    }
+
+    // To test that the statistics of the cache are in the metrics of the actuator
+    @Test
+    @SuppressWarnings("unchecked")
+    void cacheMetricsIntegrationTest() {
+
+        // Given
+        client.getForEntity("/api/clients/21", Client.class);
+        responseCache.clear();
+        client.getForEntity("/api/clients/21", Client.class);
+
+        // When
+        ResponseEntity<Map> requests = client.getForEntity("/actuator/metrics/hibernate.second.level.cache.requests?tag=result:hit", Map.class);
+        ResponseEntity<Map> evictions = client.getForEntity("/actuator/metrics/cache.evictions?tag=cache:client", Map.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, requests.getStatusCode());
+        List<Map<String, Object>> measurements = (List<Map<String, Object>>) requests.getBody().get("measurements");
+        assertTrue(((Number) measurements.get(0).get("value")).doubleValue() > 0);
+        assertEquals(HttpStatus.OK, evictions.getStatusCode());
+    }
+
+    // To test the cache after the method 'save' of the clients
+    @Test
+    void clientSaveIntegrationTest() {
+
+        // Given
+        client.getForEntity("/api/clients", Client[].class);
+
+        // When
+        Client newClient = client.postForEntity("/api/clients", new Client(null, "Ana", "Lopez", "ana@idoidraw.com", 5550374985L, null, null), Client.class).getBody();
+        ResponseEntity<Client> response = client.getForEntity("/api/clients/" + newClient.getId(), Client.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("Ana", response.getBody().getName());
+        assertEquals(6, client.getForEntity("/api/clients", Client[].class).getBody().length);
+    }
+
+    // To test the cache after the method 'update' of the clients
+    @Test
+    void clientUpdateIntegrationTest() {
+
+        // Given
+        client.getForEntity("/api/clients/21", Client.class);
+
+        // When
+        client.exchange("/api/clients/21", HttpMethod.PUT,
+                new HttpEntity<>(new Client(null, "Paul", "McCartney", "paul@idoidraw.com", 5550374985L, null, null)), Client.class);
+        Client clientDb = client.getForEntity("/api/clients/21", Client.class).getBody();
+
+        // Then
+        assertEquals("Paul", clientDb.getName());
+        assertEquals("McCartney", clientDb.getLastname());
+        assertEquals("paul@idoidraw.com", clientDb.getEmail());
+    }
+
+    // To test the cache after the method 'deleteById' of the clients (bulk statements)
+    @Test
+    void clientDeleteIntegrationTest() {
+
+        // Given
+        client.getForEntity("/api/clients/21", Client.class);
+        pets(21L);
+        client.getForEntity("/api/clients/21/addresses", Address.class);
+
+        // When
+        client.exchange("/api/clients/21", HttpMethod.DELETE, null, Client.class);
+
+        // Then
+        assertEquals(HttpStatus.NOT_FOUND, client.getForEntity("/api/clients/21", Client.class).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, client.getForEntity("/api/clients/21/pets", Void.class).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, client.getForEntity("/api/clients/21/addresses", Void.class).getStatusCode());
+    }
+
+    // To test the cache after the method 'savePetByClient' (the pet is inserted without loading the pets)
+    @Test
+    void petSaveIntegrationTest() {
+
+        // Given
+        assertEquals(3, pets(21L).size());
+
+        // When
+        client.postForEntity("/api/clients/21/pets", new Pet(null, "bobby", "perro", null, 2L, "vacunas"), Client.class);
+        List<Pet> pets = pets(21L);
+
+        // Then
+        assertEquals(4, pets.size());
+        assertTrue(pets.stream().anyMatch(pet -> pet.getName().equals("bobby")));
+    }
+
+    // To test the cache after the method 'editPetByClient' (bulk statement)
+    @Test
+    void petEditIntegrationTest() {
+
+        // Given
+        assertEquals(3, pets(21L).size());
+        client.getForEntity("/api/clients/pets/goliath", Client[].class);
+
+        // When
+        client.exchange("/api/clients/21/pets/201", HttpMethod.PUT,
+                new HttpEntity<>(new Pet(null, "rexy", "perro", "chihuahua", 5L, "vacunas")), Client.class);
+        List<Pet> pets = pets(21L);
+
+        // Then
+        assertEquals(3, pets.size());
+        assertTrue(pets.stream().anyMatch(pet -> pet.getName().equals("rexy") && pet.getAge() == 5L));
+        assertFalse(pets.stream().anyMatch(pet -> pet.getName().equals("goliath")));
+    }
+
+    // To test the cache after the method 'deletePetByClient' (bulk statement)
+    @Test
+    void petDeleteIntegrationTest() {
+
+        // Given
+        assertEquals(3, pets(21L).size());
+
+        // When
+        client.exchange("/api/clients/21/pets/201", HttpMethod.DELETE, null, Client.class);
+        List<Pet> pets = pets(21L);
+
+        // Then
+        assertEquals(2, pets.size());
+        assertFalse(pets.stream().anyMatch(pet -> pet.getId().equals(201L)));
+    }
+
+    // To test the cache after the method 'saveAddressByClient'
+    @Test
+    void addressSaveIntegrationTest() {
+
+        // Given: the client doesn't have an address
+        assertNull(client.getForEntity("/api/clients/51/addresses", Address.class).getBody());
+
+        // When
+        client.postForEntity("/api/clients/51/addresses", new Address(null, "independencia", "huichapan", "hidalgo", 45555L), Client.class);
+        ResponseEntity<Address> response = client.getForEntity("/api/clients/51/addresses", Address.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("independencia", response.getBody().getStreet());
+    }
+
+    // To test the cache after the method 'editAddressByClient'
+    @Test
+    void addressEditIntegrationTest() {
+
+        // Given
+        assertEquals("av. siempre viva", client.getForEntity("/api/clients/21/addresses", Address.class).getBody().getStreet());
+
+        // When
+        client.exchange("/api/clients/21/addresses", HttpMethod.PUT,
+                new HttpEntity<>(new Address(null, "san pancho", "chalco", "estado de mexico", 56600L)), Client.class);
+        Address address = client.getForEntity("/api/clients/21/addresses", Address.class).getBody();
+
+        // Then
+        assertEquals("san pancho", address.getStreet());
+        assertEquals(56600L, address.getCp());
+    }
+
+    // To test the cache after the method 'deleteAddressByClient'
+    @Test
+    void addressDeleteIntegrationTest() {
+
+        // Given
+        assertEquals(HttpStatus.OK, client.getForEntity("/api/clients/21/addresses", Address.class).getStatusCode());
+
+        // When
+        client.exchange("/api/clients/21/addresses", HttpMethod.DELETE, null, Client.class);
+
+        // Then
+        ResponseEntity<Address> response = client.getForEntity("/api/clients/21/addresses", Address.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
+}
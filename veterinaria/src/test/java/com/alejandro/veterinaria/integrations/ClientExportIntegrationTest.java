@@ -0,0 +1,105 @@
+package com.alejandro.veterinaria.integrations;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import com.alejandro.veterinaria.entities.ClientGraph;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// To load/insert the data on the file 'insert.sql'  
+// To use the configurations on application-test.properties
+// To start the test context with a random port, the persistence context is cleared every 2 clients
+@Sql(scripts = "/insert.sql") 
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "veterinaria.export.clear-interval=2")
+class ClientExportIntegrationTest {
+
+    // To inject the component of testRestTemplate
+    @Autowired
+    private TestRestTemplate client;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // To test the endpoint export with the format ndjson
+    @Test
+    void exportNdjsonIntegrationTest() throws IOException {
+
+        // When
+        ResponseEntity<String> response = client.getForEntity("/api/clients/export?format=ndjson", String.class);
+        List<String> lines = response.getBody().lines().toList();
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.parseMediaType("application/x-ndjson"), response.getHeaders().getContentType());
+        assertEquals(5, lines.size());
+
+        ClientGraph first = objectMapper.readValue(lines.get(0), ClientGraph.class);
+        assertEquals(21L, first.getId());
+        assertEquals("Hueto", first.getName());
+        assertEquals(3, first.getPets().size());
+        assertEquals("av. siempre viva", first.getAddress().getStreet());
+
+        ClientGraph withoutAddress = objectMapper.readValue(lines.get(3), ClientGraph.class);
+        assertEquals("Lennon", withoutAddress.getLastname());
+        assertTrue(withoutAddress.getPets().isEmpty());
+        assertNull(withoutAddress.getAddress());
+
+        ClientGraph last = objectMapper.readValue(lines.get(4), ClientGraph.class);
+        assertEquals(61L, last.getId());
+        assertEquals("rayas", last.getPets().get(0).getName());
+    }
+
+    // To test the endpoint export with the format csv, the file is compressed with gzip
+    @Test
+    void exportCsvIntegrationTest() throws IOException {
+
+        // When
+        ResponseEntity<byte[]> response = client.getForEntity("/api/clients/export?format=csv", byte[].class);
+        List<String> lines;
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(response.getBody()))) {
+            lines = new String(gzip.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getHeaders().getContentDisposition().isAttachment());
+        assertEquals("clients.csv.gz", response.getHeaders().getContentDisposition().getFilename());
+
+        // The header and a row for each pet (or for each client without pets)
+        assertEquals(10, lines.size());
+        assertEquals(String.join(",", ClientGraph.CSV_COLUMNS), lines.get(0));
+        assertTrue(lines.contains("John,Lennon,lennon@idoidraw.com,4520895423,,,,,,,,,"));
+        assertTrue(lines.contains("Celia,Bello,cazador19@idoidraw.com,1234977026,calle false 123,iztapalapa,cdmx,12585,nala,perro,,4,no quiere comer"));
+        assertEquals(3, lines.stream().filter(line -> line.startsWith("Hueto,")).count());
+    }
+
+    // To test the endpoint export with a format that doesn't exist
+    @Test
+    void exportBadFormatIntegrationTest() {
+
+        // When
+        ResponseEntity<String> response = client.getForEntity("/api/clients/export?format=xml", String.class);
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("{\"format\":\"El campo format debe ser ndjson o csv\"}", response.getBody());
+    }
+
+}
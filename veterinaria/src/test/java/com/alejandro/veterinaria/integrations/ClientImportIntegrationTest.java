@@ -0,0 +1,147 @@
+package com.alejandro.veterinaria.integrations;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import com.alejandro.veterinaria.cache.ClientResponseCache;
+import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.ImportReport;
+import com.alejandro.veterinaria.entities.Pet;
+import com.alejandro.veterinaria.search.ClientSearchIndex;
+import com.alejandro.veterinaria.search.PetSearchIndex;
+
+// To load/insert the data on the file 'insert.sql'  
+// To use the configurations on application-test.properties
+// To start the test context with a random port
+@Sql(scripts = "/insert.sql") 
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+class ClientImportIntegrationTest {
+
+    // To inject the component of testRestTemplate
+    @Autowired
+    private TestRestTemplate client;
+
+    @Autowired
+    private ClientSearchIndex searchIndex;
+
+    @Autowired
+    private PetSearchIndex petSearchIndex;
+
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    // The file 'insert.sql' doesn't use the services, so the search indexes are built again
+    // and the cached responses are removed
+    @BeforeEach
+    void setUp() {
+        responseCache.clear();
+        searchIndex.rebuild();
+        petSearchIndex.rebuild();
+    }
+
+    // To test the endpoint importNdjson with valid, invalid and duplicated records, the errors have the line of the file
+    @Test
+    void importNdjsonIntegrationTest() {
+
+        // Given
+        String body = String.join("\n",
+            "{\"name\":\" Javier \",\"lastname\":\"Mejia\",\"email\":\"enjambre@idoidraw.com\",\"phonenumber\":5550374984,"
+                + "\"address\":{\"street\":\"reforma\",\"state\":\"juarez\",\"city\":\"cdmx\",\"cp\":6600},"
+                + "\"pets\":[{\"name\":\"firulais\",\"specie\":\"perro\",\"age\":3,\"reasonForVisit\":\"vacunas\"},"
+                + "{\"name\":\"michi\",\"specie\":\"gato\",\"breed\":\"siames\",\"age\":2,\"reasonForVisit\":\"revision\"}]}",
+            "{\"name\":\"\",\"lastname\":\"Sin nombre\",\"email\":\"correo\",\"phonenumber\":5550374984}",
+            "",
+            "{\"name\":\"Alejandro\",\"lastname\":\"Granados\",\"email\":\"alejandro.magb@gmail.com\",\"phonenumber\":1538977020}",
+            "{not a json",
+            "{\"name\":\"Ana\",\"lastname\":\"Lopez\",\"email\":\"ana@idoidraw.com\",\"phonenumber\":5550374985}");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/x-ndjson"));
+
+        // When
+        ResponseEntity<ImportReport> response = client.postForEntity("/api/clients/import", new HttpEntity<>(body, headers), ImportReport.class);
+        ImportReport report = response.getBody();
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(5, report.getRecords());
+        assertEquals(2, report.getImported());
+        assertEquals(3, report.getFailed());
+        assertEquals(3, report.getErrors().size());
+
+        assertEquals(2, report.getErrors().get(0).getRecord());
+        assertEquals("El campo name must not be blank", report.getErrors().get(0).getErrors().get("name"));
+        assertEquals("El campo email must be a well-formed email address", report.getErrors().get(0).getErrors().get("email"));
+        assertEquals(4, report.getErrors().get(1).getRecord());
+        assertTrue(report.getErrors().get(1).getErrors().get("record").startsWith("Error! No se pudo guardar el registro"));
+        assertEquals(5, report.getErrors().get(2).getRecord());
+        assertEquals("El registro no es un json valido", report.getErrors().get(2).getErrors().get("record"));
+
+        // When: the imported client can be searched with its pets
+        ResponseEntity<Client[]> response2 = client.getForEntity("/api/clients/name/Javier", Client[].class);
+        List<Client> clients = Arrays.asList(response2.getBody());
+
+        // Then
+        assertEquals(1, clients.size());
+        assertEquals("Javier", clients.get(0).getName());
+
+        ResponseEntity<Pet[]> response3 = client.getForEntity("/api/clients/" + clients.get(0).getId() + "/pets", Pet[].class);
+        assertEquals(2, response3.getBody().length);
+
+        ResponseEntity<Client[]> response4 = client.getForEntity("/api/clients", Client[].class);
+        assertEquals(7, response4.getBody().length);
+    }
+
+    // To test the endpoint importCsv, the consecutive rows of the same client are joined
+    @Test
+    void importCsvIntegrationTest() {
+
+        // Given
+        String body = String.join("\n",
+            "name,lastname,email,phonenumber,street,state,city,cp,pet_name,pet_specie,pet_breed,pet_age,pet_reason_for_visit",
+            "Javier,Mejia,enjambre@idoidraw.com,5550374984,\"reforma, 222\",juarez,cdmx,6600,firulais,perro,,3,vacunas",
+            "Javier,Mejia,enjambre@idoidraw.com,5550374984,\"reforma, 222\",juarez,cdmx,6600,michi,gato,siames,2,\"revision \"\"anual\"\"\"",
+            "Ana,Lopez,ana@idoidraw.com,5550374985,,,,,,,,,",
+            "Pedro,Perez,pedro@idoidraw.com,5550374986,,,,,rocky,perro,,tres,vacunas");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv"));
+
+        // When
+        ResponseEntity<ImportReport> response = client.postForEntity("/api/clients/import", new HttpEntity<>(body, headers), ImportReport.class);
+        ImportReport report = response.getBody();
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(3, report.getRecords());
+        assertEquals(2, report.getImported());
+        assertEquals(1, report.getFailed());
+        assertEquals(5, report.getErrors().get(0).getRecord());
+        assertEquals("El campo pets[0].age debe ser un numero", report.getErrors().get(0).getErrors().get("pets[0].age"));
+
+        // When
+        ResponseEntity<Client[]> response2 = client.getForEntity("/api/clients/lastname/Mejia", Client[].class);
+        Client clientDb = response2.getBody()[0];
+        ResponseEntity<Pet[]> response3 = client.getForEntity("/api/clients/" + clientDb.getId() + "/pets", Pet[].class);
+        List<Pet> pets = Arrays.asList(response3.getBody());
+
+        // Then
+        assertEquals(2, pets.size());
+        assertEquals("firulais", pets.get(0).getName());
+        assertNull(pets.get(0).getBreed());
+        assertEquals("revision \"anual\"", pets.get(1).getReasonForVisit());
+    }
+
+}
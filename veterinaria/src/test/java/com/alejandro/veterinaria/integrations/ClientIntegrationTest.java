@@ -7,18 +7,28 @@ import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.http.*;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 
+import com.alejandro.veterinaria.cache.ClientResponseCache;
 import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.ClientBatch;
+import com.alejandro.veterinaria.entities.ClientDetail;
+import com.alejandro.veterinaria.entities.ClientPage;
+import com.alejandro.veterinaria.entities.ClientSummary;
 import com.alejandro.veterinaria.entities.ErrorMessage;
+import com.alejandro.veterinaria.entities.Pet;
+import com.alejandro.veterinaria.search.ClientSearchIndex;
+import com.alejandro.veterinaria.search.PetSearchIndex;
 
 // To load/insert the data on the file 'insert.sql'  
 // To use the configurations on application-test.properties
@@ -27,11 +37,31 @@ import com.alejandro.veterinaria.entities.ErrorMessage;
 @ActiveProfiles("test")
 @SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
 class ClientIntegrationTest {
+
+    private static final ParameterizedTypeReference<ClientPage<ClientSummary>> PAGE = new ParameterizedTypeReference<>() { };
     
     // To inject the component of testRestTemplate
     @Autowired
     private TestRestTemplate client;
 
+    @Autowired
+    private ClientSearchIndex searchIndex;
+
+    @Autowired
+    private PetSearchIndex petSearchIndex;
+
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    // The file 'insert.sql' doesn't use the services, so the search indexes are built again
+    // and the cached responses are removed
+    @BeforeEach
+    void setUp() {
+        responseCache.clear();
+        searchIndex.rebuild();
+        petSearchIndex.rebuild();
+    }
+
     // To test the endpoint getClients
     @Test
     void getClientsIntegrationTest() {
@@ -52,6 +82,152 @@ class ClientIntegrationTest {
 
     }
 
+    // To test the endpoint getClients when the pages are requested one after another
+    @Test
+    void getClientsPagesIntegrationTest() {
+
+        // When
+        ResponseEntity<ClientPage<ClientSummary>> response = client.exchange("/api/clients?size=2&count=true", HttpMethod.GET, null, PAGE);
+        ClientPage<ClientSummary> page = response.getBody();
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("5", response.getHeaders().getFirst("X-Total-Count"));
+        assertEquals(2, page.getContent().size());
+        assertEquals(21L, page.getContent().get(0).getId());
+        assertEquals(31L, page.getContent().get(1).getId());
+        assertNotNull(page.getNextCursor());
+
+        // When
+        ResponseEntity<ClientPage<ClientSummary>> response2 = client.exchange("/api/clients?size=2&cursor=" + page.getNextCursor(), HttpMethod.GET, null, PAGE);
+        ClientPage<ClientSummary> page2 = response2.getBody();
+
+        // Then
+        assertEquals(HttpStatus.OK, response2.getStatusCode());
+        assertNull(response2.getHeaders().getFirst("X-Total-Count"));
+        assertEquals(2, page2.getContent().size());
+        assertEquals(41L, page2.getContent().get(0).getId());
+        assertEquals(51L, page2.getContent().get(1).getId());
+        assertNotNull(page2.getNextCursor());
+
+        // When
+        ResponseEntity<ClientPage<ClientSummary>> response3 = client.exchange("/api/clients?size=2&cursor=" + page2.getNextCursor(), HttpMethod.GET, null, PAGE);
+        ClientPage<ClientSummary> page3 = response3.getBody();
+
+        // Then
+        assertEquals(HttpStatus.OK, response3.getStatusCode());
+        assertEquals(1, page3.getContent().size());
+        assertEquals(61L, page3.getContent().get(0).getId());
+        assertEquals("Alejandro", page3.getContent().get(0).name());
+        assertNull(page3.getNextCursor());
+
+    }
+
+    // To test the batch lookup, the clients are in the order of the request and the ids that don't exist are apart
+    @Test
+    void getClientsBatchIntegrationTest() {
+
+        // When
+        ResponseEntity<ClientBatch<ClientSummary>> response = client.exchange("/api/clients/batch?ids=61,999,21,21,41",
+                HttpMethod.GET, null, new ParameterizedTypeReference<ClientBatch<ClientSummary>>() { });
+        ClientBatch<ClientSummary> batch = response.getBody();
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(3, batch.getContent().size());
+        assertEquals(61L, batch.getContent().get(0).getId());
+        assertEquals("Alejandro", batch.getContent().get(0).name());
+        assertEquals(21L, batch.getContent().get(1).getId());
+        assertEquals(41L, batch.getContent().get(2).getId());
+        assertEquals(List.of(999L), batch.getMissing());
+
+        // When the pets are requested too
+        ResponseEntity<ClientBatch<ClientDetail>> expanded = client.exchange("/api/clients/batch?ids=21,61&expand=pets",
+                HttpMethod.GET, null, new ParameterizedTypeReference<ClientBatch<ClientDetail>>() { });
+
+        // Then
+        assertEquals(3, expanded.getBody().getContent().get(0).pets().size());
+        assertEquals(61L, expanded.getBody().getContent().get(1).getId());
+        assertTrue(expanded.getBody().getMissing().isEmpty());
+    }
+
+    // To test the endpoint getClient with its pets and its address in the same response
+    @Test
+    void getClientExpandIntegrationTest() {
+
+        // When
+        ResponseEntity<ClientDetail> response = client.getForEntity("/api/clients/21?expand=pets,address", ClientDetail.class);
+        ClientDetail clientDetail = response.getBody();
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getHeaders().getETag());
+        assertEquals("Hueto", clientDetail.name());
+        assertEquals(3, clientDetail.pets().size());
+        assertEquals("av. siempre viva", clientDetail.address().getStreet());
+
+        // When the pets of the client change the ETag changes too
+        client.postForEntity("/api/clients/21/pets", new Pet(null, "firulais", "perro", null, 2L, "tiene pulgas"), Client.class);
+        ResponseEntity<ClientDetail> response2 = client.getForEntity("/api/clients/21?expand=pets,address", ClientDetail.class);
+
+        // Then
+        assertEquals(4, response2.getBody().pets().size());
+        assertNotEquals(response.getHeaders().getETag(), response2.getHeaders().getETag());
+    }
+
+    // To test the endpoint getClients with the pets and the address of each client
+    @Test
+    void getClientsExpandIntegrationTest() {
+
+        // When
+        ResponseEntity<ClientDetail[]> response = client.getForEntity("/api/clients?expand=pets,address", ClientDetail[].class);
+        List<ClientDetail> clients = Arrays.asList(response.getBody());
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(5, clients.size());
+        assertEquals(21L, clients.get(0).getId());
+        assertEquals(3, clients.get(0).pets().size());
+        assertEquals("av. siempre viva", clients.get(0).address().getStreet());
+        assertEquals(51L, clients.get(3).getId());
+        assertNull(clients.get(3).address());
+
+        // When a page is requested with the pets of its clients
+        ResponseEntity<ClientPage<ClientDetail>> page = client.exchange("/api/clients?size=2&expand=pets", HttpMethod.GET, null,
+                new ParameterizedTypeReference<ClientPage<ClientDetail>>() { });
+
+        // Then
+        assertEquals(2, page.getBody().getContent().size());
+        assertEquals(3, page.getBody().getContent().get(0).pets().size());
+        assertNull(page.getBody().getContent().get(0).address());
+        assertNotNull(page.getBody().getNextCursor());
+    }
+
+    // To test the searches with the param 'expand'
+    @Test
+    void getClientsByPetNameExpandIntegrationTest() {
+
+        // When
+        ResponseEntity<ClientDetail[]> response = client.getForEntity("/api/clients/pets/goliath?expand=address", ClientDetail[].class);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, response.getBody().length);
+        assertNull(response.getBody()[0].pets());
+        assertEquals("av. siempre viva", response.getBody()[0].address().getStreet());
+    }
+
+    // To test the param 'expand' with an invalid value
+    @Test
+    void getClientExpandInvalidIntegrationTest() {
+
+        // When
+        ResponseEntity<String> response = client.getForEntity("/api/clients/21?expand=owner", String.class);
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
     // To test the endpoint getClient when we use an existing id
     @Test
     void getClientExistingIdIntegrationTest() {
@@ -179,6 +355,14 @@ class ClientIntegrationTest {
         assertEquals(HttpStatus.OK, response2.getStatusCode());
         assertFalse(clients.isEmpty());
         assertEquals(4, clients.size());
+
+        // When: the pets of the deleted client are not found anymore
+        ResponseEntity<Client[]> response3  = client.getForEntity("/api/clients/pets/goliath", Client[].class);
+        List<Client> owners = Arrays.asList(response3.getBody()); 
+
+        // Then
+        assertEquals(1, owners.size());
+        assertEquals(21L, owners.get(0).getId());
         
     }
 
@@ -228,6 +412,93 @@ class ClientIntegrationTest {
 
     }
 
+    // To test the endpoint getClientsByPetNameLike when a client has many pets with the name
+    @Test
+    void getClientsByPetNameLikeDistinctIntegrationTest() {
+
+        // When: the client 21 has 3 pets with an 'a' in their name
+        ResponseEntity<Client[]> response  = client.getForEntity("/api/clients/pets/A", Client[].class);
+        List<Client> clients = Arrays.asList(response.getBody()); 
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(4, clients.size());
+        assertEquals(21L, clients.get(0).getId());
+        assertEquals(31L, clients.get(1).getId());
+        assertEquals(41L, clients.get(2).getId());
+        assertEquals(61L, clients.get(3).getId());
+    }
+
+    // To test the endpoint getClientsByName, the search doesn't distinguish uppercase and lowercase
+    @Test
+    void getClientsByNameIntegrationTest() {
+
+        // When
+        ResponseEntity<Client[]> response  = client.getForEntity("/api/clients/name/ALEJ", Client[].class);
+        List<Client> clients = Arrays.asList(response.getBody()); 
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, clients.size());
+        assertEquals(61L, clients.get(0).getId());
+        assertEquals("Alejandro", clients.get(0).getName());
+
+        // When: a text shorter than a trigram
+        ResponseEntity<Client[]> response2  = client.getForEntity("/api/clients/name/an", Client[].class);
+        List<Client> clients2 = Arrays.asList(response2.getBody()); 
+
+        // Then
+        assertEquals(2, clients2.size());
+        assertEquals(41L, clients2.get(0).getId());
+        assertEquals(61L, clients2.get(1).getId());
+
+        // When: a text that no client has
+        ResponseEntity<Client[]> response3  = client.getForEntity("/api/clients/name/xyz", Client[].class);
+
+        // Then
+        assertEquals(HttpStatus.OK, response3.getStatusCode());
+        assertEquals(0, response3.getBody().length);
+    }
+
+    // To test the endpoint getClientsByLastname
+    @Test
+    void getClientsByLastnameIntegrationTest() {
+
+        // When
+        ResponseEntity<Client[]> response  = client.getForEntity("/api/clients/lastname/nzal", Client[].class);
+        List<Client> clients = Arrays.asList(response.getBody()); 
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, clients.size());
+        assertEquals(41L, clients.get(0).getId());
+        assertEquals("Gonzalez", clients.get(0).getLastname());
+    }
+
+    // To test that the search uses the new names after the clients are created, updated or deleted
+    @Test
+    void searchAfterChangesIntegrationTest() {
+
+        // Given
+        client.postForEntity("/api/clients", new Client(null, " Ana ", " Navarro ", "ana@idoidraw.com", 5550374984L, null, null), Client.class);
+        client.exchange("/api/clients/51", HttpMethod.PUT,
+                new HttpEntity<>(new Client(null, "Paul", "McCartney", "paul@idoidraw.com", 5550374985L, null, null)), Client.class);
+        client.exchange("/api/clients/21", HttpMethod.DELETE, null, Client.class);
+
+        // When
+        List<Client> navas = Arrays.asList(client.getForEntity("/api/clients/lastname/nava", Client[].class).getBody());
+        List<Client> lennons = Arrays.asList(client.getForEntity("/api/clients/lastname/lennon", Client[].class).getBody());
+        List<Client> pauls = Arrays.asList(client.getForEntity("/api/clients/name/paul", Client[].class).getBody());
+
+        // Then
+        assertEquals(1, navas.size());
+        assertEquals("Ana", navas.get(0).getName());
+        assertEquals("Navarro", navas.get(0).getLastname());
+        assertTrue(lennons.isEmpty());
+        assertEquals(1, pauls.size());
+        assertEquals(51L, pauls.get(0).getId());
+    }
+
     // To test the validation in the DB: it doesn't allow to insert the same record
     @Test
     void clientPostDuplicateRecordsIntegrationTest() {
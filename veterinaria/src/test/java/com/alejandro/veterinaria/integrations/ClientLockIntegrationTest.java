@@ -0,0 +1,85 @@
+package com.alejandro.veterinaria.integrations;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import com.alejandro.veterinaria.cache.ClientResponseCache;
+import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.Pet;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// To load/insert the data on the file 'insert.sql'
+// To use the configurations on application-test.properties
+// To start the test context with a random port
+@Sql(scripts = "/insert.sql")
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+class ClientLockIntegrationTest {
+
+    // To inject the component of testRestTemplate
+    @Autowired
+    private TestRestTemplate client;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    // The file 'insert.sql' doesn't use the services, so the cached responses are removed
+    @BeforeEach
+    void setUp() {
+        responseCache.clear();
+    }
+
+    // To test that the pets that are added to the same client at the same time are all saved,
+    // and that the time waiting for the lock of the client is measured
+    @Test
+    void postPetsSameClientIntegrationTest() throws Exception {
+
+        // Given
+        double before = registry.find("veterinaria.client.lock.wait").tag("method", "savePetByClient").timers().stream()
+                .mapToDouble(timer -> timer.count()).sum();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<ResponseEntity<Client>>> requests = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Pet pet = new Pet(null, "cachorro " + i, "perro", null, 1L, "vacunas");
+            requests.add(() -> client.postForEntity("/api/clients/21/pets", pet, Client.class));
+        }
+
+        // When
+        List<Future<ResponseEntity<Client>>> responses = executor.invokeAll(requests);
+        executor.shutdown();
+
+        // Then
+        for (Future<ResponseEntity<Client>> response : responses) {
+            assertEquals(HttpStatus.CREATED, response.get().getStatusCode());
+        }
+        assertEquals(8, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pet WHERE id_client = 21 AND name LIKE 'cachorro %'", Integer.class));
+        assertEquals(before + 8, registry.get("veterinaria.client.lock.wait").tag("method", "savePetByClient").timer().count());
+        assertEquals(11, client.getForObject("/api/clients/21/pets", Pet[].class).length);
+    }
+
+}
@@ -0,0 +1,156 @@
+package com.alejandro.veterinaria.integrations;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import com.alejandro.veterinaria.cache.ClientResponseCache;
+import com.alejandro.veterinaria.entities.Address;
+import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.Pet;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// To load/insert the data on the file 'insert.sql'  
+// To use the configurations on application-test.properties
+// To start the test context with a random port
+// The data is changed with jdbc (without the services) to know if a response comes from the cache
+@Sql(scripts = "/insert.sql") 
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+class ClientResponseCacheIntegrationTest {
+
+    // To inject the component of testRestTemplate
+    @Autowired
+    private TestRestTemplate client;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    // The file 'insert.sql' doesn't use the services, so the cached responses are removed
+    @BeforeEach
+    void setUp() {
+        responseCache.clear();
+    }
+
+    private List<Pet> pets(Long clientId) {
+        return Arrays.asList(client.getForEntity("/api/clients/" + clientId + "/pets", Pet[].class).getBody());
+    }
+
+    // To test that the second read of a client is served from the cache
+    // and that the update of the client invalidates it
+    @Test
+    void clientIntegrationTest() {
+
+        // Given
+        client.getForEntity("/api/clients/21", Client.class);
+        jdbcTemplate.update("UPDATE client SET name = 'Otro' WHERE id_client = 21");
+
+        // When
+        Client cached = client.getForEntity("/api/clients/21", Client.class).getBody();
+
+        Client editClient = new Client(null, "Hugo", "Navejas", "hekevim148@idoidraw.com", 1538971230L, null, null);
+        client.put("/api/clients/21", editClient);
+        Client updated = client.getForEntity("/api/clients/21", Client.class).getBody();
+
+        // Then
+        assertEquals("Hueto", cached.getName());
+        assertEquals("Hugo", updated.getName());
+    }
+
+    // To test that the new pets of a client invalidate the cached pets
+    @Test
+    void petsIntegrationTest() {
+
+        // Given
+        assertEquals(3, pets(21L).size());
+        jdbcTemplate.update("DELETE FROM pet WHERE id_pet = 901");
+        assertEquals(3, pets(21L).size());
+
+        // When
+        Pet newPet = new Pet(null, "firulais", "perro", "salchicha", 2L, "tiene pulgas");
+        client.postForEntity("/api/clients/21/pets", newPet, Client.class);
+        List<Pet> pets = pets(21L);
+
+        // Then
+        assertEquals(3, pets.size());
+        assertTrue(pets.stream().anyMatch(pet -> pet.getName().equals("firulais")));
+        assertFalse(pets.stream().anyMatch(pet -> pet.getName().equals("guana")));
+    }
+
+    // To test that the deletion of an address invalidates the cached address
+    @Test
+    void addressIntegrationTest() {
+
+        // Given
+        ResponseEntity<Address> before = client.getForEntity("/api/clients/21/addresses", Address.class);
+
+        // When
+        client.delete("/api/clients/21/addresses");
+        ResponseEntity<Address> after = client.getForEntity("/api/clients/21/addresses", Address.class);
+
+        // Then
+        assertEquals("av. siempre viva", before.getBody().getStreet());
+        assertEquals(HttpStatus.OK, after.getStatusCode());
+        assertNull(after.getBody());
+    }
+
+    // To test that the deleted clients are not served from the cache
+    @Test
+    void deleteIntegrationTest() {
+
+        // Given
+        client.getForEntity("/api/clients/41", Client.class);
+
+        // When
+        client.delete("/api/clients/41");
+        ResponseEntity<Client> response = client.getForEntity("/api/clients/41", Client.class);
+
+        // Then
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    // To test that the compressed response is sent when the client accepts it
+    @Test
+    void gzipIntegrationTest() throws IOException {
+
+        // Given
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+
+        // When
+        ResponseEntity<byte[]> response = client.exchange("/api/clients/21/pets", HttpMethod.GET,
+                new HttpEntity<>(headers), byte[].class);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeaders().getFirst(HttpHeaders.VARY));
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(response.getBody()))) {
+            Pet[] pets = objectMapper.readValue(input, Pet[].class);
+            assertEquals(3, pets.length);
+        }
+    }
+
+}
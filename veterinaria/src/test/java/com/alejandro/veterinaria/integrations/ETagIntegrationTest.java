@@ -0,0 +1,233 @@
+package com.alejandro.veterinaria.integrations;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import com.alejandro.veterinaria.cache.ClientResponseCache;
+import com.alejandro.veterinaria.entities.Address;
+import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.ErrorMessage;
+import com.alejandro.veterinaria.entities.Pet;
+
+// To load/insert the data on the file 'insert.sql'  
+// To use the configurations on application-test.properties
+// To start the test context with a random port
+@Sql(scripts = "/insert.sql") 
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+class ETagIntegrationTest {
+
+    // To inject the component of testRestTemplate
+    @Autowired
+    private TestRestTemplate client;
+
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    // The file 'insert.sql' doesn't use the services, so the cached responses are removed
+    @BeforeEach
+    void setUp() {
+        responseCache.clear();
+    }
+
+    private <T> ResponseEntity<T> get(String url, String ifNoneMatch, Class<T> type) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(ifNoneMatch);
+        return client.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), type);
+    }
+
+    private <T> ResponseEntity<T> put(String url, Object body, String ifMatch, Class<T> type) {
+        HttpHeaders headers = new HttpHeaders();
+        if (ifMatch != null) {
+            headers.setIfMatch(ifMatch);
+        }
+        return client.exchange(url, HttpMethod.PUT, new HttpEntity<>(body, headers), type);
+    }
+
+    // To test that a client has an ETag and that the same ETag gets a 304 (from the db and from the cache)
+    @Test
+    void getClientNotModifiedIntegrationTest() {
+
+        // Given
+        ResponseEntity<Client> response = client.getForEntity("/api/clients/21", Client.class);
+        String eTag = response.getHeaders().getETag();
+
+        // When
+        responseCache.clear();
+        ResponseEntity<Client> notModified = get("/api/clients/21", eTag, Client.class);
+        ResponseEntity<Client> cached = get("/api/clients/21", eTag, Client.class);
+        ResponseEntity<Client> modified = get("/api/clients/21", "\"21-5\"", Client.class);
+
+        // Then
+        assertEquals("\"21-0\"", eTag);
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertNull(notModified.getBody());
+        assertEquals(HttpStatus.NOT_MODIFIED, cached.getStatusCode());
+        assertEquals(HttpStatus.OK, modified.getStatusCode());
+        assertEquals("Hueto", modified.getBody().getName());
+    }
+
+    // To test that an update with the current ETag changes the version of the client
+    // and that an update with an old ETag gets a 412
+    @Test
+    void updateClientIfMatchIntegrationTest() {
+
+        // Given
+        Client editClient = new Client(null, "Hugo", "Navejas", "hekevim148@idoidraw.com", 1538971230L, null, null);
+
+        // When
+        ResponseEntity<Client> updated = put("/api/clients/21", editClient, "\"21-0\"", Client.class);
+        ResponseEntity<ErrorMessage> conflict = put("/api/clients/21", editClient, "\"21-0\"", ErrorMessage.class);
+        ResponseEntity<Client> response = client.getForEntity("/api/clients/21", Client.class);
+
+        // Then
+        assertEquals(HttpStatus.CREATED, updated.getStatusCode());
+        assertEquals("\"21-1\"", updated.getHeaders().getETag());
+        assertEquals(HttpStatus.PRECONDITION_FAILED, conflict.getStatusCode());
+        assertEquals(412, conflict.getBody().getStatus());
+        assertEquals("\"21-1\"", response.getHeaders().getETag());
+        assertEquals("Hugo", response.getBody().getName());
+    }
+
+    // To test that an update with the header 'If-Match: *' (or without it) is not checked
+    // and that an update without changes doesn't change the version
+    @Test
+    void updateClientWithoutIfMatchIntegrationTest() {
+
+        // Given
+        Client editClient = new Client(null, "Hugo", "Navejas", "hekevim148@idoidraw.com", 1538971230L, null, null);
+        Client sameClient = new Client(null, "Hugo", "Navejas", "hekevim148@idoidraw.com", 1538971230L, null, null);
+        Client otherClient = new Client(null, "Hector", "Navejas", "hekevim148@idoidraw.com", 1538971230L, null, null);
+
+        // When
+        put("/api/clients/21", editClient, "\"21-0\"", Client.class);
+        ResponseEntity<Client> same = put("/api/clients/21", sameClient, "*", Client.class);
+        ResponseEntity<Client> updated = put("/api/clients/21", otherClient, null, Client.class);
+
+        // Then
+        assertEquals(HttpStatus.CREATED, same.getStatusCode());
+        assertEquals("\"21-1\"", same.getHeaders().getETag());
+        assertEquals(HttpStatus.CREATED, updated.getStatusCode());
+        assertEquals("\"21-2\"", updated.getHeaders().getETag());
+    }
+
+    // To test that the update of a pet changes the ETag of the pets of the client
+    // and that an update with an old ETag gets a 412
+    @Test
+    void updatePetIfMatchIntegrationTest() {
+
+        // Given
+        String eTag = client.getForEntity("/api/clients/21/pets", Pet[].class).getHeaders().getETag();
+        Pet editPet = new Pet(null, "goliath", "perro", "chihuahua", 5L, "vomita mucho");
+
+        // When
+        ResponseEntity<Client> updated = put("/api/clients/21/pets/201", editPet, "\"201-0\"", Client.class);
+        ResponseEntity<ErrorMessage> conflict = put("/api/clients/21/pets/201", editPet, "\"201-0\"", ErrorMessage.class);
+        ResponseEntity<ErrorMessage> otherPet = put("/api/clients/21/pets/201", editPet, "\"301-0\"", ErrorMessage.class);
+        ResponseEntity<Pet[]> pets = get("/api/clients/21/pets", eTag, Pet[].class);
+
+        // Then
+        assertEquals(HttpStatus.CREATED, updated.getStatusCode());
+        assertEquals("\"201-1\"", updated.getHeaders().getETag());
+        assertEquals(HttpStatus.PRECONDITION_FAILED, conflict.getStatusCode());
+        assertEquals(HttpStatus.PRECONDITION_FAILED, otherPet.getStatusCode());
+        assertEquals(HttpStatus.OK, pets.getStatusCode());
+        assertNotEquals(eTag, pets.getHeaders().getETag());
+    }
+
+    // To test that the ETag of a pet can be read and used to update it, and that the next update
+    // can use the ETag of the response of the update
+    @Test
+    void getPetThenUpdateIfMatchIntegrationTest() {
+
+        // Given
+        ResponseEntity<Pet> pet = client.getForEntity("/api/clients/21/pets/301", Pet.class);
+        Pet editPet = new Pet(null, "baguira", "perro", "pastor aleman", 16L, "le duele el estomago");
+        Pet otherPet = new Pet(null, "baguira", "perro", "pastor aleman", 17L, "le duele el estomago");
+
+        // When
+        ResponseEntity<Pet> notModified = get("/api/clients/21/pets/301", pet.getHeaders().getETag(), Pet.class);
+        ResponseEntity<Client> updated = put("/api/clients/21/pets/301", editPet, pet.getHeaders().getETag(), Client.class);
+        ResponseEntity<Client> updatedAgain = put("/api/clients/21/pets/301", otherPet, updated.getHeaders().getETag(), Client.class);
+        ResponseEntity<Pet> otherClient = client.getForEntity("/api/clients/61/pets/301", Pet.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, pet.getStatusCode());
+        assertEquals("\"301-0\"", pet.getHeaders().getETag());
+        assertEquals(301L, pet.getBody().getId());
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertEquals(HttpStatus.CREATED, updated.getStatusCode());
+        assertEquals("\"301-1\"", updated.getHeaders().getETag());
+        assertEquals(HttpStatus.CREATED, updatedAgain.getStatusCode());
+        assertEquals("\"301-2\"", updatedAgain.getHeaders().getETag());
+        assertEquals(HttpStatus.NOT_FOUND, otherClient.getStatusCode());
+    }
+
+    // To test that an update of a pet of another client is still a 404 when 'If-Match' is sent
+    @Test
+    void updatePetOfOtherClientIfMatchIntegrationTest() {
+
+        // Given
+        Pet editPet = new Pet(null, "goliath", "perro", "chihuahua", 5L, "vomita mucho");
+
+        // When
+        ResponseEntity<Client> response = put("/api/clients/61/pets/201", editPet, "\"201-0\"", Client.class);
+
+        // Then
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    // To test the ETag of the address and the update with an old ETag
+    @Test
+    void updateAddressIfMatchIntegrationTest() {
+
+        // Given
+        String eTag = client.getForEntity("/api/clients/21/addresses", Address.class).getHeaders().getETag();
+        Address editAddress = new Address(null, "av. siempre viva 742", "venustiano carranza", "cdmx", 56512L);
+
+        // When
+        ResponseEntity<Client> updated = put("/api/clients/21/addresses", editAddress, eTag, Client.class);
+        ResponseEntity<ErrorMessage> conflict = put("/api/clients/21/addresses", editAddress, eTag, ErrorMessage.class);
+        ResponseEntity<Address> address = get("/api/clients/21/addresses", eTag, Address.class);
+
+        // Then
+        assertEquals("\"2001-0\"", eTag);
+        assertEquals(HttpStatus.CREATED, updated.getStatusCode());
+        assertEquals("\"2001-1\"", updated.getHeaders().getETag());
+        assertEquals(HttpStatus.PRECONDITION_FAILED, conflict.getStatusCode());
+        assertEquals(HttpStatus.OK, address.getStatusCode());
+        assertEquals("\"2001-1\"", address.getHeaders().getETag());
+        assertEquals("av. siempre viva 742", address.getBody().getStreet());
+    }
+
+    // To test that the list of clients gets a 304 until a client changes
+    @Test
+    void getClientsNotModifiedIntegrationTest() {
+
+        // Given
+        String eTag = client.getForEntity("/api/clients", Client[].class).getHeaders().getETag();
+
+        // When
+        ResponseEntity<Client[]> notModified = get("/api/clients", eTag, Client[].class);
+        put("/api/clients/21", new Client(null, "Hugo", "Navejas", "hekevim148@idoidraw.com", 1538971230L, null, null),
+                null, Client.class);
+        ResponseEntity<Client[]> modified = get("/api/clients", eTag, Client[].class);
+
+        // Then
+        assertNotNull(eTag);
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertEquals(HttpStatus.OK, modified.getStatusCode());
+        assertEquals(5, modified.getBody().length);
+    }
+
+}
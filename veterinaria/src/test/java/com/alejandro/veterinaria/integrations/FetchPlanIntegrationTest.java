@@ -0,0 +1,144 @@
+package com.alejandro.veterinaria.integrations;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.hibernate.Hibernate;
+import org.hibernate.LazyInitializationException;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.*;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import com.alejandro.veterinaria.cache.ClientResponseCache;
+import com.alejandro.veterinaria.entities.Address;
+import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.Pet;
+import com.alejandro.veterinaria.services.AddressService;
+import com.alejandro.veterinaria.services.ClientService;
+import com.alejandro.veterinaria.services.PetService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// To load/insert the data on the file 'insert.sql'  
+// To use the configurations on application-test.properties
+// To start the test context with a random port
+// The entities are used after the transaction of the service ends, so a lazy load would fail
+@Sql(scripts = "/insert.sql") 
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT,
+        properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class FetchPlanIntegrationTest {
+
+    // To inject the component of testRestTemplate
+    @Autowired
+    private TestRestTemplate client;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private AddressService addressService;
+
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        responseCache.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    // To test that the entity manager is not kept open during the request (open session in view)
+    @Test
+    void openInViewDisabledIntegrationTest() {
+        assertTrue(context.getBeansOfType(OpenEntityManagerInViewInterceptor.class).isEmpty());
+    }
+
+    // To test that 'findById' only loads the client, and that its pets and its address
+    // can't be loaded after the transaction
+    @Test
+    void findByIdIntegrationTest() {
+
+        // When
+        Client clientDb = clientService.findById(21L).orElseThrow();
+
+        // Then
+        assertEquals("Hueto", clientDb.getName());
+        assertFalse(Hibernate.isInitialized(clientDb.getPets()));
+        assertFalse(Hibernate.isInitialized(clientDb.getAddress()));
+        assertThrows(LazyInitializationException.class, () -> clientDb.getPets().size());
+    }
+
+    // To test that 'findPetsByClient' returns the pets already loaded
+    @Test
+    void findPetsByClientIntegrationTest() {
+
+        // When
+        List<Pet> pets = petService.findPetsByClient(21L).orElseThrow();
+
+        // Then
+        assertEquals(3, pets.size());
+        assertTrue(pets.stream().anyMatch(pet -> pet.getName().equals("goliath")));
+        assertTrue(petService.findPetsByClient(999999L).isEmpty());
+    }
+
+    // To test that 'findAddressByClient' loads the client and its address with one query
+    @Test
+    void findAddressByClientIntegrationTest() {
+
+        // When
+        Client clientDb = addressService.findAddressByClient(21L).orElseThrow();
+
+        // Then
+        assertTrue(Hibernate.isInitialized(clientDb.getAddress()));
+        assertEquals("av. siempre viva", clientDb.getAddress().getStreet());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    // To test that the endpoints that use the pets and the address don't need an open session
+    @Test
+    void endpointsIntegrationTest() {
+
+        // When
+        ResponseEntity<Pet[]> pets = client.getForEntity("/api/clients/21/pets", Pet[].class);
+        ResponseEntity<Address> address = client.getForEntity("/api/clients/21/addresses", Address.class);
+        ResponseEntity<Address> noAddress = client.getForEntity("/api/clients/51/addresses", Address.class);
+        ResponseEntity<Client> clientResponse = client.getForEntity("/api/clients/21", Client.class);
+        ResponseEntity<String> export = client.getForEntity("/api/clients/export", String.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, pets.getStatusCode());
+        assertEquals(3, pets.getBody().length);
+        assertEquals(HttpStatus.OK, address.getStatusCode());
+        assertEquals("av. siempre viva", address.getBody().getStreet());
+        assertEquals(HttpStatus.OK, noAddress.getStatusCode());
+        assertNull(noAddress.getBody());
+        assertEquals(HttpStatus.OK, clientResponse.getStatusCode());
+        assertEquals(HttpStatus.OK, export.getStatusCode());
+        assertTrue(export.getBody().contains("goliath"));
+    }
+
+}
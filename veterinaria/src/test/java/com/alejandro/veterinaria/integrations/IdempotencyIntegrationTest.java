@@ -0,0 +1,150 @@
+package com.alejandro.veterinaria.integrations;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import com.alejandro.veterinaria.cache.ClientResponseCache;
+import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.ErrorMessage;
+import com.alejandro.veterinaria.entities.Pet;
+import com.alejandro.veterinaria.idempotency.IdempotencyFilter;
+
+// To load/insert the data on the file 'insert.sql'
+// To use the configurations on application-test.properties
+// To start the test context with a random port
+@Sql(scripts = "/insert.sql")
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+class IdempotencyIntegrationTest {
+
+    // To inject the component of testRestTemplate
+    @Autowired
+    private TestRestTemplate client;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    // The file 'insert.sql' doesn't use the services, so the cached responses are removed
+    @BeforeEach
+    void setUp() {
+        responseCache.clear();
+    }
+
+    private <T> ResponseEntity<T> post(String url, Object body, String key, Class<T> type) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(IdempotencyFilter.IDEMPOTENCY_KEY, key);
+        return client.exchange(url, HttpMethod.POST, new HttpEntity<>(body, headers), type);
+    }
+
+    // To test that a request sent again with the same key gets the same response and the client is saved once
+    @Test
+    void postClientSameKeyIntegrationTest() {
+
+        // Given
+        String key = UUID.randomUUID().toString();
+        Client clientToInsert = new Client(null, "Javier", "Mejia", "enjambre@idoidraw.com", 5550374984L, null, null);
+
+        // When
+        ResponseEntity<Client> first = post("/api/clients", clientToInsert, key, Client.class);
+        ResponseEntity<Client> second = post("/api/clients", clientToInsert, key, Client.class);
+
+        // Then
+        assertEquals(HttpStatus.CREATED, first.getStatusCode());
+        assertNull(first.getHeaders().getFirst(IdempotencyFilter.IDEMPOTENT_REPLAYED));
+        assertEquals(HttpStatus.CREATED, second.getStatusCode());
+        assertEquals("true", second.getHeaders().getFirst(IdempotencyFilter.IDEMPOTENT_REPLAYED));
+        assertEquals(MediaType.APPLICATION_JSON, second.getHeaders().getContentType());
+        assertEquals(first.getBody().getId(), second.getBody().getId());
+        assertEquals("Javier", second.getBody().getName());
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM client WHERE email = 'enjambre@idoidraw.com'", Integer.class));
+    }
+
+    // To test that a pet sent again with the same key is saved once
+    @Test
+    void postPetSameKeyIntegrationTest() {
+
+        // Given
+        String key = UUID.randomUUID().toString();
+        Pet petToInsert = new Pet(null, "quicks", "perro", null, 3L, "vacunas");
+
+        // When
+        ResponseEntity<Client> first = post("/api/clients/21/pets", petToInsert, key, Client.class);
+        ResponseEntity<Client> second = post("/api/clients/21/pets", petToInsert, key, Client.class);
+
+        // Then
+        assertEquals(HttpStatus.CREATED, first.getStatusCode());
+        assertEquals(HttpStatus.CREATED, second.getStatusCode());
+        assertEquals("true", second.getHeaders().getFirst(IdempotencyFilter.IDEMPOTENT_REPLAYED));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pet WHERE id_client = 21 AND name = 'quicks'", Integer.class));
+    }
+
+    // To test that a key can't be used with another request
+    @Test
+    void postSameKeyOtherRequestIntegrationTest() {
+
+        // Given
+        String key = UUID.randomUUID().toString();
+        Client clientToInsert = new Client(null, "Javier", "Mejia", "enjambre@idoidraw.com", 5550374984L, null, null);
+        Client otherClient = new Client(null, "Ana", "Lopez", "ana@idoidraw.com", 5550374985L, null, null);
+
+        // When
+        post("/api/clients", clientToInsert, key, Client.class);
+        ResponseEntity<ErrorMessage> response = post("/api/clients", otherClient, key, ErrorMessage.class);
+        ResponseEntity<ErrorMessage> otherPath = post("/api/clients/21/pets", clientToInsert, key, ErrorMessage.class);
+
+        // Then
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+        assertEquals("Error! El encabezado Idempotency-Key ya se uso con otra peticion.", response.getBody().getError());
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, otherPath.getStatusCode());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM client WHERE email = 'ana@idoidraw.com'", Integer.class));
+    }
+
+    // To test that the server errors are not saved, so the request can be sent again with the same key
+    @Test
+    void postServerErrorIntegrationTest() {
+
+        // Given
+        String key = UUID.randomUUID().toString();
+        Client duplicated = new Client(null, "Hueto", "Navejas", "hekevim148@idoidraw.com", 1538971230L, null, null);
+
+        // When
+        ResponseEntity<ErrorMessage> first = post("/api/clients", duplicated, key, ErrorMessage.class);
+        ResponseEntity<ErrorMessage> second = post("/api/clients", duplicated, key, ErrorMessage.class);
+
+        // Then
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, first.getStatusCode());
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, second.getStatusCode());
+        assertNull(second.getHeaders().getFirst(IdempotencyFilter.IDEMPOTENT_REPLAYED));
+    }
+
+    // To test that the key must have between 1 and 255 characters
+    @Test
+    void postInvalidKeyIntegrationTest() {
+
+        // When
+        ResponseEntity<ErrorMessage> response = post("/api/clients",
+            new Client(null, "Javier", "Mejia", "enjambre@idoidraw.com", 5550374984L, null, null), "k".repeat(256), ErrorMessage.class);
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM client WHERE email = 'enjambre@idoidraw.com'", Integer.class));
+    }
+
+}
@@ -0,0 +1,156 @@
+package com.alejandro.veterinaria.integrations;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.*;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import com.alejandro.veterinaria.cache.ClientResponseCache;
+import com.alejandro.veterinaria.entities.Address;
+import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.Pet;
+import com.alejandro.veterinaria.utils.UtilPatch;
+
+// To load/insert the data on the file 'insert.sql'
+// To use the configurations on application-test.properties
+// To start the test context with a random port
+@Sql(scripts = "/insert.sql")
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+class PatchIntegrationTest {
+
+    private static final ParameterizedTypeReference<Map<String, String>> ERRORS = new ParameterizedTypeReference<>() {};
+
+    // To inject the component of testRestTemplate
+    @Autowired
+    private TestRestTemplate client;
+
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    // The file 'insert.sql' doesn't use the services, so the cached responses are removed
+    @BeforeEach
+    void setUp() {
+        responseCache.clear();
+    }
+
+    private <T> ResponseEntity<T> patch(String url, String body, String ifMatch, ParameterizedTypeReference<T> type) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(UtilPatch.MERGE_PATCH_JSON));
+        if (ifMatch != null) {
+            headers.setIfMatch(ifMatch);
+        }
+        return client.exchange(url, HttpMethod.PATCH, new HttpEntity<>(body, headers), type);
+    }
+
+    private <T> ResponseEntity<T> patch(String url, String body, String ifMatch, Class<T> type) {
+        return patch(url, body, ifMatch, ParameterizedTypeReference.forType(type));
+    }
+
+    // To test that a patch only changes the attributes that were sent
+    @Test
+    void patchClientIntegrationTest() {
+
+        // When
+        ResponseEntity<Client> response = patch("/api/clients/21", "{\"email\": \"hueto@idoidraw.com\"}", "\"21-0\"", Client.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"21-1\"", response.getHeaders().getETag());
+
+        Client clientDb = client.getForObject("/api/clients/21", Client.class);
+        assertEquals("Hueto", clientDb.getName());
+        assertEquals("Navejas", clientDb.getLastname());
+        assertEquals("hueto@idoidraw.com", clientDb.getEmail());
+        assertEquals(1538971230L, clientDb.getPhonenumber());
+    }
+
+    // To test that a patch without changes doesn't write the client, so its version is the same
+    @Test
+    void patchClientWithoutChangesIntegrationTest() {
+
+        // When
+        ResponseEntity<Client> response = patch("/api/clients/21", "{\"name\": \" Hueto \", \"lastname\": \"Navejas\"}", null, Client.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"21-0\"", response.getHeaders().getETag());
+        assertEquals("\"21-0\"", client.getForEntity("/api/clients/21", Client.class).getHeaders().getETag());
+    }
+
+    // To test the patches that can't be applied
+    @Test
+    void patchClientInvalidIntegrationTest() {
+
+        // When
+        ResponseEntity<Map<String, String>> invalid = patch("/api/clients/21", "{\"email\": \"correo\"}", null, ERRORS);
+        ResponseEntity<Map<String, String>> notEditable = patch("/api/clients/21", "{\"id\": 22}", null, ERRORS);
+        ResponseEntity<Client> oldVersion = patch("/api/clients/21", "{\"name\": \"Angel\"}", "\"21-5\"", Client.class);
+        ResponseEntity<Client> inexisting = patch("/api/clients/999999", "{\"name\": \"Angel\"}", null, Client.class);
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, invalid.getStatusCode());
+        assertTrue(invalid.getBody().get("email").startsWith("El campo email "));
+        assertEquals(HttpStatus.BAD_REQUEST, notEditable.getStatusCode());
+        assertEquals("Error! El campo id no se puede modificar.", notEditable.getBody().get("patch"));
+        assertEquals(HttpStatus.PRECONDITION_FAILED, oldVersion.getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, inexisting.getStatusCode());
+
+        Client clientDb = client.getForObject("/api/clients/21", Client.class);
+        assertEquals("Hueto", clientDb.getName());
+        assertEquals("hekevim148@idoidraw.com", clientDb.getEmail());
+    }
+
+    // To test that a patch of a pet removes the attributes sent with null
+    @Test
+    void patchPetByClientIntegrationTest() {
+
+        // When
+        ResponseEntity<Pet> response = patch("/api/clients/21/pets/301", "{\"breed\": null, \"age\": 16}", null, Pet.class);
+        ResponseEntity<Pet> noOwner = patch("/api/clients/31/pets/301", "{\"age\": 16}", null, Pet.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"301-1\"", response.getHeaders().getETag());
+        assertEquals(HttpStatus.NOT_FOUND, noOwner.getStatusCode());
+
+        Pet[] pets = client.getForObject("/api/clients/21/pets", Pet[].class);
+        Pet petDb = pets[1];
+        assertEquals(301L, petDb.getId());
+        assertEquals("baguira", petDb.getName());
+        assertNull(petDb.getBreed());
+        assertEquals(16L, petDb.getAge());
+        assertEquals("le duele el estomago", petDb.getReasonForVisit());
+    }
+
+    // To test that a patch of an address only changes the attributes that were sent
+    @Test
+    void patchAddressByClientIntegrationTest() {
+
+        // When
+        ResponseEntity<Address> response = patch("/api/clients/21/addresses", "{\"cp\": 56500}", null, Address.class);
+        ResponseEntity<Address> withoutAddress = patch("/api/clients/51/addresses", "{\"cp\": 56500}", null, Address.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"2001-1\"", response.getHeaders().getETag());
+        assertEquals(HttpStatus.NOT_FOUND, withoutAddress.getStatusCode());
+
+        Address addressDb = client.getForObject("/api/clients/21/addresses", Address.class);
+        assertEquals("av. siempre viva", addressDb.getStreet());
+        assertEquals("cdmx", addressDb.getCity());
+        assertEquals(56500L, addressDb.getCp());
+    }
+
+}
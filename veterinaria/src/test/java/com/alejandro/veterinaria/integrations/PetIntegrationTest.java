@@ -7,6 +7,7 @@ import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -17,9 +18,12 @@ import org.springframework.http.*;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 
+import com.alejandro.veterinaria.cache.ClientResponseCache;
 import com.alejandro.veterinaria.entities.Pet;
+import com.alejandro.veterinaria.entities.PetBatchReport;
 import com.alejandro.veterinaria.entities.Client;
 import com.alejandro.veterinaria.entities.ErrorMessage;
+import com.alejandro.veterinaria.search.PetSearchIndex;
 
 
 // To load/insert the data on the file 'insert.sql'  
@@ -34,6 +38,20 @@ public class PetIntegrationTest {
     @Autowired
     private TestRestTemplate client;
 
+    @Autowired
+    private PetSearchIndex petSearchIndex;
+
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    // The file 'insert.sql' doesn't use the services, so the search index is built again
+    // and the cached responses are removed
+    @BeforeEach
+    void setUp() {
+        responseCache.clear();
+        petSearchIndex.rebuild();
+    }
+
     // To test the endpoint getPetsByClient with an existing idClient
     @Test
     void getPetsByClientExistingIdIntegrationTest() {
@@ -93,6 +111,15 @@ public class PetIntegrationTest {
         assertEquals("lennon@idoidraw.com", newClient.getEmail());
         assertEquals(4520895423L, newClient.getPhonenumber());
 
+        // When
+        ResponseEntity<Pet[]> response2  = client.getForEntity("/api/clients/" + idClientToSearch + "/pets", Pet[].class);
+        List<Pet> pets = Arrays.asList(response2.getBody());
+
+        // Then
+        assertEquals(1, pets.size());
+        assertEquals("rayas 2", pets.get(0).getName());
+        assertEquals("gato 2", pets.get(0).getSpecie());
+
     }
 
     // To test the endpoint saveNewPetByClientId when the idClient doesnt exist
@@ -112,6 +139,51 @@ public class PetIntegrationTest {
 
     }
 
+    // To test the endpoint saveNewPetsByClientId, the valid pets are saved and the others are reported
+    @Test
+    void postSaveNewPetsByClientIdIntegrationTest() {
+
+        // Given
+        Long idClientToSearch = 21L;
+        List<Pet> petsToInsert = List.of(
+            new Pet(null, " quicks ", "perro", null, 3L, "vacunas"),
+            new Pet(null, "goliath", "perro", "chihuahua", 4L, "revision"),
+            new Pet(null, "rayas", "", null, 2L, "revision"),
+            new Pet(null, "quicks", "gato", null, 1L, "revision"));
+
+        // When
+        ResponseEntity<PetBatchReport> response = client.postForEntity("/api/clients/" + idClientToSearch + "/pets/batch",
+            petsToInsert, PetBatchReport.class);
+
+        // Then
+        PetBatchReport report = response.getBody();
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, report.getCreated());
+        assertEquals(3, report.getFailed());
+        assertEquals(201, report.getResults().get(0).status());
+        assertEquals("quicks", report.getResults().get(0).pet().getName());
+        assertEquals(409, report.getResults().get(1).status());
+        assertEquals(400, report.getResults().get(2).status());
+        assertEquals(409, report.getResults().get(3).status());
+
+        // The pets of the client include the new pet
+        Pet[] pets = client.getForObject("/api/clients/" + idClientToSearch + "/pets", Pet[].class);
+        assertEquals(4, pets.length);
+        assertTrue(Arrays.stream(pets).anyMatch(pet -> pet.getName().equals("quicks")));
+    }
+
+    // To test the endpoint saveNewPetsByClientId with an inexisting idClient
+    @Test
+    void postSaveNewPetsByClientIdInexistingIdIntegrationTest() {
+
+        // When
+        ResponseEntity<?> response = client.postForEntity("/api/clients/999999/pets/batch",
+            List.of(new Pet(null, "quicks", "perro", null, 3L, "vacunas")), Void.class);
+
+        // Then
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
     // To test the endpoint editPetByClientId when the idClient doesnt exist and the idPet exists
     @Test
     void putEditPetByClientIdInexistingIdClientIntegrationTest()  {
@@ -282,7 +354,7 @@ public class PetIntegrationTest {
         assertEquals(HttpStatus.CONFLICT.value(), newError.getStatus());
         assertEquals("Error! Esta mascota ya se registro previamente para este cliente.", newError.getError());
         assertTrue(newError.getMessage().contains("PUBLIC.PET"));
-        assertTrue(newError.getMessage().contains("[update pet set id_client=? where id_pet=?];"));
+        assertTrue(newError.getMessage().contains("insert into pet"));
 
         LocalDateTime ahora = LocalDateTime.now();
         assertTrue( Duration.between(newError.getDateTime(), ahora).toMinutes() < 2 );
@@ -307,11 +379,36 @@ public class PetIntegrationTest {
         assertEquals(HttpStatus.CONFLICT.value(), newError.getStatus());
         assertEquals("Error! Este nombre de mascota al cual se desea actualizar ya lo posee otra mascota de este mismo cliente.", newError.getError());
         assertTrue(newError.getMessage().contains("PUBLIC.PET"));
-        assertFalse(newError.getMessage().contains("[update pet set id_client=? where id_pet=?];"));
+        assertFalse(newError.getMessage().contains("insert into pet"));
 
         LocalDateTime ahora = LocalDateTime.now();
         assertTrue( Duration.between(newError.getDateTime(), ahora).toMinutes() < 2 );
 
     }
 
+    // To test that the search of clients by the name of their pets uses the pets that were created, updated or deleted
+    @Test
+    void searchAfterPetChangesIntegrationTest() {
+
+        // Given
+        client.postForEntity("/api/clients/51/pets", new Pet(null, "bobby", "perro", null, 2L, "vacunas"), Client.class);
+        client.exchange("/api/clients/41/pets/801", HttpMethod.PUT,
+                new HttpEntity<>(new Pet(null, "rexy", "perro", "labrador", 10L, "tiene mucho sueño")), Client.class);
+        client.exchange("/api/clients/61/pets/101", HttpMethod.DELETE, null, Client.class);
+
+        // When
+        List<Client> bobbys = Arrays.asList(client.getForEntity("/api/clients/pets/bobby", Client[].class).getBody());
+        List<Client> rexys = Arrays.asList(client.getForEntity("/api/clients/pets/rexy", Client[].class).getBody());
+        List<Client> quicks = Arrays.asList(client.getForEntity("/api/clients/pets/quick", Client[].class).getBody());
+        List<Client> rayas = Arrays.asList(client.getForEntity("/api/clients/pets/rayas", Client[].class).getBody());
+
+        // Then
+        assertEquals(1, bobbys.size());
+        assertEquals(51L, bobbys.get(0).getId());
+        assertEquals(1, rexys.size());
+        assertEquals(41L, rexys.get(0).getId());
+        assertTrue(quicks.isEmpty());
+        assertTrue(rayas.isEmpty());
+    }
+
 }
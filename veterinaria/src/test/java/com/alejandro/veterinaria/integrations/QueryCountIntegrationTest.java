@@ -0,0 +1,164 @@
+package com.alejandro.veterinaria.integrations;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import com.alejandro.veterinaria.cache.ClientResponseCache;
+import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.ClientDetail;
+import com.alejandro.veterinaria.entities.Pet;
+import com.alejandro.veterinaria.search.ClientSearchIndex;
+import com.alejandro.veterinaria.search.PetSearchIndex;
+import com.alejandro.veterinaria.sql.QueryCountExtension;
+import com.alejandro.veterinaria.sql.QueryCountExtension.QueryCount;
+import com.alejandro.veterinaria.sql.QueryCountFilter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// To load/insert the data on the file 'insert.sql'
+// To use the configurations on application-test.properties
+// To start the test context with a random port
+// To count the SQL statements of each endpoint, so a N+1 problem makes the test fail
+@Sql(scripts = "/insert.sql")
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@ExtendWith(QueryCountExtension.class)
+class QueryCountIntegrationTest {
+
+    // To inject the component of testRestTemplate
+    @Autowired
+    private TestRestTemplate client;
+
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    @Autowired
+    private ClientSearchIndex searchIndex;
+
+    @Autowired
+    private PetSearchIndex petSearchIndex;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    // The file 'insert.sql' doesn't use the services, so the indexes are built again and the cached responses
+    // are removed. The statements to build the indexes are not counted
+    @BeforeEach
+    void setUp(QueryCount queries) {
+        searchIndex.rebuild();
+        petSearchIndex.rebuild();
+        responseCache.clear();
+        queries.reset();
+    }
+
+    private static long header(ResponseEntity<?> response) {
+        return Long.parseLong(response.getHeaders().getFirst(QueryCountFilter.QUERY_COUNT));
+    }
+
+    // The requests are counted by the filter after the response is sent, so the metric is checked
+    // until it has the count
+    private long requests(String method, String uri, long expected) throws InterruptedException {
+        for (int i = 0; i < 50 && this.requests(method, uri) < expected; i++) {
+            Thread.sleep(100);
+        }
+        return this.requests(method, uri);
+    }
+
+    private long requests(String method, String uri) {
+        return registry.find("veterinaria.http.queries").tag("method", method).tag("uri", uri).summaries()
+                .stream().mapToLong(summary -> summary.count()).sum();
+    }
+
+    // To test that a client is read with one statement, and that the cached response doesn't use the db
+    @Test
+    void getClientIntegrationTest(QueryCount queries) {
+
+        // When
+        ResponseEntity<Client> response = client.getForEntity("/api/clients/21", Client.class);
+        queries.assertCount(1);
+        ResponseEntity<Client> cached = client.getForEntity("/api/clients/21", Client.class);
+        queries.assertCount(0);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, header(response));
+        assertEquals(0, header(cached));
+    }
+
+    // To test that the pets of a client are read with one statement, no matter how many pets it has
+    @Test
+    void getPetsByClientIntegrationTest(QueryCount queries) throws InterruptedException {
+
+        // Given
+        long requests = this.requests("GET", "/api/clients/{id_client}/pets");
+
+        // When
+        ResponseEntity<Pet[]> response = client.getForEntity("/api/clients/21/pets", Pet[].class);
+
+        // Then
+        queries.assertCount(2);
+        assertEquals(3, response.getBody().length);
+        assertEquals(2, header(response));
+        assertEquals(requests + 1, this.requests("GET", "/api/clients/{id_client}/pets", requests + 1));
+    }
+
+    // To test that the clients of a pet name are read with one statement, and that their pets and addresses
+    // are read with one statement each
+    @Test
+    void getClientsByPetNameIntegrationTest(QueryCount queries) {
+
+        // When
+        ResponseEntity<Client[]> response = client.getForEntity("/api/clients/pets/goliath", Client[].class);
+        queries.assertCount(1);
+        ResponseEntity<ClientDetail[]> expanded = client.getForEntity("/api/clients/pets/goliath?expand=pets,address", ClientDetail[].class);
+        queries.assertCount(3);
+
+        // Then
+        assertEquals(2, response.getBody().length);
+        assertEquals(2, expanded.getBody().length);
+        assertEquals(3, header(expanded));
+    }
+
+    // To test that the list of clients with their pets and addresses doesn't read them client by client
+    @Test
+    void getClientsExpandIntegrationTest(QueryCount queries) {
+
+        // When
+        ResponseEntity<ClientDetail[]> response = client.getForEntity("/api/clients?expand=pets,address", ClientDetail[].class);
+
+        // Then
+        queries.assertCount(3);
+        assertEquals(5, response.getBody().length);
+    }
+
+    // To test the statements of the changes (the inserts are not counted, the sequence is read
+    // only when its values run out)
+    @Test
+    void changesIntegrationTest(QueryCount queries) {
+
+        // When
+        ResponseEntity<Client> updated = client.exchange("/api/clients/21", HttpMethod.PUT,
+                new HttpEntity<>(new Client(null, "Hueto", "Navejas", "hueto@idoidraw.com", 1538971230L, null, null)), Client.class);
+        queries.assertCount(2);
+        ResponseEntity<Client> deleted = client.exchange("/api/clients/31", HttpMethod.DELETE, null, Client.class);
+        queries.assertCount(4);
+
+        // Then
+        assertEquals(HttpStatus.CREATED, updated.getStatusCode());
+        assertEquals(2, header(updated));
+        assertEquals(HttpStatus.OK, deleted.getStatusCode());
+        assertEquals(4, header(deleted));
+    }
+
+}
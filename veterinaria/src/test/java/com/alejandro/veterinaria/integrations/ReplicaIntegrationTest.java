@@ -0,0 +1,122 @@
+package com.alejandro.veterinaria.integrations;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import com.alejandro.veterinaria.cache.ClientResponseCache;
+import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.ClientDetail;
+import com.alejandro.veterinaria.entities.ClientSummary;
+
+// To load/insert the data on the file 'insert.sql' (in the primary)
+// To use the configurations on application-test.properties and application-replicas.properties
+// To start the test context with a random port
+// The primary and the two replicas are h2 dbs in memory, the replicas are a copy of the primary
+// with other names for the client 21, so the db of a response is known
+@Sql(scripts = "/insert.sql")
+@ActiveProfiles({ "test", "replicas" })
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:replicas-primary;DB_CLOSE_DELAY=-1",
+        "veterinaria.replicas.urls=jdbc:h2:mem:replica-1;DB_CLOSE_DELAY=-1,jdbc:h2:mem:replica-2;DB_CLOSE_DELAY=-1",
+        "veterinaria.replicas.username=sa",
+        "veterinaria.replicas.password=" })
+class ReplicaIntegrationTest {
+
+    private static final List<String> REPLICAS = List.of("replica-1", "replica-2");
+
+    // To inject the component of testRestTemplate
+    @Autowired
+    private TestRestTemplate client;
+
+    // The statements without a read only transaction use the primary
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    // To copy the tables and the data of the primary to each replica (as the replication does)
+    @BeforeEach
+    void setUp() {
+        responseCache.clear();
+        List<String> script = jdbcTemplate.queryForList("SCRIPT", String.class);
+
+        for (String replica : REPLICAS) {
+            JdbcDataSource dataSource = new JdbcDataSource();
+            dataSource.setURL("jdbc:h2:mem:" + replica + ";DB_CLOSE_DELAY=-1");
+            dataSource.setUser("sa");
+            JdbcTemplate replicaTemplate = new JdbcTemplate(dataSource);
+            replicaTemplate.execute("DROP ALL OBJECTS");
+            script.forEach(replicaTemplate::execute);
+            replicaTemplate.update("UPDATE client SET name = ? WHERE id_client = 21", replica);
+        }
+    }
+
+    // To test that the read only transactions use the replicas
+    @Test
+    void readIntegrationTest() {
+
+        // When
+        ResponseEntity<ClientDetail> response = client.getForEntity("/api/clients/21?expand=address", ClientDetail.class);
+        ClientSummary[] clients = client.getForEntity("/api/clients", ClientSummary[].class).getBody();
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(REPLICAS.contains(response.getBody().name()));
+        assertTrue(List.of(clients).stream().anyMatch(summary -> REPLICAS.contains(summary.name())));
+    }
+
+    // To test that the responses that are saved in the cache are read from the primary,
+    // so a replica that is behind can't put an old response in the cache
+    @Test
+    void cachedReadIntegrationTest() {
+
+        // When
+        ResponseEntity<Client> response = client.getForEntity("/api/clients/21", Client.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("Hueto", response.getBody().getName());
+    }
+
+    // To test that the replicas are used in turns (round robin)
+    @Test
+    void roundRobinIntegrationTest() {
+
+        // When
+        String first = client.getForEntity("/api/clients/21?expand=address", ClientDetail.class).getBody().name();
+        String second = client.getForEntity("/api/clients/21?expand=address", ClientDetail.class).getBody().name();
+
+        // Then
+        assertNotEquals(first, second);
+        assertTrue(REPLICAS.contains(first));
+        assertTrue(REPLICAS.contains(second));
+    }
+
+    // To test that the writes use the primary
+    @Test
+    void writeIntegrationTest() {
+
+        // When
+        Client editClient = new Client(null, "Hugo", "Navejas", "hekevim148@idoidraw.com", 1538971230L, null, null);
+        ResponseEntity<Client> response = client.exchange("/api/clients/21", HttpMethod.PUT, new HttpEntity<>(editClient), Client.class);
+
+        // Then
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals("Hugo", jdbcTemplate.queryForObject("SELECT name FROM client WHERE id_client = 21", String.class));
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.alejandro.veterinaria.integrations;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import com.alejandro.veterinaria.entities.Client;
+
+// To load/insert the data on the file 'insert.sql'
+// To use the configurations on application-test.properties
+// To start the test context with a random port
+// To publish the metrics in the format of Prometheus, it's disabled in the tests by default
+@Sql(scripts = "/insert.sql")
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability(tracing = false)
+class ServiceMetricsIntegrationTest {
+
+    // To inject the component of testRestTemplate
+    @Autowired
+    private TestRestTemplate client;
+
+    // To test that the calls to the services are published in the format of Prometheus,
+    // with the buckets of the histogram to calculate the percentiles
+    @Test
+    void prometheusIntegrationTest() {
+
+        // Given
+        client.getForEntity("/api/clients/999999", Client.class);
+
+        // When
+        ResponseEntity<String> response = client.getForEntity("/actuator/prometheus", String.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getHeaders().getContentType().toString().startsWith("text/plain"));
+
+        String metrics = response.getBody();
+        assertTrue(metrics.contains("veterinaria_service_calls_seconds_count{class=\"ClientServiceImp\",exception=\"none\",method=\"findById\",outcome=\"SUCCESS\"}"));
+        assertTrue(metrics.contains("veterinaria_service_calls_seconds_bucket{class=\"ClientServiceImp\",exception=\"none\",method=\"findById\",outcome=\"SUCCESS\",le="));
+    }
+
+}
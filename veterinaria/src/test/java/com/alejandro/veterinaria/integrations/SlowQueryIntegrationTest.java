@@ -0,0 +1,79 @@
+package com.alejandro.veterinaria.integrations;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import com.alejandro.veterinaria.cache.ClientResponseCache;
+import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.sql.SlowQueryDataSource;
+
+// To load/insert the data on the file 'insert.sql'
+// To use the configurations on application-test.properties
+// To start the test context with a random port, all of the statements are written in the slow query log
+@Sql(scripts = "/insert.sql")
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "veterinaria.slow-query.threshold=0ms")
+@ExtendWith(OutputCaptureExtension.class)
+class SlowQueryIntegrationTest {
+
+    // To inject the component of testRestTemplate
+    @Autowired
+    private TestRestTemplate client;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ClientResponseCache responseCache;
+
+    // The file 'insert.sql' doesn't use the services, so the cached responses are removed
+    @BeforeEach
+    void setUp() {
+        responseCache.clear();
+    }
+
+    // The statements are written by another thread, so the output is checked until it has the text
+    private static boolean written(CapturedOutput output, String text) throws InterruptedException {
+        for (int i = 0; i < 50 && !output.getOut().contains(text); i++) {
+            Thread.sleep(100);
+        }
+        return output.getOut().contains(text);
+    }
+
+    // To test that the statements are written with the method of the repository (or of the service for the update
+    // sent when the transaction is committed) and the personal data masked
+    @Test
+    void slowQueryLogIntegrationTest(CapturedOutput output) throws InterruptedException {
+
+        // When
+        ResponseEntity<Client> found = client.getForEntity("/api/clients/21", Client.class);
+        ResponseEntity<Client> updated = client.exchange("/api/clients/21", HttpMethod.PUT,
+                new HttpEntity<>(new Client(null, "Hueto", "Navejas", "hueto.navejas@idoidraw.com", 5512345678L, null, null)),
+                Client.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, found.getStatusCode());
+        assertEquals(HttpStatus.CREATED, updated.getStatusCode());
+        assertInstanceOf(SlowQueryDataSource.class, dataSource);
+        assertTrue(written(output, "caller=ClientRepository.findById, sql=[select"));
+        assertTrue(written(output, "caller=ClientServiceImp.update, sql=[update client set"));
+        assertTrue(written(output, "params=[1:h***@idoidraw.com, 2:******5678, 3:1, 4:21, 5:0]"));
+        assertFalse(output.getOut().contains("hueto.navejas@idoidraw.com"));
+    }
+
+}
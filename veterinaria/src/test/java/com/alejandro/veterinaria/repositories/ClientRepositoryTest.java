@@ -2,16 +2,21 @@ package com.alejandro.veterinaria.repositories;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.List;
 
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 
+import com.alejandro.veterinaria.entities.Address;
 import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.ClientSummary;
 
 // To load the beans related to the persist layer.
 // To load/insert the data on the file 'insert.sql'  
@@ -25,29 +30,109 @@ class ClientRepositoryTest {
     ClientRepository repository;
 
     @Test
-    void findClientsByPetNameLikeTest () {
+    void findSummariesByIdGreaterThanTest () {
+
+        // When
+        List<ClientSummary> clients = repository.findSummariesByIdGreaterThan(31L, Limit.of(2));
+
+        // Then
+        assertEquals(2, clients.size());
+        assertEquals(41L, clients.get(0).getId());
+        assertEquals("Esteban", clients.get(0).name());
+        assertEquals(51L, clients.get(1).getId());
+        assertEquals("John", clients.get(1).name());
+    }
+
+    @Test
+    void findSummariesByPetNameLikeTest () {
 
         // Given
         String nameToSearch = "goliath";
 
         // When
-        List<Client> clients = repository.findClientsByPetNameLike(nameToSearch);
+        List<ClientSummary> clients = repository.findSummariesByPetNameLike(nameToSearch);
 
         // Then
         assertFalse(clients.isEmpty());
         assertEquals(2, clients.size());
 
         assertEquals(21L, clients.get(0).getId());
-        assertEquals("Hueto", clients.get(0).getName());
-        assertEquals("Navejas", clients.get(0).getLastname());
-        assertEquals("hekevim148@idoidraw.com", clients.get(0).getEmail());
-        assertEquals(1538971230L, clients.get(0).getPhonenumber());
+        assertEquals("Hueto", clients.get(0).name());
+        assertEquals("Navejas", clients.get(0).lastname());
+        assertEquals("hekevim148@idoidraw.com", clients.get(0).email());
+        assertEquals(1538971230L, clients.get(0).phonenumber());
 
         assertEquals(41L, clients.get(1).getId());
-        assertEquals("Esteban", clients.get(1).getName());
-        assertEquals("Gonzalez", clients.get(1).getLastname());
-        assertEquals("pastor34@idoidraw.com", clients.get(1).getEmail());
-        assertEquals(1234567890L, clients.get(1).getPhonenumber());
+        assertEquals("Esteban", clients.get(1).name());
+        assertEquals("Gonzalez", clients.get(1).lastname());
+        assertEquals("pastor34@idoidraw.com", clients.get(1).email());
+        assertEquals(1234567890L, clients.get(1).phonenumber());
+    }
+
+    // The client 21 has 3 pets with an 'a' in their name but it's returned only once
+    @Test
+    void findSummariesByPetNameLikeDistinctTest () {
+
+        // When
+        List<ClientSummary> clients = repository.findSummariesByPetNameLike("a");
+
+        // Then
+        assertEquals(4, clients.size());
+        assertEquals(1, clients.stream().filter(client -> client.getId().equals(21L)).count());
+    }
+
+    // To test that the summaries have the same columns as the entity, and the version
+    @Test
+    void findAllSummariesTest () {
+
+        // When
+        List<ClientSummary> clients = repository.findAllSummaries();
+
+        // Then
+        assertEquals(5, clients.size());
+        assertEquals(21L, clients.get(0).id());
+        assertEquals(ClientSummary.from(repository.findById(21L).orElseThrow()), clients.get(0));
+        assertEquals(0L, clients.get(0).version());
+    }
+
+    // To test the search of the names when the search index is not ready
+    @Test
+    void findSummariesByNameContainingTest () {
+
+        // When
+        List<ClientSummary> clients = repository.findSummariesByNameContaining("e");
+        List<ClientSummary> lastnames = repository.findSummariesByLastnameContaining("Gonz");
+
+        // Then
+        assertEquals(List.of(21L, 31L, 41L, 61L), clients.stream().map(ClientSummary::id).toList());
+        assertEquals(List.of(41L), lastnames.stream().map(ClientSummary::id).toList());
+    }
+
+    // To test that the client is read with its pets and its address
+    @Test
+    void findWithPetsAndAddressByIdTest () {
+
+        // When
+        Client client = repository.findWithPetsAndAddressById(21L).orElseThrow();
+
+        // Then
+        assertTrue(Hibernate.isInitialized(client.getPets()));
+        assertTrue(Hibernate.isInitialized(client.getAddress()));
+        assertEquals(3, client.getPets().size());
+        assertEquals("av. siempre viva", client.getAddress().getStreet());
+    }
+
+    // To test that the addresses of a list of clients are read with their ids (the client 51 doesn't have an address)
+    @Test
+    void findAddressesByIdInTest () {
+
+        // When
+        List<Object[]> rows = repository.findAddressesByIdIn(List.of(21L, 51L, 61L));
+
+        // Then
+        assertEquals(2, rows.size());
+        assertTrue(rows.stream().anyMatch(row -> row[0].equals(21L) && ((Address) row[1]).getStreet().equals("av. siempre viva")));
+        assertTrue(rows.stream().anyMatch(row -> row[0].equals(61L) && ((Address) row[1]).getStreet().equals("ignacio zaragoza")));
     }
 
 }
@@ -0,0 +1,85 @@
+package com.alejandro.veterinaria.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import com.alejandro.veterinaria.entities.Pet;
+
+// To load the beans related to the persist layer.
+// To load/insert the data on the file 'insert.sql'  
+// To use the configurations on application-test.properties
+@DataJpaTest
+@ActiveProfiles("test")
+@Sql(scripts = "/insert.sql") 
+class PetRepositoryTest {
+
+    @Autowired
+    PetRepository repository;
+
+    @Test
+    void updateByIdAndClientIdOwnerTest () {
+
+        // Given
+        Pet petToUpdate = new Pet(null, "nala 2", "perro 2", "pug", 5L, "tiene tos");
+
+        // When
+        int updated = repository.updateByIdAndClientId(501L, 31L, null, petToUpdate);
+
+        // Then
+        assertEquals(1, updated);
+
+        Pet petDb = repository.findById(501L).orElseThrow();
+        assertEquals("nala 2", petDb.getName());
+        assertEquals("perro 2", petDb.getSpecie());
+        assertEquals("pug", petDb.getBreed());
+        assertEquals(5L, petDb.getAge());
+        assertEquals("tiene tos", petDb.getReasonForVisit());
+        assertEquals(31L, petDb.getClientId());
+    }
+
+    @Test
+    void updateByIdAndClientIdNoOwnerTest () {
+
+        // Given
+        Pet petToUpdate = new Pet(null, "nala 2", "perro 2", "pug", 5L, "tiene tos");
+
+        // When
+        int updated = repository.updateByIdAndClientId(501L, 21L, null, petToUpdate);
+
+        // Then
+        assertEquals(0, updated);
+        assertEquals("nala", repository.findById(501L).orElseThrow().getName());
+    }
+
+    @Test
+    void findNamesByClientIdAndNameInTest () {
+
+        // When
+        List<String> names = repository.findNamesByClientIdAndNameIn(21L, List.of("goliath", "nala", "pelusa"));
+
+        // Then
+        assertEquals(List.of("goliath"), names);
+    }
+
+    @Test
+    void deleteByIdAndClientIdTest () {
+
+        // When
+        int deletedNoOwner = repository.deleteByIdAndClientId(601L, 21L);
+        int deletedOwner = repository.deleteByIdAndClientId(601L, 31L);
+
+        // Then
+        assertEquals(0, deletedNoOwner);
+        assertEquals(1, deletedOwner);
+        assertFalse(repository.findById(601L).isPresent());
+    }
+
+}
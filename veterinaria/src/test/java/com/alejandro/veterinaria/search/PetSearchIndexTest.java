@@ -0,0 +1,111 @@
+package com.alejandro.veterinaria.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.alejandro.veterinaria.repositories.PetRepository;
+
+class PetSearchIndexTest {
+
+    PetSearchIndex index;
+
+    // Without a transaction the changes are applied right away
+    @BeforeEach
+    void setUp() {
+        index = new PetSearchIndex();
+        index.put(201L, "goliath", 21L);
+        index.put(301L, "baguira", 21L);
+        index.put(901L, "guana", 21L);
+        index.put(701L, "goliath", 41L);
+        index.put(501L, "nala", 31L);
+    }
+
+    // To test the method findClientIdsByPetName, each client is only once
+    @Test
+    void findClientIdsByPetNameTest() {
+
+        // When
+        List<Long> clientIds = index.findClientIdsByPetName("a");
+
+        // Then
+        assertEquals(List.of(21L, 31L, 41L), clientIds);
+        assertEquals(List.of(21L, 41L), index.findClientIdsByPetName("GOLIATH"));
+    }
+
+    // To test the methods put (to change the name of a pet) and remove
+    @Test
+    void putAndRemoveTest() {
+
+        // When
+        index.put(701L, "quick", 41L);
+        index.remove(501L);
+
+        // Then
+        assertEquals(List.of(21L), index.findClientIdsByPetName("goliath"));
+        assertEquals(List.of(41L), index.findClientIdsByPetName("quick"));
+        assertTrue(index.findClientIdsByPetName("nala").isEmpty());
+    }
+
+    // To test the method removeByClient
+    @Test
+    void removeByClientTest() {
+
+        // When
+        index.removeByClient(21L);
+
+        // Then
+        assertEquals(List.of(41L), index.findClientIdsByPetName("goliath"));
+        assertTrue(index.findClientIdsByPetName("guana").isEmpty());
+        assertEquals(List.of(31L, 41L), index.findClientIdsByPetName("a"));
+    }
+
+    // To test the method rebuild when pets are changed while the rows are read:
+    // the rows have the old names, but the changes are applied to the new index
+    @Test
+    @SuppressWarnings("unchecked")
+    void rebuildWithChangesTest() {
+
+        // Given
+        PetRepository repository = mock(PetRepository.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(repository.streamNames()).thenReturn(Stream.of(
+                new Object[] { 201L, "goliath", 21L },
+                new Object[] { 301L, "baguira", 21L },
+                new Object[] { 901L, "guana", 21L })
+                .peek(row -> {
+                    if (row[0].equals(301L)) {
+                        index.put(301L, "bagheera", 21L);
+                        index.remove(901L);
+                    }
+                }));
+        ReflectionTestUtils.setField(index, "repository", repository);
+        ReflectionTestUtils.setField(index, "transactionTemplate", transactionTemplate);
+
+        // When
+        index.rebuild();
+
+        // Then
+        assertTrue(index.isReady());
+        assertEquals(List.of(21L), index.findClientIdsByPetName("bagheera"));
+        assertTrue(index.findClientIdsByPetName("baguira").isEmpty());
+        assertTrue(index.findClientIdsByPetName("guana").isEmpty());
+        assertTrue(index.findClientIdsByPetName("nala").isEmpty());
+        assertEquals(List.of(21L), index.findClientIdsByPetName("goliath"));
+    }
+
+}
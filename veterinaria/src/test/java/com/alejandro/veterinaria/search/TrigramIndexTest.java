@@ -0,0 +1,107 @@
+package com.alejandro.veterinaria.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TrigramIndexTest {
+
+    TrigramIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TrigramIndex();
+        index.put(61L, "Alejandro");
+        index.put(21L, "Hueto");
+        index.put(41L, "Esteban");
+        index.put(31L, "Celia");
+    }
+
+    // To test the method search with a text of 3 or more characters
+    @Test
+    void searchTest() {
+
+        // When
+        List<Long> ids = index.search("JAND");
+
+        // Then
+        assertEquals(List.of(61L), ids);
+        assertEquals(4, index.size());
+    }
+
+    // To test the method search when the text has all of the trigrams but not in the same order
+    @Test
+    void searchTrigramsNotConsecutiveTest() {
+
+        // Given
+        index.put(71L, "abcxbcd");
+
+        // When
+        List<Long> ids = index.search("abcd");
+
+        // Then
+        assertTrue(ids.isEmpty());
+    }
+
+    // To test the method search with and without accents, in the texts and in the queries
+    @Test
+    void searchAccentsTest() {
+
+        // Given
+        index.put(81L, "José");
+        index.put(91L, "Nuñez");
+        index.put(92L, "Nunez");
+
+        // When
+        List<Long> ids = index.search("jose");
+
+        // Then
+        assertEquals(List.of(81L), ids);
+        assertEquals(List.of(81L), index.search("JOSÉ"));
+        assertEquals(List.of(91L, 92L), index.search("nuñez"));
+        assertEquals(List.of(91L, 92L), index.search("nunez"));
+    }
+
+    // To test the method search with a text shorter than a trigram, the ids are in ascending order
+    @Test
+    void searchShortTextTest() {
+
+        // When
+        List<Long> ids = index.search("e");
+
+        // Then
+        assertEquals(List.of(21L, 31L, 41L, 61L), ids);
+        assertEquals(List.of(21L, 31L, 41L, 61L), index.search(""));
+    }
+
+    // To test the methods put (to replace a text) and remove
+    @Test
+    void putAndRemoveTest() {
+
+        // When
+        index.put(61L, "Paul");
+        index.remove(41L);
+
+        // Then
+        assertTrue(index.search("alejandro").isEmpty());
+        assertEquals(List.of(61L), index.search("pau"));
+        assertTrue(index.search("esteban").isEmpty());
+        assertEquals(3, index.size());
+    }
+
+    // To test the method clear
+    @Test
+    void clearTest() {
+
+        // When
+        index.clear();
+
+        // Then
+        assertEquals(0, index.size());
+        assertTrue(index.search("hueto").isEmpty());
+    }
+
+}
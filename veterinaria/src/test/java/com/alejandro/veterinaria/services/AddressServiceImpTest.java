@@ -9,17 +9,27 @@ import static org.mockito.Mockito.*;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import com.alejandro.veterinaria.cache.ClientResponseCache;
 import com.alejandro.veterinaria.data.ClientData;
 import com.alejandro.veterinaria.data.CustomCondition;
 import com.alejandro.veterinaria.entities.Address;
 import com.alejandro.veterinaria.entities.Client;
 import com.alejandro.veterinaria.repositories.ClientRepository;
+import com.alejandro.veterinaria.utils.UtilETag;
+import com.alejandro.veterinaria.utils.UtilPatch;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validation;
 
 @ExtendWith(MockitoExtension.class)
 class AddressServiceImpTest {
@@ -28,6 +38,25 @@ class AddressServiceImpTest {
     @Mock
     ClientRepository clientRepository; 
 
+    // To create a mock
+    @Mock
+    ClientResponseCache responseCache;
+
+    // To use the real component inside of the service
+    @Spy
+    UtilETag utilETag = new UtilETag();
+
+    // To use the real component inside of the service
+    @Spy
+    UtilPatch utilPatch = new UtilPatch();
+
+    // The components that are used by 'UtilPatch'
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(utilPatch, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(utilPatch, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+    }
+
     // To create a service object with the injection of a mock
     @InjectMocks
     AddressServiceImp service;
@@ -36,6 +65,40 @@ class AddressServiceImpTest {
     @InjectMocks
     ClientServiceImp clientService;
 
+    // To test the 'findAddressByClient' method when we use an existing client id
+    @Test
+    void findAddressByClientExistingIdTest() {
+
+        // Given
+        when(clientRepository.findWithAddressById(anyLong())).thenReturn(Optional.of(ClientData.createClient002()));
+
+        // when
+        Optional<Client> optionalClient = service.findAddressByClient(2L);
+
+        // then
+        assertTrue(optionalClient.isPresent());
+        assertNotNull(optionalClient.get().getAddress());
+
+        verify(clientRepository).findWithAddressById(argThat(new CustomCondition(ClientData.idsValid, true)));
+        verify(clientRepository, never()).findById(anyLong());
+    }
+
+    // To test the 'findAddressByClient' method when we use an inexisting client id
+    @Test
+    void findAddressByClientInexistingIdTest() {
+
+        // Given
+        when(clientRepository.findWithAddressById(anyLong())).thenReturn(Optional.empty());
+
+        // when
+        Optional<Client> optionalClient = service.findAddressByClient(99999L);
+
+        // then
+        assertFalse(optionalClient.isPresent());
+
+        verify(clientRepository).findWithAddressById(argThat(new CustomCondition(ClientData.idsValid, false)));
+    }
+
     // To test the 'saveAddressByClient' method when we use an existing client id
     @Test
     void saveAddressByClientExistingIdTest() {
@@ -98,7 +161,7 @@ class AddressServiceImpTest {
         when(clientRepository.save(any(Client.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // When
-        Optional<Client> optionalNewClient = service.editAddressByClient(idToSearch, addressToUpdate);
+        Optional<Client> optionalNewClient = service.editAddressByClient(idToSearch, addressToUpdate, null);
         Client newClient = optionalNewClient.get();
         Address addressUpdated = newClient.getAddress();
 
@@ -129,7 +192,7 @@ class AddressServiceImpTest {
         Address addressToUpdate = new Address(null, "miguel hidalgo", "acatlan", "puebla", 56346L);
 
         // When
-        Optional<Client> optionalClient = service.editAddressByClient(idToSearch, addressToUpdate);
+        Optional<Client> optionalClient = service.editAddressByClient(idToSearch, addressToUpdate, null);
 
         // Then
         assertFalse(optionalClient.isPresent());
@@ -151,7 +214,7 @@ class AddressServiceImpTest {
         Address addressToUpdate = new Address(null, "miguel hidalgo", "acatlan", "puebla", 56346L);
 
         // When
-        Optional<Client> optionalClient = service.editAddressByClient(idToSearch, addressToUpdate);
+        Optional<Client> optionalClient = service.editAddressByClient(idToSearch, addressToUpdate, null);
 
         // Then
         assertFalse(optionalClient.isPresent());
@@ -211,4 +274,61 @@ class AddressServiceImpTest {
         verify(clientRepository, never()).save(any(Client.class));
     }
 
+
+    // To test the 'patchAddressByClient' method, only the attributes of the patch are changed
+    @Test
+    void patchAddressByClientTest() throws Exception {
+
+        // Given
+        when(clientRepository.findWithAddressById(anyLong())).thenReturn(Optional.of(ClientData.createClient001()));
+
+        // When
+        Optional<Address> optionalAddress = service.patchAddressByClient(1L, new ObjectMapper().readTree("{\"cp\": 56500}"), null);
+
+        // Then
+        Address addressDb = optionalAddress.get();
+        assertEquals("ignacio zaragoza", addressDb.getStreet());
+        assertEquals("ixtapaluca", addressDb.getState());
+        assertEquals("estado de mexico", addressDb.getCity());
+        assertEquals(56500L, addressDb.getCp());
+        verify(responseCache).invalidate(1L);
+        verify(clientRepository, never()).save(any(Client.class));
+    }
+
+    // To test the 'patchAddressByClient' method when the result doesn't meet the obligations of the attributes
+    @Test
+    void patchAddressByClientInvalidTest() throws Exception {
+
+        // Given
+        Client clientDb = ClientData.createClient001();
+        when(clientRepository.findWithAddressById(anyLong())).thenReturn(Optional.of(clientDb));
+
+        // When
+        assertThrows(ConstraintViolationException.class, () -> {
+            service.patchAddressByClient(1L, new ObjectMapper().readTree("{\"street\": \" \", \"cp\": 56500}"), null);
+        });
+
+        // Then
+        assertEquals("ignacio zaragoza", clientDb.getAddress().getStreet());
+        assertEquals(56585L, clientDb.getAddress().getCp());
+        verifyNoInteractions(responseCache);
+    }
+
+    // To test the 'patchAddressByClient' method when the client doesn't have an address
+    @Test
+    void patchAddressByClientWithoutAddressTest() throws Exception {
+
+        // Given
+        Client clientDb = ClientData.createClient001();
+        clientDb.setAddress(null);
+        when(clientRepository.findWithAddressById(anyLong())).thenReturn(Optional.of(clientDb));
+
+        // When
+        Optional<Address> optionalAddress = service.patchAddressByClient(1L, new ObjectMapper().readTree("{\"cp\": 56500}"), null);
+
+        // Then
+        assertTrue(optionalAddress.isEmpty());
+        verifyNoInteractions(responseCache);
+    }
+
 }
@@ -0,0 +1,110 @@
+package com.alejandro.veterinaria.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.alejandro.veterinaria.entities.Address;
+import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.Pet;
+import com.alejandro.veterinaria.repositories.ClientRepository;
+import com.alejandro.veterinaria.utils.UtilCsv;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+
+@ExtendWith(MockitoExtension.class)
+class ClientExportServiceImpTest {
+
+    // To create a mock
+    @Mock
+    ClientRepository repository;
+
+    // To create a mock
+    @Mock
+    EntityManager entityManager;
+
+    // To use the real components inside of the service
+    @Spy
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    UtilCsv utilCsv = new UtilCsv();
+
+    // To create a service object with the injection of a mock
+    @InjectMocks
+    ClientExportServiceImp service;
+
+    private List<Client> clients() {
+        Client client1 = new Client(1L, "Alejandro", "Granados", "alejandro@gmail.com", 1538977020L,
+                List.of(new Pet(10L, "rayas", "gato", null, 11L, "tiene sueño, mucho")),
+                new Address(100L, "ignacio zaragoza", "ixtapaluca", "estado de mexico", 56585L));
+        Client client2 = new Client(2L, "John", "Lennon", "lennon@gmail.com", 4520895423L, List.of(), null);
+        Client client3 = new Client(3L, "Celia", "Bello", "celia@gmail.com", 1234977026L, List.of(), null);
+        return List.of(client1, client2, client3);
+    }
+
+    // To test the method exportNdjson
+    @Test
+    void exportNdjsonTest() throws IOException {
+
+        // Given
+        ReflectionTestUtils.setField(service, "clearInterval", 2);
+        when(repository.findWithAddressByIdGreaterThan(0L, Limit.of(2))).thenReturn(clients().subList(0, 2));
+        when(repository.findWithAddressByIdGreaterThan(2L, Limit.of(2))).thenReturn(clients().subList(2, 3));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        long count = service.exportNdjson(output);
+        List<String> lines = output.toString(StandardCharsets.UTF_8).lines().toList();
+
+        // Then
+        assertEquals(3, count);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).contains("\"pets\":[{\"id\":10,\"name\":\"rayas\""));
+        assertTrue(lines.get(0).contains("\"address\":{\"id\":100,\"street\":\"ignacio zaragoza\""));
+        assertTrue(lines.get(1).contains("\"address\":null"));
+
+        // The clients are read in pages of 2, the persistence context is cleared after each page
+        verify(repository, times(2)).findWithAddressByIdGreaterThan(anyLong(), any(Limit.class));
+        verify(entityManager, times(2)).clear();
+    }
+
+    // To test the method exportCsv
+    @Test
+    void exportCsvTest() throws IOException {
+
+        // Given
+        when(repository.findWithAddressByIdGreaterThan(0L, Limit.of(1000))).thenReturn(clients());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        long count = service.exportCsv(output);
+        List<String> lines = output.toString(StandardCharsets.UTF_8).lines().toList();
+
+        // Then
+        assertEquals(3, count);
+        assertEquals(4, lines.size());
+        assertEquals("name,lastname,email,phonenumber,street,state,city,cp,pet_name,pet_specie,pet_breed,pet_age,pet_reason_for_visit", lines.get(0));
+        assertEquals("Alejandro,Granados,alejandro@gmail.com,1538977020,ignacio zaragoza,ixtapaluca,estado de mexico,56585,rayas,gato,,11,\"tiene sueño, mucho\"", lines.get(1));
+        assertEquals("John,Lennon,lennon@gmail.com,4520895423,,,,,,,,,", lines.get(2));
+        verify(repository, times(1)).findWithAddressByIdGreaterThan(anyLong(), any(Limit.class));
+        verify(entityManager, times(1)).clear();
+    }
+
+}
@@ -0,0 +1,215 @@
+package com.alejandro.veterinaria.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.ImportReport;
+import com.alejandro.veterinaria.entities.Pet;
+import com.alejandro.veterinaria.repositories.ClientRepository;
+import com.alejandro.veterinaria.repositories.PetRepository;
+import com.alejandro.veterinaria.search.ClientSearchIndex;
+import com.alejandro.veterinaria.search.PetSearchIndex;
+import com.alejandro.veterinaria.utils.UtilCsv;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+@ExtendWith(MockitoExtension.class)
+class ClientImportServiceImpTest {
+
+    // To create a mock
+    @Mock
+    ClientRepository clientRepository;
+
+    // To create a mock
+    @Mock
+    PetRepository petRepository;
+
+    // To create a mock
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    // To create a mock
+    @Mock
+    ClientSearchIndex searchIndex;
+
+    // To create a mock
+    @Mock
+    PetSearchIndex petSearchIndex;
+
+    // To use the real components inside of the service
+    @Spy
+    TransactionTemplate transactionTemplate = new TransactionTemplate();
+
+    @Spy
+    Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Spy
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    UtilCsv utilCsv = new UtilCsv();
+
+    // To create a service object with the injection of a mock
+    @InjectMocks
+    ClientImportServiceImp service;
+
+    private InputStream body(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // To save the clients with an id as the db would do it
+    private void saveWithId() {
+        when(clientRepository.save(any(Client.class))).thenAnswer(invocation -> {
+            Client client = invocation.getArgument(0);
+            client.setId(100L);
+            return client;
+        });
+    }
+
+    // To test the method importNdjson when all of the records are valid
+    @Test
+    void importNdjsonTest() throws IOException {
+
+        // Given
+        transactionTemplate.setTransactionManager(transactionManager);
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        saveWithId();
+
+        // When
+        ImportReport report = service.importNdjson(body(
+            "{\"name\":\" Javier \",\"lastname\":\"Mejia\",\"email\":\"enjambre@idoidraw.com\",\"phonenumber\":5550374984,"
+                + "\"pets\":[{\"name\":\" firulais \",\"specie\":\"perro\",\"age\":3,\"reasonForVisit\":\"vacunas\"}]}",
+            "{\"name\":\"Ana\",\"lastname\":\"Lopez\",\"email\":\"ana@idoidraw.com\",\"phonenumber\":5550374985}",
+            "{\"name\":\"Pedro\",\"lastname\":\"Perez\",\"email\":\"pedro@idoidraw.com\",\"phonenumber\":5550374986}"));
+
+        // Then
+        assertEquals(3, report.getRecords());
+        assertEquals(3, report.getImported());
+        assertEquals(0, report.getFailed());
+        assertTrue(report.getErrors().isEmpty());
+
+        ArgumentCaptor<Client> clients = ArgumentCaptor.forClass(Client.class);
+        verify(clientRepository, times(3)).save(clients.capture());
+        assertEquals("Javier", clients.getAllValues().get(0).getName());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Pet>> pets = ArgumentCaptor.forClass(List.class);
+        verify(petRepository, times(3)).saveAll(pets.capture());
+        assertEquals("firulais", pets.getAllValues().get(0).get(0).getName());
+        assertEquals(100L, pets.getAllValues().get(0).get(0).getClientId());
+        verify(searchIndex).put(100L, "Javier", "Mejia");
+
+        // Two chunks: the first one with two records and the second one with one record
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    // To test the method importNdjson when the records are not valid
+    @Test
+    void importNdjsonInvalidRecordsTest() throws IOException {
+
+        // When
+        ImportReport report = service.importNdjson(body(
+            "{\"name\":\"\",\"lastname\":\"Mejia\",\"email\":\"enjambre@idoidraw.com\",\"phonenumber\":5550374984}",
+            "[1, 2"));
+
+        // Then
+        assertEquals(2, report.getRecords());
+        assertEquals(0, report.getImported());
+        assertEquals(2, report.getFailed());
+        assertEquals(1, report.getErrors().get(0).getRecord());
+        assertEquals("El campo name must not be blank", report.getErrors().get(0).getErrors().get("name"));
+        assertEquals(2, report.getErrors().get(1).getRecord());
+
+        verify(clientRepository, never()).save(any(Client.class));
+    }
+
+    // To test the method importNdjson when a record of the chunk breaks a restriction of the db
+    @Test
+    void importNdjsonDuplicateRecordTest() throws IOException {
+
+        // Given
+        transactionTemplate.setTransactionManager(transactionManager);
+        when(clientRepository.save(any(Client.class))).thenAnswer(invocation -> {
+            Client client = invocation.getArgument(0);
+            if (client.getName().equals("Alejandro")) {
+                throw new DataIntegrityViolationException("UK_client");
+            }
+            client.setId(100L);
+            return client;
+        });
+
+        // When
+        ImportReport report = service.importNdjson(body(
+            "{\"name\":\"Ana\",\"lastname\":\"Lopez\",\"email\":\"ana@idoidraw.com\",\"phonenumber\":5550374985}",
+            "{\"name\":\"Alejandro\",\"lastname\":\"Granados\",\"email\":\"alejandro.magb@gmail.com\",\"phonenumber\":1538977020}"));
+
+        // Then
+        assertEquals(2, report.getRecords());
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getFailed());
+        assertEquals(2, report.getErrors().get(0).getRecord());
+        assertEquals("Error! No se pudo guardar el registro: UK_client", report.getErrors().get(0).getErrors().get("record"));
+
+        // The chunk failed and then each record was saved alone
+        verify(transactionManager, times(2)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    // To test the method importCsv, the rows of the same client are joined
+    @Test
+    void importCsvTest() throws IOException {
+
+        // Given
+        transactionTemplate.setTransactionManager(transactionManager);
+        saveWithId();
+
+        // When
+        ImportReport report = service.importCsv(body(
+            "name,lastname,email,phonenumber,street,state,city,cp,pet_name,pet_specie,pet_breed,pet_age,pet_reason_for_visit",
+            "Javier,Mejia,enjambre@idoidraw.com,5550374984,reforma,juarez,cdmx,6600,firulais,perro,,3,vacunas",
+            "Javier,Mejia,enjambre@idoidraw.com,5550374984,reforma,juarez,cdmx,6600,michi,gato,siames,2,revision",
+            "Ana,Lopez,ana@idoidraw.com,5550374985,,,,,,,,,"));
+
+        // Then
+        assertEquals(2, report.getRecords());
+        assertEquals(2, report.getImported());
+
+        ArgumentCaptor<Client> clients = ArgumentCaptor.forClass(Client.class);
+        verify(clientRepository, times(2)).save(clients.capture());
+        assertEquals("reforma", clients.getAllValues().get(0).getAddress().getStreet());
+        assertNull(clients.getAllValues().get(1).getAddress());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Pet>> pets = ArgumentCaptor.forClass(List.class);
+        verify(petRepository, times(2)).saveAll(pets.capture());
+        assertEquals(2, pets.getAllValues().get(0).size());
+        assertEquals("michi", pets.getAllValues().get(0).get(1).getName());
+        assertTrue(pets.getAllValues().get(1).isEmpty());
+        verify(petRepository, never()).save(any(Pet.class));
+        verify(petRepository, times(2)).saveAll(anyList());
+    }
+
+}
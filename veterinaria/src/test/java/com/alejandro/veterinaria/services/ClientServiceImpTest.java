@@ -2,6 +2,7 @@ package com.alejandro.veterinaria.services;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
@@ -9,17 +10,43 @@ import static org.mockito.Mockito.*;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import com.alejandro.veterinaria.cache.ClientResponseCache;
+import com.alejandro.veterinaria.data.AddressData;
 import com.alejandro.veterinaria.data.ClientData;
 import com.alejandro.veterinaria.data.CustomCondition;
+import com.alejandro.veterinaria.data.PetData;
 import com.alejandro.veterinaria.entities.Client;
+import com.alejandro.veterinaria.entities.ClientBatch;
+import com.alejandro.veterinaria.entities.ClientDetail;
+import com.alejandro.veterinaria.entities.ClientPage;
+import com.alejandro.veterinaria.entities.ClientSummary;
+import com.alejandro.veterinaria.entities.Pet;
+import com.alejandro.veterinaria.exceptions.PreconditionFailedException;
+import com.alejandro.veterinaria.repositories.AddressRepository;
 import com.alejandro.veterinaria.repositories.ClientRepository;
+import com.alejandro.veterinaria.repositories.PetRepository;
+import com.alejandro.veterinaria.search.ClientSearchIndex;
+import com.alejandro.veterinaria.search.PetSearchIndex;
+import com.alejandro.veterinaria.utils.UtilCursor;
+import com.alejandro.veterinaria.utils.UtilETag;
+import com.alejandro.veterinaria.utils.UtilPatch;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validation;
 
 @ExtendWith(MockitoExtension.class)
 class ClientServiceImpTest {
@@ -28,6 +55,45 @@ class ClientServiceImpTest {
     @Mock
     ClientRepository repository; 
 
+    // To create a mock
+    @Mock
+    PetRepository petRepository; 
+
+    // To create a mock
+    @Mock
+    AddressRepository addressRepository; 
+
+    // To create a mock
+    @Mock
+    ClientSearchIndex searchIndex;
+
+    // To create a mock
+    @Mock
+    PetSearchIndex petSearchIndex;
+
+    // To create a mock
+    @Mock
+    ClientResponseCache responseCache;
+
+    // To use the real component inside of the service
+    @Spy
+    UtilCursor utilCursor = new UtilCursor();
+
+    // To use the real component inside of the service
+    @Spy
+    UtilETag utilETag = new UtilETag();
+
+    // To use the real component inside of the service
+    @Spy
+    UtilPatch utilPatch = new UtilPatch();
+
+    // The components that are used by 'UtilPatch'
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(utilPatch, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(utilPatch, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+    }
+
     // To create a service object with the injection of a mock
     @InjectMocks
     ClientServiceImp service;
@@ -37,21 +103,59 @@ class ClientServiceImpTest {
     void findAllTest() {
 
         // Given
-        when(repository.findAll()).thenReturn(ClientData.createClients001());
+        when(repository.findAllSummaries()).thenReturn(ClientData.createClientSummaries001());
 
         // when
-        List<Client> clients = service.findAll();
+        List<ClientSummary> clients = service.findAll();
 
         // then
         assertNotNull(clients);
         assertEquals(5, clients.size());
-        assertEquals(2L, clients.get(1).getId());
-        assertEquals("Hueto", clients.get(1).getName());
-        assertEquals("Navejas", clients.get(1).getLastname());
-        assertEquals("hekevim148@idoidraw.com", clients.get(1).getEmail());
-        assertEquals(1538971230L, clients.get(1).getPhonenumber());
+        assertEquals(2L, clients.get(1).id());
+        assertEquals("Hueto", clients.get(1).name());
+        assertEquals("Navejas", clients.get(1).lastname());
+        assertEquals("hekevim148@idoidraw.com", clients.get(1).email());
+        assertEquals(1538971230L, clients.get(1).phonenumber());
+
+        verify(repository).findAllSummaries();
+    }
+
+    // To test the method findPage when there are more clients than the size of the page
+    @Test
+    void findPageWithNextPageTest() {
+
+        // Given
+        when(repository.findSummariesByIdGreaterThan(anyLong(), any(Limit.class))).thenReturn(ClientData.createClientSummaries001().subList(0, 3));
+
+        // when
+        ClientPage<ClientSummary> page = service.findPage(null, 2);
+
+        // then
+        assertEquals(2, page.getContent().size());
+        assertEquals(1L, page.getContent().get(0).getId());
+        assertEquals(2L, page.getContent().get(1).getId());
+        assertEquals(2L, utilCursor.decode(page.getNextCursor()));
 
-        verify(repository).findAll();
+        verify(repository).findSummariesByIdGreaterThan(0L, Limit.of(3));
+    }
+
+    // To test the method findPage when the page is the last one
+    @Test
+    void findPageLastPageTest() {
+
+        // Given
+        when(repository.findSummariesByIdGreaterThan(anyLong(), any(Limit.class))).thenReturn(ClientData.createClientSummaries001().subList(3, 5));
+
+        // when
+        ClientPage<ClientSummary> page = service.findPage(3L, 2);
+
+        // then
+        assertEquals(2, page.getContent().size());
+        assertEquals(4L, page.getContent().get(0).getId());
+        assertEquals(5L, page.getContent().get(1).getId());
+        assertNull(page.getNextCursor());
+
+        verify(repository).findSummariesByIdGreaterThan(3L, Limit.of(3));
     }
 
     // To test the method findById when we use an existing id
@@ -94,6 +198,127 @@ class ClientServiceImpTest {
         verify(repository).findById(argThat(new CustomCondition(ClientData.idsValid, false)));
     }
 
+    // To test the method findBatch, the clients are in the order of the ids and the ids that don't exist are apart
+    @Test
+    void findBatchTest() {
+
+        // Given
+        List<ClientSummary> summaries = ClientData.createClientSummaries001();
+        when(repository.findSummariesByIdIn(anyCollection())).thenReturn(List.of(summaries.get(0), summaries.get(2)));
+
+        // When
+        ClientBatch<ClientSummary> batch = service.findBatch(List.of(3L, 99L, 1L, 3L));
+
+        // Then
+        assertEquals(2, batch.getContent().size());
+        assertEquals(3L, batch.getContent().get(0).getId());
+        assertEquals(1L, batch.getContent().get(1).getId());
+        assertEquals(List.of(99L), batch.getMissing());
+
+        verify(repository).findSummariesByIdIn(List.of(3L, 99L, 1L));
+    }
+
+    // To test the method findBatch with more ids than the size of a query 'IN'
+    @Test
+    void findBatchChunksTest() {
+
+        // Given
+        List<Long> ids = LongStream.rangeClosed(1, 1500).boxed().toList();
+        when(repository.findSummariesByIdIn(anyCollection())).thenReturn(List.of());
+
+        // When
+        ClientBatch<ClientSummary> batch = service.findBatch(ids);
+
+        // Then
+        assertTrue(batch.getContent().isEmpty());
+        assertEquals(1500, batch.getMissing().size());
+
+        verify(repository).findSummariesByIdIn(ids.subList(0, 1000));
+        verify(repository).findSummariesByIdIn(ids.subList(1000, 1500));
+    }
+
+    // To test the method findDetailById when the pets and the address are requested
+    @Test
+    void findDetailByIdTest() {
+
+        // Given
+        when(repository.findWithPetsAndAddressById(anyLong())).thenReturn(Optional.of(ClientData.createClient002()));
+
+        // When
+        Optional<ClientDetail> optionalClient = service.findDetailById(2L, true, true);
+
+        // Then
+        assertTrue(optionalClient.isPresent());
+        assertEquals("Hueto", optionalClient.get().name());
+        assertEquals(3, optionalClient.get().pets().size());
+        assertEquals("av. siempre viva", optionalClient.get().address().getStreet());
+
+        verify(repository).findWithPetsAndAddressById(argThat(new CustomCondition(ClientData.idsValid, true)));
+        verify(repository, never()).findById(anyLong());
+    }
+
+    // To test the method findDetailById when only the address is requested
+    @Test
+    void findDetailByIdAddressTest() {
+
+        // Given
+        when(repository.findWithAddressById(anyLong())).thenReturn(Optional.of(ClientData.createClient002()));
+
+        // When
+        Optional<ClientDetail> optionalClient = service.findDetailById(2L, false, true);
+
+        // Then
+        assertNull(optionalClient.get().pets());
+        assertEquals("av. siempre viva", optionalClient.get().address().getStreet());
+
+        verify(repository, never()).findWithPetsAndAddressById(anyLong());
+        verify(repository, never()).findWithPetsById(anyLong());
+    }
+
+    // To test the method expand, the pets and the addresses of all of the clients are read with one query each
+    @Test
+    void expandTest() {
+
+        // Given
+        List<ClientSummary> clients = ClientData.createClientSummaries001();
+        List<Pet> pets = PetData.createPets002();
+        pets.forEach(pet -> pet.setClientId(2L));
+        when(petRepository.findByClientIdInOrderById(anyCollection())).thenReturn(pets);
+        when(repository.findAddressesByIdIn(anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[] { 2L, AddressData.createAddress002() }));
+
+        // When
+        List<ClientDetail> details = service.expand(clients, true, true);
+
+        // Then
+        assertEquals(5, details.size());
+        assertEquals(1L, details.get(0).getId());
+        assertTrue(details.get(0).pets().isEmpty());
+        assertNull(details.get(0).address());
+        assertEquals(3, details.get(1).pets().size());
+        assertEquals("av. siempre viva", details.get(1).address().getStreet());
+
+        verify(petRepository).findByClientIdInOrderById(List.of(1L, 2L, 3L, 4L, 5L));
+        verify(repository).findAddressesByIdIn(List.of(1L, 2L, 3L, 4L, 5L));
+    }
+
+    // To test the method expand when only the pets are requested (the addresses are not read)
+    @Test
+    void expandPetsTest() {
+
+        // Given
+        when(petRepository.findByClientIdInOrderById(anyCollection())).thenReturn(List.of());
+
+        // When
+        List<ClientDetail> details = service.expand(ClientData.createClientSummaries001(), true, false);
+
+        // Then
+        assertEquals(5, details.size());
+        assertNull(details.get(0).address());
+
+        verify(repository, never()).findAddressesByIdIn(anyCollection());
+    }
+
     // To test the method save
     @Test
     void saveTest() {
@@ -112,6 +337,7 @@ class ClientServiceImpTest {
         assertEquals(5550374984L, newClient.getPhonenumber());
 
         verify(repository).save(any(Client.class));
+        verify(searchIndex).put(null, "Javier", "Mejia");
     }
 
     // To test the method update when we use an existing id
@@ -125,7 +351,7 @@ class ClientServiceImpTest {
         when(repository.save(any(Client.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // When
-        Optional<Client> result = service.update(idToUpdate, clientToUpdate);
+        Optional<Client> result = service.update(idToUpdate, clientToUpdate, null);
 
         // Then
         assertTrue(result.isPresent());
@@ -139,6 +365,28 @@ class ClientServiceImpTest {
         verify(repository).save(any(Client.class));
     }
 
+    // To test the method update when the header 'If-Match' has an old version of the client
+    @Test
+    void updateOldVersionTest() {
+
+        // Given
+        Long idToUpdate = 1L;
+        Client clientDb = ClientData.createClient001();
+        clientDb.setVersion(3L);
+        Client clientToUpdate = new Client(idToUpdate, "Angel", "Sanchez", "daltonico@idoidraw.com", 5526384734L, null, null);
+        when(repository.findById(anyLong())).thenReturn(Optional.of(clientDb));
+
+        // When
+        assertThrows(PreconditionFailedException.class, () -> {
+            service.update(idToUpdate, clientToUpdate, "\"1-2\"");
+        });
+
+        // Then
+        assertEquals("Alejandro", clientDb.getName());
+        verify(repository, never()).save(any(Client.class));
+        verifyNoInteractions(searchIndex, responseCache);
+    }
+
     // To test the method update when we use an inexisting id
     @Test
     void updateInexistingIdTest() {
@@ -148,7 +396,7 @@ class ClientServiceImpTest {
         when(repository.findById(anyLong())).thenReturn(Optional.empty());
 
         // When
-        Optional<Client> result2 = service.update(idToUpdate, clientToUpdate);
+        Optional<Client> result2 = service.update(idToUpdate, clientToUpdate, null);
 
         // Then
         assertFalse(result2.isPresent());
@@ -160,6 +408,107 @@ class ClientServiceImpTest {
         verify(repository, never()).save(any(Client.class));
     }
 
+    // To test the method patch, only the attributes of the patch are changed
+    @Test
+    void patchExistingIdTest() throws Exception {
+
+        // Given
+        when(repository.findById(anyLong())).thenReturn(Optional.of(ClientData.createClient001()));
+        JsonNode patch = new ObjectMapper().readTree("{\"lastname\": \" Sanchez \", \"phonenumber\": 5526384734}");
+
+        // When
+        Optional<Client> result = service.patch(1L, patch, null);
+
+        // Then
+        assertTrue(result.isPresent());
+        assertEquals("Alejandro", result.get().getName());
+        assertEquals("Sanchez", result.get().getLastname());
+        assertEquals("alejandro.magb@gmail.com", result.get().getEmail());
+        assertEquals(5526384734L, result.get().getPhonenumber());
+
+        verify(searchIndex).put(1L, "Alejandro", "Sanchez");
+        verify(responseCache).invalidate(1L);
+        verify(repository, never()).save(any(Client.class));
+    }
+
+    // To test the method patch when the patch doesn't change anything, the client is not written
+    @Test
+    void patchWithoutChangesTest() throws Exception {
+
+        // Given
+        when(repository.findById(anyLong())).thenReturn(Optional.of(ClientData.createClient001()));
+        JsonNode patch = new ObjectMapper().readTree("{\"name\": \"Alejandro \", \"email\": \"alejandro.magb@gmail.com\"}");
+
+        // When
+        Optional<Client> result = service.patch(1L, patch, null);
+
+        // Then
+        assertTrue(result.isPresent());
+        assertEquals("Alejandro", result.get().getName());
+        verifyNoInteractions(searchIndex, responseCache);
+    }
+
+    // To test the method patch when the result doesn't meet the obligations of the attributes
+    @Test
+    void patchInvalidTest() throws Exception {
+
+        // Given
+        Client clientDb = ClientData.createClient001();
+        when(repository.findById(anyLong())).thenReturn(Optional.of(clientDb));
+        JsonNode patch = new ObjectMapper().readTree("{\"name\": null, \"email\": \"correo\"}");
+
+        // When
+        ConstraintViolationException exception = assertThrows(ConstraintViolationException.class, () -> {
+            service.patch(1L, patch, null);
+        });
+
+        // Then
+        assertEquals(2, exception.getConstraintViolations().size());
+        assertEquals("Alejandro", clientDb.getName());
+        assertEquals("alejandro.magb@gmail.com", clientDb.getEmail());
+        verifyNoInteractions(searchIndex, responseCache);
+    }
+
+    // To test the method patch when the patch has an attribute that can't be changed
+    @Test
+    void patchNotEditableAttributeTest() throws Exception {
+
+        // Given
+        when(repository.findById(anyLong())).thenReturn(Optional.of(ClientData.createClient001()));
+
+        // When
+        assertThrows(IllegalArgumentException.class, () -> {
+            service.patch(1L, new ObjectMapper().readTree("{\"id\": 5}"), null);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            service.patch(1L, new ObjectMapper().readTree("{\"version\": 5}"), null);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            service.patch(1L, new ObjectMapper().readTree("{\"nickname\": \"alex\"}"), null);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            service.patch(1L, new ObjectMapper().readTree("[]"), null);
+        });
+
+        // Then
+        verifyNoInteractions(searchIndex, responseCache);
+    }
+
+    // To test the method patch when we use an inexisting id
+    @Test
+    void patchInexistingIdTest() throws Exception {
+
+        // Given
+        when(repository.findById(anyLong())).thenReturn(Optional.empty());
+
+        // When
+        Optional<Client> result = service.patch(202L, new ObjectMapper().readTree("{\"name\": \"Angel\"}"), null);
+
+        // Then
+        assertFalse(result.isPresent());
+        verifyNoInteractions(searchIndex, responseCache);
+    }
+
     // To test the method delete when we use an existing id
     @Test
     void deleteExistingIdTest() {
@@ -179,7 +528,32 @@ class ClientServiceImpTest {
         assertEquals(1538977020L, result.get().getPhonenumber());
 
         verify(repository).findById(argThat(new CustomCondition(ClientData.idsValid, true)));
-        verify(repository).deleteById(argThat(new CustomCondition(ClientData.idsValid, true)));
+        verify(petRepository).bulkDeleteByClientId(argThat(new CustomCondition(ClientData.idsValid, true)));
+        verify(repository).bulkDeleteById(argThat(new CustomCondition(ClientData.idsValid, true)));
+        verify(addressRepository).bulkDeleteById(100L);
+        verify(repository, never()).deleteById(anyLong());
+        verify(searchIndex).remove(1L);
+        verify(petSearchIndex).removeByClient(1L);
+    }
+
+    // To test the method delete when the client doesn't have an address
+    @Test
+    void deleteWithoutAddressTest() {
+
+        // Given
+        Long idToDelete = 5L;
+        when(repository.findById(anyLong())).thenReturn(Optional.of(ClientData.createClient005()));
+
+        // When
+        Optional<Client> result = service.deleteById(idToDelete);
+
+        // Then
+        assertTrue(result.isPresent());
+        assertEquals("John", result.get().getName());
+
+        verify(petRepository).bulkDeleteByClientId(5L);
+        verify(repository).bulkDeleteById(5L);
+        verify(addressRepository, never()).bulkDeleteById(anyLong());
     }
 
     // To test the method delete when we use an inexisting id
@@ -200,7 +574,96 @@ class ClientServiceImpTest {
         });
 
         verify(repository).findById(argThat(new CustomCondition(ClientData.idsValid, false)));
-        verify(repository, never()).deleteById(argThat(new CustomCondition(ClientData.idsValid, false)));
+        verify(petRepository, never()).bulkDeleteByClientId(anyLong());
+        verify(repository, never()).bulkDeleteById(anyLong());
+        verify(addressRepository, never()).bulkDeleteById(anyLong());
+    }
+
+    // To test the method findByNameContaining when the search index is ready
+    @Test
+    void findByNameContainingTest() {
+
+        // Given
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.findIdsByName("ale")).thenReturn(List.of(1L));
+        when(repository.findSummariesByIdIn(List.of(1L))).thenReturn(ClientData.createClientSummaries001().subList(0, 1));
+
+        // When
+        List<ClientSummary> clients = service.findByNameContaining("ale");
+
+        // Then
+        assertEquals(1, clients.size());
+        assertEquals("Alejandro", clients.get(0).name());
+        verify(repository, never()).findSummariesByNameContaining(any());
+    }
+
+    // To test that the method findByNameContaining reads the ids of the search index in chunks
+    @Test
+    void findByNameContainingChunksTest() {
+
+        // Given
+        List<Long> ids = LongStream.rangeClosed(1, 1500).boxed().toList();
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.findIdsByName("a")).thenReturn(LongStream.iterate(1500, id -> id - 1).limit(1500).boxed().toList());
+        when(repository.findSummariesByIdIn(anyCollection())).thenReturn(List.of());
+
+        // When
+        service.findByNameContaining("a");
+
+        // Then
+        verify(repository).findSummariesByIdIn(ids.subList(0, 1000));
+        verify(repository).findSummariesByIdIn(ids.subList(1000, 1500));
+    }
+
+    // To test the method findByLastnameContaining when no client is found in the search index
+    @Test
+    void findByLastnameContainingEmptyTest() {
+
+        // Given
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.findIdsByLastname("xyz")).thenReturn(List.of());
+
+        // When
+        List<ClientSummary> clients = service.findByLastnameContaining("xyz");
+
+        // Then
+        assertTrue(clients.isEmpty());
+        verifyNoInteractions(repository);
+    }
+
+    // To test the method findByNameContaining when the search index is not built yet
+    @Test
+    void findByNameContainingIndexNotReadyTest() {
+
+        // Given
+        when(searchIndex.isReady()).thenReturn(false);
+        when(repository.findSummariesByNameContaining("ale")).thenReturn(ClientData.createClientSummaries001().subList(0, 1));
+
+        // When
+        List<ClientSummary> clients = service.findByNameContaining("ale");
+
+        // Then
+        assertEquals(1, clients.size());
+        verify(searchIndex, never()).findIdsByName(any());
+    }
+
+    // To test the method findClientsByPetNameLike when the search index is ready
+    @Test
+    void findClientsByPetNameLikeTest() {
+
+        // Given
+        when(petSearchIndex.isReady()).thenReturn(true);
+        when(petSearchIndex.findClientIdsByPetName("goliath")).thenReturn(List.of(2L, 4L));
+        when(repository.findSummariesByIdIn(List.of(2L, 4L))).thenReturn(List.of(ClientSummary.from(ClientData.createClient002()), ClientSummary.from(ClientData.createClient004())));
+
+        // When
+        List<ClientSummary> clients = service.findClientsByPetNameLike("goliath");
+
+        // Then
+        assertEquals(2, clients.size());
+        assertEquals(2L, clients.get(0).getId());
+        assertEquals(4L, clients.get(1).getId());
+        verify(repository, never()).findSummariesByPetNameLike(any());
     }
 
 }
@@ -6,23 +6,44 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
+import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.alejandro.veterinaria.cache.ClientResponseCache;
 import com.alejandro.veterinaria.data.PetData;
 import com.alejandro.veterinaria.data.ClientData;
 import com.alejandro.veterinaria.data.CustomCondition;
 import com.alejandro.veterinaria.entities.Client;
 import com.alejandro.veterinaria.entities.Pet;
+import com.alejandro.veterinaria.entities.PetBatchReport;
+import com.alejandro.veterinaria.entities.PetUpdate;
+import com.alejandro.veterinaria.exceptions.PreconditionFailedException;
 import com.alejandro.veterinaria.repositories.ClientRepository;
 import com.alejandro.veterinaria.repositories.PetRepository;
+import com.alejandro.veterinaria.search.PetSearchIndex;
+import com.alejandro.veterinaria.utils.UtilCache;
+import com.alejandro.veterinaria.utils.UtilETag;
+import com.alejandro.veterinaria.utils.UtilPatch;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 
 @ExtendWith(MockitoExtension.class)
 class PetServiceImpTest {
@@ -35,6 +56,44 @@ class PetServiceImpTest {
     @Mock
     ClientRepository clientRepository; 
 
+    // To create a mock
+    @Mock
+    PetSearchIndex searchIndex;
+
+    // To create a mock
+    @Mock
+    UtilCache utilCache;
+
+    // To create a mock
+    @Mock
+    ClientResponseCache responseCache;
+
+    // To use the real component inside of the service
+    @Spy
+    UtilETag utilETag = new UtilETag();
+
+    // To create a mock
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    // To run the callbacks of the service with the mock of the transaction manager
+    @Spy
+    TransactionTemplate transactionTemplate = new TransactionTemplate();
+
+    @Spy
+    Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    // To use the real component inside of the service
+    @Spy
+    UtilPatch utilPatch = new UtilPatch();
+
+    // The components that are used by 'UtilPatch'
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(utilPatch, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(utilPatch, "validator", validator);
+    }
+
     // To create a service object with the injection of a mock
     @InjectMocks
     PetServiceImp service;
@@ -86,6 +145,40 @@ class PetServiceImpTest {
         verify(repository).findById(argThat(new CustomCondition(PetData.idsValid, false)));
     }
 
+    // To test the 'findPetsByClient' method when an existent client ID is used
+    @Test
+    void findPetsByClientExistingIdTest() {
+
+        // Given
+        when(clientRepository.findById(anyLong())).thenReturn(Optional.of(ClientData.createClient002()));
+
+        // when
+        Optional<List<Pet>> optionalPets = service.findPetsByClient(2L);
+
+        // then
+        assertTrue(optionalPets.isPresent());
+        assertEquals(20L, optionalPets.get().get(0).getId());
+        assertEquals("goliath", optionalPets.get().get(0).getName());
+
+        verify(clientRepository).findById(argThat(new CustomCondition(ClientData.idsValid, true)));
+    }
+
+    // To test the 'findPetsByClient' method when a non-existent client ID is used
+    @Test
+    void findPetsByClientInexistingIdTest() {
+
+        // Given
+        when(clientRepository.findById(anyLong())).thenReturn(Optional.empty());
+
+        // when
+        Optional<List<Pet>> optionalPets = service.findPetsByClient(99999L);
+
+        // then
+        assertFalse(optionalPets.isPresent());
+
+        verify(clientRepository).findById(argThat(new CustomCondition(ClientData.idsValid, false)));
+    }
+
     // To test the 'savePetByClient' method when an existent client ID is used
     @Test
     void savePetByClientExistingIdTest() {
@@ -93,7 +186,7 @@ class PetServiceImpTest {
         // Given
         Long idToSearch = 4L;
         when(clientRepository.findById(anyLong())).thenReturn(Optional.of(ClientData.createClient004()));
-        when(clientRepository.save(any(Client.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(repository.save(any(Pet.class))).thenAnswer(invocation -> invocation.getArgument(0));
         Pet petInsert = new Pet(null, "lince intergalactico", "lince", null, 5L, "le duele el estomago");
         
         // when
@@ -101,8 +194,6 @@ class PetServiceImpTest {
         
         // then
         Client newClient = optionalNewClient.get();
-        int size = newClient.getPets().size();
-        List<Pet> pets = newClient.getPets();
 
         assertNotNull(newClient);
         assertEquals(4L, newClient.getId());
@@ -111,16 +202,15 @@ class PetServiceImpTest {
         assertEquals("pastor34@idoidraw.com", newClient.getEmail());
         assertEquals(1234567890L, newClient.getPhonenumber());
 
-        assertNotNull(pets);
-        assertEquals(3, size);
-        assertEquals("lince intergalactico", pets.get(size - 1).getName());
-        assertEquals("lince", pets.get(size - 1).getSpecie());
-        assertNull(pets.get(size - 1).getBreed());
-        assertEquals(5L, pets.get(size - 1).getAge());
-        assertEquals("le duele el estomago", pets.get(size - 1).getReasonForVisit());
+        // The pet is inserted with its owner and the pets of the client are not touched
+        assertEquals(4L, petInsert.getClientId());
+        assertEquals(2, newClient.getPets().size());
 
         verify(clientRepository).findById(argThat(new CustomCondition(ClientData.idsValid, true)));
-        verify(clientRepository).save(any(Client.class));
+        verify(repository).save(petInsert);
+        verify(searchIndex).put(petInsert.getId(), petInsert.getName(), petInsert.getClientId());
+        verify(utilCache).evictPets(petInsert.getClientId());
+        verify(clientRepository, never()).save(any(Client.class));
     }
 
     // To test the 'savePetByClient' method a non-existent client ID is used
@@ -142,7 +232,7 @@ class PetServiceImpTest {
         });
 
         verify(clientRepository).findById(argThat(new CustomCondition(ClientData.idsValid, false)));
-        verify(clientRepository, never()).save(any(Client.class));
+        verify(repository, never()).save(any(Pet.class));
     }
 
     // Test the 'editPetByClient' method when a non-existent client ID is used
@@ -152,12 +242,11 @@ class PetServiceImpTest {
         // Given
         Long idToSearch = 9999L;
         Long petIdToSearch = 10L;
-        when(clientRepository.findById(anyLong())).thenReturn(Optional.empty());
-        when(repository.findById(anyLong())).thenReturn(Optional.of(PetData.createPet001()));
+        when(repository.updateByIdAndClientId(anyLong(), anyLong(), isNull(), any(Pet.class))).thenReturn(0);
         Pet petToUpdate = new Pet(null, "lince update", "reptil", null, 3L, "infeccion en los ojos");
         
         // When
-        Optional<Client> optionalClient = service.editPetByClient(idToSearch, petIdToSearch, petToUpdate);
+        Optional<PetUpdate> optionalClient = service.editPetByClient(idToSearch, petIdToSearch, petToUpdate, null);
 
         // Then
         assertFalse(optionalClient.isPresent());
@@ -165,9 +254,8 @@ class PetServiceImpTest {
             optionalClient.orElseThrow();
         });
 
-        verify(clientRepository).findById(argThat(new CustomCondition(ClientData.idsValid, false)));
-        verify(repository).findById(argThat(new CustomCondition(PetData.idsValid, true)));
-        verify(clientRepository, never()).save(any(Client.class));
+        verify(repository).updateByIdAndClientId(argThat(new CustomCondition(PetData.idsValid, true)), argThat(new CustomCondition(ClientData.idsValid, false)), isNull(), any(Pet.class));
+        verify(clientRepository, never()).findById(anyLong());
     }
 
     // Test the 'editPetByClient' method when a non-existent pet ID is used
@@ -178,11 +266,10 @@ class PetServiceImpTest {
         Long idToSearch = 1L;
         Long petIdToSearch = 9999L;
         Pet petToUpdate = new Pet(null, "lince update", "reptil", null, 3L, "infeccion en los ojos");
-        when(clientRepository.findById(anyLong())).thenReturn(Optional.of(ClientData.createClient001()));
-        when(repository.findById(anyLong())).thenReturn(Optional.empty());
+        when(repository.updateByIdAndClientId(anyLong(), anyLong(), isNull(), any(Pet.class))).thenReturn(0);
         
         // When
-        Optional<Client> optionalClient = service.editPetByClient(idToSearch, petIdToSearch, petToUpdate);
+        Optional<PetUpdate> optionalClient = service.editPetByClient(idToSearch, petIdToSearch, petToUpdate, null);
 
         // Then
         assertFalse(optionalClient.isPresent());
@@ -190,9 +277,8 @@ class PetServiceImpTest {
             optionalClient.orElseThrow();
         });
 
-        verify(clientRepository).findById(argThat(new CustomCondition(ClientData.idsValid, true)));
-        verify(repository).findById(argThat(new CustomCondition(PetData.idsValid, false)));
-        verify(clientRepository, never()).save(any(Client.class));
+        verify(repository).updateByIdAndClientId(argThat(new CustomCondition(PetData.idsValid, false)), argThat(new CustomCondition(ClientData.idsValid, true)), isNull(), any(Pet.class));
+        verify(clientRepository, never()).findById(anyLong());
     }
 
     // Test the 'editPetByClient' method when the existing pet ID and client ID are used but the client is not an owner
@@ -203,11 +289,10 @@ class PetServiceImpTest {
         Long idToSearch = 1L;
         Long petIdToSearch = 80L;
         Pet petToUpdate = new Pet(null, "lince update", "reptil", null, 3L, "infeccion en los ojos");
-        when(clientRepository.findById(anyLong())).thenReturn(Optional.of(ClientData.createClient001()));
-        when(repository.findById(anyLong())).thenReturn(Optional.of(PetData.createPet008()));
+        when(repository.updateByIdAndClientId(anyLong(), anyLong(), isNull(), any(Pet.class))).thenReturn(0);
         
         // When
-        Optional<Client> optionalClient = service.editPetByClient(idToSearch, petIdToSearch, petToUpdate);
+        Optional<PetUpdate> optionalClient = service.editPetByClient(idToSearch, petIdToSearch, petToUpdate, null);
 
         // Then
         assertFalse(optionalClient.isPresent());
@@ -215,9 +300,45 @@ class PetServiceImpTest {
             optionalClient.orElseThrow();
         });
 
-        verify(clientRepository).findById(argThat(new CustomCondition(ClientData.idsValid, true)));
-        verify(repository).findById(argThat(new CustomCondition(PetData.idsValid, true)));
-        verify(clientRepository, never()).save(any(Client.class));
+        verify(repository).updateByIdAndClientId(80L, 1L, null, petToUpdate);
+        verify(clientRepository, never()).findById(anyLong());
+        verifyNoInteractions(searchIndex);
+    }
+
+    // To test the 'editPetByClient' method when the header 'If-Match' has an old version of the pet
+    @Test
+    void editPetByClientOldVersionTest() {
+
+        // Given
+        Pet petToUpdate = new Pet(null, "lince update", "reptil", null, 3L, "infeccion en los ojos");
+        when(repository.updateByIdAndClientId(anyLong(), anyLong(), anyLong(), any(Pet.class))).thenReturn(0);
+        when(repository.existsByIdAndClientId(anyLong(), anyLong())).thenReturn(true);
+
+        // When
+        assertThrows(PreconditionFailedException.class, () -> {
+            service.editPetByClient(4L, 80L, petToUpdate, "\"80-2\"");
+        });
+
+        // Then
+        verify(repository).updateByIdAndClientId(80L, 4L, 2L, petToUpdate);
+        verify(repository).existsByIdAndClientId(80L, 4L);
+        verifyNoInteractions(searchIndex, responseCache);
+    }
+
+    // To test the 'editPetByClient' method when the header 'If-Match' doesn't have an ETag of the pet
+    @Test
+    void editPetByClientOtherETagTest() {
+
+        // Given
+        Pet petToUpdate = new Pet(null, "lince update", "reptil", null, 3L, "infeccion en los ojos");
+
+        // When
+        assertThrows(PreconditionFailedException.class, () -> {
+            service.editPetByClient(4L, 80L, petToUpdate, "\"70-2\", W/\"80-2\"");
+        });
+
+        // Then
+        verifyNoInteractions(repository, searchIndex, responseCache);
     }
 
     // To test the 'editPetByClient' method when the existing pet ID and client ID are used but the client is an owner
@@ -228,15 +349,16 @@ class PetServiceImpTest {
         Long idToSearch = 4L;
         Long petIdToSearch = 80L;
         Pet petToUpdate = new Pet(null, "lince update", "reptil", null, 3L, "infeccion en los ojos");
+        when(repository.updateByIdAndClientId(anyLong(), anyLong(), isNull(), any(Pet.class))).thenReturn(1);
+        when(repository.findByIdAndClientId(anyLong(), anyLong())).thenReturn(Optional.of(PetData.createPet008()));
         when(clientRepository.findById(anyLong())).thenReturn(Optional.of(ClientData.createClient004()));
-        when(repository.findById(anyLong())).thenReturn(Optional.of(PetData.createPet008()));
-        when(clientRepository.save(any(Client.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // When
-        Optional<Client> optionalClient = service.editPetByClient(idToSearch, petIdToSearch, petToUpdate);
+        Optional<PetUpdate> optionalClient = service.editPetByClient(idToSearch, petIdToSearch, petToUpdate, null);
 
         // then
-        Client newClientDb = optionalClient.get();
+        Client newClientDb = optionalClient.get().client();
+        assertEquals(80L, optionalClient.get().pet().getId());
 
         assertNotNull(newClientDb);
         assertEquals(4L, newClientDb.getId());
@@ -245,17 +367,11 @@ class PetServiceImpTest {
         assertEquals("pastor34@idoidraw.com", newClientDb.getEmail());
         assertEquals(1234567890L, newClientDb.getPhonenumber());
 
-        Pet petUpdated = newClientDb.getPets().get(1);
-
-        assertEquals("lince update", petUpdated.getName());
-        assertEquals("reptil", petUpdated.getSpecie());
-        assertNull(petUpdated.getBreed());
-        assertEquals(3L, petUpdated.getAge());
-        assertEquals("infeccion en los ojos", petUpdated.getReasonForVisit());
-
+        verify(repository).updateByIdAndClientId(80L, 4L, null, petToUpdate);
+        verify(searchIndex).put(80L, petToUpdate.getName(), 4L);
+        verify(repository).findByIdAndClientId(80L, 4L);
         verify(clientRepository).findById(argThat(new CustomCondition(ClientData.idsValid, true)));
-        verify(repository).findById(argThat(new CustomCondition(PetData.idsValid, true)));
-        verify(clientRepository).save(any(Client.class));
+        verify(clientRepository, never()).save(any(Client.class));
     }
 
     // Test the 'deletePetByClient' method when a non-existent client ID is used
@@ -265,8 +381,7 @@ class PetServiceImpTest {
         // Given
         Long idToSearch = 9999L;
         Long petIdToSearch = 10L;
-        when(clientRepository.findById(anyLong())).thenReturn(Optional.empty());
-        when(repository.findById(anyLong())).thenReturn(Optional.of(PetData.createPet001()));
+        when(repository.deleteByIdAndClientId(anyLong(), anyLong())).thenReturn(0);
         
         // When
         Optional<Client> optionalClient = service.deletePetByClient(idToSearch, petIdToSearch);
@@ -277,9 +392,8 @@ class PetServiceImpTest {
             optionalClient.orElseThrow();
         });
 
-        verify(clientRepository).findById(argThat(new CustomCondition(ClientData.idsValid, false)));
-        verify(repository).findById(argThat(new CustomCondition(PetData.idsValid, true)));
-        verify(clientRepository, never()).save(any(Client.class));
+        verify(repository).deleteByIdAndClientId(argThat(new CustomCondition(PetData.idsValid, true)), argThat(new CustomCondition(ClientData.idsValid, false)));
+        verify(clientRepository, never()).findById(anyLong());
     }
 
     // Test the 'deletePetByClient' method when a non-existent pet ID is used
@@ -289,8 +403,7 @@ class PetServiceImpTest {
         // Given
         Long idToSearch = 1L;
         Long petIdToSearch = 9999L;
-        when(clientRepository.findById(anyLong())).thenReturn(Optional.of(ClientData.createClient001()));
-        when(repository.findById(anyLong())).thenReturn(Optional.empty());
+        when(repository.deleteByIdAndClientId(anyLong(), anyLong())).thenReturn(0);
         
         // When
         Optional<Client> optionalClient = service.deletePetByClient(idToSearch, petIdToSearch);
@@ -301,9 +414,8 @@ class PetServiceImpTest {
             optionalClient.orElseThrow();
         });
 
-        verify(clientRepository).findById(argThat(new CustomCondition(ClientData.idsValid, true)));
-        verify(repository).findById(argThat(new CustomCondition(PetData.idsValid, false)));
-        verify(clientRepository, never()).save(any(Client.class));
+        verify(repository).deleteByIdAndClientId(argThat(new CustomCondition(PetData.idsValid, false)), argThat(new CustomCondition(ClientData.idsValid, true)));
+        verify(clientRepository, never()).findById(anyLong());
     }
 
     // Test the 'deletePetByClient' method when the existing pet ID and client ID are used but the client is not an owner
@@ -313,8 +425,7 @@ class PetServiceImpTest {
         // Given
         Long idToSearch = 1L;
         Long petIdToSearch = 80L;
-        when(clientRepository.findById(anyLong())).thenReturn(Optional.of(ClientData.createClient001()));
-        when(repository.findById(anyLong())).thenReturn(Optional.of(PetData.createPet008()));
+        when(repository.deleteByIdAndClientId(anyLong(), anyLong())).thenReturn(0);
         
         // When
         Optional<Client> optionalClient = service.deletePetByClient(idToSearch, petIdToSearch);
@@ -325,9 +436,224 @@ class PetServiceImpTest {
             optionalClient.orElseThrow();
         });
 
-        verify(clientRepository).findById(argThat(new CustomCondition(ClientData.idsValid, true)));
-        verify(repository).findById(argThat(new CustomCondition(PetData.idsValid, true)));
-        verify(clientRepository, never()).save(any(Client.class));
+        verify(repository).deleteByIdAndClientId(80L, 1L);
+        verify(clientRepository, never()).findById(anyLong());
+        verifyNoInteractions(searchIndex);
+    }
+
+    // Test the 'savePetsByClient' method with valid, invalid and duplicated pets
+    @Test
+    void savePetsByClientTest() {
+
+        // Given
+        transactionTemplate.setTransactionManager(transactionManager);
+        when(clientRepository.existsById(anyLong())).thenReturn(true);
+        when(repository.findNamesByClientIdAndNameIn(anyLong(), any())).thenReturn(List.of("Nala"));
+        when(repository.saveAll(any())).thenAnswer(invocation -> {
+            long id = 100L;
+            for (Pet pet : invocation.<Iterable<Pet>>getArgument(0)) {
+                pet.setId(id++);
+            }
+            return invocation.getArgument(0);
+        });
+
+        // When
+        PetBatchReport report = service.savePetsByClient(4L, List.of(
+            new Pet(null, " firulais ", "perro", null, 3L, "vacunas"),
+            new Pet(null, "michi", "", null, 2L, "revision"),
+            new Pet(null, "nala", "perro", null, 4L, "no quiere comer"),
+            new Pet(null, "Firulais", "perro", null, 5L, "revision"),
+            new Pet(null, "pelusa", "gato", "siames", 1L, "vacunas"))).get();
+
+        // Then
+        assertEquals(2, report.getCreated());
+        assertEquals(3, report.getFailed());
+        assertEquals(5, report.getResults().size());
+
+        assertEquals(201, report.getResults().get(0).status());
+        assertEquals(100L, report.getResults().get(0).pet().getId());
+        assertEquals("firulais", report.getResults().get(0).pet().getName());
+        assertEquals(4L, report.getResults().get(0).pet().getClientId());
+        assertEquals(400, report.getResults().get(1).status());
+        assertTrue(report.getResults().get(1).errors().containsKey("specie"));
+        assertEquals(409, report.getResults().get(2).status());
+        assertEquals("Error! Esta mascota ya se registro previamente para este cliente.", report.getResults().get(2).errors().get("name"));
+        assertEquals(409, report.getResults().get(3).status());
+        assertEquals("Error! Esta mascota se repite en la misma peticion.", report.getResults().get(3).errors().get("name"));
+        assertEquals(201, report.getResults().get(4).status());
+        assertEquals(4, report.getResults().get(4).index());
+
+        // The valid pets were saved in one transaction
+        verify(repository).saveAll(argThat((Collection<Pet> pets) -> pets.size() == 2));
+        verify(searchIndex).put(100L, "firulais", 4L);
+        verify(searchIndex).put(101L, "pelusa", 4L);
+        verify(utilCache).evictPets(4L);
+        verify(responseCache).invalidate(4L);
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    // Test the 'savePetsByClient' method when the db rejects a pet of the batch, the others are saved one by one
+    @Test
+    void savePetsByClientRejectedPetTest() {
+
+        // Given
+        transactionTemplate.setTransactionManager(transactionManager);
+        when(clientRepository.existsById(anyLong())).thenReturn(true);
+        when(repository.saveAll(any())).thenAnswer(invocation -> {
+            long id = 100L;
+            for (Pet pet : invocation.<Iterable<Pet>>getArgument(0)) {
+                if (pet.getName().equals("nala")) {
+                    throw new DataIntegrityViolationException("UK_client_pet", new SQLException("Duplicate entry", "23000", 1062));
+                }
+                pet.setId(id++);
+            }
+            return invocation.getArgument(0);
+        });
+
+        // When
+        PetBatchReport report = service.savePetsByClient(4L, List.of(
+            new Pet(null, "firulais", "perro", null, 3L, "vacunas"),
+            new Pet(null, "nala", "perro", null, 4L, "no quiere comer"))).get();
+
+        // Then
+        assertEquals(1, report.getCreated());
+        assertEquals(1, report.getFailed());
+        assertEquals(201, report.getResults().get(0).status());
+        assertEquals(409, report.getResults().get(1).status());
+
+        // The batch failed and then each pet was saved alone
+        verify(transactionManager, times(2)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    // Test the 'savePetsByClient' method when the db rejects a pet saved alone for another reason than a duplicate,
+    // only that pet fails and it's not reported as a duplicate
+    @Test
+    void savePetsByClientRejectedNotDuplicatedPetTest() {
+
+        // Given
+        transactionTemplate.setTransactionManager(transactionManager);
+        when(clientRepository.existsById(anyLong())).thenReturn(true);
+        when(repository.saveAll(any())).thenAnswer(invocation -> {
+            long id = 100L;
+            for (Pet pet : invocation.<Iterable<Pet>>getArgument(0)) {
+                if (pet.getName().equals("nala")) {
+                    throw new DataIntegrityViolationException("UK_client_pet", new SQLException("Duplicate entry", "23000", 1062));
+                }
+                if (pet.getName().equals("michi")) {
+                    throw new DataIntegrityViolationException("FK_client", new SQLException("Cannot add a child row", "23000", 1452));
+                }
+                pet.setId(id++);
+            }
+            return invocation.getArgument(0);
+        });
+
+        // When
+        PetBatchReport report = service.savePetsByClient(4L, List.of(
+            new Pet(null, "firulais", "perro", null, 3L, "vacunas"),
+            new Pet(null, "nala", "perro", null, 4L, "no quiere comer"),
+            new Pet(null, "michi", "gato", null, 2L, "revision"))).get();
+
+        // Then
+        assertEquals(1, report.getCreated());
+        assertEquals(2, report.getFailed());
+        assertEquals(201, report.getResults().get(0).status());
+        assertEquals(409, report.getResults().get(1).status());
+        assertEquals(500, report.getResults().get(2).status());
+        assertEquals("Error! Los datos no cumplen con las restricciones de la base de datos.",
+                report.getResults().get(2).errors().get("pet"));
+    }
+
+    // Test the 'savePetsByClient' method when the batch fails for another reason than a duplicate,
+    // then the pets are not saved one by one and the request fails
+    @Test
+    void savePetsByClientBatchNotDuplicatedTest() {
+
+        // Given
+        transactionTemplate.setTransactionManager(transactionManager);
+        when(clientRepository.existsById(anyLong())).thenReturn(true);
+        when(repository.saveAll(any())).thenThrow(
+                new DataIntegrityViolationException("FK_client", new SQLException("Cannot add a child row", "23000", 1452)));
+        List<Pet> newPets = List.of(new Pet(null, "firulais", "perro", null, 3L, "vacunas"));
+
+        // When
+        assertThrows(DataIntegrityViolationException.class, () -> service.savePetsByClient(4L, newPets));
+
+        // Then
+        verify(repository, times(1)).saveAll(any());
+        verify(transactionManager, times(1)).rollback(any());
+    }
+
+    // Test the 'savePetsByClient' method when the client doesn't exist
+    @Test
+    void savePetsByClientNotExistingClientTest() {
+
+        // Given
+        when(clientRepository.existsById(anyLong())).thenReturn(false);
+
+        // When
+        Optional<PetBatchReport> optionalReport = service.savePetsByClient(5000L,
+            List.of(new Pet(null, "firulais", "perro", null, 3L, "vacunas")));
+
+        // Then
+        assertTrue(optionalReport.isEmpty());
+        verify(repository, never()).saveAll(any());
+        verify(transactionTemplate, never()).execute(any());
+    }
+
+    // Test the 'patchPetByClient' method, only the attributes of the patch are changed and the breed is removed
+    @Test
+    void patchPetByClientTest() throws Exception {
+
+        // Given
+        when(repository.findByIdAndClientId(anyLong(), anyLong())).thenReturn(Optional.of(PetData.createPet006()));
+        JsonNode patch = new ObjectMapper().readTree("{\"breed\": null, \"age\": 6}");
+
+        // When
+        Optional<Pet> optionalPet = service.patchPetByClient(3L, 60L, patch, null);
+
+        // Then
+        Pet petDb = optionalPet.get();
+        assertEquals("pennywise", petDb.getName());
+        assertEquals("gato", petDb.getSpecie());
+        assertNull(petDb.getBreed());
+        assertEquals(6L, petDb.getAge());
+        assertEquals("no puede ir al baño", petDb.getReasonForVisit());
+
+        verify(repository).findByIdAndClientId(60L, 3L);
+        verify(searchIndex).put(60L, "pennywise", 3L);
+        verify(responseCache).invalidate(3L);
+        verify(repository, never()).save(any(Pet.class));
+    }
+
+    // Test the 'patchPetByClient' method when the patch doesn't change anything, the pet is not written
+    @Test
+    void patchPetByClientWithoutChangesTest() throws Exception {
+
+        // Given
+        when(repository.findByIdAndClientId(anyLong(), anyLong())).thenReturn(Optional.of(PetData.createPet006()));
+
+        // When
+        Optional<Pet> optionalPet = service.patchPetByClient(3L, 60L, new ObjectMapper().readTree("{\"name\": \" pennywise\"}"), null);
+
+        // Then
+        assertTrue(optionalPet.isPresent());
+        verifyNoInteractions(searchIndex, responseCache);
+    }
+
+    // Test the 'patchPetByClient' method when the pet doesn't belong to the client
+    @Test
+    void patchPetByClientNoOwnerTest() throws Exception {
+
+        // Given
+        when(repository.findByIdAndClientId(anyLong(), anyLong())).thenReturn(Optional.empty());
+
+        // When
+        Optional<Pet> optionalPet = service.patchPetByClient(4L, 60L, new ObjectMapper().readTree("{\"age\": 6}"), null);
+
+        // Then
+        assertTrue(optionalPet.isEmpty());
+        verifyNoInteractions(searchIndex, responseCache);
     }
 
     // Test the 'deletePetByClient' method when the existing pet ID and client ID are used and the client is an owner
@@ -337,26 +663,14 @@ class PetServiceImpTest {
         // Given
         Long idToSearch = 4L;
         Long petIdToSearch = 80L;
+        when(repository.deleteByIdAndClientId(anyLong(), anyLong())).thenReturn(1);
         when(clientRepository.findById(anyLong())).thenReturn(Optional.of(ClientData.createClient004()));
-        when(repository.findById(anyLong())).thenReturn(Optional.of(PetData.createPet008()));
-        when(clientRepository.save(any(Client.class))).thenAnswer(invocation -> invocation.getArgument(0));
-
-        // when: get pets (first time)
-        List<Pet> pets = clientRepository.findById(idToSearch).get().getPets();
 
-        // then (first time)
-        assertNotNull(pets);
-        assertEquals(2, pets.size());
-
-        // when: Delete a pet and get pets (second time)
-        Optional<Client> optionalClient2 = service.deletePetByClient(idToSearch, petIdToSearch);
-        List<Pet> pets2 = clientRepository.findById(idToSearch).get().getPets();
+        // When
+        Optional<Client> optionalClient = service.deletePetByClient(idToSearch, petIdToSearch);
 
         // then
-        assertNotNull(pets2);
-        assertEquals(1, pets2.size());
-
-        Client newClientDb = optionalClient2.get();
+        Client newClientDb = optionalClient.get();
 
         assertNotNull(newClientDb);
         assertEquals(4L, newClientDb.getId());
@@ -365,9 +679,10 @@ class PetServiceImpTest {
         assertEquals("pastor34@idoidraw.com", newClientDb.getEmail());
         assertEquals(1234567890L, newClientDb.getPhonenumber());
 
-        verify(clientRepository, times(3)).findById(argThat(new CustomCondition(ClientData.idsValid, true)));
-        verify(repository).findById(argThat(new CustomCondition(PetData.idsValid, true)));
-        verify(clientRepository).save(any(Client.class));
+        verify(repository).deleteByIdAndClientId(80L, 4L);
+        verify(searchIndex).remove(80L);
+        verify(clientRepository).findById(argThat(new CustomCondition(ClientData.idsValid, true)));
+        verify(clientRepository, never()).save(any(Client.class));
     }
 
 }
@@ -0,0 +1,42 @@
+package com.alejandro.veterinaria.sql;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class ParameterMaskerTest {
+
+    ParameterMasker masker = new ParameterMasker(Set.of("email", "phone_number"));
+
+    // To test the columns of the statements generated by hibernate
+    @Test
+    void columnsTest() {
+        assertEquals(List.of("email", "lastname", "name", "phone_number", "version", "id_client"),
+                masker.columns("insert into client (email,lastname,name,phone_number,version,id_client) values (?,?,?,?,?,?)"));
+        assertEquals(List.of("email", "version", "id_client", "version"),
+                masker.columns("update client set email=?,version=? where id_client=? and version=?"));
+        assertEquals(Arrays.asList("id_client", "id_client", "name"),
+                masker.columns("select c1_0.id_client from client c1_0 where c1_0.id_client in (?,?) and lower(c1_0.name) like ? escape ''"));
+    }
+
+    // To test that the emails and the phone numbers are masked, and the rest of the parameters are not
+    @Test
+    void formatTest() {
+
+        // When
+        String params = masker.format("update client set email=?,phone_number=?,version=? where id_client=? and version=?",
+                new Object[] { "hekevim148@idoidraw.com", 1538971230L, 1, 21L, null });
+        String search = masker.format("select c1_0.id_client from client c1_0 where c1_0.name like ?",
+                new Object[] { "%pastor34@idoidraw.com%" });
+
+        // Then
+        assertEquals("[1:h***@idoidraw.com, 2:******1230, 3:1, 4:21, 5:null]", params);
+        assertEquals("[1:%***@idoidraw.com%]", search);
+        assertEquals("[]", masker.format("select 1", new Object[0]));
+    }
+
+}
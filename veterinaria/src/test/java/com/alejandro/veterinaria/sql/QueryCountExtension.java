@@ -0,0 +1,68 @@
+package com.alejandro.veterinaria.sql;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolver;
+
+// To count the SQL statements that hibernate sends while a test runs.
+// The tests receive a 'QueryCount' as a parameter, it counts the statements of all of the threads
+// (as the threads of the server that handle the requests sent by the test) since the test started
+// or since its last check:
+//
+//     @ExtendWith(QueryCountExtension.class)
+//     class ClientIntegrationTest {
+//         @Test
+//         void getClientIntegrationTest(QueryCount queries) {
+//             client.getForEntity("/api/clients/21", Client.class);
+//             queries.assertCount(1);
+//         }
+//     }
+public class QueryCountExtension implements BeforeEachCallback, ParameterResolver {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(QueryCountExtension.class);
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        this.queryCount(context).reset();
+    }
+
+    @Override
+    public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        return parameterContext.getParameter().getType() == QueryCount.class;
+    }
+
+    @Override
+    public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        return this.queryCount(extensionContext);
+    }
+
+    private QueryCount queryCount(ExtensionContext context) {
+        return context.getStore(NAMESPACE).getOrComputeIfAbsent(QueryCount.class, key -> new QueryCount(), QueryCount.class);
+    }
+
+    // The statements since the start of the test or since the last check
+    public static class QueryCount {
+
+        private long start = QueryCounter.total();
+
+        public long count() {
+            return QueryCounter.total() - start;
+        }
+
+        public void reset() {
+            start = QueryCounter.total();
+        }
+
+        // To check the number of statements, then the count starts again
+        public void assertCount(long expected) {
+            long count = this.count();
+            this.reset();
+            assertEquals(expected, count, "Number of SQL statements");
+        }
+
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.alejandro.veterinaria.sql;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class QueryCountFilterTest {
+
+    SimpleMeterRegistry registry;
+
+    QueryCountFilter filter;
+
+    MockHttpServletRequest request;
+
+    MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        filter = new QueryCountFilter(registry, 3);
+        request = new MockHttpServletRequest("GET", "/api/clients/21/pets");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/clients/{id_client}/pets");
+        response = new MockHttpServletResponse();
+    }
+
+    // To test that the count is sent before the body, without the statements that are sent after it starts
+    @Test
+    void headerBeforeBodyTest() throws Exception {
+
+        // When
+        filter.doFilter(request, response, (req, res) -> {
+            QueryCounter.increment();
+            QueryCounter.increment();
+            res.getOutputStream().write("[]".getBytes());
+            QueryCounter.increment();
+        });
+
+        // Then
+        assertEquals("2", response.getHeader(QueryCountFilter.QUERY_COUNT));
+        assertEquals(3.0, registry.get("veterinaria.http.queries").tag("method", "GET")
+                .tag("uri", "/api/clients/{id_client}/pets").summary().totalAmount());
+        assertTrue(registry.find("veterinaria.http.queries.exceeded").counters().isEmpty());
+    }
+
+    // To test that the requests with more statements than the threshold are counted
+    @Test
+    void thresholdExceededTest() throws Exception {
+
+        // When
+        filter.doFilter(request, response, (req, res) -> {
+            for (int i = 0; i < 4; i++) {
+                QueryCounter.increment();
+            }
+        });
+
+        // Then
+        assertEquals("4", response.getHeader(QueryCountFilter.QUERY_COUNT));
+        assertEquals(1.0, registry.get("veterinaria.http.queries.exceeded")
+                .tag("uri", "/api/clients/{id_client}/pets").counter().count());
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.alejandro.veterinaria.sql;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+// The statements are sent to a db of H2 in memory, the log keeps them instead of writing them
+@ExtendWith(OutputCaptureExtension.class)
+class SlowQueryDataSourceTest {
+
+    DriverManagerDataSource target = new DriverManagerDataSource("jdbc:h2:mem:slowquery;DB_CLOSE_DELAY=-1", "sa", "");
+
+    List<SlowQuery> queries = new CopyOnWriteArrayList<>();
+
+    SlowQueryLog log = new SlowQueryLog(16, new ParameterMasker(Set.of("email"))) {
+        @Override
+        public void offer(SlowQuery query) {
+            queries.add(query);
+        }
+    };
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (Connection connection = target.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS client (id BIGINT PRIMARY KEY, email VARCHAR(100))");
+            statement.execute("DELETE FROM client");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        log.close();
+    }
+
+    // To test that the statements over the threshold are written with their parameters, rows and caller
+    @Test
+    void slowStatementsTest() throws Exception {
+
+        // Given
+        SlowQueryDataSource dataSource = new SlowQueryDataSource(target, log, 0, 0);
+
+        // When
+        String previous = QueryCaller.set("ClientRepository.save");
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement insert = connection.prepareStatement("insert into client (id,email) values (?,?)")) {
+            for (long id = 1; id <= 3; id++) {
+                insert.setLong(1, id);
+                insert.setString(2, "cliente" + id + "@idoidraw.com");
+                insert.executeUpdate();
+            }
+        } finally {
+            QueryCaller.restore(previous);
+        }
+
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement select = connection.prepareStatement("select id from client where id > ?")) {
+            select.setLong(1, 1L);
+            try (ResultSet resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    assertSame(connection, select.getConnection());
+                }
+            }
+        }
+
+        // Then
+        assertEquals(4, queries.size());
+        SlowQuery insert = queries.get(2);
+        assertTrue(insert.slow());
+        assertEquals(1, insert.rows());
+        assertEquals("ClientRepository.save", insert.caller());
+        assertArrayEquals(new Object[] { 3L, "cliente3@idoidraw.com" }, insert.params());
+
+        SlowQuery select = queries.get(3);
+        assertEquals(2, select.rows());
+        assertNull(select.caller());
+        assertEquals("select id from client where id > ?", select.sql());
+        assertArrayEquals(new Object[] { 1L }, select.params());
+    }
+
+    // To test that a batch is written once with its number of rows and the parameters of its first row
+    @Test
+    void batchStatementsTest(CapturedOutput output) throws Exception {
+
+        // Given
+        SlowQueryDataSource dataSource = new SlowQueryDataSource(target, log, 0, 0);
+
+        // When
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement insert = connection.prepareStatement("insert into client (id,email) values (?,?)")) {
+            for (long id = 1; id <= 3; id++) {
+                insert.setLong(1, id);
+                insert.setString(2, "cliente" + id + "@idoidraw.com");
+                insert.addBatch();
+            }
+            insert.executeBatch();
+
+            insert.setLong(1, 4L);
+            insert.setString(2, "cliente4@idoidraw.com");
+            insert.executeUpdate();
+        }
+
+        SlowQueryLog writer = new SlowQueryLog(16, new ParameterMasker(Set.of("email")));
+        writer.offer(queries.get(0));
+        writer.close();
+
+        // Then
+        assertEquals(2, queries.size());
+        SlowQuery batch = queries.get(0);
+        assertEquals(3, batch.batchSize());
+        assertEquals(3, batch.rows());
+        assertEquals("insert into client (id,email) values (?,?)", batch.sql());
+        assertArrayEquals(new Object[] { 1L, "cliente1@idoidraw.com" }, batch.params());
+
+        assertEquals(0, queries.get(1).batchSize());
+        assertArrayEquals(new Object[] { 4L, "cliente4@idoidraw.com" }, queries.get(1).params());
+
+        assertTrue(output.getOut().contains("rows=3, batch=3 rows (params of the first one), caller=-"));
+    }
+
+    // To test that the fast statements are not written without the sampling
+    @Test
+    void fastStatementsTest() throws Exception {
+
+        // Given
+        SlowQueryDataSource withoutSampling = new SlowQueryDataSource(target, log, TimeUnit.HOURS.toNanos(1), 0);
+        SlowQueryDataSource allSampled = new SlowQueryDataSource(target, log, TimeUnit.HOURS.toNanos(1), 1);
+
+        // When
+        try (Connection connection = withoutSampling.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeQuery("select 1").close();
+        }
+        try (Connection connection = allSampled.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("insert into client (id,email) values (9,'nueve@idoidraw.com')");
+        }
+
+        // Then
+        assertEquals(1, queries.size());
+        assertFalse(queries.get(0).slow());
+        assertEquals(1, queries.get(0).rows());
+    }
+
+    // To test that the thread of the log writes the statements with the parameters masked
+    @Test
+    void writeTest(CapturedOutput output) {
+
+        // Given
+        SlowQueryLog writer = new SlowQueryLog(16, new ParameterMasker(Set.of("email")));
+
+        // When
+        writer.offer(new SlowQuery(Instant.now(), true, TimeUnit.MILLISECONDS.toNanos(350), 1, 0,
+                "ClientRepository.findByEmail", "select c1_0.id from client c1_0 where c1_0.email=?",
+                new Object[] { "hekevim148@idoidraw.com" }));
+        writer.close();
+
+        // Then
+        assertTrue(output.getOut().contains("slow statement: 350 ms, rows=1, caller=ClientRepository.findByEmail"));
+        assertTrue(output.getOut().contains("params=[1:h***@idoidraw.com]"));
+        assertFalse(output.getOut().contains("hekevim148"));
+        assertEquals(0, writer.dropped());
+    }
+
+}
@@ -22,3 +22,7 @@ INSERT INTO pet (id_pet, name, specie, breed, age, reason_for_visit, id_client)
 (601, 'pennywise', 'gato', 'manchado', 5, 'no puede ir al baño', 31),
 (701, 'goliath', 'perro', 'chihuahua', 4, 'tiene mucho sueño', 41),
 (801, 'quick', 'perro', 'labrador', 10, 'tiene mucho sueño', 41);
+
+ALTER SEQUENCE client_seq RESTART WITH 10000;
+ALTER SEQUENCE pet_seq RESTART WITH 10000;
+ALTER SEQUENCE address_seq RESTART WITH 10000;